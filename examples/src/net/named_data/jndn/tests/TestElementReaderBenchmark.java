@@ -0,0 +1,163 @@
+/**
+ * Copyright (C) 2019 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+
+package net.named_data.jndn.tests;
+
+import java.nio.ByteBuffer;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.encoding.ElementListener;
+import net.named_data.jndn.encoding.ElementReader;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.encoding.tlv.TlvStructureDecoder;
+
+/**
+ * Measure the throughput of framing a stream of small Interests into elements,
+ * both with ElementReader (as a transport does) and with TlvStructureDecoder
+ * alone.
+ */
+public class TestElementReaderBenchmark {
+  private static double
+  getNowSeconds()
+  {
+    return System.nanoTime() / 1e9;
+  }
+
+  /**
+   * Make a stream of nElements encoded Interests, as received from a socket.
+   * @param nElements The number of Interests.
+   * @return The stream buffer.
+   */
+  private static ByteBuffer
+  makeStream(int nElements)
+  {
+    ByteBuffer[] encodings = new ByteBuffer[nElements];
+    int totalLength = 0;
+    for (int i = 0; i < nElements; ++i) {
+      Interest interest = new Interest
+        (new Name("/benchmark/framing").appendSegment(i));
+      interest.setCanBePrefix(false);
+      encodings[i] = interest.wireEncode().buf();
+      totalLength += encodings[i].remaining();
+    }
+
+    ByteBuffer stream = ByteBuffer.allocate(totalLength);
+    for (int i = 0; i < nElements; ++i)
+      stream.put(encodings[i]);
+    stream.flip();
+    return stream;
+  }
+
+  private static class CountingListener implements ElementListener {
+    public void
+    onReceivedElement(ByteBuffer element) { ++nElements_; }
+
+    public int nElements_ = 0;
+  }
+
+  /**
+   * Call ElementReader.onReceivedData with the stream in chunks of chunkSize,
+   * nIterations times.
+   * @return The number of seconds.
+   */
+  private static double
+  benchmarkElementReaderSeconds
+    (ByteBuffer stream, int chunkSize, int nIterations, int nElements)
+    throws EncodingException
+  {
+    CountingListener listener = new CountingListener();
+    ElementReader reader = new ElementReader(listener);
+
+    double start = getNowSeconds();
+    for (int i = 0; i < nIterations; ++i) {
+      for (int position = 0; position < stream.limit(); position += chunkSize) {
+        ByteBuffer chunk = stream.duplicate();
+        chunk.position(position);
+        chunk.limit(Math.min(position + chunkSize, stream.limit()));
+        reader.onReceivedData(chunk);
+      }
+    }
+    double finish = getNowSeconds();
+
+    if (listener.nElements_ != nIterations * nElements)
+      throw new Error("Unexpected element count " + listener.nElements_);
+    return finish - start;
+  }
+
+  /**
+   * Find the end of each element in the stream with a new TlvStructureDecoder,
+   * nIterations times.
+   * @return The number of seconds.
+   */
+  private static double
+  benchmarkStructureDecoderSeconds
+    (ByteBuffer stream, int nIterations, int nElements)
+    throws EncodingException
+  {
+    int nFound = 0;
+    double start = getNowSeconds();
+    for (int i = 0; i < nIterations; ++i) {
+      ByteBuffer input = stream.duplicate();
+      while (input.hasRemaining()) {
+        ByteBuffer element = input.slice();
+        TlvStructureDecoder decoder = new TlvStructureDecoder();
+        if (!decoder.findElementEnd(element))
+          throw new Error("Did not find the element end");
+        input.position(input.position() + decoder.getOffset());
+        ++nFound;
+      }
+    }
+    double finish = getNowSeconds();
+
+    if (nFound != nIterations * nElements)
+      throw new Error("Unexpected element count " + nFound);
+    return finish - start;
+  }
+
+  public static void
+  main(String[] args) throws EncodingException
+  {
+    Interest.setDefaultCanBePrefix(false);
+    int nElements = 1000;
+    int nIterations = 5000;
+    ByteBuffer stream = makeStream(nElements);
+
+    // Warm up.
+    benchmarkElementReaderSeconds(stream, stream.limit(), nIterations / 10, nElements);
+    benchmarkElementReaderSeconds(stream, 1400, nIterations / 10, nElements);
+    benchmarkStructureDecoderSeconds(stream, nIterations / 10, nElements);
+
+    double duration = benchmarkStructureDecoderSeconds
+      (stream, nIterations, nElements);
+    System.out.println("TlvStructureDecoder.findElementEnd: Duration sec, Hz: " +
+      duration + ", " + (nIterations * nElements / duration));
+
+    // One read with all elements, and reads the size of a typical TCP segment
+    // where elements are split between reads.
+    int[] chunkSizes = new int[] { stream.limit(), 1400 };
+    for (int i = 0; i < chunkSizes.length; ++i) {
+      duration = benchmarkElementReaderSeconds
+        (stream, chunkSizes[i], nIterations, nElements);
+      System.out.println("ElementReader read size " + chunkSizes[i] +
+        ": Duration sec, Hz: " + duration + ", " +
+        (nIterations * nElements / duration));
+    }
+  }
+}
@@ -0,0 +1,181 @@
+/**
+ * Copyright (C) 2019 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+
+package net.named_data.jndn.tests;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.KeyLocator;
+import net.named_data.jndn.KeyLocatorType;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.Sha256WithRsaSignature;
+import net.named_data.jndn.encoding.TlvWireFormat;
+import net.named_data.jndn.encoding.WireFormat;
+import net.named_data.jndn.util.Blob;
+
+/**
+ * Measure the bytes allocated and the rate of encoding Data and Interest
+ * packets with the TLV wire format, in the style of TestEncodeDecodeBenchmark.
+ * The allocated bytes are from the HotSpot ThreadMXBean, which is used through
+ * reflection since it is not part of the standard Java API.
+ */
+public class TestEncodeAllocationBenchmark {
+  private static double
+  getNowSeconds()
+  {
+    return System.nanoTime() / 1e9;
+  }
+
+  /**
+   * Get the number of bytes allocated by the current thread so far.
+   * @return The allocated bytes, or -1 if not supported by the JVM.
+   */
+  private static long
+  getAllocatedBytes()
+  {
+    if (getThreadAllocatedBytes_ == null)
+      return -1;
+
+    try {
+      return (Long)getThreadAllocatedBytes_.invoke
+        (threadMXBean_, Thread.currentThread().getId());
+    } catch (Exception ex) {
+      return -1;
+    }
+  }
+
+  /**
+   * Make a Data packet with a blank signature, like benchmarkEncodeDataSeconds
+   * in TestEncodeDecodeBenchmark.
+   * @param useComplex If true, use a large name, large content and all fields.
+   * If false, use a small name, small content and only required fields.
+   * @return The Data packet.
+   */
+  private static Data
+  makeData(boolean useComplex)
+  {
+    Data data;
+    if (useComplex) {
+      data = new Data(new Name
+        ("/ndn/ucla.edu/apps/lwndn-test/numbers.txt/%FD%05%05%E8%0C%CE%1D/%00"));
+
+      StringBuffer contentStream = new StringBuffer();
+      int count = 1;
+      contentStream.append(count++);
+      while (contentStream.toString().length() < 1115)
+        contentStream.append(" ").append(count++);
+      data.setContent(new Blob(contentStream.toString()));
+      data.getMetaInfo().setFreshnessPeriod(30000);
+      data.getMetaInfo().setFinalBlockId
+        (new Name.Component(new Blob(new byte[] { (byte)0 }, false)));
+    }
+    else {
+      data = new Data(new Name("/test"));
+      data.setContent(new Blob("abc"));
+    }
+
+    KeyLocator keyLocator = new KeyLocator();
+    keyLocator.setType(KeyLocatorType.KEYNAME);
+    keyLocator.setKeyName(new Name("/testname/KEY/123"));
+    Sha256WithRsaSignature signature =
+      (Sha256WithRsaSignature)data.getSignature();
+    signature.setKeyLocator(keyLocator);
+    signature.setSignature(new Blob(new byte[256], false));
+
+    return data;
+  }
+
+  /**
+   * Encode the Data or Interest nIterations times and print the rate and the
+   * allocated bytes per encoding.
+   * @param label The label to print.
+   * @param data The Data to encode, or null to encode interest.
+   * @param interest The Interest to encode if data is null.
+   * @param nIterations The number of iterations.
+   */
+  private static void
+  benchmarkEncode(String label, Data data, Interest interest, int nIterations)
+  {
+    WireFormat wireFormat = TlvWireFormat.get();
+    int encodingSize = 0;
+
+    long startBytes = getAllocatedBytes();
+    double start = getNowSeconds();
+    for (int i = 0; i < nIterations; ++i) {
+      // Call the wire format directly since wireEncode() caches the encoding.
+      Blob encoding = data != null ?
+        wireFormat.encodeData(data) : wireFormat.encodeInterest(interest);
+      encodingSize = encoding.size();
+    }
+    double finish = getNowSeconds();
+    long finishBytes = getAllocatedBytes();
+
+    double duration = finish - start;
+    System.out.println("Encode " + label + " (" + encodingSize +
+      " bytes): Duration sec, Hz: " + duration + ", " +
+      (nIterations / duration) + ", allocated bytes per encoding: " +
+      (startBytes < 0 ? "unknown" :
+       "" + (finishBytes - startBytes) / nIterations));
+  }
+
+  public static void
+  main(String[] args)
+  {
+    Logger.getLogger("").setLevel(Level.OFF);
+    Interest.setDefaultCanBePrefix(false);
+    int nIterations = 2000000;
+
+    Data simpleData = makeData(false);
+    Data complexData = makeData(true);
+    Interest interest = new Interest
+      (new Name("/ndn/ucla.edu/apps/lwndn-test/numbers.txt").appendSegment(1));
+    // Use a fixed nonce so that encoding doesn't allocate one.
+    interest.setNonce(new Blob(new byte[] { 1, 2, 3, 4 }, false));
+
+    // Warm up.
+    benchmarkEncode("simple data", simpleData, null, nIterations / 10);
+    benchmarkEncode("complex data", complexData, null, nIterations / 10);
+    benchmarkEncode("interest", null, interest, nIterations / 10);
+    System.out.println();
+
+    benchmarkEncode("simple data", simpleData, null, nIterations);
+    benchmarkEncode("complex data", complexData, null, nIterations);
+    benchmarkEncode("interest", null, interest, nIterations);
+  }
+
+  private static ThreadMXBean threadMXBean_ =
+    ManagementFactory.getThreadMXBean();
+  private static Method getThreadAllocatedBytes_ = null;
+
+  static {
+    try {
+      getThreadAllocatedBytes_ = Class.forName
+        ("com.sun.management.ThreadMXBean").getMethod
+        ("getThreadAllocatedBytes", long.class);
+    } catch (Exception ex) {
+      // Leave getThreadAllocatedBytes_ null.
+    }
+  }
+}
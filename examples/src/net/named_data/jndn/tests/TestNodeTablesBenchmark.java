@@ -0,0 +1,134 @@
+/**
+ * Copyright (C) 2019 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.tests;
+
+import java.util.ArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.impl.DelayedCallTable;
+import net.named_data.jndn.impl.PendingInterestTable;
+
+/**
+ * Measure the throughput of the pending interest table and delayed call table
+ * when many threads add and extract entries at the same time, comparing one
+ * lock (concurrencyLevel 1) with a stripe per thread.
+ */
+public class TestNodeTablesBenchmark {
+  private static double
+  getNowSeconds()
+  {
+    return System.nanoTime() / 1e9;
+  }
+
+  /**
+   * Start nThreads threads which each express nIterations interests in the
+   * way that Node does (add to the PIT, schedule the timeout), then extract
+   * each with a matching Data which cancels the timeout.
+   * @param nThreads The number of threads.
+   * @param nIterations The number of interests for each thread.
+   * @param concurrencyLevel The concurrencyLevel for the tables.
+   * @return The number of seconds for all threads to finish.
+   */
+  private static double
+  benchmarkTablesSeconds
+    (int nThreads, final int nIterations, int concurrencyLevel)
+    throws InterruptedException
+  {
+    final PendingInterestTable pendingInterestTable =
+      new PendingInterestTable(concurrencyLevel);
+    final DelayedCallTable delayedCallTable =
+      new DelayedCallTable(concurrencyLevel);
+    final Runnable timeout = new Runnable() {
+      public void run() {}
+    };
+
+    // Make the names ahead of time so that we only measure the tables.
+    final Name[][] names = new Name[nThreads][nIterations];
+    final Data[][] data = new Data[nThreads][nIterations];
+    for (int t = 0; t < nThreads; ++t) {
+      for (int i = 0; i < nIterations; ++i) {
+        names[t][i] = new Name("/benchmark/thread" + t).appendSegment(i);
+        data[t][i] = new Data(names[t][i]);
+      }
+    }
+
+    Thread[] threads = new Thread[nThreads];
+    for (int t = 0; t < nThreads; ++t) {
+      final int threadIndex = t;
+      threads[t] = new Thread() {
+        public void run() {
+          ArrayList<PendingInterestTable.Entry> entries =
+            new ArrayList<PendingInterestTable.Entry>();
+          for (int i = 0; i < nIterations; ++i) {
+            Interest interest = new Interest(names[threadIndex][i]);
+            PendingInterestTable.Entry entry = pendingInterestTable.add
+              ((long)threadIndex * nIterations + i + 1, interest, null, null,
+               null);
+            entry.setTimeoutCall(delayedCallTable.callLater(4000, timeout));
+
+            entries.clear();
+            pendingInterestTable.extractEntriesForExpressedInterest
+              (data[threadIndex][i], entries);
+          }
+        }
+      };
+    }
+
+    double start = getNowSeconds();
+    for (int t = 0; t < nThreads; ++t)
+      threads[t].start();
+    for (int t = 0; t < nThreads; ++t)
+      threads[t].join();
+    double finish = getNowSeconds();
+
+    return finish - start;
+  }
+
+  public static void
+  main(String[] args) throws InterruptedException
+  {
+    Logger.getLogger("").setLevel(Level.OFF);
+    int nProcessors = Runtime.getRuntime().availableProcessors();
+    int nIterations = 200000;
+
+    // Warm up.
+    benchmarkTablesSeconds(nProcessors, nIterations / 10, 1);
+    benchmarkTablesSeconds(nProcessors, nIterations / 10, nProcessors);
+
+    for (int nThreads = 1; nThreads <= nProcessors; nThreads *= 2) {
+      // Compare one lock with a stripe per thread.
+      int[] concurrencyLevels = new int[] { 1, nThreads };
+      for (int i = 0; i < concurrencyLevels.length; ++i) {
+        if (i > 0 && concurrencyLevels[i] == concurrencyLevels[0])
+          break;
+
+        double duration = benchmarkTablesSeconds
+          (nThreads, nIterations, concurrencyLevels[i]);
+        System.out.println("Express/satisfy threads " + nThreads +
+          ", concurrencyLevel " + concurrencyLevels[i] +
+          ": Duration sec, Hz: " + duration + ", " +
+          (nThreads * nIterations / duration));
+      }
+    }
+  }
+}
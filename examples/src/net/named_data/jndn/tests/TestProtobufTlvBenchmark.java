@@ -0,0 +1,192 @@
+/**
+ * Copyright (C) 2019 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+
+package net.named_data.jndn.tests;
+
+import com.google.protobuf.ByteString;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.encoding.ProtobufTlv;
+import net.named_data.jndn.tests.FibEntryProto.FibEntryMessage;
+import net.named_data.jndn.tests.RibEntryProto.RibEntryMessage;
+import net.named_data.jndn.util.Blob;
+
+/**
+ * Measure the throughput of ProtobufTlv.encode and decode for a single
+ * FibEntry, and for a large RIB list as returned by the NFD rib/list dataset.
+ */
+public class TestProtobufTlvBenchmark {
+  private static double
+  getNowSeconds()
+  {
+    return System.nanoTime() / 1e9;
+  }
+
+  private static FibEntryMessage
+  makeFibEntryMessage()
+  {
+    FibEntryMessage.Builder builder = FibEntryMessage.newBuilder();
+    builder.getFibEntryBuilder().setPhone(FibEntryMessage.PhoneType.WORK);
+    builder.getFibEntryBuilder().getNameBuilder()
+      .addComponent(ByteString.copyFromUtf8("ndn"))
+      .addComponent(ByteString.copyFromUtf8("edu"))
+      .addComponent(ByteString.copyFromUtf8("ucla"));
+    for (int i = 0; i < 3; ++i)
+      builder.getFibEntryBuilder().addNextHopRecordsBuilder()
+        .setFaceId(260 + i)
+        .setCost(10 * i);
+    return builder.build();
+  }
+
+  /**
+   * Make a RibEntryMessage with nEntries entries, each with two routes.
+   */
+  private static RibEntryMessage
+  makeRibEntryMessage(int nEntries)
+  {
+    RibEntryMessage.Builder builder = RibEntryMessage.newBuilder();
+    for (int i = 0; i < nEntries; ++i) {
+      RibEntryMessage.RibEntry.Builder entry = builder.addRibEntryBuilder();
+      entry.getNameBuilder()
+        .addComponent(ByteString.copyFromUtf8("ndn"))
+        .addComponent(ByteString.copyFromUtf8("benchmark"))
+        .addComponent(ByteString.copyFromUtf8("prefix" + i));
+      entry.addRoutesBuilder()
+        .setFaceId(260 + i).setOrigin(0).setCost(0).setFlags(1);
+      entry.addRoutesBuilder()
+        .setFaceId(300 + i).setOrigin(255).setCost(100).setFlags(2)
+        .setExpirationPeriod(3600000);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Encode the FibEntryMessage nIterations times.
+   * @return The number of seconds.
+   */
+  private static double
+  benchmarkEncodeFibEntrySeconds(FibEntryMessage message, int nIterations)
+  {
+    double start = getNowSeconds();
+    for (int i = 0; i < nIterations; ++i)
+      ProtobufTlv.encode(message);
+    double finish = getNowSeconds();
+
+    return finish - start;
+  }
+
+  /**
+   * Decode the FibEntryMessage encoding nIterations times.
+   * @return The number of seconds.
+   */
+  private static double
+  benchmarkDecodeFibEntrySeconds(Blob encoding, int nIterations)
+    throws EncodingException
+  {
+    double start = getNowSeconds();
+    for (int i = 0; i < nIterations; ++i) {
+      FibEntryMessage.Builder builder = FibEntryMessage.newBuilder();
+      ProtobufTlv.decode(builder, encoding);
+      builder.build();
+    }
+    double finish = getNowSeconds();
+
+    return finish - start;
+  }
+
+  /**
+   * Encode the RibEntryMessage nIterations times.
+   * @return The number of seconds.
+   */
+  private static double
+  benchmarkEncodeRibSeconds(RibEntryMessage message, int nIterations)
+  {
+    double start = getNowSeconds();
+    for (int i = 0; i < nIterations; ++i)
+      ProtobufTlv.encode(message);
+    double finish = getNowSeconds();
+
+    return finish - start;
+  }
+
+  /**
+   * Decode the RibEntryMessage encoding nIterations times, checking the
+   * entry count.
+   * @return The number of seconds.
+   */
+  private static double
+  benchmarkDecodeRibSeconds(Blob encoding, int nEntries, int nIterations)
+    throws EncodingException
+  {
+    double start = getNowSeconds();
+    for (int i = 0; i < nIterations; ++i) {
+      RibEntryMessage.Builder builder = RibEntryMessage.newBuilder();
+      ProtobufTlv.decode(builder, encoding);
+      if (builder.getRibEntryCount() != nEntries)
+        throw new Error("Unexpected RIB entry count " + builder.getRibEntryCount());
+    }
+    double finish = getNowSeconds();
+
+    return finish - start;
+  }
+
+  public static void
+  main(String[] args) throws EncodingException
+  {
+    FibEntryMessage fibEntryMessage = makeFibEntryMessage();
+    Blob fibEntryEncoding = ProtobufTlv.encode(fibEntryMessage);
+    int nEntries = 1000;
+    RibEntryMessage ribMessage = makeRibEntryMessage(nEntries);
+    Blob ribEncoding = ProtobufTlv.encode(ribMessage);
+
+    // Check that the encoding decodes to the same message.
+    RibEntryMessage.Builder decodedRib = RibEntryMessage.newBuilder();
+    ProtobufTlv.decode(decodedRib, ribEncoding);
+    if (!decodedRib.build().equals(ribMessage))
+      throw new Error("The decoded RibEntryMessage does not match");
+
+    int nFibIterations = 200000;
+    int nRibIterations = 200;
+
+    // Warm up with the same number of iterations so that the JIT has compiled
+    // the encoder and decoder before measuring.
+    benchmarkEncodeFibEntrySeconds(fibEntryMessage, nFibIterations);
+    benchmarkDecodeFibEntrySeconds(fibEntryEncoding, nFibIterations);
+    benchmarkEncodeRibSeconds(ribMessage, nRibIterations);
+    benchmarkDecodeRibSeconds(ribEncoding, nEntries, nRibIterations);
+
+    double duration = benchmarkEncodeFibEntrySeconds
+      (fibEntryMessage, nFibIterations);
+    System.out.println("Encode FibEntry: Duration sec, Hz: " + duration +
+      ", " + (nFibIterations / duration));
+    duration = benchmarkDecodeFibEntrySeconds(fibEntryEncoding, nFibIterations);
+    System.out.println("Decode FibEntry: Duration sec, Hz: " + duration +
+      ", " + (nFibIterations / duration));
+
+    // For the RIB list, report the rate of RIB entries.
+    duration = benchmarkEncodeRibSeconds(ribMessage, nRibIterations);
+    System.out.println("Encode RIB list of " + nEntries +
+      " entries: Duration sec, entries Hz: " + duration + ", " +
+      (nRibIterations * nEntries / duration));
+    duration = benchmarkDecodeRibSeconds(ribEncoding, nEntries, nRibIterations);
+    System.out.println("Decode RIB list of " + nEntries +
+      " entries: Duration sec, entries Hz: " + duration + ", " +
+      (nRibIterations * nEntries / duration));
+  }
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright (C) 2019 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.tests;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.encoding.ElementListener;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.transport.UdpTransport;
+import net.named_data.jndn.util.Blob;
+import net.named_data.jndn.util.Common;
+
+/**
+ * Measure the packet rate of UdpTransport with a local UDP echo server which
+ * stands in for the forwarder, comparing one datagram at a time with burst
+ * receive and queued sends.
+ */
+public class TestUdpTransportBenchmark {
+  private static double
+  getNowSeconds()
+  {
+    return System.nanoTime() / 1e9;
+  }
+
+  /**
+   * An EchoServer thread sends each received datagram back to the sender.
+   */
+  private static class EchoServer extends Thread {
+    public EchoServer() throws IOException
+    {
+      channel_ = DatagramChannel.open();
+      channel_.bind(new InetSocketAddress("127.0.0.1", 0));
+    }
+
+    public int
+    getPort() throws IOException
+    {
+      return ((InetSocketAddress)channel_.getLocalAddress()).getPort();
+    }
+
+    public void
+    run()
+    {
+      ByteBuffer buffer = ByteBuffer.allocate(Common.MAX_NDN_PACKET_SIZE);
+      try {
+        while (true) {
+          buffer.clear();
+          SocketAddress sender = channel_.receive(buffer);
+          buffer.flip();
+          channel_.send(buffer, sender);
+        }
+      } catch (ClosedChannelException ex) {
+        // Finished.
+      } catch (IOException ex) {
+        System.out.println("Echo server error: " + ex);
+      }
+    }
+
+    public void
+    close() throws IOException { channel_.close(); }
+
+    private final DatagramChannel channel_;
+  }
+
+  /**
+   * Send nPackets to the echo server, keeping up to window packets
+   * outstanding, and receive the echoes.
+   * @param nPackets The number of packets to send.
+   * @param window The maximum number of packets sent but not yet received.
+   * @param burstSize The receive burst size. If greater than 1, also use
+   * queueSend and flush.
+   * @param counts Set counts[0] to the number of packets received.
+   * @return The number of seconds.
+   */
+  private static double
+  benchmarkEchoSeconds(int nPackets, int window, int burstSize, int[] counts)
+    throws IOException, EncodingException
+  {
+    EchoServer server = new EchoServer();
+    server.start();
+    final int[] nReceived = new int[1];
+    UdpTransport transport = new UdpTransport();
+    transport.setReceiveBurstSize(burstSize);
+    transport.connect
+      (new UdpTransport.ConnectionInfo("127.0.0.1", server.getPort()),
+       new ElementListener() {
+         public void onReceivedElement(ByteBuffer element) {
+           ++nReceived[0];
+         }
+       },
+       null);
+
+    // Encode ahead of time so that we only measure the transport.
+    Data data = new Data(new Name("/benchmark/udp"));
+    data.setContent(new Blob(new byte[1000]));
+    ByteBuffer encoding = data.wireEncode().buf();
+
+    int nSent = 0;
+    double lastProgress = getNowSeconds();
+    double start = lastProgress;
+    while (nReceived[0] < nSent || nSent < nPackets) {
+      int nToSend = Math.min
+        (window - (nSent - nReceived[0]), nPackets - nSent);
+      for (int i = 0; i < nToSend; ++i) {
+        if (burstSize > 1)
+          transport.queueSend(encoding);
+        else
+          transport.send(encoding);
+      }
+      nSent += nToSend;
+      transport.flush();
+
+      int saveReceived = nReceived[0];
+      transport.processEvents();
+      double now = getNowSeconds();
+      if (nReceived[0] != saveReceived)
+        lastProgress = now;
+      else if (now - lastProgress > 1.0)
+        // The rest were lost.
+        break;
+    }
+    double finish = getNowSeconds();
+
+    transport.close();
+    server.close();
+    counts[0] = nReceived[0];
+    return finish - start;
+  }
+
+  public static void
+  main(String[] args) throws IOException, EncodingException
+  {
+    Logger.getLogger("").setLevel(Level.OFF);
+    int nPackets = 200000;
+    int window = 64;
+    int[] counts = new int[1];
+
+    // Warm up.
+    benchmarkEchoSeconds(nPackets / 10, window, 1, counts);
+    benchmarkEchoSeconds(nPackets / 10, window, 32, counts);
+
+    int[] burstSizes = new int[] { 1, 8, 32 };
+    for (int i = 0; i < burstSizes.length; ++i) {
+      double duration = benchmarkEchoSeconds
+        (nPackets, window, burstSizes[i], counts);
+      System.out.println("UDP echo burst size " + burstSizes[i] +
+        ": Duration sec, Hz: " + duration + ", " + (counts[0] / duration) +
+        ", lost " + (nPackets - counts[0]));
+    }
+  }
+}
@@ -0,0 +1,381 @@
+/**
+ * Copyright (C) 2019 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn;
+
+import java.nio.ByteBuffer;
+import net.named_data.jndn.encoding.tlv.Tlv;
+import net.named_data.jndn.encoding.tlv.TlvEncoder;
+import net.named_data.jndn.util.Blob;
+
+/**
+ * A CompactName is an immutable NDN name which is stored as one byte array of
+ * the concatenated TLV encodings of its components, plus an array of the
+ * offset of each component. This uses a few objects no matter how many
+ * components the name has, compared to a Name which has a Name.Component and a
+ * Blob for each component, so it is better for names which are kept for a long
+ * time such as in a cache. getPrefix and getSubName return a view which shares
+ * the byte array, so they don't copy. compare uses a byte-wise comparison of
+ * the encoding, which gives the NDN canonical ordering, and the hash code is
+ * computed once. Like Name.Component.equals (and unlike Name.equals), equals
+ * and match compare the component type as well as the value.
+ */
+public class CompactName implements Comparable {
+  /**
+   * Create a CompactName with the components of the given Name.
+   * @param name The Name to copy.
+   */
+  public
+  CompactName(Name name)
+  {
+    int nComponents = name.size();
+    // Save the length from the back after encoding each component.
+    int[] lengthFromBack = new int[nComponents + 1];
+
+    TlvEncoder encoder = TlvEncoder.acquireThreadLocal();
+    try {
+      // Encode the components backwards.
+      for (int i = nComponents - 1; i >= 0; --i) {
+        Name.Component component = name.get(i);
+        int type = (component.getType() == ComponentType.OTHER_CODE ?
+          component.getOtherTypeCode() : component.getType().getNumericType());
+        encoder.writeBlobTlv(type, component.getValue().buf());
+        lengthFromBack[i] = encoder.getLength();
+      }
+
+      ByteBuffer output = encoder.getOutput();
+      encoding_ = new byte[output.remaining()];
+      output.get(encoding_);
+    } finally {
+      encoder.release();
+    }
+
+    offsets_ = new int[nComponents + 1];
+    for (int i = 0; i <= nComponents; ++i)
+      offsets_[i] = encoding_.length - lengthFromBack[i];
+    begin_ = 0;
+    end_ = nComponents;
+  }
+
+  /**
+   * Create a CompactName as a view of the components from begin to end which
+   * shares the encoding and offsets arrays.
+   */
+  private
+  CompactName(byte[] encoding, int[] offsets, int begin, int end)
+  {
+    encoding_ = encoding;
+    offsets_ = offsets;
+    begin_ = begin;
+    end_ = end;
+  }
+
+  /**
+   * Get the number of components.
+   * @return The number of components.
+   */
+  public final int
+  size() { return end_ - begin_; }
+
+  /**
+   * Get the component at the given index. The value of the returned
+   * Name.Component shares the byte array of this CompactName, so it does not
+   * copy.
+   * @param i The index of the component, starting from 0. However, if i is
+   * negative, return the component at size() - (-i).
+   * @return The name component at the index.
+   */
+  public final Name.Component
+  get(int i)
+  {
+    if (i < 0)
+      i = size() - (-i);
+    if (i < 0 || i >= size())
+      throw new IndexOutOfBoundsException
+        ("CompactName.get: The index " + i + " is out of bounds");
+
+    int[] offset = new int[] { offsets_[begin_ + i] };
+    int type = readVarNumber(offset);
+    int length = readVarNumber(offset);
+    Blob value = new Blob
+      (ByteBuffer.wrap(encoding_, offset[0], length), false);
+
+    if (type == Tlv.NameComponent)
+      return new Name.Component(value);
+    else if (type == Tlv.ImplicitSha256DigestComponent)
+      return new Name.Component(value, ComponentType.IMPLICIT_SHA256_DIGEST);
+    else if (type == Tlv.ParametersSha256DigestComponent)
+      return new Name.Component(value, ComponentType.PARAMETERS_SHA256_DIGEST);
+    else
+      return new Name.Component(value, ComponentType.OTHER_CODE, type);
+  }
+
+  /**
+   * Get a CompactName with a subset of the components. This shares the byte
+   * array of this CompactName, so it does not copy.
+   * @param iStartComponent The index if the first component to get. If
+   * iStartComponent is -N then return components starting from size() - N.
+   * @param nComponents The number of components starting at iStartComponent.
+   * If greater than the size of this name, get until the end of the name.
+   * @return A CompactName for the sub name.
+   */
+  public final CompactName
+  getSubName(int iStartComponent, int nComponents)
+  {
+    if (iStartComponent < 0)
+      iStartComponent = size() - (-iStartComponent);
+    if (iStartComponent < 0)
+      iStartComponent = 0;
+    if (iStartComponent > size())
+      iStartComponent = size();
+    if (nComponents < 0)
+      nComponents = 0;
+
+    int begin = begin_ + iStartComponent;
+    int end = begin + Math.min(nComponents, size() - iStartComponent);
+    if (begin == begin_ && end == end_)
+      return this;
+    return new CompactName(encoding_, offsets_, begin, end);
+  }
+
+  /**
+   * Get a CompactName with the components starting at iStartComponent until
+   * the end of the name. This shares the byte array of this CompactName, so it
+   * does not copy.
+   * @param iStartComponent The index if the first component to get. If
+   * iStartComponent is -N then return components starting from size() - N.
+   * @return A CompactName for the sub name.
+   */
+  public final CompactName
+  getSubName(int iStartComponent)
+  {
+    return getSubName(iStartComponent, size());
+  }
+
+  /**
+   * Get a CompactName with the first nComponents components of this name. This
+   * shares the byte array of this CompactName, so it does not copy.
+   * @param nComponents The number of prefix components. If nComponents is -N
+   * then return the prefix up to size() - N. For example getPrefix(-1)
+   * returns the name without the final component.
+   * @return A CompactName for the prefix.
+   */
+  public final CompactName
+  getPrefix(int nComponents)
+  {
+    if (nComponents < 0)
+      return getSubName(0, size() + nComponents);
+    else
+      return getSubName(0, nComponents);
+  }
+
+  /**
+   * Check if the components of this name are the same as the first components
+   * of the given name, including the component types. This is a byte-wise
+   * comparison of the encoding.
+   * @param name The CompactName to check.
+   * @return True if this is a prefix of the given name, otherwise false. This
+   * always returns true if this name is empty.
+   */
+  public final boolean
+  match(CompactName name)
+  {
+    if (size() > name.size())
+      return false;
+
+    int length = getEncodingLength();
+    if (length > name.getEncodingLength())
+      return false;
+    // The components are self-delimiting, so if the bytes are equal, then
+    // this ends on a component boundary of the given name.
+    return regionEquals
+      (encoding_, offsets_[begin_], name.encoding_, name.offsets_[name.begin_],
+       length);
+  }
+
+  /**
+   * Check if the components of this name are the same as the first components
+   * of the given name. This is the same as match(name).
+   * @param name The CompactName to check.
+   * @return True if this is a prefix of the given name, otherwise false. This
+   * always returns true if this name is empty.
+   */
+  public final boolean
+  isPrefixOf(CompactName name) { return match(name); }
+
+  /**
+   * Compare this to the other CompactName using NDN canonical ordering, which
+   * is the same as Name.compare. Since a variable-length number encoding
+   * sorts the same as its value, and since the type and length come before
+   * the value, a byte-wise comparison of the encodings gives the canonical
+   * ordering of the components. A name which is a prefix of the other comes
+   * first.
+   * @param other The other CompactName to compare with.
+   * @return 0 If they compare equal, -1 if this name comes before other in the
+   * canonical ordering, or 1 if this comes after other in the canonical
+   * ordering.
+   */
+  public final int
+  compare(CompactName other)
+  {
+    int offset = offsets_[begin_];
+    int otherOffset = other.offsets_[other.begin_];
+    int length = getEncodingLength();
+    int otherLength = other.getEncodingLength();
+
+    int minLength = Math.min(length, otherLength);
+    for (int i = 0; i < minLength; ++i) {
+      // & 0xff makes the byte unsigned.
+      int x = encoding_[offset + i] & 0xff;
+      int y = other.encoding_[otherOffset + i] & 0xff;
+      if (x != y)
+        return x < y ? -1 : 1;
+    }
+
+    if (length < otherLength)
+      return -1;
+    if (length > otherLength)
+      return 1;
+    return 0;
+  }
+
+  public final int
+  compareTo(Object o) { return this.compare((CompactName)o); }
+
+  /**
+   * Check if this name has the same components as the other name, including
+   * the component types.
+   * @param other The other CompactName to check.
+   * @return True if the names are equal, otherwise false.
+   */
+  public final boolean
+  equals(CompactName other)
+  {
+    if (other == this)
+      return true;
+    if (size() != other.size())
+      return false;
+    int length = getEncodingLength();
+    if (length != other.getEncodingLength())
+      return false;
+    if (hashCode() != other.hashCode())
+      return false;
+
+    return regionEquals
+      (encoding_, offsets_[begin_], other.encoding_, other.offsets_[other.begin_],
+       length);
+  }
+
+  public boolean
+  equals(Object other)
+  {
+    if (!(other instanceof CompactName))
+      return false;
+
+    return equals((CompactName)other);
+  }
+
+  public int
+  hashCode()
+  {
+    // Like String, use a single field where 0 means not computed so that
+    // another thread can't see a partial update.
+    int hashCode = hashCode_;
+    if (hashCode == 0) {
+      hashCode = 1;
+      int endOffset = offsets_[end_];
+      for (int i = offsets_[begin_]; i < endOffset; ++i)
+        hashCode = 31 * hashCode + encoding_[i];
+
+      hashCode_ = hashCode;
+    }
+
+    return hashCode;
+  }
+
+  /**
+   * Create a new Name with the components of this name. The component values
+   * share the byte array of this CompactName, so they are not copied.
+   * @return A new Name.
+   */
+  public final Name
+  toName()
+  {
+    Name result = new Name();
+    for (int i = 0; i < size(); ++i)
+      result.append(get(i));
+
+    return result;
+  }
+
+  /**
+   * Get the URI of this name, the same as Name.toUri().
+   * @return The URI string.
+   */
+  public final String
+  toUri() { return toName().toUri(); }
+
+  public String
+  toString() { return toUri(); }
+
+  /**
+   * Get the number of bytes of the components' encoding in this view.
+   */
+  private int
+  getEncodingLength() { return offsets_[end_] - offsets_[begin_]; }
+
+  /**
+   * Read a TLV variable-length number from encoding_ at offset[0], and update
+   * offset[0] to the position after it. The encoding was made by TlvEncoder,
+   * so it is not checked.
+   */
+  private int
+  readVarNumber(int[] offset)
+  {
+    int firstOctet = encoding_[offset[0]++] & 0xff;
+    if (firstOctet < 253)
+      return firstOctet;
+
+    int nBytes = (firstOctet == 253 ? 2 : 4);
+    int result = 0;
+    for (int i = 0; i < nBytes; ++i)
+      result = (result << 8) | (encoding_[offset[0]++] & 0xff);
+
+    return result;
+  }
+
+  private static boolean
+  regionEquals(byte[] a, int aOffset, byte[] b, int bOffset, int length)
+  {
+    for (int i = 0; i < length; ++i) {
+      if (a[aOffset + i] != b[bOffset + i])
+        return false;
+    }
+
+    return true;
+  }
+
+  private final byte[] encoding_;
+  // offsets_[i] is the offset in encoding_ of component i, and
+  // offsets_[offsets_.length - 1] is the length of encoding_.
+  private final int[] offsets_;
+  private final int begin_;
+  private final int end_;
+  private int hashCode_ = 0;
+}
@@ -19,6 +19,7 @@
 
 package net.named_data.jndn;
 
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import net.named_data.jndn.encoding.EncodingException;
 import net.named_data.jndn.encoding.WireFormat;
@@ -70,9 +71,14 @@ public class Data implements ChangeCountable, SignatureHolder {
 
     name_.set(new Name(data.getName()));
     metaInfo_.set(new MetaInfo(data.getMetaInfo()));
-    content_ = data.content_;
-    setDefaultWireEncoding(data.getDefaultWireEncoding(), null);
-    defaultFullName_ = new Name(data.defaultFullName_);
+    content_ = data.getContent();
+    // The fields are the same, so the encoding in the same wire format is the
+    // same.
+    setDefaultWireEncoding
+      (data.getDefaultWireEncoding(), data.defaultWireEncodingFormat_);
+    // The saved implicit digest is for the same encoding object, and the full
+    // name is frozen, so share them.
+    implicitDigestCache_ = data.implicitDigestCache_;
   }
 
   /**
@@ -114,6 +120,53 @@ public class Data implements ChangeCountable, SignatureHolder {
     return wireEncode(WireFormat.getDefaultWireFormat());
   }
 
+  /**
+   * Encode this Data for a particular wire format into the output buffer at
+   * its position, for example a pooled direct ByteBuffer which is then passed
+   * to Face.send. If this Data already has a default wire encoding in
+   * wireFormat, copy it. Otherwise encode directly into the output. Unlike
+   * wireEncode, this does not set the defaultWireEncoding field since the
+   * output buffer belongs to the caller.
+   * @param output The buffer to encode into, starting at its position(). On
+   * return, the position is advanced by the length of the encoding.
+   * @param wireFormat A WireFormat object used to encode this Data.
+   * @return The length of the encoding.
+   * @throws BufferOverflowException If output.remaining() is less than the
+   * length of the encoding, in which case nothing is written.
+   */
+  public final int
+  wireEncodeInto(ByteBuffer output, WireFormat wireFormat)
+  {
+    int savePosition = output.position();
+    if (!getDefaultWireEncoding().isNull() &&
+        getDefaultWireEncodingFormat() == wireFormat) {
+      // We already have an encoding in the desired format.
+      if (output.remaining() < getDefaultWireEncoding().size())
+        throw new BufferOverflowException();
+      output.put(getDefaultWireEncoding().buf());
+    }
+    else
+      wireFormat.encodeData(this, output, new int[1], new int[1]);
+
+    return output.position() - savePosition;
+  }
+
+  /**
+   * Encode this Data for the default wire format
+   * WireFormat.getDefaultWireFormat() into the output buffer at its position.
+   * See wireEncodeInto(output, wireFormat).
+   * @param output The buffer to encode into, starting at its position(). On
+   * return, the position is advanced by the length of the encoding.
+   * @return The length of the encoding.
+   * @throws BufferOverflowException If output.remaining() is less than the
+   * length of the encoding, in which case nothing is written.
+   */
+  public final int
+  wireEncodeInto(ByteBuffer output)
+  {
+    return wireEncodeInto(output, WireFormat.getDefaultWireFormat());
+  }
+
   /**
    * Decode the input using a particular wire format and update this Data. If
    * wireFormat is the default wire format, also set the defaultWireEncoding
@@ -126,6 +179,11 @@ public class Data implements ChangeCountable, SignatureHolder {
   public void
   wireDecode(Blob input, WireFormat wireFormat) throws EncodingException
   {
+    checkNotFrozen("wireDecode");
+    // The fields are all decoded now.
+    lazyEncoding_ = null;
+    lazyWireFormat_ = null;
+
     int[] signedPortionBeginOffset = new int[1];
     int[] signedPortionEndOffset = new int[1];
     wireFormat.decodeData
@@ -185,17 +243,82 @@ public class Data implements ChangeCountable, SignatureHolder {
     wireDecode(input, WireFormat.getDefaultWireFormat());
   }
 
+  /**
+   * Decode only the name of the input using a particular wire format, and keep
+   * the input so that the other fields such as the MetaInfo, content and
+   * signature are decoded the first time they are accessed. This avoids the
+   * cost of decoding the other fields of a packet which is only checked by its
+   * name, for example if it doesn't match a pending Interest. If wireFormat is
+   * the default wire format, also set the defaultWireEncoding field another
+   * pointer to the input Blob, so that getFullName() also does not need to
+   * decode the other fields. Since the Blob values share memory with the input,
+   * the input must remain unchanged while this Data is used.
+   * @param input The input Blob to decode.  This reads from buf().position() to
+   * buf().limit(), but does not change the position.
+   * @param wireFormat A WireFormat object used to decode the input.
+   * @throws EncodingException For invalid encoding of the name or the TLV
+   * structure. If the other fields have an invalid encoding, then the method
+   * which first accesses them throws an Error.
+   */
+  public final void
+  lazyWireDecode(Blob input, WireFormat wireFormat) throws EncodingException
+  {
+    checkNotFrozen("lazyWireDecode");
+    int[] signedPortionBeginOffset = new int[1];
+    int[] signedPortionEndOffset = new int[1];
+    wireFormat.decodeDataName
+      (this, input.buf(), signedPortionBeginOffset, signedPortionEndOffset,
+       false);
+    lazyEncoding_ = input;
+    lazyWireFormat_ = wireFormat;
+
+    if (wireFormat == WireFormat.getDefaultWireFormat())
+      // This is the default wire encoding.
+      setDefaultWireEncoding
+        (new SignedBlob(input, signedPortionBeginOffset[0],
+         signedPortionEndOffset[0]), WireFormat.getDefaultWireFormat());
+    else
+      setDefaultWireEncoding(new SignedBlob(), null);
+  }
+
+  /**
+   * Decode only the name of the input using the default wire format
+   * WireFormat.getDefaultWireFormat(), and decode the other fields when they
+   * are first accessed. See lazyWireDecode(Blob, WireFormat).
+   * @param input The input Blob to decode.  This reads from buf().position() to
+   * buf().limit(), but does not change the position.
+   * @throws EncodingException For invalid encoding of the name or the TLV
+   * structure.
+   */
+  public final void
+  lazyWireDecode(Blob input) throws EncodingException
+  {
+    lazyWireDecode(input, WireFormat.getDefaultWireFormat());
+  }
+
   public final Signature
-  getSignature() { return (Signature)signature_.get(); }
+  getSignature()
+  {
+    decodeLazyFields();
+    return (Signature)signature_.get();
+  }
 
   public final Name
   getName() { return (Name)name_.get(); }
 
   public final MetaInfo
-  getMetaInfo() { return (MetaInfo)metaInfo_.get(); }
+  getMetaInfo()
+  {
+    decodeLazyFields();
+    return (MetaInfo)metaInfo_.get();
+  }
 
   public final Blob
-  getContent() { return content_; }
+  getContent()
+  {
+    decodeLazyFields();
+    return content_;
+  }
 
   /**
    * Get the incoming face ID according to the incoming packet header.
@@ -221,10 +344,66 @@ public class Data implements ChangeCountable, SignatureHolder {
     return field == null ? 0 : field.getCongestionMark();
   }
 
+  /**
+   * Get the implicit SHA-256 digest of the Data packet, which is the digest of
+   * the wire encoding for a particular wire format. If wireFormat is the
+   * default wire format, the digest is computed once and saved with the default
+   * wire encoding, so that it is only computed again if the encoding changes.
+   * A copy made with new Data(data) keeps the saved digest.
+   * @param wireFormat A WireFormat object used to encode the Data packet.
+   * @return The 32-byte digest.
+   */
+  public final Blob
+  getImplicitSha256Digest(WireFormat wireFormat)
+  {
+    // wireEncode will use the cached encoding if possible.
+    SignedBlob encoding = wireEncode(wireFormat);
+    ImplicitDigestCache cache = implicitDigestCache_;
+    if (cache != null && cache.encoding_ == encoding)
+      // We already computed the digest of this encoding.
+      return cache.implicitDigest_;
+
+    Blob implicitDigest = new Blob(Common.digestSha256(encoding.buf()), false);
+    if (wireFormat == WireFormat.getDefaultWireFormat())
+      // wireEncode has already set the default wire encoding.
+      implicitDigestCache_ = new ImplicitDigestCache
+        (encoding, implicitDigest, null);
+
+    return implicitDigest;
+  }
+
+  /**
+   * Get the implicit SHA-256 digest of the Data packet for the default wire
+   * format. See getImplicitSha256Digest(WireFormat).
+   * @return The 32-byte digest.
+   */
+  public final Blob
+  getImplicitSha256Digest()
+  {
+    return getImplicitSha256Digest(WireFormat.getDefaultWireFormat());
+  }
+
+  /**
+   * Get the implicit SHA-256 digest which is saved with the default wire
+   * encoding, without computing it.
+   * @return The saved digest, or null if it is not saved or the default wire
+   * encoding has changed since it was saved.
+   */
+  public final Blob
+  getSavedImplicitSha256Digest()
+  {
+    ImplicitDigestCache cache = implicitDigestCache_;
+    if (cache != null && cache.encoding_ == getDefaultWireEncoding())
+      return cache.implicitDigest_;
+    else
+      return null;
+  }
+
   /**
    * Get the Data packet's full name, which includes the final
    * ImplicitSha256Digest component based on the wire encoding for a particular
-   * wire format.
+   * wire format. For the default wire format, this is saved along with the
+   * implicit digest.
    * @param wireFormat A WireFormat object used to encode the Data packet.
    * @return The full name. You must not change the Name object - if you need
    * to change it then make a copy.
@@ -232,16 +411,13 @@ public class Data implements ChangeCountable, SignatureHolder {
   public final Name
   getFullName(WireFormat wireFormat)
   {
-    // The default full name depends on the default wire encoding.
-    if (!getDefaultWireEncoding().isNull() && defaultFullName_.size() > 0 &&
-        getDefaultWireEncodingFormat() == wireFormat)
-      // We already have a full name. A non-null default wire encoding means
-      // that the Data packet fields have not changed.
-      return defaultFullName_;
+    Blob implicitDigest = getImplicitSha256Digest(wireFormat);
+    ImplicitDigestCache cache = implicitDigestCache_;
+    boolean isSaved = (cache != null && cache.implicitDigest_ == implicitDigest);
+    if (isSaved && cache.fullName_ != null)
+      return cache.fullName_;
 
     Name fullName = new Name(getName());
-    // wireEncode will use the cached encoding if possible.
-    byte[] implicitDigest = Common.digestSha256(wireEncode(wireFormat).buf());
     try {
       fullName.appendImplicitSha256Digest(implicitDigest);
     } catch (EncodingException ex) {
@@ -249,9 +425,10 @@ public class Data implements ChangeCountable, SignatureHolder {
       throw new Error(ex.getMessage());
     }
 
-    if (wireFormat == WireFormat.getDefaultWireFormat())
-      // wireEncode has already set defaultWireEncodingFormat_.
-      defaultFullName_ = fullName;
+    if (isSaved)
+      // Freeze it so that it can be shared, for example with a copy.
+      implicitDigestCache_ = new ImplicitDigestCache
+        (cache.encoding_, implicitDigest, fullName.freeze());
 
     return fullName;
   }
@@ -303,6 +480,9 @@ public class Data implements ChangeCountable, SignatureHolder {
   public final Data
   setSignature(Signature signature)
   {
+    checkNotFrozen("setSignature");
+    // Decode first so that the lazy fields don't replace the new value.
+    decodeLazyFields();
     try {
       signature_.set(signature == null ?
         new Sha256WithRsaSignature() : (Signature)signature.clone());
@@ -327,6 +507,7 @@ public class Data implements ChangeCountable, SignatureHolder {
   public Data
   setName(Name name)
   {
+    checkNotFrozen("setName");
     name_.set(name == null ? new Name() : new Name(name));
     ++changeCount_;
     return this;
@@ -340,6 +521,8 @@ public class Data implements ChangeCountable, SignatureHolder {
   public final Data
   setMetaInfo(MetaInfo metaInfo)
   {
+    checkNotFrozen("setMetaInfo");
+    decodeLazyFields();
     metaInfo_.set(metaInfo == null ? new MetaInfo() : new MetaInfo(metaInfo));
     ++changeCount_;
     return this;
@@ -348,6 +531,8 @@ public class Data implements ChangeCountable, SignatureHolder {
   public final Data
   setContent(Blob content)
   {
+    checkNotFrozen("setContent");
+    decodeLazyFields();
     content_ = (content == null ? new Blob() : content);
     ++changeCount_;
     return this;
@@ -363,6 +548,7 @@ public class Data implements ChangeCountable, SignatureHolder {
   public final Data
   setLpPacket(LpPacket lpPacket)
   {
+    checkNotFrozen("setLpPacket");
     lpPacket_ = lpPacket;
     // Don't update changeCount_ since this doesn't affect the wire encoding.
     return this;
@@ -370,12 +556,16 @@ public class Data implements ChangeCountable, SignatureHolder {
 
   /**
    * Get the change count, which is incremented each time this object
-   * (or a child object) is changed.
+   * (or a child object) is changed. If this Data is frozen, the change count is
+   * fixed and this does not check the child objects.
    * @return The change count.
    */
   public final long
   getChangeCount()
   {
+    if (isFrozen_)
+      return changeCount_;
+
     // Make sure each of the checkChanged is called.
     boolean changed = signature_.checkChanged();
     changed = name_.checkChanged() || changed;
@@ -387,6 +577,108 @@ public class Data implements ChangeCountable, SignatureHolder {
     return changeCount_;
   }
 
+  /**
+   * Freeze this Data so that it can't be changed, and so that it can be shared
+   * by other objects and threads instead of being copied. This decodes any
+   * lazily decoded fields, freezes the Name and MetaInfo, and encodes with the
+   * default wire format so that wireEncode() returns the saved encoding. After
+   * this, the setters, wireDecode and lazyWireDecode throw an
+   * UnsupportedOperationException, and the change count is fixed so that
+   * getChangeCount() doesn't need to check the child objects. You must not
+   * change the Signature object (or the objects in it) of a frozen Data. A copy
+   * made with new Data(data) is not frozen. Calling freeze again does nothing.
+   * @return This Data so that you can chain calls.
+   */
+  public final Data
+  freeze()
+  {
+    if (isFrozen_)
+      return this;
+
+    decodeLazyFields();
+    getName().freeze();
+    getMetaInfo().freeze();
+    // This sets the default wire encoding, if not already set.
+    wireEncode();
+    // Update changeCount_ from the child objects before fixing it.
+    getChangeCount();
+    isFrozen_ = true;
+    return this;
+  }
+
+  /**
+   * Check if freeze() was called.
+   * @return True if this Data is frozen.
+   */
+  public final boolean
+  isFrozen() { return isFrozen_; }
+
+  /**
+   * If this Data is frozen, throw an exception.
+   * @param methodName The name of the calling method, for the message.
+   * @throws UnsupportedOperationException If this Data is frozen.
+   */
+  private void
+  checkNotFrozen(String methodName)
+  {
+    if (isFrozen_)
+      throw new UnsupportedOperationException
+        ("Data." + methodName + ": The Data is frozen");
+  }
+
+  /**
+   * If lazyWireDecode was called and the fields other than the name are not
+   * decoded yet, decode them from the saved input. This decodes into a
+   * separate Data so that a changed name is not replaced. This does not change
+   * the change count, so the default wire encoding stays valid.
+   * @throws Error If the fields have an invalid encoding.
+   */
+  private void
+  decodeLazyFields()
+  {
+    if (lazyEncoding_ == null)
+      return;
+
+    Blob encoding = lazyEncoding_;
+    WireFormat wireFormat = lazyWireFormat_;
+    // Clear first so that the getters below don't call this again.
+    lazyEncoding_ = null;
+    lazyWireFormat_ = null;
+
+    Data data = new Data();
+    try {
+      wireFormat.decodeData
+        (data, encoding.buf(), new int[1], new int[1], false);
+    } catch (EncodingException ex) {
+      throw new Error
+        ("Data: Error decoding the lazily decoded fields: " + ex.getMessage());
+    }
+
+    signature_.set(data.getSignature());
+    metaInfo_.set(data.getMetaInfo());
+    content_ = data.getContent();
+  }
+
+  /**
+   * An ImplicitDigestCache holds the implicit digest of the default wire
+   * encoding object, and the full name if computed. The fields are final so
+   * that a frozen Data can be shared by threads which replace the cache.
+   */
+  private static class ImplicitDigestCache {
+    public ImplicitDigestCache
+      (SignedBlob encoding, Blob implicitDigest, Name fullName)
+    {
+      encoding_ = encoding;
+      implicitDigest_ = implicitDigest;
+      fullName_ = fullName;
+    }
+
+    public final SignedBlob encoding_;
+    public final Blob implicitDigest_;
+    // fullName_ is null if not computed yet.
+    public final Name fullName_;
+  }
+
   private void
   setDefaultWireEncoding
     (SignedBlob defaultWireEncoding, WireFormat defaultWireEncodingFormat)
@@ -404,10 +696,15 @@ public class Data implements ChangeCountable, SignatureHolder {
   private final ChangeCounter metaInfo_ =
     new ChangeCounter(new MetaInfo());
   private Blob content_ = new Blob();
+  // If lazyEncoding_ is not null, the fields other than the name still need to
+  // be decoded from it by decodeLazyFields.
+  private Blob lazyEncoding_ = null;
+  private WireFormat lazyWireFormat_ = null;
   private LpPacket lpPacket_ = null;
   private SignedBlob defaultWireEncoding_ = new SignedBlob();
-  private Name defaultFullName_ = new Name();
+  private ImplicitDigestCache implicitDigestCache_ = null;
   private WireFormat defaultWireEncodingFormat_;
   private long getDefaultWireEncodingChangeCount_ = 0;
   private long changeCount_ = 0;
+  private boolean isFrozen_ = false;
 }
@@ -27,8 +27,10 @@ import net.named_data.jndn.security.KeyChain;
 import net.named_data.jndn.security.SecurityException;
 import net.named_data.jndn.transport.TcpTransport;
 import net.named_data.jndn.transport.Transport;
+import net.named_data.jndn.transport.UnixTransport;
 import net.named_data.jndn.util.Blob;
 import net.named_data.jndn.util.Common;
+import net.named_data.jndn.util.PooledBuffer;
 
 /**
  * The Face class provides the main methods for NDN communication.
@@ -46,6 +48,26 @@ public class Face {
     node_ = new Node(transport, connectionInfo);
   }
 
+  /**
+   * Create a new Face for communication with an NDN hub with the given
+   * Transport object and connectionInfo, where the internal pending interest
+   * table and delayed call table are split into stripes with separate locks.
+   * Use this when many threads call expressInterest at the same time, for
+   * example with a ThreadPoolFace.
+   * @param transport A Transport object used for communication.
+   * @param connectionInfo A Transport.ConnectionInfo to be used to connect to
+   * the transport.
+   * @param concurrencyLevel The number of stripes for the internal tables,
+   * which is typically the number of threads which use the Face at the same
+   * time. If this is 1, this is the same as Face(transport, connectionInfo).
+   */
+  public Face
+    (Transport transport, Transport.ConnectionInfo connectionInfo,
+     int concurrencyLevel)
+  {
+    node_ = new Node(transport, connectionInfo, concurrencyLevel);
+  }
+
   /**
    * Create a new Face for communication with an NDN hub at host:port using the
    * default TcpTransport.
@@ -70,13 +92,20 @@ public class Face {
   }
 
   /**
-   * Create a new Face for communication with an NDN hub at "localhost" using the
-   * default port 6363 and the default TcpTransport.
+   * Create a new Face for communication with the local NDN forwarder. If
+   * UnixTransport is available and the socket file "/run/nfd.sock" or
+   * "/var/run/nfd.sock" exists, then use a UnixTransport. Otherwise use the
+   * default TcpTransport to "localhost" at the default port 6363.
    */
   public Face()
   {
-    node_ = new Node
-      (new TcpTransport(), new TcpTransport.ConnectionInfo("localhost", 6363));
+    String filePath = UnixTransport.getDefaultSocketFilePath();
+    if (filePath.equals(""))
+      node_ = new Node
+        (new TcpTransport(), new TcpTransport.ConnectionInfo("localhost", 6363));
+    else
+      node_ = new Node
+        (new UnixTransport(), new UnixTransport.ConnectionInfo(filePath));
   }
 
   /**
@@ -96,6 +125,114 @@ public class Face {
     node_.setInterestLoopbackEnabled(interestLoopbackEnabled);
   }
 
+  /**
+   * Enable or disable send batching. If send batching is enabled, then the
+   * packets sent by expressInterest, putData, putNack and send are queued in
+   * the transport (see Transport.queueSend) so that a burst of packets is sent
+   * in fewer system calls. The queue is sent when it is large enough, at the
+   * end of each call to processEvents, or by calling flush(). So that packets
+   * are not delayed, you should call processEvents often or use a
+   * FaceEventLoop, which wakes up to send the queue. If the transport does not
+   * support queueing, each packet is still sent immediately. Send batching is
+   * disabled by default.
+   * @param sendBatchingEnabled If true, enable send batching, otherwise disable
+   * it. If disabling, this first sends the queued packets.
+   * @throws IOException For I/O error in sending the queued packets.
+   */
+  public final void
+  setSendBatchingEnabled(boolean sendBatchingEnabled) throws IOException
+  {
+    node_.setSendBatchingEnabled(sendBatchingEnabled);
+  }
+
+  /**
+   * Enable or disable zero-copy receive. If zero-copy receive is enabled, then
+   * the transport reads into buffers from a pool, and a received Interest or
+   * Data is decoded so that its name components, content and other fields are
+   * slices of the pooled buffer instead of copies. After the callbacks such as
+   * onData and onInterest return, the buffer is reused, so the packet and every
+   * Blob from it are only valid during the callback. To keep a packet after the
+   * callback returns, call retainReceiveBuffer() in the callback and call
+   * release() on the returned buffer when finished with the packet. A packet
+   * which was split over two reads from the transport is copied as usual.
+   * If the transport does not support pooled receive (such as
+   * AsyncTcpTransport), packets are always copied. Zero-copy receive is
+   * disabled by default.
+   * @param zeroCopyReceiveEnabled If true, enable zero-copy receive, otherwise
+   * disable it.
+   */
+  public final void
+  setZeroCopyReceiveEnabled(boolean zeroCopyReceiveEnabled)
+  {
+    node_.setZeroCopyReceiveEnabled(zeroCopyReceiveEnabled);
+  }
+
+  /**
+   * Enable or disable lazy decoding of received packets. If lazy decoding is
+   * enabled, then only the name of a received Interest or Data is decoded to
+   * find the matching interest filters or pending Interests, and the other
+   * fields are decoded the first time a callback accesses them (see
+   * Data.lazyWireDecode and Interest.lazyWireDecode). A packet which doesn't
+   * match is dropped without decoding the other fields. If the other fields of
+   * a packet have an invalid encoding, then the getter which first accesses
+   * them throws an Error instead of processEvents throwing an
+   * EncodingException. Lazy decoding is disabled by default.
+   * @param lazyDecodingEnabled If true, enable lazy decoding, otherwise
+   * disable it.
+   */
+  public final void
+  setLazyDecodingEnabled(boolean lazyDecodingEnabled)
+  {
+    node_.setLazyDecodingEnabled(lazyDecodingEnabled);
+  }
+
+  /**
+   * Enable or disable automatic reconnect to the forwarder. If enabled and the
+   * connection is lost (for example, if the forwarder restarts), then
+   * processEvents schedules a reconnect with an exponential backoff from 500
+   * milliseconds up to 30 seconds. After reconnecting, this sends the
+   * registration command again for each prefix registered with registerPrefix,
+   * since a restarted forwarder has lost the registrations. An async transport
+   * such as AsyncTcpTransport reconnects itself, and the registrations are
+   * sent again when it reports the new connection. To detect a lost
+   * connection, the transport must implement getIsConnected(). Automatic
+   * reconnect is disabled by default.
+   * @param reconnectEnabled If true, enable automatic reconnect, otherwise
+   * disable it.
+   * @param resendPendingInterests If true, also send the Interests which are
+   * still pending (not timed out) again after a reconnect, with the same nonce.
+   */
+  public final void
+  setReconnectEnabled(boolean reconnectEnabled, boolean resendPendingInterests)
+  {
+    node_.setReconnectEnabled(reconnectEnabled, resendPendingInterests);
+  }
+
+  /**
+   * When zero-copy receive is enabled, a callback such as onData or onInterest
+   * can call this so that the packet passed to it stays valid after the
+   * callback returns. See setZeroCopyReceiveEnabled.
+   * @return The retained PooledBuffer which has the packet. You must call
+   * release() on it when finished with the packet. If the packet is not in a
+   * pooled buffer (it was copied and is always valid), return null.
+   */
+  public final PooledBuffer
+  retainReceiveBuffer()
+  {
+    return node_.retainReceiveBuffer();
+  }
+
+  /**
+   * Send all packets which are queued because send batching is enabled. See
+   * setSendBatchingEnabled.
+   * @throws IOException For I/O error in sending.
+   */
+  public final void
+  flush() throws IOException
+  {
+    node_.flush();
+  }
+
   /**
    * Send the Interest through the transport, read the entire response and call
    * onData, onTimeout or onNetworkNack as described below.
@@ -137,10 +274,10 @@ public class Face {
   {
     long pendingInterestId = node_.getNextEntryId();
 
-    // This copies the interest as required by Node.expressInterest.
+    // Node.expressInterest sets the nonce, so copy a frozen Interest.
     node_.expressInterest
-      (pendingInterestId, interest, onData, onTimeout, onNetworkNack,
-       wireFormat, this);
+      (pendingInterestId, interest.isFrozen() ? new Interest(interest) : interest,
+       onData, onTimeout, onNetworkNack, wireFormat, this);
 
     return pendingInterestId;
   }
@@ -1377,7 +1514,9 @@ public class Face {
    * onInterest or onTimeout. This returns immediately if there is no data to
    * receive. This blocks while calling the callbacks. You should repeatedly
    * call this from an event loop, with calls to sleep as needed so that the
-   * loop doesn’t use 100% of the CPU. Since processEvents modifies the pending
+   * loop doesn’t use 100% of the CPU. (Or use a FaceEventLoop which calls
+   * processEvents and waits until there is data to receive or a timeout is
+   * due.) Since processEvents modifies the pending
    * interest table, your application should make sure that it calls
    * processEvents in the same thread as expressInterest (which also modifies
    * the pending interest table).
@@ -1435,6 +1574,29 @@ public class Face {
     node_.callLater(delayMilliseconds, callback);
   }
 
+  /**
+   * Check if this Face uses the default callLater which calls Node.callLater,
+   * meaning that a subclass does not override it. In this case, Node can use
+   * its own DelayedCallTable directly so that it can cancel delayed calls.
+   * @return True if callLater is not overridden.
+   */
+  final boolean
+  getUsesNodeCallLater()
+  {
+    if (usesNodeCallLater_ == null) {
+      try {
+        usesNodeCallLater_ = getClass().getMethod
+          ("callLater", double.class, Runnable.class).getDeclaringClass() ==
+          Face.class;
+      } catch (NoSuchMethodException ex) {
+        // We don't expect this to happen.
+        usesNodeCallLater_ = false;
+      }
+    }
+
+    return usesNodeCallLater_;
+  }
+
   /**
    * Do the work of expressInterest to make an Interest based on name and
    * interestTemplate.
@@ -1462,4 +1624,5 @@ public class Face {
   protected final Node node_;
   protected KeyChain commandKeyChain_ = null;
   protected Name commandCertificateName_ = new Name();
+  private Boolean usesNodeCallLater_ = null;
 }
@@ -0,0 +1,293 @@
+/**
+ * Copyright (C) 2019 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn;
+
+import java.io.IOException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.HashMap;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.transport.Transport;
+import net.named_data.jndn.util.Common;
+
+/**
+ * A FaceEventLoop calls processEvents for one or more Face objects on one
+ * thread. Instead of calling Face.processEvents in a loop with calls to sleep,
+ * this owns a java.nio.channels.Selector and blocks until the channel of a
+ * transport is readable or until the next delayed call of a Face (such as an
+ * interest timeout) is due. An idle application therefore uses almost no CPU,
+ * and a received packet is processed as soon as it arrives.
+ * A transport which returns a channel from getSelectableChannel() (such as
+ * TcpTransport or UdpTransport) is waited on with the Selector. A connected
+ * transport which does not have a channel is polled every
+ * getPollIntervalMilliseconds(). An async transport such as AsyncTcpTransport
+ * does not need processEvents to receive, so only its delayed calls are used.
+ */
+public class FaceEventLoop {
+  /**
+   * Create a new FaceEventLoop with no faces.
+   * @throws IOException If the Selector cannot be opened.
+   */
+  public FaceEventLoop() throws IOException
+  {
+    selector_ = Selector.open();
+    wakeup_ = new Runnable() {
+      public void run() { selector_.wakeup(); }
+    };
+  }
+
+  /**
+   * Add the face so that processEvents calls face.processEvents(). You should
+   * not call face.processEvents() from another thread. You can still call
+   * the other methods of the face such as expressInterest from any thread.
+   * @param face The Face to add.
+   */
+  public final void
+  addFace(Face face)
+  {
+    synchronized (faces_) {
+      if (faces_.contains(face))
+        return;
+      faces_.add(face);
+    }
+
+    face.node_.setWakeup(wakeup_);
+    // Wake up processEvents to register the channel of the face.
+    selector_.wakeup();
+  }
+
+  /**
+   * Remove the face which was added with addFace. If the face was not added,
+   * do nothing. This does not shut down the face.
+   * @param face The Face to remove.
+   */
+  public final void
+  removeFace(Face face)
+  {
+    synchronized (faces_) {
+      if (!faces_.remove(face))
+        return;
+    }
+
+    face.node_.setWakeup(null);
+    selector_.wakeup();
+  }
+
+  /**
+   * Wait until a transport channel is readable, a delayed call is due, or
+   * maxWaitMilliseconds has passed, and then call processEvents on each face.
+   * This also returns early if wakeup() or stop() is called, or if another
+   * thread calls callLater with an earlier call time or connects a face.
+   * @param maxWaitMilliseconds The maximum time to wait in milliseconds. If
+   * this is 0, don't wait. If this is negative, wait until there are events.
+   * @throws IOException For I/O error in reading from a transport.
+   * @throws EncodingException For invalid encoding of a received packet.
+   */
+  public final void
+  processEvents(double maxWaitMilliseconds)
+    throws IOException, EncodingException
+  {
+    Face[] faces;
+    synchronized (faces_) {
+      faces = faces_.toArray(new Face[faces_.size()]);
+    }
+
+    double waitMilliseconds = maxWaitMilliseconds;
+    if (updateKeys(faces))
+      // A transport must be polled.
+      waitMilliseconds = minWait(waitMilliseconds, pollIntervalMilliseconds_);
+
+    double now = Common.getNowMilliseconds();
+    for (int i = 0; i < faces.length; ++i) {
+      double callTime = faces[i].node_.getNextCallTime();
+      if (callTime >= 0)
+        waitMilliseconds = minWait
+          (waitMilliseconds, Math.max(0.0, callTime - now));
+    }
+
+    if (stopped_ || waitMilliseconds == 0)
+      selector_.selectNow();
+    else if (waitMilliseconds < 0)
+      selector_.select();
+    else
+      selector_.select((long)Math.ceil(waitMilliseconds));
+    // processEvents reads from every face, so we don't need the selected keys.
+    selector_.selectedKeys().clear();
+
+    for (int i = 0; i < faces.length; ++i)
+      faces[i].processEvents();
+  }
+
+  /**
+   * Repeatedly call processEvents, waiting as needed, until stop() is called.
+   * If processEvents throws an exception, this returns by throwing it. You
+   * can call run() again to continue.
+   * @throws IOException For I/O error in reading from a transport.
+   * @throws EncodingException For invalid encoding of a received packet.
+   */
+  public final void
+  run() throws IOException, EncodingException
+  {
+    try {
+      while (!stopped_)
+        processEvents(-1);
+    }
+    finally {
+      stopped_ = false;
+    }
+  }
+
+  /**
+   * Make run() return after it finishes the current call to processEvents.
+   * This can be called from any thread, including a callback.
+   */
+  public final void
+  stop()
+  {
+    stopped_ = true;
+    selector_.wakeup();
+  }
+
+  /**
+   * Make the current or next wait in processEvents return immediately. This
+   * can be called from any thread.
+   */
+  public final void
+  wakeup() { selector_.wakeup(); }
+
+  /**
+   * Remove all faces and close the Selector. This does not shut down the
+   * faces.
+   * @throws IOException For I/O error in closing the Selector.
+   */
+  public final void
+  close() throws IOException
+  {
+    Face[] faces;
+    synchronized (faces_) {
+      faces = faces_.toArray(new Face[faces_.size()]);
+      faces_.clear();
+    }
+    for (int i = 0; i < faces.length; ++i)
+      faces[i].node_.setWakeup(null);
+
+    selector_.close();
+  }
+
+  /**
+   * Get the interval for polling a connected transport which does not have a
+   * SelectableChannel.
+   * @return The poll interval in milliseconds.
+   */
+  public final double
+  getPollIntervalMilliseconds() { return pollIntervalMilliseconds_; }
+
+  /**
+   * Set the interval for polling a connected transport which does not have a
+   * SelectableChannel.
+   * @param pollIntervalMilliseconds The poll interval in milliseconds.
+   */
+  public final void
+  setPollIntervalMilliseconds(double pollIntervalMilliseconds)
+  {
+    pollIntervalMilliseconds_ = pollIntervalMilliseconds;
+  }
+
+  /**
+   * Register the channel of each face with the Selector, replacing the key of
+   * a face whose channel changed since it reconnected, and cancel the keys of
+   * faces which were removed.
+   * @param faces The current faces.
+   * @return True if a face has a connected transport without a channel, so
+   * that it must be polled.
+   */
+  private boolean
+  updateKeys(Face[] faces) throws IOException
+  {
+    boolean mustPoll = false;
+    HashMap<Face, SelectionKey> keys = new HashMap<Face, SelectionKey>();
+    for (int i = 0; i < faces.length; ++i) {
+      Face face = faces[i];
+      Transport transport = face.node_.getTransport();
+      SelectableChannel channel = transport.getSelectableChannel();
+      SelectionKey key = keys_.remove(face);
+
+      if (channel == null || !channel.isOpen()) {
+        if (key != null)
+          key.cancel();
+        if (channel == null && !transport.isAsync() &&
+            getIsConnected(transport))
+          mustPoll = true;
+        continue;
+      }
+
+      if (key == null || key.channel() != channel || !key.isValid()) {
+        if (key != null)
+          key.cancel();
+        key = channel.register(selector_, SelectionKey.OP_READ, face);
+      }
+      keys.put(face, key);
+    }
+
+    // Any keys left are for faces which were removed.
+    for (SelectionKey key : keys_.values())
+      key.cancel();
+    keys_ = keys;
+
+    return mustPoll;
+  }
+
+  /**
+   * Check if the transport is connected, treating a transport which doesn't
+   * implement getIsConnected as connected.
+   */
+  private static boolean
+  getIsConnected(Transport transport) throws IOException
+  {
+    try {
+      return transport.getIsConnected();
+    } catch (UnsupportedOperationException ex) {
+      return true;
+    }
+  }
+
+  /**
+   * Get the smaller of the wait times, where a negative wait means no limit.
+   */
+  private static double
+  minWait(double wait1, double wait2)
+  {
+    if (wait1 < 0)
+      return wait2;
+    if (wait2 < 0)
+      return wait1;
+    return Math.min(wait1, wait2);
+  }
+
+  private final Selector selector_;
+  private final Runnable wakeup_;
+  private final ArrayList<Face> faces_ = new ArrayList<Face>();
+  // keys_ is only accessed by processEvents.
+  private HashMap<Face, SelectionKey> keys_ = new HashMap<Face, SelectionKey>();
+  private volatile boolean stopped_ = false;
+  private double pollIntervalMilliseconds_ = 10.0;
+}
@@ -19,6 +19,7 @@
 
 package net.named_data.jndn;
 
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.util.Random;
 import java.util.logging.Level;
@@ -82,6 +83,7 @@ public class Interest implements ChangeCountable {
   public
   Interest(Interest interest)
   {
+    interest.decodeLazyFields();
     name_.set(new Name(interest.getName()));
     minSuffixComponents_ = interest.minSuffixComponents_;
     maxSuffixComponents_ = interest.maxSuffixComponents_;
@@ -182,6 +184,53 @@ public class Interest implements ChangeCountable {
     return wireEncode(WireFormat.getDefaultWireFormat());
   }
 
+  /**
+   * Encode this Interest for a particular wire format into the output buffer at
+   * its position, for example a pooled direct ByteBuffer which is then passed
+   * to Face.send. If this Interest already has a default wire encoding in
+   * wireFormat, copy it. Otherwise encode directly into the output. Unlike
+   * wireEncode, this does not set the defaultWireEncoding field since the
+   * output buffer belongs to the caller.
+   * @param output The buffer to encode into, starting at its position(). On
+   * return, the position is advanced by the length of the encoding.
+   * @param wireFormat A WireFormat object used to encode this Interest.
+   * @return The length of the encoding.
+   * @throws BufferOverflowException If output.remaining() is less than the
+   * length of the encoding, in which case nothing is written.
+   */
+  public final int
+  wireEncodeInto(ByteBuffer output, WireFormat wireFormat)
+  {
+    int savePosition = output.position();
+    if (!getDefaultWireEncoding().isNull() &&
+        getDefaultWireEncodingFormat() == wireFormat) {
+      // We already have an encoding in the desired format.
+      if (output.remaining() < getDefaultWireEncoding().size())
+        throw new BufferOverflowException();
+      output.put(getDefaultWireEncoding().buf());
+    }
+    else
+      wireFormat.encodeInterest(this, output, new int[1], new int[1]);
+
+    return output.position() - savePosition;
+  }
+
+  /**
+   * Encode this Interest for the default wire format
+   * WireFormat.getDefaultWireFormat() into the output buffer at its position.
+   * See wireEncodeInto(output, wireFormat).
+   * @param output The buffer to encode into, starting at its position(). On
+   * return, the position is advanced by the length of the encoding.
+   * @return The length of the encoding.
+   * @throws BufferOverflowException If output.remaining() is less than the
+   * length of the encoding, in which case nothing is written.
+   */
+  public final int
+  wireEncodeInto(ByteBuffer output)
+  {
+    return wireEncodeInto(output, WireFormat.getDefaultWireFormat());
+  }
+
   /**
    * Decode the input using a particular wire format and update this Interest.
    * @param input The input buffer to decode.  This reads from position() to
@@ -199,6 +248,11 @@ public class Interest implements ChangeCountable {
   wireDecodeHelper
     (ByteBuffer input, WireFormat wireFormat, boolean copy) throws EncodingException
   {
+    checkNotFrozen("wireDecode");
+    // The fields are all decoded now.
+    lazyEncoding_ = null;
+    lazyWireFormat_ = null;
+
     int[] signedPortionBeginOffset = new int[1];
     int[] signedPortionEndOffset = new int[1];
     wireFormat.decodeInterest
@@ -252,6 +306,60 @@ public class Interest implements ChangeCountable {
     wireDecode(input, WireFormat.getDefaultWireFormat());
   }
 
+  /**
+   * Decode only the name of the input using a particular wire format, and keep
+   * the input so that the other fields such as the selectors, nonce and
+   * application parameters are decoded the first time they are accessed. This
+   * avoids the cost of decoding the other fields of an Interest which is only
+   * checked by its name, for example if it doesn't match an interest filter.
+   * If wireFormat is the default wire format, also set the defaultWireEncoding
+   * field another pointer to the input Blob. Since the Blob values share
+   * memory with the input, the input must remain unchanged while this Interest
+   * is used.
+   * @param input The input Blob to decode.  This reads from buf().position() to
+   * buf().limit(), but does not change the position.
+   * @param wireFormat A WireFormat object used to decode the input.
+   * @throws EncodingException For invalid encoding of the name. If the other
+   * fields have an invalid encoding, then the method which first accesses them
+   * throws an Error.
+   */
+  public final void
+  lazyWireDecode(Blob input, WireFormat wireFormat) throws EncodingException
+  {
+    checkNotFrozen("lazyWireDecode");
+    int[] signedPortionBeginOffset = new int[1];
+    int[] signedPortionEndOffset = new int[1];
+    wireFormat.decodeInterestName
+      (this, input.buf(), signedPortionBeginOffset, signedPortionEndOffset,
+       false);
+    lazyEncoding_ = input;
+    lazyWireFormat_ = wireFormat;
+    // The nonce is valid until a field is changed.
+    getNonceChangeCount_ = getChangeCount();
+
+    if (wireFormat == WireFormat.getDefaultWireFormat())
+      // This is the default wire encoding.
+      setDefaultWireEncoding
+        (new SignedBlob(input, signedPortionBeginOffset[0],
+         signedPortionEndOffset[0]), WireFormat.getDefaultWireFormat());
+    else
+      setDefaultWireEncoding(new SignedBlob(), null);
+  }
+
+  /**
+   * Decode only the name of the input using the default wire format
+   * WireFormat.getDefaultWireFormat(), and decode the other fields when they
+   * are first accessed. See lazyWireDecode(Blob, WireFormat).
+   * @param input The input Blob to decode.  This reads from buf().position() to
+   * buf().limit(), but does not change the position.
+   * @throws EncodingException For invalid encoding of the name.
+   */
+  public final void
+  lazyWireDecode(Blob input) throws EncodingException
+  {
+    lazyWireDecode(input, WireFormat.getDefaultWireFormat());
+  }
+
   /**
    * Encode the name according to the "NDN URI Scheme".  If there are interest
    * selectors, append "?" and added the selectors as a query string.  For
@@ -263,6 +371,7 @@ public class Interest implements ChangeCountable {
   public final String
   toUri()
   {
+    decodeLazyFields();
     StringBuffer selectors = new StringBuffer();
 
     if (minSuffixComponents_ >= 0)
@@ -282,9 +391,9 @@ public class Interest implements ChangeCountable {
     if (getExclude().size() > 0)
       selectors.append("&ndn.Exclude=").append(getExclude().toUri());
 
-    StringBuffer result = new StringBuffer();
+    StringBuilder result = new StringBuilder();
 
-    result.append(getName().toUri());
+    getName().appendUri(result);
     String selectorsString = selectors.toString();
     if (selectorsString.length() > 0)
       // Replace the first & with ?.
@@ -297,10 +406,18 @@ public class Interest implements ChangeCountable {
   getName() { return (Name)name_.get(); }
 
   public final int
-  getMinSuffixComponents() { return minSuffixComponents_; }
+  getMinSuffixComponents()
+  {
+    decodeLazyFields();
+    return minSuffixComponents_;
+  }
 
   public final int
-  getMaxSuffixComponents() { return maxSuffixComponents_; }
+  getMaxSuffixComponents()
+  {
+    decodeLazyFields();
+    return maxSuffixComponents_;
+  }
 
   /**
    * Get the CanBePrefix flag. If not specified, the default is true, or the
@@ -310,29 +427,50 @@ public class Interest implements ChangeCountable {
   public final boolean
   getCanBePrefix()
   {
+    decodeLazyFields();
     // Use the closest v0.2 semantics. CanBePrefix is the opposite of exact
     // match where MaxSuffixComponents is 1 (for the implicit digest).
     return maxSuffixComponents_ != 1;
   }
 
   public final KeyLocator
-  getKeyLocator() { return (KeyLocator)keyLocator_.get(); }
+  getKeyLocator()
+  {
+    decodeLazyFields();
+    return (KeyLocator)keyLocator_.get();
+  }
 
   public final Exclude
-  getExclude() { return (Exclude)exclude_.get(); }
+  getExclude()
+  {
+    decodeLazyFields();
+    return (Exclude)exclude_.get();
+  }
 
   public final int
-  getChildSelector() { return childSelector_; }
+  getChildSelector()
+  {
+    decodeLazyFields();
+    return childSelector_;
+  }
 
   /**
    * Get the must be fresh flag. If not specified, the default is true.
    * @return The must be fresh flag.
    */
   public final boolean
-  getMustBeFresh() { return mustBeFresh_; }
+  getMustBeFresh()
+  {
+    decodeLazyFields();
+    return mustBeFresh_;
+  }
 
   public final double
-  getInterestLifetimeMilliseconds() { return interestLifetimeMilliseconds_; }
+  getInterestLifetimeMilliseconds()
+  {
+    decodeLazyFields();
+    return interestLifetimeMilliseconds_;
+  }
 
   /**
    * Return the nonce value from the incoming interest.  If you change any of
@@ -342,6 +480,7 @@ public class Interest implements ChangeCountable {
   public final Blob
   getNonce()
   {
+    decodeLazyFields();
     if (getNonceChangeCount_ != getChangeCount()) {
       // The values have changed, so the existing nonce is invalidated.
       nonce_ = new Blob();
@@ -357,14 +496,22 @@ public class Interest implements ChangeCountable {
    * @return The forwarding hint as a DelegationSet.
    */
   public final DelegationSet
-  getForwardingHint() { return (DelegationSet)forwardingHint_.get(); }
+  getForwardingHint()
+  {
+    decodeLazyFields();
+    return (DelegationSet)forwardingHint_.get();
+  }
 
   /**
    * Check if the application parameters are specified.
    * @return True if the application parameters are specified, false if not.
    */
   public final boolean
-  hasApplicationParameters() { return applicationParameters_.size() > 0; }
+  hasApplicationParameters()
+  {
+    decodeLazyFields();
+    return applicationParameters_.size() > 0;
+  }
 
   /**
    * @deprecated Use hasApplicationParameters.
@@ -377,7 +524,11 @@ public class Interest implements ChangeCountable {
    * @return The parameters as a Blob, which isNull() if unspecified.
    */
   public final Blob
-  getApplicationParameters() { return applicationParameters_; }
+  getApplicationParameters()
+  {
+    decodeLazyFields();
+    return applicationParameters_;
+  }
 
   /**
    * @deprecated Use getApplicationParameters.
@@ -394,6 +545,7 @@ public class Interest implements ChangeCountable {
   public final boolean
   hasLink()
   {
+    decodeLazyFields();
     return link_.get() != null || !linkWireEncoding_.isNull();
   }
 
@@ -407,6 +559,7 @@ public class Interest implements ChangeCountable {
   public final Link
   getLink() throws EncodingException
   {
+    decodeLazyFields();
     if (link_.get() != null)
       return (Link)link_.get();
     else if (!linkWireEncoding_.isNull()) {
@@ -437,6 +590,7 @@ public class Interest implements ChangeCountable {
   public final Blob
   getLinkWireEncoding(WireFormat wireFormat) throws EncodingException
   {
+    decodeLazyFields();
     if (!linkWireEncoding_.isNull() && linkWireEncodingFormat_ == wireFormat)
       return linkWireEncoding_;
 
@@ -467,7 +621,11 @@ public class Interest implements ChangeCountable {
    * @deprecated Use getForwardingHint.
    */
   public final int
-  getSelectedDelegationIndex() { return selectedDelegationIndex_; }
+  getSelectedDelegationIndex()
+  {
+    decodeLazyFields();
+    return selectedDelegationIndex_;
+  }
 
   /**
    * Get the incoming face ID according to the incoming packet header.
@@ -490,6 +648,7 @@ public class Interest implements ChangeCountable {
   public final Interest
   setName(Name name)
   {
+    checkNotFrozen("setName");
     name_.set(name == null ? new Name() : new Name(name));
     ++changeCount_;
     return this;
@@ -504,6 +663,8 @@ public class Interest implements ChangeCountable {
   public final Interest
   setMinSuffixComponents(int minSuffixComponents)
   {
+    checkNotFrozen("setMinSuffixComponents");
+    decodeLazyFields();
     minSuffixComponents_ = minSuffixComponents;
     ++changeCount_;
     return this;
@@ -518,6 +679,8 @@ public class Interest implements ChangeCountable {
   public final Interest
   setMaxSuffixComponents(int maxSuffixComponents)
   {
+    checkNotFrozen("setMaxSuffixComponents");
+    decodeLazyFields();
     maxSuffixComponents_ = maxSuffixComponents;
     ++changeCount_;
     return this;
@@ -531,6 +694,8 @@ public class Interest implements ChangeCountable {
   public final Interest
   setCanBePrefix(boolean canBePrefix)
   {
+    checkNotFrozen("setCanBePrefix");
+    decodeLazyFields();
     // Use the closest v0.2 semantics. CanBePrefix is the opposite of exact
     // match where MaxSuffixComponents is 1 (for the implicit digest).
     maxSuffixComponents_ = (canBePrefix ? -1 : 1);
@@ -547,6 +712,8 @@ public class Interest implements ChangeCountable {
   public final Interest
   setChildSelector(int childSelector)
   {
+    checkNotFrozen("setChildSelector");
+    decodeLazyFields();
     childSelector_ = childSelector;
     ++changeCount_;
     return this;
@@ -561,6 +728,8 @@ public class Interest implements ChangeCountable {
   public final Interest
   setMustBeFresh(boolean mustBeFresh)
   {
+    checkNotFrozen("setMustBeFresh");
+    decodeLazyFields();
     mustBeFresh_ = mustBeFresh;
     ++changeCount_;
     return this;
@@ -575,6 +744,8 @@ public class Interest implements ChangeCountable {
   public final Interest
   setInterestLifetimeMilliseconds(double interestLifetimeMilliseconds)
   {
+    checkNotFrozen("setInterestLifetimeMilliseconds");
+    decodeLazyFields();
     interestLifetimeMilliseconds_ = interestLifetimeMilliseconds;
     ++changeCount_;
     return this;
@@ -587,6 +758,8 @@ public class Interest implements ChangeCountable {
   public final Interest
   setNonce(Blob nonce)
   {
+    checkNotFrozen("setNonce");
+    decodeLazyFields();
     nonce_ = (nonce == null ? new Blob() : nonce);
     // Set getNonceChangeCount_ so that the next call to getNonce() won't
     //   clear nonce_.
@@ -606,6 +779,8 @@ public class Interest implements ChangeCountable {
   public final Interest
   setKeyLocator(KeyLocator keyLocator)
   {
+    checkNotFrozen("setKeyLocator");
+    decodeLazyFields();
     keyLocator_.set(keyLocator == null ? new KeyLocator() : new KeyLocator(keyLocator));
     ++changeCount_;
     return this;
@@ -622,6 +797,8 @@ public class Interest implements ChangeCountable {
   public final Interest
   setExclude(Exclude exclude)
   {
+    checkNotFrozen("setExclude");
+    decodeLazyFields();
     exclude_.set(exclude == null ? new Exclude() : new Exclude(exclude));
     ++changeCount_;
     return this;
@@ -640,6 +817,8 @@ public class Interest implements ChangeCountable {
   public final Interest
   setForwardingHint(DelegationSet forwardingHint)
   {
+    checkNotFrozen("setForwardingHint");
+    decodeLazyFields();
     forwardingHint_.set(forwardingHint == null ?
       new DelegationSet() : new DelegationSet(forwardingHint));
     ++changeCount_;
@@ -654,6 +833,8 @@ public class Interest implements ChangeCountable {
   public final Interest
   setApplicationParameters(Blob applicationParameters)
   {
+    checkNotFrozen("setApplicationParameters");
+    decodeLazyFields();
     applicationParameters_ = 
       (applicationParameters == null ? new Blob() : applicationParameters);
     ++changeCount_;
@@ -679,6 +860,7 @@ public class Interest implements ChangeCountable {
   public final Interest
   appendParametersDigestToName()
   {
+    checkNotFrozen("appendParametersDigestToName");
     if (!hasApplicationParameters())
       return this;
 
@@ -707,6 +889,8 @@ public class Interest implements ChangeCountable {
   public final Interest
   setLinkWireEncoding(Blob encoding, WireFormat wireFormat)
   {
+    checkNotFrozen("setLinkWireEncoding");
+    decodeLazyFields();
     linkWireEncoding_ = encoding;
     linkWireEncodingFormat_ = wireFormat;
 
@@ -740,6 +924,8 @@ public class Interest implements ChangeCountable {
   public final Interest
   unsetLink()
   {
+    checkNotFrozen("unsetLink");
+    decodeLazyFields();
     return setLinkWireEncoding(new Blob(), null);
   }
 
@@ -753,6 +939,8 @@ public class Interest implements ChangeCountable {
   public final Interest
   setSelectedDelegationIndex(int selectedDelegationIndex)
   {
+    checkNotFrozen("setSelectedDelegationIndex");
+    decodeLazyFields();
     selectedDelegationIndex_ = selectedDelegationIndex;
     ++changeCount_;
     return this;
@@ -768,6 +956,7 @@ public class Interest implements ChangeCountable {
   final Interest
   setLpPacket(LpPacket lpPacket)
   {
+    checkNotFrozen("setLpPacket");
     lpPacket_ = lpPacket;
     // Don't update changeCount_ since this doesn't affect the wire encoding.
     return this;
@@ -781,6 +970,7 @@ public class Interest implements ChangeCountable {
   public final void
   refreshNonce()
   {
+    checkNotFrozen("refreshNonce");
     Blob currentNonce = getNonce();
     if (currentNonce.size() == 0)
       return;
@@ -811,6 +1001,7 @@ public class Interest implements ChangeCountable {
     if (!getName().match(name))
       return false;
 
+    decodeLazyFields();
     if (minSuffixComponents_ >= 0 &&
         // Add 1 for the implicit digest.
         !(name.size() + 1 - getName().size() >= minSuffixComponents_))
@@ -860,8 +1051,13 @@ public class Interest implements ChangeCountable {
 
     // Check the prefix.
     if (interestNameLength == fullNameLength) {
-      if (getName().get(-1).isImplicitSha256Digest()) {
-        if (!getName().equals(data.getFullName(wireFormat)))
+      Name.Component lastComponent = getName().get(-1);
+      if (lastComponent.isImplicitSha256Digest()) {
+        // Check the Data name first so that we only get the digest if needed.
+        // The Data saves the digest of its default wire encoding.
+        if (!dataName.isPrefixOf(getName()) ||
+            !lastComponent.getValue().equals
+              (data.getImplicitSha256Digest(wireFormat)))
           return false;
       }
       else
@@ -950,12 +1146,16 @@ public class Interest implements ChangeCountable {
 
   /**
    * Get the change count, which is incremented each time this object
-   * (or a child object) is changed.
+   * (or a child object) is changed. If this Interest is frozen, the change
+   * count is fixed and this does not check the child objects.
    * @return The change count.
    */
   public final long
   getChangeCount()
   {
+    if (isFrozen_)
+      return changeCount_;
+
     // Make sure each of the checkChanged is called.
     boolean changed = name_.checkChanged();
     changed = keyLocator_.checkChanged() || changed;
@@ -969,13 +1169,115 @@ public class Interest implements ChangeCountable {
     return changeCount_;
   }
 
+  /**
+   * Freeze this Interest so that it can't be changed, and so that it can be
+   * shared by other objects and threads instead of being copied. This decodes
+   * any lazily decoded fields, freezes the Name, and encodes with the default
+   * wire format so that wireEncode() returns the saved encoding. After this,
+   * the setters, refreshNonce, wireDecode and lazyWireDecode throw an
+   * UnsupportedOperationException, and the change count is fixed so that
+   * getChangeCount() doesn't need to check the child objects. You must not
+   * change the KeyLocator, Exclude or forwarding hint objects of a frozen
+   * Interest. Since Face.expressInterest must set a new nonce, it sends a copy
+   * of a frozen Interest. A copy made with new Interest(interest) is not
+   * frozen. Calling freeze again does nothing.
+   * @return This Interest so that you can chain calls.
+   */
+  public final Interest
+  freeze()
+  {
+    if (isFrozen_)
+      return this;
+
+    decodeLazyFields();
+    getName().freeze();
+    // This sets the default wire encoding, if not already set.
+    wireEncode();
+    // Update changeCount_ from the child objects before fixing it.
+    getChangeCount();
+    isFrozen_ = true;
+    return this;
+  }
+
+  /**
+   * Check if freeze() was called.
+   * @return True if this Interest is frozen.
+   */
+  public final boolean
+  isFrozen() { return isFrozen_; }
+
+  /**
+   * If this Interest is frozen, throw an exception.
+   * @param methodName The name of the calling method, for the message.
+   * @throws UnsupportedOperationException If this Interest is frozen.
+   */
+  private void
+  checkNotFrozen(String methodName)
+  {
+    if (isFrozen_)
+      throw new UnsupportedOperationException
+        ("Interest." + methodName + ": The Interest is frozen");
+  }
+
   /**
    * This internal library method gets didSetCanBePrefix_ which is set true when
    * the application calls setCanBePrefix(), or if the application had already
    * called setDefaultCanBePrefix() before creating the Interest.
    */
   public boolean
-  getDidSetCanBePrefix_() { return didSetCanBePrefix_; }
+  getDidSetCanBePrefix_()
+  {
+    decodeLazyFields();
+    return didSetCanBePrefix_;
+  }
+
+  /**
+   * If lazyWireDecode was called and the fields other than the name are not
+   * decoded yet, decode them from the saved input. This decodes into a
+   * separate Interest so that a changed name is not replaced. This does not
+   * change the change count, so the default wire encoding stays valid.
+   * @throws Error If the fields have an invalid encoding.
+   */
+  private void
+  decodeLazyFields()
+  {
+    if (lazyEncoding_ == null)
+      return;
+
+    Blob encoding = lazyEncoding_;
+    WireFormat wireFormat = lazyWireFormat_;
+    // Clear first so that the methods below don't call this again.
+    lazyEncoding_ = null;
+    lazyWireFormat_ = null;
+
+    Interest interest = new Interest();
+    try {
+      wireFormat.decodeInterest
+        (interest, encoding.buf(), new int[1], new int[1], false);
+    } catch (EncodingException ex) {
+      throw new Error
+        ("Interest: Error decoding the lazily decoded fields: " +
+         ex.getMessage());
+    }
+
+    minSuffixComponents_ = interest.minSuffixComponents_;
+    maxSuffixComponents_ = interest.maxSuffixComponents_;
+    didSetCanBePrefix_ = interest.didSetCanBePrefix_;
+    keyLocator_.set(interest.getKeyLocator());
+    exclude_.set(interest.getExclude());
+    childSelector_ = interest.childSelector_;
+    mustBeFresh_ = interest.mustBeFresh_;
+    interestLifetimeMilliseconds_ = interest.interestLifetimeMilliseconds_;
+    forwardingHint_.set(interest.getForwardingHint());
+    applicationParameters_ = interest.applicationParameters_;
+    linkWireEncoding_ = interest.linkWireEncoding_;
+    linkWireEncodingFormat_ = interest.linkWireEncodingFormat_;
+    link_.set(null);
+    selectedDelegationIndex_ = interest.selectedDelegationIndex_;
+    if (getNonceChangeCount_ == getChangeCount())
+      // The name was not changed since lazyWireDecode, so the nonce is valid.
+      nonce_ = interest.getNonce();
+  }
 
   private void
   setDefaultWireEncoding
@@ -999,6 +1301,10 @@ public class Interest implements ChangeCountable {
   private boolean mustBeFresh_ = true;
   private double interestLifetimeMilliseconds_ = -1;
   private Blob nonce_ = new Blob();
+  // If lazyEncoding_ is not null, the fields other than the name still need to
+  // be decoded from it by decodeLazyFields.
+  private Blob lazyEncoding_ = null;
+  private WireFormat lazyWireFormat_ = null;
   private long getNonceChangeCount_ = 0;
   private LpPacket lpPacket_ = null;
   private Blob linkWireEncoding_ = new Blob();
@@ -1012,6 +1318,7 @@ public class Interest implements ChangeCountable {
   private WireFormat defaultWireEncodingFormat_;
   private long getDefaultWireEncodingChangeCount_ = 0;
   private long changeCount_ = 0;
+  private boolean isFrozen_ = false;
   private static final Random random_ = new Random();
   private static boolean defaultCanBePrefix_ = true;
   private static boolean didSetDefaultCanBePrefix_ = false;
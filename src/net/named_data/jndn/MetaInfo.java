@@ -88,6 +88,7 @@ public class MetaInfo implements ChangeCountable {
   public final void
   setType(ContentType type)
   {
+    checkNotFrozen("setType");
     type_ = type;
     ++changeCount_;
   }
@@ -102,6 +103,7 @@ public class MetaInfo implements ChangeCountable {
   public final void
   setOtherTypeCode(int otherTypeCode)
   {
+    checkNotFrozen("setOtherTypeCode");
     if (otherTypeCode < 0)
       throw new Error("MetaInfo other type code must be non-negative");
 
@@ -112,6 +114,7 @@ public class MetaInfo implements ChangeCountable {
   public final void
   setFreshnessPeriod(double freshnessPeriod)
   {
+    checkNotFrozen("setFreshnessPeriod");
     freshnessPeriod_ = freshnessPeriod;
     ++changeCount_;
   }
@@ -129,6 +132,7 @@ public class MetaInfo implements ChangeCountable {
   public final void
   setFinalBlockId(Name.Component finalBlockId)
   {
+    checkNotFrozen("setFinalBlockId");
     finalBlockId_ = (finalBlockId == null ? new Name.Component() : finalBlockId);
     ++changeCount_;
   }
@@ -148,6 +152,7 @@ public class MetaInfo implements ChangeCountable {
   public final void
   clear()
   {
+    checkNotFrozen("clear");
     type_ = ContentType.BLOB;
     otherTypeCode_ = -1;
     freshnessPeriod_ = -1;
@@ -163,9 +168,43 @@ public class MetaInfo implements ChangeCountable {
   public final long
   getChangeCount() { return changeCount_; }
 
+  /**
+   * Freeze this MetaInfo so that it can't be changed. After this, the setters
+   * and clear throw an UnsupportedOperationException. This is called by
+   * Data.freeze(). A copy made with new MetaInfo(metaInfo) is not frozen.
+   * @return This MetaInfo so that you can chain calls.
+   */
+  public final MetaInfo
+  freeze()
+  {
+    isFrozen_ = true;
+    return this;
+  }
+
+  /**
+   * Check if freeze() was called.
+   * @return True if this MetaInfo is frozen.
+   */
+  public final boolean
+  isFrozen() { return isFrozen_; }
+
+  /**
+   * If this MetaInfo is frozen, throw an exception.
+   * @param methodName The name of the calling method, for the message.
+   * @throws UnsupportedOperationException If this MetaInfo is frozen.
+   */
+  private void
+  checkNotFrozen(String methodName)
+  {
+    if (isFrozen_)
+      throw new UnsupportedOperationException
+        ("MetaInfo." + methodName + ": The MetaInfo is frozen");
+  }
+
   private ContentType type_ = ContentType.BLOB; /**< default is ContentType.BLOB. */
   private int otherTypeCode_ = -1;
   private double freshnessPeriod_ = -1; /**< -1 for none */
   private Name.Component finalBlockId_ = new Name.Component(); /**< size 0 for none */
   private long changeCount_ = 0;
+  private boolean isFrozen_ = false;
 }
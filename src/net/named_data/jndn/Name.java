@@ -271,6 +271,39 @@ public class Name implements ChangeCountable, Comparable {
      */
     public final void
     toEscapedString(StringBuffer result)
+    {
+      result.append(toEscapedString());
+    }
+
+    /**
+     * Convert this component value by escaping characters according to the
+     * NDN URI Scheme. This also adds "..." to a value with zero or more ".".
+     * This adds a type code prefix as needed, such as "sha256digest=".
+     * Since a component is immutable, the result is cached so that only the
+     * first call makes the string.
+     * @return The escaped string.
+     */
+    public final String
+    toEscapedString()
+    {
+      String escapedString = escapedString_;
+      if (escapedString == null) {
+        StringBuffer result = new StringBuffer(value_.buf().remaining());
+        writeEscapedString(result);
+        // A String is immutable, so another thread can safely use this even
+        // without synchronization.
+        escapedString = escapedString_ = result.toString();
+      }
+
+      return escapedString;
+    }
+
+    /**
+     * Do the work of toEscapedString to write the escaped string to result.
+     * @param result The StringBuffer to write to.
+     */
+    private void
+    writeEscapedString(StringBuffer result)
     {
       if (type_ == ComponentType.IMPLICIT_SHA256_DIGEST) {
         result.append("sha256digest=");
@@ -292,20 +325,6 @@ public class Name implements ChangeCountable, Comparable {
       Name.toEscapedString(value_.buf(), result);
     }
 
-    /**
-     * Convert this component value by escaping characters according to the
-     * NDN URI Scheme. This also adds "..." to a value with zero or more ".".
-     * This adds a type code prefix as needed, such as "sha256digest=".
-     * @return The escaped string.
-     */
-    public final String
-    toEscapedString()
-    {
-      StringBuffer result = new StringBuffer(value_.buf().remaining());
-      toEscapedString(result);
-      return result.toString();
-    }
-
     /**
      * Check if this component is a segment number according to NDN naming
      * conventions for "Segment number" (marker 0x00).
@@ -851,6 +870,7 @@ public class Name implements ChangeCountable, Comparable {
     private ComponentType type_;
     private int otherTypeCode_ = -1;
     private final Blob value_;
+    private String escapedString_ = null;
   }
 
   /**
@@ -1041,6 +1061,7 @@ public class Name implements ChangeCountable, Comparable {
   public final void
   clear()
   {
+    checkNotFrozen("clear");
     components_.clear();
     ++changeCount_;
   }
@@ -1157,6 +1178,7 @@ public class Name implements ChangeCountable, Comparable {
   public final Name
   append(Component component)
   {
+    checkNotFrozen("append");
     components_.add(component);
     ++changeCount_;
     return this;
@@ -1299,30 +1321,63 @@ public class Name implements ChangeCountable, Comparable {
   public final String
   toUri(boolean includeScheme)
   {
-    if (components_.isEmpty())
-      return includeScheme ? "ndn:/" : "/";
-
-    StringBuffer result = new StringBuffer();
-    if (includeScheme)
-      result.append("ndn:");
-    for (int i = 0; i < components_.size(); ++i) {
-      result.append("/");
-      get(i).toEscapedString(result);
-    }
-
-    return result.toString();
+    return includeScheme ? "ndn:" + toUri() : toUri();
   }
 
   /**
    * Encode this name as a URI according to the NDN URI Scheme. Just return the
    * path, e.g. "/example/name" which is the default case where toUri() is used
-   * for display.
+   * for display. The result is cached until this name is changed, so that a
+   * name which is used as a key or logged repeatedly only makes the string
+   * once.
    * @return The URI string.
    */
   public final String
   toUri()
   {
-    return toUri(false);
+    if (uriChangeCount_ != getChangeCount() || uri_ == null) {
+      if (components_.isEmpty())
+        uri_ = "/";
+      else {
+        StringBuilder result = new StringBuilder();
+        appendComponentsUri(result);
+        uri_ = result.toString();
+      }
+      uriChangeCount_ = getChangeCount();
+    }
+
+    return uri_;
+  }
+
+  /**
+   * Append the URI of this name according to the NDN URI Scheme to result,
+   * without the "ndn:" scheme. This is the same as result.append(toUri()),
+   * but if the URI string is not already cached, this appends the escaped
+   * string of each component without making a string for the whole name.
+   * @param result The StringBuilder to append to.
+   * @return The result, so that you can chain calls to append.
+   */
+  public final StringBuilder
+  appendUri(StringBuilder result)
+  {
+    if (uriChangeCount_ == getChangeCount() && uri_ != null)
+      return result.append(uri_);
+
+    if (components_.isEmpty())
+      return result.append('/');
+    appendComponentsUri(result);
+    return result;
+  }
+
+  /**
+   * Append "/" and the escaped string of each component to result.
+   * @param result The StringBuilder to append to.
+   */
+  private void
+  appendComponentsUri(StringBuilder result)
+  {
+    for (int i = 0; i < components_.size(); ++i)
+      result.append('/').append(components_.get(i).toEscapedString());
   }
 
   public String toString() { return toUri(); }
@@ -1821,6 +1876,43 @@ public class Name implements ChangeCountable, Comparable {
   public final long
   getChangeCount() { return changeCount_; }
 
+  /**
+   * Freeze this Name so that it can't be changed. After this, clear, append
+   * and set throw an UnsupportedOperationException. A frozen Name can be shared
+   * instead of copied, for example by a frozen Data or Interest. A copy made
+   * with new Name(name) is not frozen.
+   * @return This Name so that you can chain calls.
+   */
+  public final Name
+  freeze()
+  {
+    // Compute the cached hash code now since a frozen Name may be shared by
+    // other threads.
+    hashCode();
+    isFrozen_ = true;
+    return this;
+  }
+
+  /**
+   * Check if freeze() was called.
+   * @return True if this Name is frozen.
+   */
+  public final boolean
+  isFrozen() { return isFrozen_; }
+
+  /**
+   * If this Name is frozen, throw an exception.
+   * @param methodName The name of the calling method, for the message.
+   * @throws UnsupportedOperationException If this Name is frozen.
+   */
+  private void
+  checkNotFrozen(String methodName)
+  {
+    if (isFrozen_)
+      throw new UnsupportedOperationException
+        ("Name." + methodName + ": The Name is frozen");
+  }
+
   /**
    * Make a Blob value by decoding the escapedString between beginOffset and
    * endOffset according to the NDN URI Scheme. If the escaped string is
@@ -2040,4 +2132,7 @@ public class Name implements ChangeCountable, Comparable {
   private boolean haveHashCode_ = false;
   private int hashCode_;
   private long hashCodeChangeCount_ = 0;
+  private String uri_ = null;
+  private long uriChangeCount_ = 0;
+  private boolean isFrozen_ = false;
 }
@@ -24,6 +24,8 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import net.named_data.jndn.encoding.ElementListener;
@@ -42,8 +44,10 @@ import net.named_data.jndn.security.KeyChain;
 import net.named_data.jndn.security.SecurityException;
 import net.named_data.jndn.transport.Transport;
 import net.named_data.jndn.util.Blob;
+import net.named_data.jndn.util.BufferPool;
 import net.named_data.jndn.util.CommandInterestGenerator;
 import net.named_data.jndn.util.Common;
+import net.named_data.jndn.util.PooledBuffer;
 
 /**
  * The Node class implements internal functionality for the Face class.
@@ -57,9 +61,30 @@ public class Node implements ElementListener {
    * the transport.
    */
   public Node(Transport transport, Transport.ConnectionInfo connectionInfo)
+  {
+    this(transport, connectionInfo, 1);
+  }
+
+  /**
+   * Create a new Node for communication with an NDN hub with the given
+   * Transport object and connectionInfo, where the pending interest table and
+   * delayed call table are split into stripes with separate locks so that many
+   * threads can call expressInterest without contending on one lock.
+   * @param transport A Transport object used for communication.
+   * @param connectionInfo A Transport.ConnectionInfo to be used to connect to
+   * the transport.
+   * @param concurrencyLevel The number of stripes for the tables, which is
+   * typically the number of threads which use the Node at the same time. If
+   * this is 1, this is the same as the constructor without concurrencyLevel.
+   */
+  public Node
+    (Transport transport, Transport.ConnectionInfo connectionInfo,
+     int concurrencyLevel)
   {
     transport_ = transport;
     connectionInfo_ = connectionInfo;
+    pendingInterestTable_ = new PendingInterestTable(concurrencyLevel);
+    delayedCallTable_ = new DelayedCallTable(concurrencyLevel);
   }
 
   /**
@@ -123,13 +148,12 @@ public class Node implements ElementListener {
     synchronized(onConnectedCallbacks_) {
       // TODO: Properly check if we are already connected to the expected host.
       if (!transport_.isAsync()) {
-        // The simple case: Just do a blocking connect and express.
-        transport_.connect(connectionInfo_, this, null);
+        // The simple case: Just do a blocking connect and express. This makes
+        // future calls to expressInterest send directly to the Transport.
+        connectAndWakeup();
         expressInterestHelper
           (pendingInterestId, interestCopy, onData, onTimeout, onNetworkNack,
            wireFormat, face);
-        // Make future calls to expressInterest send directly to the Transport.
-        connectStatus_ = ConnectStatus.CONNECT_COMPLETE;
 
         return;
       }
@@ -153,6 +177,7 @@ public class Node implements ElementListener {
 
         Runnable onConnected = new Runnable() {
           public void run() {
+            boolean isReconnect;
             // This is called on a separate thread from the surrounding code
             // when connected, so synchronize again.
             synchronized(onConnectedCallbacks_) {
@@ -164,7 +189,15 @@ public class Node implements ElementListener {
               // Make future calls to expressInterest send directly to the
               // Transport.
               connectStatus_ = ConnectStatus.CONNECT_COMPLETE;
+
+              // An async transport such as AsyncTcpTransport calls this again
+              // when it reconnects.
+              isReconnect = hasConnected_;
+              hasConnected_ = true;
             }
+
+            if (isReconnect && reconnectEnabled_)
+              onReconnected(getPendingInterestsToResend());
           }
         };
         transport_.connect(connectionInfo_, this, onConnected);
@@ -263,15 +296,36 @@ public class Node implements ElementListener {
   public final void
   registerPrefix
     (long registeredPrefixId, Name prefix, OnInterestCallback onInterest,
-     OnRegisterFailed onRegisterFailed, OnRegisterSuccess onRegisterSuccess,
-     RegistrationOptions registrationOptions, WireFormat wireFormat,
-     KeyChain commandKeyChain, Name commandCertificateName, Face face)
+     final OnRegisterFailed onRegisterFailed, OnRegisterSuccess onRegisterSuccess,
+     RegistrationOptions registrationOptions, final WireFormat wireFormat,
+     final KeyChain commandKeyChain, Name commandCertificateName,
+     final Face face)
     throws IOException, SecurityException
   {
+    final Name prefixCopy = new Name(prefix);
+    final RegistrationOptions registrationOptionsCopy =
+      new RegistrationOptions(registrationOptions);
+    final Name commandCertificateNameCopy = new Name(commandCertificateName);
+    // After a reconnect, send the registration command again. Use a
+    // registeredPrefixId of 0 and no onInterest since the registered prefix
+    // table entry and interest filter already exist.
+    Runnable registerAgain = new Runnable() {
+      public void run() {
+        try {
+          nfdRegisterPrefix
+            (0, prefixCopy, null, onRegisterFailed, null,
+             registrationOptionsCopy, commandKeyChain,
+             commandCertificateNameCopy, wireFormat, face, null);
+        } catch (SecurityException ex) {
+          logger_.log(Level.SEVERE, "Error registering the prefix again", ex);
+        }
+      }
+    };
+
     nfdRegisterPrefix
-      (registeredPrefixId, new Name(prefix), onInterest, onRegisterFailed,
+      (registeredPrefixId, prefixCopy, onInterest, onRegisterFailed,
        onRegisterSuccess, registrationOptions, commandKeyChain, commandCertificateName,
-       wireFormat, face);
+       wireFormat, face, registerAgain);
   }
 
   /**
@@ -293,7 +347,8 @@ public class Node implements ElementListener {
    * callback for a matching incoming Interest. This method only modifies the
    * library's local callback table and does not register the prefix with the
    * forwarder. It will always succeed. To register a prefix with the forwarder,
-   * use registerPrefix.
+   * use registerPrefix. However, if transport getConnectsOnInterestFilter() is
+   * true, this also connects the transport so that it can receive Interests.
    * @param interestFilterId The getNextEntryId() for the interest filter ID
    * which Face got so it could return it to the caller.
    * @param filter The InterestFilter with a prefix and optional regex filter
@@ -310,6 +365,59 @@ public class Node implements ElementListener {
   {
     interestFilterTable_.setInterestFilter
       (interestFilterId, new InterestFilter(filter), onInterest, face);
+
+    if (transport_.getConnectsOnInterestFilter() &&
+        connectStatus_ != ConnectStatus.CONNECT_COMPLETE)
+      connectForInterestFilter();
+  }
+
+  /**
+   * Do a blocking connect of the transport if it is not already connected, so
+   * that it can receive Interests for an interest filter. If the connect fails,
+   * log the error and leave the transport unconnected so that sending a packet
+   * tries again.
+   */
+  private void
+  connectForInterestFilter()
+  {
+    synchronized(onConnectedCallbacks_) {
+      if (connectStatus_ == ConnectStatus.CONNECT_COMPLETE)
+        return;
+
+      try {
+        connectAndWakeup();
+      } catch (IOException ex) {
+        logger_.log(Level.SEVERE,
+          "Error connecting the transport for the interest filter", ex);
+      }
+    }
+  }
+
+  /**
+   * Do a blocking connect of the synchronous transport and set connectStatus_
+   * to CONNECT_COMPLETE. Then wake up an event loop which may be waiting
+   * without the new channel. The caller must synchronize on
+   * onConnectedCallbacks_.
+   * @throws IOException For I/O error in connecting, in which case this does
+   * not change connectStatus_.
+   */
+  private void
+  connectAndWakeup() throws IOException
+  {
+    transport_.connect(connectionInfo_, this, null);
+    connectStatus_ = ConnectStatus.CONNECT_COMPLETE;
+    callWakeup();
+  }
+
+  /**
+   * Call the Runnable from setWakeup, if any.
+   */
+  private void
+  callWakeup()
+  {
+    Runnable wakeup = wakeup_;
+    if (wakeup != null)
+      wakeup.run();
   }
 
   /**
@@ -355,7 +463,7 @@ public class Node implements ElementListener {
       throw new Error
         ("The encoded Data packet size exceeds the maximum limit getMaxNdnPacketSize()");
 
-    transport_.send(encoding.buf());
+    transportSend(encoding.buf());
   }
 
   /**
@@ -371,7 +479,11 @@ public class Node implements ElementListener {
       throw new Error
         ("The encoded packet size exceeds the maximum limit getMaxNdnPacketSize()");
 
-    transport_.send(encoding);
+    if (sendBatchingEnabled_)
+      // Copy since the caller may change the buffer before it is flushed.
+      transportSend(new Blob(encoding, true).buf());
+    else
+      transport_.send(encoding);
   }
 
   /**
@@ -390,7 +502,185 @@ public class Node implements ElementListener {
       throw new Error
         ("The encoded Nack packet size exceeds the maximum limit getMaxNdnPacketSize()");
 
-    transport_.send(encoding.buf());
+    transportSend(encoding.buf());
+  }
+
+  /**
+   * Enable or disable send batching. See Face.setSendBatchingEnabled.
+   * @param sendBatchingEnabled If true, enable send batching, otherwise
+   * disable it.
+   */
+  public final void
+  setSendBatchingEnabled(boolean sendBatchingEnabled)
+    throws IOException
+  {
+    sendBatchingEnabled_ = sendBatchingEnabled;
+    if (!sendBatchingEnabled)
+      flush();
+  }
+
+  /**
+   * Send all packets which are queued in the transport because send batching
+   * is enabled.
+   * @throws IOException For I/O error in sending.
+   */
+  public final void
+  flush() throws IOException
+  {
+    flushRequested_.set(false);
+    transport_.flush();
+  }
+
+  /**
+   * Enable or disable automatic reconnect. See Face.setReconnectEnabled.
+   * @param reconnectEnabled If true, enable automatic reconnect, otherwise
+   * disable it.
+   * @param resendPendingInterests If true, send the pending Interests again
+   * after a reconnect.
+   */
+  public final void
+  setReconnectEnabled(boolean reconnectEnabled, boolean resendPendingInterests)
+  {
+    reconnectEnabled_ = reconnectEnabled;
+    resendPendingInterests_ = resendPendingInterests;
+  }
+
+  /**
+   * Check if processEvents should supervise the connection of a synchronous
+   * transport. An async transport such as AsyncTcpTransport reconnects itself
+   * and calls onConnected again.
+   * @return True if reconnect is enabled and the transport was connected.
+   */
+  private boolean
+  getIsReconnectSupervised()
+  {
+    return reconnectEnabled_ && !transport_.isAsync() &&
+      connectStatus_ == ConnectStatus.CONNECT_COMPLETE;
+  }
+
+  /**
+   * Mark the connection as lost and schedule a reconnect, unless one is
+   * already scheduled. Save the pending Interests to send again after the
+   * reconnect. An Interest expressed after this is sent when expressInterest
+   * connects, so it must not be sent again.
+   */
+  private void
+  onDisconnected()
+  {
+    synchronized(onConnectedCallbacks_) {
+      if (isReconnectScheduled_)
+        return;
+      isReconnectScheduled_ = true;
+      connectStatus_ = ConnectStatus.UNCONNECTED;
+      disconnectedPendingInterests_ = getPendingInterestsToResend();
+    }
+
+    logger_.log(Level.INFO, "Lost the connection to the forwarder");
+    scheduleReconnect();
+  }
+
+  /**
+   * Call reconnect() after the current reconnect delay.
+   */
+  private void
+  scheduleReconnect()
+  {
+    logger_.log(Level.INFO, "Reconnecting in {0} milliseconds",
+      reconnectDelayMilliseconds_);
+    // The DelayedCallTable wakes up a FaceEventLoop for the new call.
+    delayedCallTable_.callLater(reconnectDelayMilliseconds_, new Runnable() {
+      public void run() { reconnect(); }
+    });
+  }
+
+  /**
+   * Try to connect the transport. If it fails, double the reconnect delay up
+   * to MAX_RECONNECT_DELAY_MILLISECONDS and schedule another try. If it
+   * succeeds, call onReconnected() with the pending Interests saved by
+   * onDisconnected().
+   */
+  private void
+  reconnect()
+  {
+    ArrayList<PendingInterestTable.Entry> pendingInterests;
+    synchronized(onConnectedCallbacks_) {
+      // expressInterest may have already connected.
+      if (connectStatus_ != ConnectStatus.CONNECT_COMPLETE) {
+        try {
+          connectAndWakeup();
+        } catch (IOException ex) {
+          logger_.log(Level.INFO, "Reconnect failed: {0}", ex);
+          reconnectDelayMilliseconds_ = Math.min
+            (2 * reconnectDelayMilliseconds_, MAX_RECONNECT_DELAY_MILLISECONDS);
+          scheduleReconnect();
+          return;
+        }
+      }
+
+      isReconnectScheduled_ = false;
+      reconnectDelayMilliseconds_ = INITIAL_RECONNECT_DELAY_MILLISECONDS;
+      pendingInterests = disconnectedPendingInterests_;
+      disconnectedPendingInterests_ = null;
+    }
+
+    logger_.log(Level.INFO, "Reconnected to the forwarder");
+    onReconnected(pendingInterests);
+  }
+
+  /**
+   * Get the entries in the pending interest table to send again after a
+   * reconnect.
+   * @return A new list of the entries, which is empty if
+   * resendPendingInterests_ is false.
+   */
+  private ArrayList<PendingInterestTable.Entry>
+  getPendingInterestsToResend()
+  {
+    ArrayList<PendingInterestTable.Entry> pendingInterests =
+      new ArrayList<PendingInterestTable.Entry>();
+    if (resendPendingInterests_)
+      pendingInterestTable_.getEntries(pendingInterests);
+    return pendingInterests;
+  }
+
+  /**
+   * After a reconnect, send the registration command again for each prefix in
+   * the registered prefix table, since a restarted forwarder has lost them.
+   * Also send the given pending Interests again if they have not timed out or
+   * been removed.
+   * @param pendingInterests The pending Interests from
+   * getPendingInterestsToResend(), taken before registering adds command
+   * Interests. This does not resend if null.
+   */
+  private void
+  onReconnected(ArrayList<PendingInterestTable.Entry> pendingInterests)
+  {
+    ArrayList<Runnable> registerAgainList = new ArrayList<Runnable>();
+    registeredPrefixTable_.getRegisterAgainList(registerAgainList);
+    for (int i = 0; i < registerAgainList.size(); ++i) {
+      try {
+        registerAgainList.get(i).run();
+      } catch (Throwable ex) {
+        logger_.log(Level.SEVERE, "Error registering the prefix again", ex);
+      }
+    }
+
+    if (pendingInterests == null)
+      return;
+    for (int i = 0; i < pendingInterests.size(); ++i) {
+      PendingInterestTable.Entry entry = pendingInterests.get(i);
+      if (entry.getIsRemoved())
+        continue;
+
+      try {
+        // NFD only accepts TlvWireFormat packets.
+        send(entry.getInterest().wireEncode(TlvWireFormat.get()).buf());
+      } catch (IOException ex) {
+        logger_.log(Level.INFO,
+          "Error sending the pending Interests again: {0}", ex);
+        break;
+      }
+    }
   }
 
   /**
@@ -409,11 +699,27 @@ public class Node implements ElementListener {
   public final void
   processEvents() throws IOException, EncodingException
   {
-    transport_.processEvents();
+    try {
+      try {
+        transport_.processEvents();
+      } catch (IOException ex) {
+        if (!getIsReconnectSupervised())
+          throw ex;
+        logger_.log(Level.INFO, "Error reading from the transport: {0}", ex);
+        onDisconnected();
+      }
+      if (getIsReconnectSupervised() && !transport_.getIsConnected())
+        onDisconnected();
 
-    // If Face.callLater is overridden to use a different mechanism, then
-    // processEvents is not needed to check for delayed calls.
-    delayedCallTable_.callTimedOut();
+      // If Face.callLater is overridden to use a different mechanism, then
+      // processEvents is not needed to check for delayed calls.
+      delayedCallTable_.callTimedOut();
+    }
+    finally {
+      if (sendBatchingEnabled_)
+        // Send packets queued by the callbacks or by other threads.
+        flush();
+    }
   }
 
   public final Transport
@@ -434,6 +740,15 @@ public class Node implements ElementListener {
       element = lpPacket.getFragmentWireEncoding().buf();
     }
 
+    // If the element is in a pooled receive buffer, decode without copying.
+    PooledBuffer receiveBuffer = null;
+    if (zeroCopyReceiveEnabled_) {
+      receiveBuffer = transport_.getReceiveBuffer();
+      if (receiveBuffer != null && !receiveBuffer.contains(element))
+        // The element was split over reads and is a copy.
+        receiveBuffer = null;
+    }
+
     // First, decode as Interest or Data.
     Interest interest = null;
     Data data = null;
@@ -441,14 +756,27 @@ public class Node implements ElementListener {
       TlvDecoder decoder = new TlvDecoder(element);
       if (decoder.peekType(Tlv.Interest, element.remaining())) {
         interest = new Interest();
-        interest.wireDecode(element, TlvWireFormat.get());
+        if (lazyDecodingEnabled_)
+          // Decode the other fields only if a callback accesses them.
+          interest.lazyWireDecode
+            (new Blob(element, receiveBuffer == null), TlvWireFormat.get());
+        else if (receiveBuffer != null)
+          interest.wireDecode(new Blob(element, false), TlvWireFormat.get());
+        else
+          interest.wireDecode(element, TlvWireFormat.get());
 
         if (lpPacket != null)
           interest.setLpPacket(lpPacket);
       }
       else if (decoder.peekType(Tlv.Data, element.remaining())) {
         data = new Data();
-        data.wireDecode(element, TlvWireFormat.get());
+        if (lazyDecodingEnabled_)
+          data.lazyWireDecode
+            (new Blob(element, receiveBuffer == null), TlvWireFormat.get());
+        else if (receiveBuffer != null)
+          data.wireDecode(new Blob(element, false), TlvWireFormat.get());
+        else
+          data.wireDecode(element, TlvWireFormat.get());
 
         if (lpPacket != null)
           data.setLpPacket(lpPacket);
@@ -484,10 +812,55 @@ public class Node implements ElementListener {
     }
 
     // Now process as Interest or Data.
-    if (interest != null)
-      dispatchInterest(interest);
-    else if (data != null)
-      satisfyPendingInterests(data);
+    currentReceiveBuffer_ = receiveBuffer;
+    try {
+      if (interest != null)
+        dispatchInterest(interest);
+      else if (data != null)
+        satisfyPendingInterests(data);
+    }
+    finally {
+      currentReceiveBuffer_ = null;
+    }
+  }
+
+  /**
+   * Enable or disable zero-copy receive. See Face.setZeroCopyReceiveEnabled.
+   * @param zeroCopyReceiveEnabled If true, enable zero-copy receive, otherwise
+   * disable it.
+   */
+  public final void
+  setZeroCopyReceiveEnabled(boolean zeroCopyReceiveEnabled)
+  {
+    zeroCopyReceiveEnabled_ = zeroCopyReceiveEnabled;
+    transport_.setReceiveBufferPool
+      (zeroCopyReceiveEnabled ? new BufferPool
+       (Common.MAX_NDN_PACKET_SIZE, MAX_POOLED_RECEIVE_BUFFERS) : null);
+  }
+
+  /**
+   * Enable or disable lazy decoding. See Face.setLazyDecodingEnabled.
+   * @param lazyDecodingEnabled If true, enable lazy decoding, otherwise
+   * disable it.
+   */
+  public final void
+  setLazyDecodingEnabled(boolean lazyDecodingEnabled)
+  {
+    lazyDecodingEnabled_ = lazyDecodingEnabled;
+  }
+
+  /**
+   * Retain the pooled buffer of the packet which is being passed to a
+   * callback. See Face.retainReceiveBuffer.
+   * @return The retained PooledBuffer, or null if the packet was copied.
+   */
+  public final PooledBuffer
+  retainReceiveBuffer()
+  {
+    PooledBuffer receiveBuffer = currentReceiveBuffer_;
+    if (receiveBuffer == null)
+      return null;
+    return receiveBuffer.retain();
   }
 
   /**
@@ -532,20 +905,59 @@ public class Node implements ElementListener {
     delayedCallTable_.callLater(delayMilliseconds, callback);
   }
 
+  /**
+   * Get the earliest time when processEvents() needs to call a delayed call.
+   * @return The call time in milliseconds, similar to
+   * Common.getNowMilliseconds(), or -1 if there are no delayed calls.
+   */
+  final double
+  getNextCallTime() { return delayedCallTable_.getNextCallTime(); }
+
+  /**
+   * Set the Runnable which is called when an event loop waiting for this Node
+   * should wake up, because a new delayed call is earlier than before or
+   * because the transport was connected.
+   * @param wakeup The Runnable to call, which should return quickly, or null
+   * for none.
+   */
+  final void
+  setWakeup(Runnable wakeup)
+  {
+    wakeup_ = wakeup;
+    delayedCallTable_.setWakeup(wakeup);
+  }
+
   /**
    * Get the next unique entry ID for the pending interest table, interest
-   * filter table, etc. This uses a synchronized to be thread safe. Most entry
-   * IDs are for the pending interest table (there usually are not many interest
-   * filter table entries) so we use a common pool to only have to do the thread
-   * safe lock in one method which is called by Face.
+   * filter table, etc. This uses an AtomicLong to be thread safe without a
+   * lock. Most entry IDs are for the pending interest table (there usually are
+   * not many interest filter table entries) so we use a common pool which is
+   * called by Face.
    * @return The next entry ID.
    */
   public long
   getNextEntryId()
   {
-    synchronized(lastEntryIdLock_) {
-      return ++lastEntryId_;
+    return lastEntryId_.incrementAndGet();
+  }
+
+  /**
+   * Send the encoding through the transport, or queue it in the transport if
+   * send batching is enabled. When queueing, wake up an event loop so that it
+   * calls processEvents which flushes the queue.
+   * @param encoding The encoding to send, which must not be changed.
+   */
+  private void
+  transportSend(ByteBuffer encoding) throws IOException
+  {
+    if (!sendBatchingEnabled_) {
+      transport_.send(encoding);
+      return;
     }
+
+    transport_.queueSend(encoding);
+    if (wakeup_ != null && flushRequested_.compareAndSet(false, true))
+      callWakeup();
   }
 
   /**
@@ -601,11 +1013,16 @@ public class Node implements ElementListener {
         // Use a default timeout delay.
         delayMilliseconds = 4000.0;
 
-      face.callLater
-        (delayMilliseconds,
-         new Runnable() {
-           public void run() { processInterestTimeout(pendingInterest); }
-         });
+      Runnable timeoutCallback = new Runnable() {
+        public void run() { processInterestTimeout(pendingInterest); }
+      };
+      if (face.getUsesNodeCallLater())
+        // Schedule on our own table so that the timeout is cancelled when the
+        // entry is removed from the PIT, instead of firing and being ignored.
+        pendingInterest.setTimeoutCall
+          (delayedCallTable_.callLater(delayMilliseconds, timeoutCallback));
+      else
+        face.callLater(delayMilliseconds, timeoutCallback);
     }
 
     // Special case: For timeoutPrefix_ we don't actually send the interest.
@@ -614,7 +1031,7 @@ public class Node implements ElementListener {
       if (encoding.size() > getMaxNdnPacketSize())
         throw new Error
           ("The encoded interest size exceeds the maximum limit getMaxNdnPacketSize()");
-      transport_.send(encoding.buf());
+      transportSend(encoding.buf());
 
       if (interestLoopbackEnabled_)
         dispatchInterest(interestCopy);
@@ -732,7 +1149,8 @@ public class Node implements ElementListener {
         }
 
         if (!parent_.registeredPrefixTable_.add
-            (info_.registeredPrefixId_, info_.prefix_, interestFilterId)) {
+            (info_.registeredPrefixId_, info_.prefix_, interestFilterId,
+             info_.registerAgain_)) {
           // removeRegisteredPrefix was already called with the registeredPrefixId.
           if (interestFilterId > 0)
             // Remove the related interest filter we just added.
@@ -781,11 +1199,13 @@ public class Node implements ElementListener {
        * registerPrefix.
        * @param onInterest The callback to add if register succeeds.
        * @param face
+       * @param registerAgain The Runnable to add to the registered prefix
+       * table if register succeeds, or null.
        */
       public Info
         (Name prefix,OnRegisterFailed onRegisterFailed,
          OnRegisterSuccess onRegisterSuccess, long registeredPrefixId,
-         OnInterestCallback onInterest, Face face)
+         OnInterestCallback onInterest, Face face, Runnable registerAgain)
       {
         prefix_ = prefix;
         onRegisterFailed_ = onRegisterFailed;
@@ -793,6 +1213,7 @@ public class Node implements ElementListener {
         registeredPrefixId_ = registeredPrefixId;
         onInterest_ = onInterest;
         face_ = face;
+        registerAgain_ = registerAgain;
       }
 
       public final Name prefix_;
@@ -801,6 +1222,7 @@ public class Node implements ElementListener {
       public final long registeredPrefixId_;
       public final OnInterestCallback onInterest_;
       public final Face face_;
+      public final Runnable registerAgain_;
     }
 
     private final Info info_;
@@ -822,6 +1244,8 @@ public class Node implements ElementListener {
    * @param wireFormat
    * @param face The face which is passed to the onInterest callback. If
    * onInterest is null, this is ignored.
+   * @param registerAgain The Runnable to save in the registered prefix table
+   * which sends the registration command again after a reconnect, or null.
    * @throws SecurityException If cannot find the private key for the
    * certificateName.
    */
@@ -830,7 +1254,8 @@ public class Node implements ElementListener {
     (long registeredPrefixId, Name prefix, OnInterestCallback onInterest,
      OnRegisterFailed onRegisterFailed, OnRegisterSuccess onRegisterSuccess,
      RegistrationOptions registrationOptions, KeyChain commandKeyChain,
-     Name commandCertificateName, WireFormat wireFormat, Face face)
+     Name commandCertificateName, WireFormat wireFormat, Face face,
+     Runnable registerAgain)
     throws SecurityException
   {
     if (commandKeyChain == null)
@@ -888,7 +1313,7 @@ public class Node implements ElementListener {
     RegisterResponse response = new RegisterResponse
       (new RegisterResponse.Info
         (prefix, onRegisterFailed, onRegisterSuccess, registeredPrefixId,
-         onInterest, face),
+         onInterest, face, registerAgain),
        this);
     try {
       expressInterest
@@ -953,23 +1378,40 @@ public class Node implements ElementListener {
 
   private final Transport transport_;
   private final Transport.ConnectionInfo connectionInfo_;
-  private final PendingInterestTable pendingInterestTable_ =
-    new PendingInterestTable();
+  private final PendingInterestTable pendingInterestTable_;
   private final InterestFilterTable interestFilterTable_ =
     new InterestFilterTable();
   private final RegisteredPrefixTable registeredPrefixTable_ =
     new RegisteredPrefixTable(interestFilterTable_);
-  private final DelayedCallTable delayedCallTable_ = new DelayedCallTable();
+  private final DelayedCallTable delayedCallTable_;
   // Use ArrayList without generics so it works with older Java compilers.
   private final List onConnectedCallbacks_ =
     Collections.synchronizedList(new ArrayList()); // Runnable
   private final CommandInterestGenerator commandInterestGenerator_ =
     new CommandInterestGenerator();
   private final Name timeoutPrefix_ = new Name("/local/timeout");
-  private long lastEntryId_;
-  private final Object lastEntryIdLock_ = new Object();
+  private final AtomicLong lastEntryId_ = new AtomicLong();
   private ConnectStatus connectStatus_ = ConnectStatus.UNCONNECTED;
   boolean interestLoopbackEnabled_ = false;
+  private volatile Runnable wakeup_ = null;
+  private volatile boolean sendBatchingEnabled_ = false;
+  private final AtomicBoolean flushRequested_ = new AtomicBoolean();
+  private volatile boolean zeroCopyReceiveEnabled_ = false;
+  private volatile boolean lazyDecodingEnabled_ = false;
+  private volatile boolean reconnectEnabled_ = false;
+  private volatile boolean resendPendingInterests_ = false;
+  // These are guarded by synchronized(onConnectedCallbacks_).
+  private boolean isReconnectScheduled_ = false;
+  private boolean hasConnected_ = false;
+  private ArrayList<PendingInterestTable.Entry> disconnectedPendingInterests_ =
+    null;
+  private volatile double reconnectDelayMilliseconds_ =
+    INITIAL_RECONNECT_DELAY_MILLISECONDS;
+  private static final double INITIAL_RECONNECT_DELAY_MILLISECONDS = 500;
+  private static final double MAX_RECONNECT_DELAY_MILLISECONDS = 30000;
+  // currentReceiveBuffer_ is only used by the thread calling processEvents.
+  private PooledBuffer currentReceiveBuffer_ = null;
+  private static final int MAX_POOLED_RECEIVE_BUFFERS = 64;
   private static Blob nonceTemplate_ = new Blob(new byte[] { 0, 0, 0, 0 });
   private static final Logger logger_ = Logger.getLogger(Node.class.getName());
 }
@@ -53,6 +53,31 @@ public class ThreadPoolFace extends Face {
     threadPool_ = threadPool;
   }
 
+  /**
+   * Create a new ThreadPoolFace for communication with an NDN hub with the given
+   * Transport object and connectionInfo, where the internal tables are split
+   * into stripes with separate locks so that the threads of the thread pool
+   * don't contend on one lock. See Face(transport, connectionInfo,
+   * concurrencyLevel).
+   * @param threadPool The thread pool used to submit method calls such as
+   * expressInterest and the related callbacks such as onData. The thread pool
+   * is also used to schedule the interest timeouts.
+   * @param transport A Transport object used for communication. If you do not
+   * want to call processEvents, then the transport should be an async transport
+   * like AsyncTcpTransport.
+   * @param connectionInfo A Transport.ConnectionInfo to be used to connect to
+   * the transport.
+   * @param concurrencyLevel The number of stripes for the internal tables,
+   * typically the number of threads in the thread pool.
+   */
+  public ThreadPoolFace
+    (ScheduledExecutorService threadPool, Transport transport,
+     Transport.ConnectionInfo connectionInfo, int concurrencyLevel)
+  {
+    super(transport, connectionInfo, concurrencyLevel);
+    threadPool_ = threadPool;
+  }
+
   /**
    * Override to submit a task to use the thread pool given to the constructor.
    * Also wrap the supplied onData, onTimeout and onNetworkNack callbacks in an
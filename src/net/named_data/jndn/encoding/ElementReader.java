@@ -53,8 +53,10 @@ public class ElementReader {
   public void
   onReceivedData(ByteBuffer data) throws EncodingException
   {
-    // We may repeatedly set data to a slice as we read elements.
     data = data.slice();
+    // The offset in data of the next element. Instead of slicing data for each
+    // element, we seek the TlvStructureDecoder to this offset.
+    int start = 0;
 
     // Process multiple objects in the data.
     while(true) {
@@ -64,19 +66,19 @@ public class ElementReader {
       try {
         if (!usePartialData_) {
           // This is the beginning of an element.
-          if (data.remaining() <= 0)
+          if (start >= data.limit())
             // Wait for more data.
             return;
         }
 
         // Scan the input to check if a whole TLV object has been read.
-        tlvStructureDecoder_.seek(0);
+        tlvStructureDecoder_.seek(start);
         gotElementEnd = tlvStructureDecoder_.findElementEnd(data);
         offset = tlvStructureDecoder_.getOffset();
       } catch (EncodingException ex) {
         // Reset to read a new element on the next call.
         usePartialData_ = false;
-        tlvStructureDecoder_ = new TlvStructureDecoder();
+        tlvStructureDecoder_.reset();
 
         throw ex;
       }
@@ -85,7 +87,8 @@ public class ElementReader {
         // Got the remainder of an element.  Report to the caller.
         ByteBuffer element;
         if (usePartialData_) {
-          // We have partial data from a previous call, so append this data and point to partialData.
+          // We have partial data from a previous call, so append this data and
+          // point to partialData. In this case, start is 0.
           partialData_.ensuredPut(data, 0, offset);
 
           element = partialData_.flippedBuffer();
@@ -94,18 +97,18 @@ public class ElementReader {
         }
         else {
           // We are not using partialData, so just point to the input data buffer.
-          element = data.duplicate();
-          element.limit(offset);
+          data.position(start);
+          element = data.slice();
+          element.limit(offset - start);
         }
 
         // Reset to read a new object. Do this before calling onReceivedElement
         // in case it throws an exception.
-        data.position(offset);
-        data = data.slice();
-        tlvStructureDecoder_ = new TlvStructureDecoder();
+        start = offset;
+        tlvStructureDecoder_.reset();
 
         elementListener_.onReceivedElement(element);
-        if (data.remaining() <= 0)
+        if (start >= data.limit())
           // No more data in the packet.
           return;
 
@@ -118,24 +121,25 @@ public class ElementReader {
           partialData_.position(0);
         }
 
-        if (partialData_.buffer().position() + data.remaining() >
+        if (partialData_.buffer().position() + (data.limit() - start) >
             Common.MAX_NDN_PACKET_SIZE) {
           // Reset to read a new element on the next call.
           usePartialData_ = false;
-          tlvStructureDecoder_ = new TlvStructureDecoder();
+          tlvStructureDecoder_.reset();
 
           throw new EncodingException
             ("The incoming packet exceeds the maximum limit Face.getMaxNdnPacketSize()");
         }
 
-        partialData_.ensuredPut(data);
+        partialData_.ensuredPut(data, start, data.limit());
         return;
       }
     }
   }
 
   private final ElementListener elementListener_;
-  private TlvStructureDecoder tlvStructureDecoder_ = new TlvStructureDecoder();
+  private final TlvStructureDecoder tlvStructureDecoder_ =
+    new TlvStructureDecoder();
   private boolean usePartialData_;
   private final DynamicByteBuffer partialData_ = new DynamicByteBuffer(1000);
 }
@@ -21,13 +21,14 @@ package net.named_data.jndn.encoding;
 
 import com.google.protobuf.ByteString;
 import com.google.protobuf.Descriptors.Descriptor;
-import com.google.protobuf.Descriptors.EnumValueDescriptor;
 import com.google.protobuf.Descriptors.FieldDescriptor;
 import com.google.protobuf.Descriptors.FieldDescriptor.Type;
+import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.Message;
-import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import net.named_data.jndn.Name;
 import net.named_data.jndn.encoding.tlv.TlvDecoder;
 import net.named_data.jndn.encoding.tlv.TlvEncoder;
@@ -45,6 +46,12 @@ import net.named_data.jndn.util.Blob;
  *
  * Protobuf has no "outer" message type, so you need to put your TLV message
  * inside an outer "typeless" message.
+ *
+ * The mapping of fields to TLV types is made once for each message type and
+ * cached. To encode, the fields are read from the Protobuf wire encoding made
+ * by the generated code of the message, and to decode, the fields are written
+ * as the Protobuf wire encoding which is merged into the builder. This avoids
+ * getting and setting each field by reflection.
  */
 public class ProtobufTlv {
   /**
@@ -61,9 +68,15 @@ public class ProtobufTlv {
       throw new Error
         ("Message fields are not initialized: " + message.getInitializationErrorString());
 
-    TlvEncoder encoder = new TlvEncoder(256);
+    // The generated code of the message makes the Protobuf wire encoding
+    // faster than getting each field by reflection, and the TLV encoding is
+    // about the same size.
+    byte[] wire = message.toByteArray();
+    TlvEncoder encoder = new TlvEncoder(Math.max(256, wire.length + 16));
 
-    encodeMessageValue(message, encoder);
+    encodeMessageValue
+      (getPlan(message.getDescriptorForType()), new WireReader(wire), 0,
+       wire.length, encoder);
     return new Blob(encoder.getOutput(), false);
   }
 
@@ -71,7 +84,8 @@ public class ProtobufTlv {
    * Decode the input as NDN-TLV and update the fields of the Protobuf message
    * object.
    * @param message The Protobuf Message builder object. This does not first
-   * clear the object.
+   * clear the object. The decoded fields are merged the same as
+   * Message.Builder.mergeFrom.
    * @param input The input buffer to decode.  This reads from position() to
    * limit(), but does not change the position.
    * @throws EncodingException For invalid encoding.
@@ -80,7 +94,17 @@ public class ProtobufTlv {
   decode(Message.Builder message, ByteBuffer input) throws EncodingException
   {
     TlvDecoder decoder = new TlvDecoder(input);
-    decodeMessageValue(message, decoder, input.remaining());
+    WireWriter writer = new WireWriter(input.remaining());
+    decodeMessageValue
+      (getPlan(message.getDescriptorForType()), decoder, input.remaining(),
+       writer);
+
+    try {
+      message.mergeFrom(writer.output_, 0, writer.length_);
+    } catch (InvalidProtocolBufferException ex) {
+      throw new EncodingException
+        ("ProtobufTlv.decode: Error merging the message: " + ex.getMessage());
+    }
   }
 
   public static void
@@ -115,142 +139,466 @@ public class ProtobufTlv {
     return name;
   }
 
-  private static void
-  encodeMessageValue(Message message, TlvEncoder encoder)
+  /**
+   * A FieldPlan has the values of a FieldDescriptor which are needed to
+   * encode and decode the field, so that they are fetched once.
+   */
+  private static class FieldPlan {
+    public FieldPlan(FieldDescriptor field)
+    {
+      field_ = field;
+      tlvType_ = field.getNumber();
+      type_ = field.getType();
+      isRepeated_ = field.isRepeated();
+      isOptional_ = field.isOptional();
+      isVarintType_ = (type_ == Type.UINT32 || type_ == Type.UINT64 ||
+        type_ == Type.ENUM || type_ == Type.BOOL);
+      isLengthDelimitedType_ =
+        (type_ == Type.MESSAGE || type_ == Type.BYTES || type_ == Type.STRING);
+    }
+
+    /**
+     * Get the MessagePlan of the field's message type. Only call this if type_
+     * is Type.MESSAGE.
+     * @return The MessagePlan.
+     */
+    public final MessagePlan
+    getMessagePlan()
+    {
+      // This is not synchronized since another thread would get the same plan.
+      if (messagePlan_ == null)
+        messagePlan_ = getPlan(field_.getMessageType());
+      return messagePlan_;
+    }
+
+    public final int tlvType_;
+    public final Type type_;
+    public final boolean isRepeated_;
+    public final boolean isOptional_;
+    public final boolean isVarintType_;
+    public final boolean isLengthDelimitedType_;
+    private final FieldDescriptor field_;
+    private MessagePlan messagePlan_ = null;
+  }
+
+  /**
+   * A MessagePlan has the FieldPlan for each field of a message type in the
+   * order of declaration (which is the TLV order), and a lookup from the
+   * Protobuf field number to the field index.
+   */
+  private static class MessagePlan {
+    public MessagePlan(Descriptor descriptor)
+    {
+      List<FieldDescriptor> fields = descriptor.getFields();
+      fields_ = new FieldPlan[fields.size()];
+      sortedNumbers_ = new int[fields.size()];
+      for (int i = 0; i < fields.size(); ++i) {
+        fields_[i] = new FieldPlan(fields.get(i));
+        sortedNumbers_[i] = fields_[i].tlvType_;
+      }
+      Arrays.sort(sortedNumbers_);
+
+      sortedFieldIndexes_ = new int[fields.size()];
+      for (int i = 0; i < fields_.length; ++i)
+        sortedFieldIndexes_[Arrays.binarySearch
+          (sortedNumbers_, fields_[i].tlvType_)] = i;
+    }
+
+    /**
+     * Get the index in fields_ of the field with the Protobuf field number.
+     * @param number The field number.
+     * @return The field index, or -1 if not found.
+     */
+    public final int
+    getFieldIndex(int number)
+    {
+      int i = Arrays.binarySearch(sortedNumbers_, number);
+      return i >= 0 ? sortedFieldIndexes_[i] : -1;
+    }
+
+    public final FieldPlan[] fields_;
+    private final int[] sortedNumbers_;
+    private final int[] sortedFieldIndexes_;
+  }
+
+  /**
+   * Get the MessagePlan for the message type, making it on the first call.
+   * @param descriptor The Descriptor of the message type.
+   * @return The MessagePlan.
+   */
+  private static MessagePlan
+  getPlan(Descriptor descriptor)
   {
-    // Note: We can't use ListFields because it sorts by field number.
-    Descriptor descriptor = message.getDescriptorForType();
-    // Go in reverse so that we encode backwards.
-    List fields = descriptor.getFields();
-    for (int i = fields.size() - 1; i >= 0; --i) {
-      FieldDescriptor field = (FieldDescriptor)fields.get(i);
-
-      int tlvType = field.getNumber();
-
-      int valueCount = 0;
-      if (field.isRepeated())
-        valueCount = message.getRepeatedFieldCount(field);
-      else {
-        if (message.hasField(field))
-          valueCount = 1;
+    MessagePlan plan = plans_.get(descriptor);
+    if (plan == null) {
+      // If another thread makes a plan at the same time, it is the same.
+      plan = new MessagePlan(descriptor);
+      plans_.put(descriptor, plan);
+    }
+
+    return plan;
+  }
+
+  /**
+   * A WireReader reads the fields from the Protobuf wire encoding. The fields
+   * of a message are pushed on a stack so that the fields of a nested message
+   * can be pushed and popped while encoding the outer message. For each field,
+   * fieldIndexes_ has the index in the MessagePlan, and values_ has the varint
+   * value or, for a length-delimited field, the offset in the high 32 bits and
+   * the length in the low 32 bits.
+   */
+  private static class WireReader {
+    public WireReader(byte[] wire)
+    {
+      wire_ = wire;
+    }
+
+    /**
+     * Read the Protobuf wire encoding of a message and push the fields which
+     * are in the plan, in the order of the wire encoding. Skip other fields
+     * such as unknown fields.
+     * @param plan The MessagePlan of the message type.
+     * @param offset The offset in wire_ of the encoding of the message.
+     * @param length The length of the encoding of the message.
+     */
+    public final void
+    pushFields(MessagePlan plan, int offset, int length)
+    {
+      position_ = offset;
+      int endOffset = offset + length;
+
+      while (position_ < endOffset) {
+        int tag = (int)readVarint();
+        int wireType = tag & 7;
+        int fieldIndex = plan.getFieldIndex(tag >>> 3);
+        if (fieldIndex < 0) {
+          skipField(wireType);
+          continue;
+        }
+
+        FieldPlan field = plan.fields_[fieldIndex];
+        if (wireType == WIRE_TYPE_VARINT && field.isVarintType_)
+          push(fieldIndex, readVarint());
+        else if (wireType == WIRE_TYPE_LENGTH_DELIMITED &&
+                 field.isLengthDelimitedType_) {
+          int valueLength = (int)readVarint();
+          push(fieldIndex, ((long)position_ << 32) | (long)valueLength);
+          position_ += valueLength;
+        }
+        else if (wireType == WIRE_TYPE_LENGTH_DELIMITED && field.isVarintType_) {
+          // A packed repeated field.
+          int valueEndOffset = (int)readVarint() + position_;
+          while (position_ < valueEndOffset)
+            push(fieldIndex, readVarint());
+        }
+        else
+          throw new Error("ProtobufTlv.encode: Unknown field type");
+      }
+    }
+
+    private void
+    push(int fieldIndex, long value)
+    {
+      if (count_ >= fieldIndexes_.length) {
+        fieldIndexes_ = Arrays.copyOf(fieldIndexes_, 2 * fieldIndexes_.length);
+        values_ = Arrays.copyOf(values_, 2 * values_.length);
+      }
+
+      fieldIndexes_[count_] = fieldIndex;
+      values_[count_] = value;
+      ++count_;
+    }
+
+    private long
+    readVarint()
+    {
+      long result = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        byte b = wire_[position_++];
+        result |= (long)(b & 0x7f) << shift;
+        if ((b & 0x80) == 0)
+          return result;
+      }
+
+      throw new Error("ProtobufTlv.encode: Invalid varint in the wire encoding");
+    }
+
+    private void
+    skipField(int wireType)
+    {
+      if (wireType == WIRE_TYPE_VARINT)
+        readVarint();
+      else if (wireType == WIRE_TYPE_FIXED64)
+        position_ += 8;
+      else if (wireType == WIRE_TYPE_LENGTH_DELIMITED) {
+        int valueLength = (int)readVarint();
+        position_ += valueLength;
+      }
+      else if (wireType == WIRE_TYPE_START_GROUP) {
+        // Skip fields until the matching end group.
+        while (true) {
+          int tag = (int)readVarint();
+          if ((tag & 7) == WIRE_TYPE_END_GROUP)
+            break;
+          skipField(tag & 7);
+        }
+      }
+      else if (wireType == WIRE_TYPE_FIXED32)
+        position_ += 4;
+      else
+        throw new Error
+          ("ProtobufTlv.encode: Invalid wire type in the wire encoding");
+    }
+
+    public final byte[] wire_;
+    public int[] fieldIndexes_ = new int[32];
+    public long[] values_ = new long[32];
+    public int count_ = 0;
+    private int position_ = 0;
+  }
+
+  /**
+   * A WireWriter writes the Protobuf wire encoding to a byte array which grows
+   * as needed.
+   */
+  private static class WireWriter {
+    public WireWriter(int initialCapacity)
+    {
+      output_ = new byte[Math.max(16, initialCapacity)];
+    }
+
+    public final void
+    writeVarint(long value)
+    {
+      ensureRemaining(10);
+      while ((value & ~0x7fL) != 0) {
+        output_[length_++] = (byte)((value & 0x7f) | 0x80);
+        value >>>= 7;
+      }
+      output_[length_++] = (byte)value;
+    }
+
+    public final void
+    writeTag(int number, int wireType)
+    {
+      writeVarint(((long)number << 3) | wireType);
+    }
+
+    public final void
+    writeBytes(ByteBuffer value)
+    {
+      writeVarint(value.remaining());
+      ensureRemaining(value.remaining());
+      value.duplicate().get(output_, length_, value.remaining());
+      length_ += value.remaining();
+    }
+
+    /**
+     * Reserve space to write the length of a nested message which is not known
+     * until the message is written.
+     * @return The offset to give to writeReservedLength.
+     */
+    public final int
+    reserveLength()
+    {
+      ensureRemaining(RESERVED_LENGTH_SIZE);
+      int offset = length_;
+      length_ += RESERVED_LENGTH_SIZE;
+      return offset;
+    }
+
+    /**
+     * Write the length of the nested message which was written after the
+     * reserved space. This writes a varint padded to RESERVED_LENGTH_SIZE
+     * bytes, which the Protobuf parser accepts, so that the message is not
+     * moved.
+     * @param offset The offset from reserveLength.
+     */
+    public final void
+    writeReservedLength(int offset)
+    {
+      int value = length_ - (offset + RESERVED_LENGTH_SIZE);
+      for (int i = 0; i < RESERVED_LENGTH_SIZE - 1; ++i) {
+        output_[offset + i] = (byte)((value & 0x7f) | 0x80);
+        value >>>= 7;
       }
+      output_[offset + RESERVED_LENGTH_SIZE - 1] = (byte)value;
+    }
+
+    private void
+    ensureRemaining(int remaining)
+    {
+      if (length_ + remaining > output_.length)
+        output_ = Arrays.copyOf
+          (output_, Math.max(2 * output_.length, length_ + remaining));
+    }
+
+    // A varint of 5 bytes holds a 32-bit length.
+    private static final int RESERVED_LENGTH_SIZE = 5;
+
+    public byte[] output_;
+    public int length_ = 0;
+  }
+
+  /**
+   * Encode the fields of the message, where the fields are read from the
+   * Protobuf wire encoding made by the generated code of the message, instead
+   * of getting each field by reflection.
+   * @param plan The MessagePlan of the message type.
+   * @param reader The WireReader of the Protobuf wire encoding.
+   * @param offset The offset in the wire encoding of the message.
+   * @param length The length of the encoding of the message.
+   * @param encoder The TlvEncoder to write to.
+   */
+  private static void
+  encodeMessageValue
+    (MessagePlan plan, WireReader reader, int offset, int length,
+     TlvEncoder encoder)
+  {
+    int beginIndex = reader.count_;
+    reader.pushFields(plan, offset, length);
+    int endIndex = reader.count_;
+
+    // Go in reverse so that we encode backwards. Note: The wire encoding is
+    // sorted by field number, but we encode in the order of declaration.
+    for (int iField = plan.fields_.length - 1; iField >= 0; --iField) {
+      FieldPlan field = plan.fields_[iField];
+      int tlvType = field.tlvType_;
 
       // Reverse so that we encode backwards.
-      for (int iValue = valueCount - 1; iValue >= 0; --iValue) {
-        Object value;
-        if (field.isRepeated())
-          value = message.getRepeatedField(field, iValue);
-        else
-          value = message.getField(field);
+      for (int iValue = endIndex - 1; iValue >= beginIndex; --iValue) {
+        if (reader.fieldIndexes_[iValue] != iField)
+          continue;
+        long value = reader.values_[iValue];
 
-        if (field.getType() == Type.MESSAGE) {
+        if (field.type_ == Type.MESSAGE) {
           int saveLength = encoder.getLength();
 
           // Encode backwards.
-          encodeMessageValue((Message)value, encoder);
+          encodeMessageValue
+            (field.getMessagePlan(), reader, (int)(value >>> 32), (int)value,
+             encoder);
           encoder.writeTypeAndLength(tlvType, encoder.getLength() - saveLength);
         }
-        else if (field.getType() == Type.UINT32)
-          encoder.writeNonNegativeIntegerTlv(tlvType, (Integer)value);
-        else if (field.getType() == Type.UINT64)
-          encoder.writeNonNegativeIntegerTlv(tlvType, (Long)value);
-        else if (field.getType() == Type.ENUM) {
-          int intValue = ((EnumValueDescriptor)value).getNumber();
+        else if (field.type_ == Type.UINT32)
+          // Cast to int to use the same value as the generated getter.
+          encoder.writeNonNegativeIntegerTlv(tlvType, (int)value);
+        else if (field.type_ == Type.UINT64)
+          encoder.writeNonNegativeIntegerTlv(tlvType, value);
+        else if (field.type_ == Type.ENUM) {
+          int intValue = (int)value;
           if (intValue < 0)
             throw new Error("ProtobufTlv.encode: ENUM value may not be negative");
           encoder.writeNonNegativeIntegerTlv(tlvType, intValue);
         }
-        else if (field.getType() == Type.BYTES)
-          encoder.writeBlobTlv(tlvType, ((ByteString)value).asReadOnlyByteBuffer());
-        else if (field.getType() == Type.STRING)
-          // Use Blob to UTF-8 encode and get a ByteBuffer.
-          encoder.writeBlobTlv(tlvType, new Blob((String)value).buf());
-        else if (field.getType() == Type.BOOL) {
-          if ((boolean)(Boolean)value)
+        else if (field.type_ == Type.BYTES || field.type_ == Type.STRING)
+          // A string is already UTF-8 encoded in the wire encoding.
+          encoder.writeBlobTlv
+            (tlvType, ByteBuffer.wrap
+             (reader.wire_, (int)(value >>> 32), (int)value));
+        else if (field.type_ == Type.BOOL) {
+          if (value != 0)
             encoder.writeTypeAndLength(tlvType, 0);
         }
         else
           throw new Error("ProtobufTlv.encode: Unknown field type");
       }
     }
+
+    // Pop the fields of this message.
+    reader.count_ = beginIndex;
   }
 
+  /**
+   * Decode the TLV fields of the message and write them as the Protobuf wire
+   * encoding, which the generated code of the message builder can merge
+   * without setting each field by reflection.
+   * @param plan The MessagePlan of the message type.
+   * @param decoder The TlvDecoder to read from.
+   * @param endOffset The offset of the end of the message value.
+   * @param writer The WireWriter for the Protobuf wire encoding.
+   */
   private static void
-  decodeMessageValue(Message.Builder message, TlvDecoder decoder, int endOffset)
+  decodeMessageValue
+    (MessagePlan plan, TlvDecoder decoder, int endOffset, WireWriter writer)
     throws EncodingException
   {
-    Descriptor descriptor = message.getDescriptorForType();
-
-    for (FieldDescriptor field : descriptor.getFields()) {
-      int tlvType = field.getNumber();
+    for (int iField = 0; iField < plan.fields_.length; ++iField) {
+      FieldPlan field = plan.fields_[iField];
 
-      if (field.isOptional() && !decoder.peekType(tlvType, endOffset))
+      if (field.isOptional_ && !decoder.peekType(field.tlvType_, endOffset))
           continue;
 
-      if (field.isRepeated()) {
-        while (decoder.peekType(tlvType, endOffset)) {
-          if (field.getType() == Type.MESSAGE) {
-            Message.Builder innerMessage = message.newBuilderForField(field);
-
-            int innerEndOffset = decoder.readNestedTlvsStart(tlvType);
-            decodeMessageValue(innerMessage, decoder, innerEndOffset);
-            decoder.finishNestedTlvs(innerEndOffset);
-
-            message.addRepeatedField(field, innerMessage.build());
-          }
-          else
-            message.addRepeatedField
-              (field, decodeFieldValue(field, tlvType, decoder, endOffset));
-        }
-      }
-      else {
-        if (field.getType() == Type.MESSAGE) {
-          Message.Builder innerMessage = message.newBuilderForField(field);
-
-          int innerEndOffset = decoder.readNestedTlvsStart(tlvType);
-          decodeMessageValue(innerMessage, decoder, innerEndOffset);
-          decoder.finishNestedTlvs(innerEndOffset);
-
-          message.setField(field, innerMessage.build());
-        }
-        else
-          message.setField
-            (field, decodeFieldValue(field, tlvType, decoder, endOffset));
+      if (field.isRepeated_) {
+        while (decoder.peekType(field.tlvType_, endOffset))
+          decodeFieldValue(field, decoder, endOffset, writer);
       }
+      else
+        decodeFieldValue(field, decoder, endOffset, writer);
     }
   }
 
   /**
-   * This is a helper for decodeMessageValue. Decode a single field and return
-   * the value. Assume the field type is not Type.MESSAGE.
+   * This is a helper for decodeMessageValue. Decode a single field and write
+   * it as the Protobuf wire encoding.
    */
-  private static Object
+  private static void
   decodeFieldValue
-    (FieldDescriptor field, int tlvType, TlvDecoder decoder, int endOffset)
-      throws EncodingException
+    (FieldPlan field, TlvDecoder decoder, int endOffset, WireWriter writer)
+    throws EncodingException
   {
-    if (field.getType() == Type.UINT32)
-      return (int)decoder.readNonNegativeIntegerTlv(tlvType);
-    else if (field.getType() == Type.UINT64)
-      return decoder.readNonNegativeIntegerTlv(tlvType);
-    else if (field.getType() == Type.ENUM)
-      return field.getEnumType().findValueByNumber
-        ((int)decoder.readNonNegativeIntegerTlv(tlvType));
-    else if (field.getType() == Type.BYTES)
-      return ByteString.copyFrom(decoder.readBlobTlv(tlvType));
-    else if (field.getType() == Type.STRING) {
-      try {
-        ByteBuffer byteBuffer = decoder.readBlobTlv(tlvType);
-        // Use Blob to get the byte array.
-        return new String(new Blob(byteBuffer, false).getImmutableArray(), "UTF-8");
-      } catch (UnsupportedEncodingException ex) {
-        // We don't expect this to happen.
-        throw new Error("UTF-8 decoder not supported: " + ex.getMessage());
-      }
+    int tlvType = field.tlvType_;
+    // The Protobuf field number is the TLV type.
+    int number = tlvType;
+
+    if (field.type_ == Type.MESSAGE) {
+      writer.writeTag(number, WIRE_TYPE_LENGTH_DELIMITED);
+      int lengthOffset = writer.reserveLength();
+
+      int innerEndOffset = decoder.readNestedTlvsStart(tlvType);
+      decodeMessageValue
+        (field.getMessagePlan(), decoder, innerEndOffset, writer);
+      decoder.finishNestedTlvs(innerEndOffset);
+
+      writer.writeReservedLength(lengthOffset);
+    }
+    else if (field.type_ == Type.UINT32) {
+      writer.writeTag(number, WIRE_TYPE_VARINT);
+      // Protobuf writes a uint32 as 32 bits unsigned.
+      writer.writeVarint
+        ((int)decoder.readNonNegativeIntegerTlv(tlvType) & 0xffffffffL);
+    }
+    else if (field.type_ == Type.UINT64) {
+      writer.writeTag(number, WIRE_TYPE_VARINT);
+      writer.writeVarint(decoder.readNonNegativeIntegerTlv(tlvType));
+    }
+    else if (field.type_ == Type.ENUM) {
+      writer.writeTag(number, WIRE_TYPE_VARINT);
+      writer.writeVarint((int)decoder.readNonNegativeIntegerTlv(tlvType));
+    }
+    else if (field.type_ == Type.BYTES || field.type_ == Type.STRING) {
+      // A string is UTF-8 encoded in the wire encoding, the same as TLV.
+      writer.writeTag(number, WIRE_TYPE_LENGTH_DELIMITED);
+      writer.writeBytes(decoder.readBlobTlv(tlvType));
+    }
+    else if (field.type_ == Type.BOOL) {
+      boolean value = decoder.readBooleanTlv(tlvType, endOffset);
+      writer.writeTag(number, WIRE_TYPE_VARINT);
+      writer.writeVarint(value ? 1 : 0);
     }
-    else if (field.getType() == Type.BOOL)
-      return decoder.readBooleanTlv(tlvType, endOffset);
     else
       throw new Error("ProtobufTlv.decode: Unknown field type");
   }
+
+  // The Protobuf wire types. We don't import com.google.protobuf.WireFormat
+  // since it has the same name as net.named_data.jndn.encoding.WireFormat.
+  private static final int WIRE_TYPE_VARINT = 0;
+  private static final int WIRE_TYPE_FIXED64 = 1;
+  private static final int WIRE_TYPE_LENGTH_DELIMITED = 2;
+  private static final int WIRE_TYPE_START_GROUP = 3;
+  private static final int WIRE_TYPE_END_GROUP = 4;
+  private static final int WIRE_TYPE_FIXED32 = 5;
+
+  private static final ConcurrentHashMap<Descriptor, MessagePlan> plans_ =
+    new ConcurrentHashMap<Descriptor, MessagePlan>();
 }
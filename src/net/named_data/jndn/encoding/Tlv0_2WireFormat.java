@@ -19,6 +19,7 @@
 
 package net.named_data.jndn.encoding;
 
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.util.Random;
 import net.named_data.jndn.ComponentType;
@@ -53,6 +54,7 @@ import net.named_data.jndn.encrypt.Schedule;
 import net.named_data.jndn.lp.CongestionMark;
 import net.named_data.jndn.security.ValidityPeriod;
 import net.named_data.jndn.util.Blob;
+import net.named_data.jndn.util.Common;
 
 /**
  * A Tlv0_2WireFormat implements the WireFormat interface for encoding and
@@ -104,6 +106,81 @@ public class Tlv0_2WireFormat extends WireFormat {
   public Blob
   encodeInterest
     (Interest interest, int[] signedPortionBeginOffset, int[] signedPortionEndOffset)
+  {
+    TlvEncoder encoder = TlvEncoder.acquireThreadLocal();
+    try {
+      encodeInterest
+        (interest, signedPortionBeginOffset, signedPortionEndOffset, encoder);
+
+      // Copy the output since the thread's encoder is reused.
+      return new Blob(encoder.getOutput(), true);
+    }
+    finally {
+      encoder.release();
+    }
+  }
+
+  /**
+   * Get the exact length of the NDN-TLV encoding of interest, without encoding
+   * it.
+   * @param interest The Interest object.
+   * @return The length of the encoding.
+   */
+  public int
+  getInterestEncodingLength(Interest interest)
+  {
+    TlvEncoder counter = TlvEncoder.createLengthCounter();
+    encodeInterest(interest, new int[1], new int[1], counter);
+    return counter.getLength();
+  }
+
+  /**
+   * Encode interest in NDN-TLV into the output buffer in two passes. The first
+   * pass computes the exact length of the encoding, and the second pass
+   * encodes once into the output without growing or copying a buffer.
+   * @param interest The Interest object to encode.
+   * @param output The buffer to encode into, starting at its position(). This
+   * may be a direct ByteBuffer. On return, the position is advanced by the
+   * length of the encoding.
+   * @param signedPortionBeginOffset Return the offset in the encoding (from
+   * the original position of output) of the beginning of the signed portion
+   * by setting signedPortionBeginOffset[0].
+   * @param signedPortionEndOffset Return the offset in the encoding (from the
+   * original position of output) of the end of the signed portion by setting
+   * signedPortionEndOffset[0].
+   * @throws BufferOverflowException If output.remaining() is less than the
+   * length of the encoding, in which case nothing is written.
+   */
+  public void
+  encodeInterest
+    (Interest interest, ByteBuffer output, int[] signedPortionBeginOffset,
+     int[] signedPortionEndOffset)
+  {
+    int length = getInterestEncodingLength(interest);
+    if (output.remaining() < length)
+      throw new BufferOverflowException();
+
+    ByteBuffer region = output.duplicate();
+    region.limit(region.position() + length);
+    TlvEncoder encoder = new TlvEncoder(region);
+    encodeInterest
+      (interest, signedPortionBeginOffset, signedPortionEndOffset, encoder);
+    if (encoder.getLength() != length)
+      // We don't expect this to happen.
+      throw new Error
+        ("encodeInterest: The encoding length changed between passes");
+
+    output.position(output.position() + length);
+  }
+
+  /**
+   * Encode interest in NDN-TLV to the encoder, using format v0.3 if the
+   * interest has fields which need it.
+   */
+  private void
+  encodeInterest
+    (Interest interest, int[] signedPortionBeginOffset,
+     int[] signedPortionEndOffset, TlvEncoder encoder)
   {
     if (!interest.getDidSetCanBePrefix_() && !didCanBePrefixWarning_) {
       System.out.println
@@ -112,13 +189,30 @@ public class Tlv0_2WireFormat extends WireFormat {
     }
 
     if (interest.hasApplicationParameters())
-      // The application has specified a format v0.3 field. As we transition to
-      // format v0.3, encode as format v0.3 even though the application default
-      // is Tlv0_2WireFormat.
-      return encodeInterestV03
-        (interest, signedPortionBeginOffset, signedPortionEndOffset);
+      // The application has specified a format v0.3 field. As we transition
+      // to format v0.3, encode as format v0.3 even though the application
+      // default is Tlv0_2WireFormat.
+      encodeInterestV03
+        (interest, signedPortionBeginOffset, signedPortionEndOffset, encoder);
+    else
+      encodeInterestV02
+        (interest, signedPortionBeginOffset, signedPortionEndOffset, encoder);
+  }
 
-    TlvEncoder encoder = new TlvEncoder(256);
+  /**
+   * Encode interest in NDN-TLV format v0.2 to the encoder.
+   * @param interest The Interest object to encode.
+   * @param signedPortionBeginOffset Return the offset in the encoding of the
+   * beginning of the signed portion.
+   * @param signedPortionEndOffset Return the offset in the encoding of the end
+   * of the signed portion.
+   * @param encoder The TlvEncoder to receive the encoding.
+   */
+  private void
+  encodeInterestV02
+    (Interest interest, int[] signedPortionBeginOffset,
+     int[] signedPortionEndOffset, TlvEncoder encoder)
+  {
     int saveLength = encoder.getLength();
 
     // Encode backwards.
@@ -198,8 +292,6 @@ public class Tlv0_2WireFormat extends WireFormat {
       encoder.getLength() - signedPortionBeginOffsetFromBack;
     signedPortionEndOffset[0] =
       encoder.getLength() - signedPortionEndOffsetFromBack;
-
-    return new Blob(encoder.getOutput(), false);
   }
 
   /**
@@ -326,7 +418,106 @@ public class Tlv0_2WireFormat extends WireFormat {
   encodeData
     (Data data, int[] signedPortionBeginOffset, int[] signedPortionEndOffset)
   {
-    TlvEncoder encoder = new TlvEncoder(1500);
+    if (data.getContent().size() >= Common.MAX_NDN_PACKET_SIZE) {
+      // The encoding would grow the thread's encoder buffer (and copy it each
+      // time it doubles), so encode once into a buffer of the exact size.
+      int length = getDataEncodingLength(data);
+      ByteBuffer output = ByteBuffer.allocate(length);
+      encodeData
+        (data, length, output, signedPortionBeginOffset, signedPortionEndOffset);
+      output.flip();
+      return new Blob(output, false);
+    }
+
+    TlvEncoder encoder = TlvEncoder.acquireThreadLocal();
+    try {
+      encodeData(data, signedPortionBeginOffset, signedPortionEndOffset, encoder);
+
+      // Copy the output since the thread's encoder is reused.
+      return new Blob(encoder.getOutput(), true);
+    }
+    finally {
+      encoder.release();
+    }
+  }
+
+  /**
+   * Get the exact length of the NDN-TLV encoding of data, without encoding it.
+   * @param data The Data object.
+   * @return The length of the encoding.
+   */
+  public int
+  getDataEncodingLength(Data data)
+  {
+    TlvEncoder counter = TlvEncoder.createLengthCounter();
+    encodeData(data, new int[1], new int[1], counter);
+    return counter.getLength();
+  }
+
+  /**
+   * Encode data in NDN-TLV into the output buffer in two passes. The first
+   * pass computes the exact length of the encoding, and the second pass
+   * encodes once into the output without growing or copying a buffer.
+   * @param data The Data object to encode.
+   * @param output The buffer to encode into, starting at its position(). This
+   * may be a direct ByteBuffer. On return, the position is advanced by the
+   * length of the encoding.
+   * @param signedPortionBeginOffset Return the offset in the encoding (from
+   * the original position of output) of the beginning of the signed portion
+   * by setting signedPortionBeginOffset[0].
+   * @param signedPortionEndOffset Return the offset in the encoding (from the
+   * original position of output) of the end of the signed portion by setting
+   * signedPortionEndOffset[0].
+   * @throws BufferOverflowException If output.remaining() is less than the
+   * length of the encoding, in which case nothing is written.
+   */
+  public void
+  encodeData
+    (Data data, ByteBuffer output, int[] signedPortionBeginOffset,
+     int[] signedPortionEndOffset)
+  {
+    encodeData
+      (data, getDataEncodingLength(data), output, signedPortionBeginOffset,
+       signedPortionEndOffset);
+  }
+
+  /**
+   * Do the second pass of encodeData(data, output, ...) where length is the
+   * result of getDataEncodingLength(data).
+   */
+  private static void
+  encodeData
+    (Data data, int length, ByteBuffer output, int[] signedPortionBeginOffset,
+     int[] signedPortionEndOffset)
+  {
+    if (output.remaining() < length)
+      throw new BufferOverflowException();
+
+    ByteBuffer region = output.duplicate();
+    region.limit(region.position() + length);
+    TlvEncoder encoder = new TlvEncoder(region);
+    encodeData(data, signedPortionBeginOffset, signedPortionEndOffset, encoder);
+    if (encoder.getLength() != length)
+      // We don't expect this to happen.
+      throw new Error("encodeData: The encoding length changed between passes");
+
+    output.position(output.position() + length);
+  }
+
+  /**
+   * Encode data in NDN-TLV to the encoder.
+   * @param data The Data object to encode.
+   * @param signedPortionBeginOffset Return the offset in the encoding of the
+   * beginning of the signed portion.
+   * @param signedPortionEndOffset Return the offset in the encoding of the end
+   * of the signed portion.
+   * @param encoder The TlvEncoder to receive the encoding.
+   */
+  private static void
+  encodeData
+    (Data data, int[] signedPortionBeginOffset, int[] signedPortionEndOffset,
+     TlvEncoder encoder)
+  {
     int saveLength = encoder.getLength();
 
     // Encode backwards.
@@ -346,7 +537,6 @@ public class Tlv0_2WireFormat extends WireFormat {
       encoder.getLength() - signedPortionBeginOffsetFromBack;
     signedPortionEndOffset[0] =
       encoder.getLength() - signedPortionEndOffsetFromBack;
-    return new Blob(encoder.getOutput(), false);
   }
 
   /**
@@ -394,6 +584,72 @@ public class Tlv0_2WireFormat extends WireFormat {
     decoder.finishNestedTlvs(endOffset);
   }
 
+  /**
+   * Decode only the name of the input NDN-TLV Interest and set it in the
+   * interest object, without decoding the other fields.
+   * @param interest The Interest object whose name is updated.
+   * @param input The input buffer to decode.  This reads from position() to
+   * limit(), but does not change the position.
+   * @param signedPortionBeginOffset Return the offset in the encoding of the
+   * beginning of the signed portion, the same as decodeInterest.
+   * @param signedPortionEndOffset Return the offset in the encoding of the end
+   * of the signed portion, the same as decodeInterest.
+   * @param copy If true, copy from the input when making new Blob values. If
+   * false, then Blob values share memory with the input, which must remain
+   * unchanged while the Blob values are used.
+   * @throws EncodingException For invalid encoding.
+   */
+  public void
+  decodeInterestName
+    (Interest interest, ByteBuffer input, int[] signedPortionBeginOffset,
+     int[] signedPortionEndOffset, boolean copy) throws EncodingException
+  {
+    TlvDecoder decoder = new TlvDecoder(input);
+
+    // The name is first in both format v0.2 and v0.3.
+    decoder.readNestedTlvsStart(Tlv.Interest);
+    decodeName
+      (interest.getName(), signedPortionBeginOffset, signedPortionEndOffset,
+       decoder, copy);
+  }
+
+  /**
+   * Decode only the name of the input NDN-TLV Data and set it in the data
+   * object, without decoding the other fields. To get the offsets of the
+   * signed portion, this skips the other fields without decoding them.
+   * @param data The Data object whose name is updated.
+   * @param input The input buffer to decode.  This reads from position() to
+   * limit(), but does not change the position.
+   * @param signedPortionBeginOffset Return the offset in the input buffer of
+   * the beginning of the signed portion by setting signedPortionBeginOffset[0].
+   * @param signedPortionEndOffset Return the offset in the input buffer of the
+   * end of the signed portion by setting signedPortionEndOffset[0].
+   * @param copy If true, copy from the input when making new Blob values. If
+   * false, then Blob values share memory with the input, which must remain
+   * unchanged while the Blob values are used.
+   * @throws EncodingException For invalid encoding.
+   */
+  public void
+  decodeDataName
+    (Data data, ByteBuffer input, int[] signedPortionBeginOffset,
+     int[] signedPortionEndOffset, boolean copy) throws EncodingException
+  {
+    TlvDecoder decoder = new TlvDecoder(input);
+
+    int endOffset = decoder.readNestedTlvsStart(Tlv.Data);
+    signedPortionBeginOffset[0] = decoder.getOffset();
+
+    decodeName(data.getName(), new int[1], new int[1], decoder, copy);
+    decoder.skipOptionalTlv(Tlv.MetaInfo, endOffset);
+    decoder.skipOptionalTlv(Tlv.Content, endOffset);
+    decoder.skipTlv(Tlv.SignatureInfo);
+
+    signedPortionEndOffset[0] = decoder.getOffset();
+    decoder.skipTlv(Tlv.SignatureValue);
+
+    decoder.finishNestedTlvs(endOffset);
+  }
+
   /**
    * Encode controlParameters in NDN-TLV and return the encoding.
    * @param controlParameters The ControlParameters object to encode.
@@ -575,6 +831,69 @@ public class Tlv0_2WireFormat extends WireFormat {
     return new Blob(encoder.getOutput(), false);
   }
 
+  /**
+   * Encode lpPacket as an NDN-TLV LpPacket and return the encoding. This
+   * encodes the Sequence, FragIndex and FragCount fields, the NetworkNack,
+   * IncomingFaceId and CongestionMark header fields, and the fragment.
+   * @param lpPacket The LpPacket object to encode.
+   * @return A Blob containing the encoding.
+   */
+  public Blob
+  encodeLpPacket(LpPacket lpPacket)
+  {
+    TlvEncoder encoder = new TlvEncoder
+      (256 + lpPacket.getFragmentWireEncoding().size());
+    int saveLength = encoder.getLength();
+
+    // Encode backwards.
+    ByteBuffer fragment = lpPacket.getFragmentWireEncoding().buf();
+    if (fragment != null)
+      encoder.writeBlobTlv(Tlv.LpPacket_Fragment, fragment);
+
+    // Reverse the header fields so that they decode in the same order.
+    for (int i = lpPacket.countHeaderFields() - 1; i >= 0; --i) {
+      Object field = lpPacket.getHeaderField(i);
+      if (field instanceof NetworkNack) {
+        NetworkNack networkNack = (NetworkNack)field;
+        int nackSaveLength = encoder.getLength();
+        if (networkNack.getReason() == NetworkNack.Reason.OTHER_CODE)
+          encoder.writeNonNegativeIntegerTlv
+            (Tlv.LpPacket_NackReason, networkNack.getOtherReasonCode());
+        else if (networkNack.getReason() != NetworkNack.Reason.NONE)
+          encoder.writeNonNegativeIntegerTlv
+            (Tlv.LpPacket_NackReason, networkNack.getReason().getNumericType());
+        encoder.writeTypeAndLength
+          (Tlv.LpPacket_Nack, encoder.getLength() - nackSaveLength);
+      }
+      else if (field instanceof IncomingFaceId)
+        encoder.writeNonNegativeIntegerTlv
+          (Tlv.LpPacket_IncomingFaceId, ((IncomingFaceId)field).getFaceId());
+      else if (field instanceof CongestionMark)
+        encoder.writeNonNegativeIntegerTlv
+          (Tlv.LpPacket_CongestionMark,
+           ((CongestionMark)field).getCongestionMark());
+    }
+
+    if (lpPacket.getFragCount() > 1) {
+      encoder.writeNonNegativeIntegerTlv
+        (Tlv.LpPacket_FragCount, lpPacket.getFragCount());
+      encoder.writeNonNegativeIntegerTlv
+        (Tlv.LpPacket_FragIndex, lpPacket.getFragIndex());
+    }
+    if (lpPacket.hasSequence()) {
+      // The Sequence is a fixed-width 8-byte unsigned integer.
+      ByteBuffer sequence = ByteBuffer.allocate(8);
+      sequence.putLong(lpPacket.getSequence());
+      sequence.flip();
+      encoder.writeBlobTlv(Tlv.LpPacket_Sequence, sequence);
+    }
+
+    encoder.writeTypeAndLength
+      (Tlv.LpPacket_LpPacket, encoder.getLength() - saveLength);
+
+    return new Blob(encoder.getOutput(), false);
+  }
+
   /**
    * Decode input as an NDN-TLV LpPacket and set the fields of the lpPacket object.
    * @param lpPacket The LpPacket object whose fields are updated.
@@ -611,6 +930,16 @@ public class Tlv0_2WireFormat extends WireFormat {
         // The fragment is supposed to be the last field.
         break;
       }
+      else if (fieldType == Tlv.LpPacket_Sequence) {
+        if (fieldLength != 8)
+          throw new EncodingException
+            ("The LpPacket Sequence must be 8 bytes");
+        lpPacket.setSequence(decoder.readNonNegativeInteger(fieldLength));
+      }
+      else if (fieldType == Tlv.LpPacket_FragIndex)
+        lpPacket.setFragIndex((int)decoder.readNonNegativeInteger(fieldLength));
+      else if (fieldType == Tlv.LpPacket_FragCount)
+        lpPacket.setFragCount((int)decoder.readNonNegativeInteger(fieldLength));
       else if (fieldType == Tlv.LpPacket_Nack) {
         NetworkNack networkNack = new NetworkNack();
         int code = (int)decoder.readOptionalNonNegativeIntegerTlv
@@ -1565,7 +1894,7 @@ public class Tlv0_2WireFormat extends WireFormat {
   }
 
   /**
-   * Encode interest in NDN-TLV format v0.3 and return the encoding.
+   * Encode interest in NDN-TLV format v0.3 to the encoder.
    * @param interest The Interest object to encode.
    * @param signedPortionBeginOffset Return the offset in the encoding of the
    * beginning of the signed portion. The signed portion starts from the first
@@ -1575,15 +1904,15 @@ public class Tlv0_2WireFormat extends WireFormat {
    * of the signed portion. The signed portion starts from the first
    * name component and ends just before the final name component (which is
    * assumed to be a signature for a signed interest).
-   * @return A Blob containing the encoding.
+   * @param encoder The TlvEncoder to receive the encoding.
    */
-  private static Blob
+  private static void
   encodeInterestV03
-    (Interest interest, int[] signedPortionBeginOffset, int[] signedPortionEndOffset)
+    (Interest interest, int[] signedPortionBeginOffset,
+     int[] signedPortionEndOffset, TlvEncoder encoder)
   {
     // TODO: Throw an exception if the interest speficies V02 fields.
 
-    TlvEncoder encoder = new TlvEncoder(256);
     int saveLength = encoder.getLength();
 
     // Encode backwards.
@@ -1659,8 +1988,6 @@ public class Tlv0_2WireFormat extends WireFormat {
       encoder.getLength() - signedPortionBeginOffsetFromBack;
     signedPortionEndOffset[0] =
       encoder.getLength() - signedPortionEndOffsetFromBack;
-
-    return new Blob(encoder.getOutput(), false);
   }
 
   /**
@@ -19,6 +19,7 @@
 
 package net.named_data.jndn.encoding;
 
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import net.named_data.jndn.ControlParameters;
 import net.named_data.jndn.ControlResponse;
@@ -105,6 +106,36 @@ public class WireFormat {
       ("encodeInterest is not implemented");
   }
 
+  /**
+   * Encode interest into the output buffer at its position. Your derived class
+   * should override to encode directly into the output. This default
+   * implementation calls encodeInterest and copies the result into the output.
+   * @param interest The Interest object to encode.
+   * @param output The buffer to encode into, starting at its position(). This
+   * may be a direct ByteBuffer. On return, the position is advanced by the
+   * length of the encoding.
+   * @param signedPortionBeginOffset Return the offset in the encoding (from
+   * the original position of output) of the beginning of the signed portion
+   * by setting signedPortionBeginOffset[0].
+   * @param signedPortionEndOffset Return the offset in the encoding (from the
+   * original position of output) of the end of the signed portion by setting
+   * signedPortionEndOffset[0].
+   * @throws BufferOverflowException If output.remaining() is less than the
+   * length of the encoding, in which case nothing is written.
+   * @throws UnsupportedOperationException for unimplemented if the derived
+   * class does not override encodeInterest.
+   */
+  public void
+  encodeInterest
+    (Interest interest, ByteBuffer output, int[] signedPortionBeginOffset,
+     int[] signedPortionEndOffset)
+  {
+    putEncoding
+      (encodeInterest
+       (interest, signedPortionBeginOffset, signedPortionEndOffset),
+       output);
+  }
+
   /**
    * Encode interest and return the encoding.  Your derived class should
    * override.
@@ -248,6 +279,35 @@ public class WireFormat {
     throw new UnsupportedOperationException("encodeData is not implemented");
   }
 
+  /**
+   * Encode data into the output buffer at its position. Your derived class
+   * should override to encode directly into the output. This default
+   * implementation calls encodeData and copies the result into the output.
+   * @param data The Data object to encode.
+   * @param output The buffer to encode into, starting at its position(). This
+   * may be a direct ByteBuffer. On return, the position is advanced by the
+   * length of the encoding.
+   * @param signedPortionBeginOffset Return the offset in the encoding (from
+   * the original position of output) of the beginning of the signed portion
+   * by setting signedPortionBeginOffset[0].
+   * @param signedPortionEndOffset Return the offset in the encoding (from the
+   * original position of output) of the end of the signed portion by setting
+   * signedPortionEndOffset[0].
+   * @throws BufferOverflowException If output.remaining() is less than the
+   * length of the encoding, in which case nothing is written.
+   * @throws UnsupportedOperationException for unimplemented if the derived
+   * class does not override encodeData.
+   */
+  public void
+  encodeData
+    (Data data, ByteBuffer output, int[] signedPortionBeginOffset,
+     int[] signedPortionEndOffset)
+  {
+    putEncoding
+      (encodeData(data, signedPortionBeginOffset, signedPortionEndOffset),
+       output);
+  }
+
   /**
    * Encode data and return the encoding.
    * @param data The Data object to encode.
@@ -354,6 +414,63 @@ public class WireFormat {
     decodeData(data, input, new int[1], new int[1], true);
   }
 
+  /**
+   * Decode only the name of the input Interest and set it in the interest
+   * object, without decoding the other fields. This is used for lazy decoding
+   * where the other fields are decoded by decodeInterest when needed. Your
+   * derived class should override.
+   * @param interest The Interest object whose name is updated.
+   * @param input The input buffer to decode.  This reads from position() to
+   * limit(), but does not change the position.
+   * @param signedPortionBeginOffset Return the offset in the encoding of the
+   * beginning of the signed portion, the same as decodeInterest.
+   * @param signedPortionEndOffset Return the offset in the encoding of the end
+   * of the signed portion, the same as decodeInterest.
+   * @param copy If true, copy from the input when making new Blob values. If
+   * false, then Blob values share memory with the input, which must remain
+   * unchanged while the Blob values are used.
+   * @throws UnsupportedOperationException for unimplemented if the derived
+   * class does not override.
+   * @throws EncodingException For invalid encoding.
+   */
+  public void
+  decodeInterestName
+    (Interest interest, ByteBuffer input, int[] signedPortionBeginOffset,
+     int[] signedPortionEndOffset, boolean copy) throws EncodingException
+  {
+    throw new UnsupportedOperationException
+      ("decodeInterestName is not implemented");
+  }
+
+  /**
+   * Decode only the name of the input Data and set it in the data object,
+   * without decoding the other fields. This still returns the offsets of the
+   * signed portion, the same as decodeData. This is used for lazy decoding
+   * where the other fields are decoded by decodeData when needed. Your derived
+   * class should override.
+   * @param data The Data object whose name is updated.
+   * @param input The input buffer to decode.  This reads from position() to
+   * limit(), but does not change the position.
+   * @param signedPortionBeginOffset Return the offset in the input buffer of
+   * the beginning of the signed portion by setting signedPortionBeginOffset[0].
+   * @param signedPortionEndOffset Return the offset in the input buffer of the
+   * end of the signed portion by setting signedPortionEndOffset[0].
+   * @param copy If true, copy from the input when making new Blob values. If
+   * false, then Blob values share memory with the input, which must remain
+   * unchanged while the Blob values are used.
+   * @throws UnsupportedOperationException for unimplemented if the derived
+   * class does not override.
+   * @throws EncodingException For invalid encoding.
+   */
+  public void
+  decodeDataName
+    (Data data, ByteBuffer input, int[] signedPortionBeginOffset,
+     int[] signedPortionEndOffset, boolean copy) throws EncodingException
+  {
+    throw new UnsupportedOperationException
+      ("decodeDataName is not implemented");
+  }
+
   /**
    * Encode controlParameters and return the encoding.
    * Your derived class should override.
@@ -549,6 +666,21 @@ public class WireFormat {
       ("encodeSignatureValue is not implemented");
   }
 
+  /**
+   * Encode lpPacket and return the encoding. Your derived class should
+   * override.
+   * @param lpPacket The LpPacket object to encode.
+   * @return A Blob containing the encoding.
+   * @throws UnsupportedOperationException for unimplemented if the derived
+   * class does not override.
+   */
+  public Blob
+  encodeLpPacket(LpPacket lpPacket)
+  {
+    throw new UnsupportedOperationException
+      ("encodeLpPacket is not implemented");
+  }
+
   /**
    * Decode input as an LpPacket and set the fields of the lpPacket object. Your
    * derived class should override.
@@ -797,5 +929,22 @@ public class WireFormat {
     return result;
   }
 
+  /**
+   * Copy the encoding into the output at its position and advance the
+   * position.
+   * @param encoding The encoding to copy.
+   * @param output The output buffer.
+   * @throws BufferOverflowException If output.remaining() is less than the
+   * encoding size, in which case nothing is written.
+   */
+  private static void
+  putEncoding(Blob encoding, ByteBuffer output)
+  {
+    if (output.remaining() < encoding.size())
+      throw new BufferOverflowException();
+
+    output.put(encoding.buf());
+  }
+
   private static volatile WireFormat defaultWireFormat_;
 }
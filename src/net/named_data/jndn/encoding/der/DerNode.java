@@ -889,7 +889,20 @@ public class DerNode {
     toVal() throws DerDecodingException
     {
       // Use Blob to convert to a string.
-      String timeStr = "" + new Blob(payload_.flippedBuffer(), false);
+      return toMillisecondsSince1970
+        ("" + new Blob(payload_.flippedBuffer(), false));
+    }
+
+    /**
+     * Convert the internal string representation to a UNIX timestamp. This is
+     * also used by DerReader.
+     * @param timeStr The string representation.
+     * @return The timestamp value as milliseconds since 1970.
+     * @throws DerDecodingException for an error decoding the date string.
+     */
+    static double
+    toMillisecondsSince1970(String timeStr) throws DerDecodingException
+    {
       try {
         Date date = dateFormat_.parse(timeStr);
         return (double)Common.dateToMillisecondsSince1970(date);
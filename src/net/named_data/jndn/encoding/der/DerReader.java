@@ -0,0 +1,356 @@
+/**
+ * Copyright (C) 2019 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+
+package net.named_data.jndn.encoding.der;
+
+import java.nio.ByteBuffer;
+import net.named_data.jndn.util.Blob;
+
+/**
+ * A DerReader reads DER elements one at a time from an input buffer, in the
+ * same way that TlvDecoder reads TLVs. Unlike DerNode.parse, this does not
+ * make a tree of DerNode objects or copy the bytes of each element, so it is
+ * used where only some fields are needed, such as the algorithm OID in a
+ * SubjectPublicKeyInfo. For example, to read the OID in an
+ * AlgorithmIdentifier which is the first element of a SEQUENCE:
+ * DerReader reader = new DerReader(encoding);
+ * int endOffset = reader.readSequenceStart();
+ * reader.readSequenceStart();
+ * String oid = reader.readOid();
+ */
+public class DerReader {
+  /**
+   * Create a new DerReader to read the input.
+   * @param input The input ByteBuffer whose position and limit are set to the
+   * desired bytes to read. This calls input.duplicate(), but does not copy
+   * the underlying buffer whose contents must remain valid while the buffers
+   * returned by this object are used.
+   */
+  public
+  DerReader(ByteBuffer input)
+  {
+    input_ = input.duplicate();
+  }
+
+  /**
+   * Get the type of the next element without changing the input buffer
+   * position.
+   * @return The DER node type, such as DerNodeType.Sequence.
+   * @throws DerDecodingException if at the end of the input.
+   */
+  public final int
+  peekType() throws DerDecodingException
+  {
+    if (!input_.hasRemaining())
+      throw new DerDecodingException
+        ("DerReader: The input length is too small");
+
+    return ((int)input_.get(input_.position())) & 0xff;
+  }
+
+  /**
+   * Check if the input buffer position is before endOffset and the next
+   * element has the expectedType. Do not update the input buffer position.
+   * @param expectedType The expected DER node type.
+   * @param endOffset The offset of the end of the parent SEQUENCE, returned by
+   * readSequenceStart.
+   * @return True if the type of the next element is the expectedType,
+   * otherwise false.
+   */
+  public final boolean
+  peekType(int expectedType, int endOffset)
+  {
+    return input_.position() < endOffset &&
+      (((int)input_.get(input_.position())) & 0xff) == expectedType;
+  }
+
+  /**
+   * Read the type and length of the next element, expecting the type to be
+   * expectedType, and update the input buffer position to the start of the
+   * payload. Also make sure the length does not exceed the number of bytes
+   * remaining in the input.
+   * @param expectedType The expected DER node type.
+   * @return The length of the payload.
+   * @throws DerDecodingException if did not get the expected type, or the
+   * length exceeds the buffer length.
+   */
+  public final int
+  readHeader(int expectedType) throws DerDecodingException
+  {
+    int type = peekType();
+    if (type != expectedType)
+      throw new DerDecodingException
+        ("DerReader: Expected DER type " + expectedType + " but got " + type);
+
+    return readTypeAndLength();
+  }
+
+  /**
+   * Read the header of a SEQUENCE and return the input buffer position
+   * (offset) of the end of the SEQUENCE. Read the children with the other
+   * read methods, then call finishSequence.
+   * @return The input buffer position (offset) of the end of the SEQUENCE.
+   * @throws DerDecodingException if the next element is not a SEQUENCE or the
+   * length exceeds the buffer length.
+   */
+  public final int
+  readSequenceStart() throws DerDecodingException
+  {
+    return readHeader(DerNodeType.Sequence) + input_.position();
+  }
+
+  /**
+   * Call this after reading the needed children of a SEQUENCE to skip the
+   * remaining children.
+   * @param endOffset The offset of the end of the SEQUENCE, returned by
+   * readSequenceStart.
+   * @throws DerDecodingException if the input buffer position is past the end
+   * of the SEQUENCE, which means that the length of a child exceeds the
+   * SEQUENCE length.
+   */
+  public final void
+  finishSequence(int endOffset) throws DerDecodingException
+  {
+    if (input_.position() > endOffset)
+      throw new DerDecodingException
+        ("DerReader: The SEQUENCE length is less than the length of the children");
+
+    input_.position(endOffset);
+  }
+
+  /**
+   * Skip the next element of any type.
+   * @throws DerDecodingException if the length exceeds the buffer length.
+   */
+  public final void
+  skip() throws DerDecodingException
+  {
+    int length = readTypeAndLength();
+    input_.position(input_.position() + length);
+  }
+
+  /**
+   * Read the next element, expecting the type to be expectedType, and return
+   * the payload.
+   * @param expectedType The expected DER node type.
+   * @return A slice of the input buffer with the payload. This is not a copy.
+   * @throws DerDecodingException if did not get the expected type, or the
+   * length exceeds the buffer length.
+   */
+  public final ByteBuffer
+  readPayload(int expectedType) throws DerDecodingException
+  {
+    int length = readHeader(expectedType);
+    int beginOffset = input_.position();
+    input_.position(beginOffset + length);
+    return getSlice(beginOffset, beginOffset + length);
+  }
+
+  /**
+   * Read the next element of any type and return the entire encoding
+   * including the header, for example the SubjectPublicKeyInfo in a
+   * certificate.
+   * @return A slice of the input buffer with the element encoding. This is not
+   * a copy.
+   * @throws DerDecodingException if the length exceeds the buffer length.
+   */
+  public final ByteBuffer
+  readElement() throws DerDecodingException
+  {
+    int beginOffset = input_.position();
+    skip();
+    return getSlice(beginOffset, input_.position());
+  }
+
+  /**
+   * Read the next element, expecting an OBJECT IDENTIFIER, and return the OID
+   * string such as "1.2.840.113549.1.1.1".
+   * @return The OID string.
+   * @throws DerDecodingException if the next element is not an OBJECT
+   * IDENTIFIER or for invalid encoding.
+   */
+  public final String
+  readOid() throws DerDecodingException
+  {
+    int length = readHeader(DerNodeType.ObjectIdentifier);
+    int endOffset = input_.position() + length;
+    if (length == 0)
+      throw new DerDecodingException("DerReader: The OID is empty");
+
+    StringBuilder result = new StringBuilder();
+    boolean isFirst = true;
+    while (input_.position() < endOffset) {
+      // Decode the base 128 integer.
+      int value = 0;
+      while (true) {
+        if (input_.position() >= endOffset)
+          throw new DerDecodingException
+            ("DerReader: The OID has an incomplete integer");
+        int b = ((int)input_.get()) & 0xff;
+        value = 128 * value + (b & 0x7f);
+        if ((b & 0x80) == 0)
+          break;
+      }
+
+      if (isFirst) {
+        // The first two integers are represented in one byte.
+        result.append(value / 40).append('.').append(value % 40);
+        isFirst = false;
+      }
+      else
+        result.append('.').append(value);
+    }
+
+    return result.toString();
+  }
+
+  /**
+   * Read the next element, expecting an INTEGER, and return the value.
+   * @return The non-negative integer value.
+   * @throws DerDecodingException if the next element is not an INTEGER, or if
+   * the integer is negative.
+   */
+  public final int
+  readInteger() throws DerDecodingException
+  {
+    ByteBuffer payload = readPayload(DerNodeType.Integer);
+    if (payload.hasRemaining() &&
+        (((int)payload.get(payload.position())) & 0xff) >= 0x80)
+      throw new DerDecodingException
+        ("DerReader: Negative integers are not currently supported");
+
+    int result = 0;
+    for (int i = payload.position(); i < payload.limit(); ++i) {
+      result <<= 8;
+      // Use & 0xff in case byte was in the range -128 to -1.
+      result += ((int)payload.get(i)) & 0xff;
+    }
+
+    return result;
+  }
+
+  /**
+   * Read the next element, expecting a BOOLEAN, and return the value.
+   * @return The boolean value.
+   * @throws DerDecodingException if the next element is not a BOOLEAN or is
+   * empty.
+   */
+  public final boolean
+  readBoolean() throws DerDecodingException
+  {
+    ByteBuffer payload = readPayload(DerNodeType.Boolean);
+    if (!payload.hasRemaining())
+      throw new DerDecodingException("DerReader: The BOOLEAN is empty");
+
+    return payload.get(payload.position()) != 0x00;
+  }
+
+  /**
+   * Read the next element, expecting a GeneralizedTime, and return the value.
+   * @return The time as milliseconds since 1970.
+   * @throws DerDecodingException if the next element is not a GeneralizedTime
+   * or for an error decoding the date string.
+   */
+  public final double
+  readGeneralizedTime() throws DerDecodingException
+  {
+    // Use Blob to convert to a string.
+    return DerNode.DerGeneralizedTime.toMillisecondsSince1970
+      ("" + new Blob(readPayload(DerNodeType.GeneralizedTime), false));
+  }
+
+  /**
+   * Get the input buffer position (offset), used for the next read.
+   * @return The input buffer position (offset).
+   */
+  public final int
+  getOffset()
+  {
+    return input_.position();
+  }
+
+  /**
+   * Set the offset into the input, used for the next read.
+   * @param offset The new offset.
+   */
+  public final void
+  seek(int offset)
+  {
+    input_.position(offset);
+  }
+
+  /**
+   * Return a ByteBuffer slice of the input for the given offset range.
+   * @param beginOffset The offset in the input of the beginning of the slice.
+   * @param endOffset The offset in the input of the end of the slice.
+   * @return A slice on the input buffer. This is not a copy of the bytes in
+   * the input buffer. If you need a copy, then you must make a copy of the
+   * return value.
+   */
+  public final ByteBuffer
+  getSlice(int beginOffset, int endOffset)
+  {
+    ByteBuffer result = input_.duplicate();
+    // First set position to 0 to be sure that endOffset won't be before it.
+    result.position(0);
+    result.limit(endOffset);
+    result.position(beginOffset);
+    return result;
+  }
+
+  /**
+   * Read the type and length of the next element of any type and update the
+   * input buffer position to the start of the payload.
+   * @return The length of the payload.
+   * @throws DerDecodingException if the length exceeds the buffer length.
+   */
+  private int
+  readTypeAndLength() throws DerDecodingException
+  {
+    if (input_.remaining() < 2)
+      throw new DerDecodingException
+        ("DerReader: The input length is too small");
+    // Skip the type.
+    input_.get();
+
+    int length = ((int)input_.get()) & 0xff;
+    if ((length & 0x80) != 0) {
+      // The long format.
+      int lengthCount = length & 0x7f;
+      if (lengthCount > 4)
+        throw new DerDecodingException("DerReader: The length is too large");
+      if (input_.remaining() < lengthCount)
+        throw new DerDecodingException
+          ("DerReader: The input length is too small");
+
+      length = 0;
+      for (int i = 0; i < lengthCount; ++i)
+        length = 256 * length + (((int)input_.get()) & 0xff);
+    }
+
+    if (length < 0 || length > input_.remaining())
+      throw new DerDecodingException
+        ("DerReader: The length exceeds the buffer length");
+
+    return length;
+  }
+
+  private final ByteBuffer input_;
+}
@@ -20,6 +20,7 @@
 package net.named_data.jndn.encoding.tlv;
 
 import java.nio.ByteBuffer;
+import net.named_data.jndn.util.Common;
 import net.named_data.jndn.util.DynamicByteBuffer;
 
 /**
@@ -51,6 +52,103 @@ public class TlvEncoder {
     output_.position(output_.limit());
   }
 
+  /**
+   * Create a new TlvEncoder which encodes backwards into the given buffer,
+   * starting from its limit. This is for the second pass of exact-size
+   * encoding where the buffer was sized from the getLength() of an encoder
+   * from createLengthCounter(), so that the encoding exactly fills the buffer
+   * without reallocating or copying. The buffer may be a direct ByteBuffer.
+   * (If the encoding does not fit, a new heap buffer is allocated as usual, so
+   * check that getOutput() has the expected length.)
+   * @param output The buffer to encode into, from position() to limit(). This
+   * does not change its position or limit.
+   */
+  public
+  TlvEncoder(ByteBuffer output)
+  {
+    output_ = new DynamicByteBuffer(output.slice());
+    // We will start encoding from the back.
+    output_.position(output_.limit());
+  }
+
+  /**
+   * Create a TlvEncoder which only counts the length of the encoding without
+   * writing output, so that the getLength() can be used to allocate a buffer
+   * of the exact size for a second pass with TlvEncoder(ByteBuffer).
+   * getOutput() may not be called on the returned TlvEncoder.
+   * @return A new TlvEncoder.
+   */
+  public static TlvEncoder
+  createLengthCounter()
+  {
+    return new TlvEncoder((DynamicByteBuffer)null);
+  }
+
+  /**
+   * Create a TlvEncoder with the given output, which is null for a length
+   * counter.
+   */
+  private
+  TlvEncoder(DynamicByteBuffer output)
+  {
+    output_ = output;
+  }
+
+  /**
+   * Get the TlvEncoder of the current thread which is reused to avoid
+   * allocating and growing a new output buffer for each encoding. Its output
+   * buffer is pre-sized to Common.MAX_NDN_PACKET_SIZE. The returned encoder is
+   * reset to start encoding from the back. When done, copy the result of
+   * getOutput() (since the next encoding overwrites it) and call release().
+   * If the thread's encoder is already in use by an encoding in progress (for
+   * example, encoding a Link object while encoding an Interest), this returns
+   * a new TlvEncoder which is not reused.
+   * @return The TlvEncoder.
+   */
+  public static TlvEncoder
+  acquireThreadLocal()
+  {
+    TlvEncoder encoder = threadLocalEncoder_.get();
+    if (encoder.isInUse_)
+      return new TlvEncoder(256);
+
+    encoder.isInUse_ = true;
+    encoder.reset();
+    return encoder;
+  }
+
+  /**
+   * If this is the TlvEncoder of the current thread from acquireThreadLocal(),
+   * let it be reused for the next encoding. If the output buffer grew for a
+   * large encoding, replace it so that the thread doesn't keep the large
+   * buffer. If this is not from acquireThreadLocal(), do nothing.
+   */
+  public final void
+  release()
+  {
+    if (!isInUse_)
+      return;
+
+    isInUse_ = false;
+    if (output_.buffer().capacity() > Common.MAX_NDN_PACKET_SIZE)
+      threadLocalEncoder_.remove();
+  }
+
+  /**
+   * Reset the output so that the next write starts encoding again from the
+   * back. This lets you reuse the TlvEncoder and its output buffer. A
+   * ByteBuffer previously returned by getOutput() is overwritten by the next
+   * encoding.
+   */
+  public final void
+  reset()
+  {
+    if (output_ == null)
+      countedLength_ = 0;
+    else
+      output_.position(output_.limit());
+  }
+
   /**
    * Get the number of bytes that have been written to the output.  You can
    * save this number, write sub TLVs, then subtract the new length from this
@@ -60,6 +158,8 @@ public class TlvEncoder {
   public final int
   getLength()
   {
+    if (output_ == null)
+      return countedLength_;
     return output_.remaining();
   }
 
@@ -72,6 +172,11 @@ public class TlvEncoder {
   public final void
   writeVarNumber(int varNumber)
   {
+    if (output_ == null) {
+      countedLength_ += varNumber < 253 ? 1 : (varNumber <= 0xffff ? 3 : 5);
+      return;
+    }
+
     if (varNumber < 253) {
       int position = output_.setRemainingFromBack(output_.remaining() + 1);
       output_.buffer().put(position, (byte)(varNumber & 0xff));
@@ -124,6 +229,12 @@ public class TlvEncoder {
     if (value < 0)
       throw new Error("TLV integer value may not be negative");
 
+    if (output_ == null) {
+      countedLength_ += value <= 0xffL ? 1 : (value <= 0xffffL ? 2 :
+        (value <= 0xffffffffL ? 4 : 8));
+      return;
+    }
+
     // Write backwards.
     if (value <= 0xffL) {
       int position = output_.setRemainingFromBack(output_.remaining() + 1);
@@ -169,9 +280,9 @@ public class TlvEncoder {
   writeNonNegativeIntegerTlv(int type, long value)
   {
     // Write backwards.
-    int saveNBytes = output_.remaining();
+    int saveNBytes = getLength();
     writeNonNegativeInteger(value);
-    writeTypeAndLength(type, output_.remaining() - saveNBytes);
+    writeTypeAndLength(type, getLength() - saveNBytes);
   }
 
   /**
@@ -217,6 +328,10 @@ public class TlvEncoder {
   {
     if (buffer == null)
       return;
+    if (output_ == null) {
+      countedLength_ += buffer.remaining();
+      return;
+    }
 
     // Write backwards.
     int position = output_.setRemainingFromBack
@@ -275,9 +390,25 @@ public class TlvEncoder {
   public final ByteBuffer
   getOutput()
   {
+    if (output_ == null)
+      throw new Error("getOutput: A length counter TlvEncoder has no output");
+
     // The output buffer position is already at the beginning of the encoding.
     return output_.buffer().slice();
   }
 
+  // output_ is null for a TlvEncoder from createLengthCounter().
   private final DynamicByteBuffer output_;
+  private int countedLength_ = 0;
+  // This is only true for a thread-local encoder between acquireThreadLocal()
+  // and release().
+  private boolean isInUse_ = false;
+
+  private static final ThreadLocal<TlvEncoder> threadLocalEncoder_ =
+    new ThreadLocal<TlvEncoder>() {
+      protected TlvEncoder initialValue()
+      {
+        return new TlvEncoder(Common.MAX_NDN_PACKET_SIZE);
+      }
+    };
 }
@@ -20,6 +20,7 @@
 package net.named_data.jndn.encoding.tlv;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import net.named_data.jndn.encoding.EncodingException;
 
 public class TlvStructureDecoder {
@@ -41,7 +42,9 @@ public class TlvStructureDecoder {
       // Someone is calling when we already got the end.
       return true;
 
-    TlvDecoder decoder = new TlvDecoder(input);
+    if (state_ == TlvStructureDecoder.READ_TYPE && findHeaderEnd(input))
+      // The whole header was in the input, so we skipped the state machine.
+      return gotElementEnd_;
 
     while (true) {
       if (offset_ >= input.limit())
@@ -115,6 +118,7 @@ public class TlvStructureDecoder {
         int nRemainingBytes = input.limit() - offset_;
         if (!useHeaderBuffer_ && nRemainingBytes >= nBytesToRead_) {
           // We don't have to use the headerBuffer. Set nBytesToRead.
+          TlvDecoder decoder = new TlvDecoder(input);
           decoder.seek(offset_);
 
           nBytesToRead_ = decoder.readExtendedVarNumber(firstOctet_);
@@ -189,6 +193,99 @@ public class TlvStructureDecoder {
     }
   }
 
+  /**
+   * Reset this to find the end of a new element, so that one
+   * TlvStructureDecoder can be reused for a stream of elements. This does not
+   * change the offset. Call seek() to set it.
+   */
+  public final void
+  reset()
+  {
+    gotElementEnd_ = false;
+    state_ = READ_TYPE;
+    useHeaderBuffer_ = false;
+    headerBuffer_.clear();
+    nBytesToRead_ = 0;
+  }
+
+  /**
+   * This is the fast path of findElementEnd for the common case where the
+   * input has the whole type and length at offset_. Decode the length with
+   * one bulk read of the big-endian bytes, then check if the input also has
+   * the whole value. If the value is complete, set gotElementEnd_ and set
+   * offset_ to the element end. Otherwise, set offset_ to the end of the input
+   * and set state_ to read the rest of the value bytes.
+   * @param input The input buffer.
+   * @return True if the header was decoded, or false if the input does not
+   * have the whole header (or the length is a 64-bit number) so that the
+   * caller must use the state machine.
+   * @throws EncodingException If the length is too large for a Java int.
+   */
+  private boolean
+  findHeaderEnd(ByteBuffer input) throws EncodingException
+  {
+    // getShort and getInt use the buffer's byte order.
+    if (input.order() != ByteOrder.BIG_ENDIAN)
+      return false;
+
+    int limit = input.limit();
+    int offset = offset_;
+    // We need at least one byte each for the type and length.
+    if (limit - offset < 2)
+      return false;
+
+    // Skip the type bytes.
+    int typeOctet = (int)input.get(offset) & 0xff;
+    if (typeOctet < 253)
+      offset += 1;
+    else if (typeOctet == 253)
+      offset += 3;
+    else if (typeOctet == 254)
+      offset += 5;
+    else
+      offset += 9;
+    if (offset >= limit)
+      return false;
+
+    int lengthOctet = (int)input.get(offset) & 0xff;
+    offset += 1;
+    int length;
+    if (lengthOctet < 253)
+      length = lengthOctet;
+    else if (lengthOctet == 253) {
+      if (limit - offset < 2)
+        return false;
+      length = (int)input.getShort(offset) & 0xffff;
+      offset += 2;
+    }
+    else if (lengthOctet == 254) {
+      if (limit - offset < 4)
+        return false;
+      length = input.getInt(offset);
+      if (length < 0)
+        throw new EncodingException
+          ("The TLV length is too large for a 32-bit int");
+      offset += 4;
+    }
+    else
+      // Let the state machine report that a 64-bit length is not supported.
+      return false;
+
+    int nRemainingBytes = limit - offset;
+    if (length <= nRemainingBytes) {
+      offset_ = offset + length;
+      gotElementEnd_ = true;
+    }
+    else {
+      // Wait for the rest of the value bytes, as in READ_VALUE_BYTES.
+      offset_ = limit;
+      nBytesToRead_ = length - nRemainingBytes;
+      state_ = TlvStructureDecoder.READ_VALUE_BYTES;
+    }
+
+    return true;
+  }
+
   /**
    * Get the current offset into the input buffer.
    * @return The offset.
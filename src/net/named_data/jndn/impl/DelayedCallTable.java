@@ -20,67 +20,143 @@
 package net.named_data.jndn.impl;
 
 import java.util.ArrayList;
+import java.util.PriorityQueue;
 import net.named_data.jndn.util.Common;
 
 /**
  * DelayedCallTable is an internal class used by the Node implementation of
- * callLater to store callbacks and call them when they time out.
+ * callLater to store callbacks and call them when they time out. The entries
+ * are kept in a binary heap ordered by call time, so that callLater and
+ * removing a timed-out entry are O(log n). An entry can be cancelled in O(1)
+ * by marking it. Cancelled entries are skipped when they reach the front of
+ * the heap, and are purged if they become the majority of the table.
  */
 public class DelayedCallTable {
+  /**
+   * Create a DelayedCallTable which uses one lock for all entries.
+   */
+  public DelayedCallTable()
+  {
+    this(1);
+  }
+
+  /**
+   * Create a DelayedCallTable which is split into stripes, each with its own
+   * heap and lock. callLater adds to the stripe for the calling thread so that
+   * threads calling callLater at the same time don't contend. Entries added by
+   * the same thread are still called in order.
+   * @param concurrencyLevel The number of stripes. If this is 1, all entries
+   * are in one heap which is the same as the default constructor.
+   */
+  public DelayedCallTable(int concurrencyLevel)
+  {
+    if (concurrencyLevel < 1)
+      throw new IllegalArgumentException
+        ("DelayedCallTable: concurrencyLevel must be at least 1");
+
+    stripes_ = new Stripe[concurrencyLevel];
+    for (int i = 0; i < concurrencyLevel; ++i)
+      stripes_[i] = new Stripe();
+  }
+
   /**
    * Call callback.run() after the given delay. This adds to the delayed call
    * table which is used by callTimedOut().
    * @param delayMilliseconds The delay in milliseconds.
    * @param callback This calls callback.run() after the delay.
+   * @return The new DelayedCallTable.Entry which can be used to cancel the
+   * call.
    */
-  public synchronized final void
+  public final Entry
   callLater(double delayMilliseconds, Runnable callback)
   {
-    Entry entry = new Entry(delayMilliseconds, callback);
-    // Insert into table_, sorted on getCallTime().
-    // Search from the back since we expect it to go there.
-    int i = table_.size() - 1;
-    while (i >= 0) {
-      if ((table_.get(i)).getCallTime() <= entry.getCallTime())
-        break;
-      --i;
+    Stripe stripe;
+    if (stripes_.length == 1)
+      stripe = stripes_[0];
+    else
+      stripe = stripes_
+        [(int)(Thread.currentThread().getId() % stripes_.length)];
+
+    Entry entry = stripe.add(delayMilliseconds, callback);
+    Runnable wakeup = wakeup_;
+    if (wakeup != null && stripe.isFirst(entry))
+      // An event loop may be waiting until a later call time.
+      wakeup.run();
+
+    return entry;
+  }
+
+  /**
+   * Get the earliest call time of the entries which have not been called or
+   * cancelled. An event loop can use this to decide how long to wait before
+   * calling callTimedOut().
+   * @return The call time in milliseconds, similar to
+   * Common.getNowMilliseconds(), or -1 if there are no entries. This includes
+   * the offset from setNowOffsetMilliseconds_, so that the result can be
+   * compared to the current time.
+   */
+  public final double
+  getNextCallTime()
+  {
+    double result = -1;
+    for (int i = 0; i < stripes_.length; ++i) {
+      double callTime = stripes_[i].getFirstCallTime();
+      if (callTime >= 0 && (result < 0 || callTime < result))
+        result = callTime;
     }
-    // Element i is the greatest less than or equal to
-    // entry.getCallTime(), so insert after it.
-    table_.add(i + 1, entry);
+
+    if (result < 0)
+      return result;
+    return result - nowOffsetMilliseconds_;
   }
 
   /**
-   * Call and remove timed-out callback entries. Since callLater does a sorted
-   * insert into the delayed call table, the check for timed-out entries is
-   * quick and does not require searching the entire table. This synchronizes on
-   * the delayed call table when checking it, but not when calling the callback.
+   * Set the Runnable which callLater calls when the new entry is the earliest
+   * one in its stripe, so that an event loop waiting until the previous
+   * earliest call time can wake up and wait again using getNextCallTime().
+   * @param wakeup The Runnable to call, which should return quickly, or null
+   * for none.
+   */
+  public final void
+  setWakeup(Runnable wakeup) { wakeup_ = wakeup; }
+
+  /**
+   * Call and remove timed-out callback entries. Since the delayed call table is
+   * a heap ordered on the call time, the check for timed-out entries is quick
+   * and does not require searching the entire table. This synchronizes on the
+   * delayed call table when checking it, but not when calling the callback.
    */
   public final void
   callTimedOut()
   {
     // nowOffsetMilliseconds_ is only used for testing.
     double now = Common.getNowMilliseconds() + nowOffsetMilliseconds_;
-    // table_ is sorted on _callTime, so we only need to process the timed-out
-    // entries at the front, then quit.
-    while (true) {
-      Entry entry;
-      // Lock while we check and maybe pop the element at the front.
-      synchronized(this) {
-        if (table_.isEmpty())
-          break;
-        entry = table_.get(0);
-        if (entry.getCallTime() > now)
-          // It is not time to call the entry at the front of the list, so finish.
+    for (int i = 0; i < stripes_.length; ++i) {
+      while (true) {
+        Entry entry = stripes_[i].pollTimedOut(now);
+        if (entry == null)
           break;
-        table_.remove(0);
-      }
 
-      // The lock on table_ is removed, so call the callback.
-      entry.callCallback();
+        // The lock on the stripe is removed, so call the callback.
+        entry.callCallback();
+      }
     }
   }
 
+  /**
+   * Get the number of entries which have not been called or cancelled.
+   * @return The number of entries.
+   */
+  public final int
+  size()
+  {
+    int result = 0;
+    for (int i = 0; i < stripes_.length; ++i)
+      result += stripes_[i].size();
+
+    return result;
+  }
+
   /**
    * Set the offset for when prepareCommandInterestName() gets the current time,
    * which should only be used for testing.
@@ -96,17 +172,23 @@ public class DelayedCallTable {
    * Entry holds the callback and other fields for an entry in the delayed call
    * table.
    */
-  private static class Entry {
+  public static class Entry implements Comparable<Entry> {
     /**
      * Create a new DelayedCallTable.Entry and set the call time based on the
      * current time and the delayMilliseconds.
+     * @param stripe The Stripe which has this entry.
      * @param delayMilliseconds The delay in milliseconds.
      * @param callback This calls callback.run() after the delay.
+     * @param sequenceNumber The order in which this was added to the stripe.
      */
-    public Entry(double delayMilliseconds, Runnable callback)
+    private Entry
+      (Stripe stripe, double delayMilliseconds, Runnable callback,
+       long sequenceNumber)
     {
+      stripe_ = stripe;
       callback_ = callback;
       callTime_ = Common.getNowMilliseconds() + delayMilliseconds;
+      sequenceNumber_ = sequenceNumber;
     }
 
     /**
@@ -117,19 +199,152 @@ public class DelayedCallTable {
     public final double
     getCallTime() { return callTime_; }
 
+    /**
+     * Cancel this entry so that its callback is not called. If the callback
+     * has already been called or this was already cancelled, do nothing.
+     */
+    public final void
+    cancel() { stripe_.cancel(this); }
+
+    public final int
+    compareTo(Entry other)
+    {
+      if (callTime_ < other.callTime_)
+        return -1;
+      if (callTime_ > other.callTime_)
+        return 1;
+      return sequenceNumber_ < other.sequenceNumber_ ? -1 :
+        (sequenceNumber_ > other.sequenceNumber_ ? 1 : 0);
+    }
+
     /**
      * Call the callback given to the constructor. This does not catch
      * exceptions.
      */
-    public final void
+    private void
     callCallback() { callback_.run(); }
 
+    private final Stripe stripe_;
     private final Runnable callback_;
     private final double callTime_;
+    private final long sequenceNumber_;
+    // isCancelled_ and isCalled_ are guarded by the lock on stripe_.
+    private boolean isCancelled_ = false;
+    private boolean isCalled_ = false;
+  }
+
+  /**
+   * A Stripe has a heap of entries ordered by call time, guarded by the lock
+   * on the Stripe object.
+   */
+  private static class Stripe {
+    public synchronized Entry
+    add(double delayMilliseconds, Runnable callback)
+    {
+      // The sequence number makes entries with the same call time get called
+      // in the order they were added.
+      Entry entry = new Entry
+        (this, delayMilliseconds, callback, nextSequenceNumber_++);
+      table_.add(entry);
+      return entry;
+    }
+
+    /**
+     * Remove and return the entry at the front of the heap if it is timed out.
+     * @param now The current time in milliseconds.
+     * @return The timed-out entry, or null if none.
+     */
+    public synchronized Entry
+    pollTimedOut(double now)
+    {
+      while (true) {
+        Entry entry = table_.peek();
+        if (entry == null)
+          return null;
+        if (entry.isCancelled_) {
+          // Lazily remove the cancelled entry.
+          table_.poll();
+          --nCancelled_;
+          continue;
+        }
+        if (entry.getCallTime() > now)
+          // It is not time to call the entry at the front, so finish.
+          return null;
+
+        table_.poll();
+        // Mark it so that a later call to cancel() does nothing.
+        entry.isCalled_ = true;
+        return entry;
+      }
+    }
+
+    /**
+     * Mark the entry as cancelled and, if more than half of the heap is
+     * cancelled entries, purge them all.
+     * @param entry The entry to cancel.
+     */
+    public synchronized void
+    cancel(Entry entry)
+    {
+      if (entry.isCancelled_ || entry.isCalled_)
+        return;
+
+      entry.isCancelled_ = true;
+      ++nCancelled_;
+
+      if (nCancelled_ > PURGE_MIN_CANCELLED && nCancelled_ > table_.size() / 2) {
+        ArrayList<Entry> remaining = new ArrayList<Entry>
+          (table_.size() - nCancelled_);
+        for (Entry tableEntry : table_) {
+          if (!tableEntry.isCancelled_)
+            remaining.add(tableEntry);
+        }
+        table_.clear();
+        table_.addAll(remaining);
+        nCancelled_ = 0;
+      }
+    }
+
+    /**
+     * Check if the entry is at the front of the heap.
+     * @param entry The entry to check.
+     * @return True if the entry is at the front.
+     */
+    public synchronized boolean
+    isFirst(Entry entry) { return table_.peek() == entry; }
+
+    /**
+     * Get the call time of the entry at the front of the heap which is not
+     * cancelled, removing cancelled entries from the front.
+     * @return The call time, or -1 if there are no entries.
+     */
+    public synchronized double
+    getFirstCallTime()
+    {
+      while (true) {
+        Entry entry = table_.peek();
+        if (entry == null)
+          return -1;
+        if (!entry.isCancelled_)
+          return entry.getCallTime();
+
+        table_.poll();
+        --nCancelled_;
+      }
+    }
+
+    public synchronized int
+    size() { return table_.size() - nCancelled_; }
+
+    private final PriorityQueue<Entry> table_ = new PriorityQueue<Entry>();
+    private int nCancelled_ = 0;
+    private long nextSequenceNumber_ = 0;
   }
 
-  private final ArrayList<Entry> table_ = new ArrayList<Entry>();
+  private final Stripe[] stripes_;
   private double nowOffsetMilliseconds_ = 0;
+  private volatile Runnable wakeup_ = null;
+  private static final int PURGE_MIN_CANCELLED = 64;
   // This is to force an import of net.named_data.jndn.util.
   private static Common dummyCommon_ = new Common();
 }
@@ -20,6 +20,10 @@
 package net.named_data.jndn.impl;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import net.named_data.jndn.Face;
@@ -98,28 +102,56 @@ public class InterestFilterTable {
    * @param face The face on which was called registerPrefix or
    * setInterestFilter which is passed to the onInterest callback.
    */
-  public synchronized final void
+  public final void
   setInterestFilter(long interestFilterId, InterestFilter filter,
        OnInterestCallback onInterest, Face face)
   {
-    table_.add(new Entry(interestFilterId, filter, onInterest, face));
+    Entry entry = new Entry(interestFilterId, filter, onInterest, face);
+    lock_.writeLock().lock();
+    try {
+      entriesById_.put(interestFilterId, entry);
+      // A filter with a regex also requires a prefix match, so we index all
+      // filters by prefix.
+      prefixTrie_.add(filter.getPrefix(), entry);
+    } finally {
+      lock_.writeLock().unlock();
+    }
   }
 
   /**
    * Find all entries from the interest filter table where the interest conforms
-   * to the entry's filter, and add to the matchedFilters list.
+   * to the entry's filter, and add to the matchedFilters list. This only
+   * checks the entries whose filter prefix is a prefix of the interest name.
    * @param interest The interest which may match the filter in multiple entries.
    * @param matchedFilters Add each matching InterestFilterTable.Entry from the
    * interest filter table.  The caller should pass in an empty ArrayList.
    */
-  public synchronized final void
+  public final void
   getMatchedFilters(Interest interest, ArrayList matchedFilters)
   {
-    for (int i = 0; i < table_.size(); ++i) {
-      Entry entry = table_.get(i);
-      if (entry.getFilter().doesMatch(interest.getName()))
-        matchedFilters.add(entry);
+    ArrayList<Entry> candidates = new ArrayList<Entry>();
+    // Interests are dispatched much more often than filters are changed, so
+    // use a read lock which lets threads dispatch at the same time.
+    lock_.readLock().lock();
+    try {
+      prefixTrie_.findPrefixMatches(interest.getName(), candidates);
+    } finally {
+      lock_.readLock().unlock();
+    }
+
+    ArrayList<Entry> matched = new ArrayList<Entry>(candidates.size());
+    for (int i = 0; i < candidates.size(); ++i) {
+      Entry entry = candidates.get(i);
+      // The prefix already matches, so only check a regex.
+      if (!entry.getFilter().hasRegexFilter() ||
+          entry.getFilter().doesMatch(interest.getName()))
+        matched.add(entry);
     }
+
+    if (matched.size() > 1)
+      // Keep the order in which the filters were set (the IDs are increasing).
+      Collections.sort(matched, idComparator_);
+    matchedFilters.addAll(matched);
   }
 
   /**
@@ -129,26 +161,37 @@ public class InterestFilterTable {
    * If there is no entry with the interestFilterId, do nothing.
    * @param interestFilterId The ID returned from setInterestFilter.
    */
-  public synchronized final void
+  public final void
   unsetInterestFilter(long interestFilterId)
   {
-    int count = 0;
-    // Go backwards through the list so we can remove entries.
-    // Remove all entries even though interestFilterId should be unique.
-    for (int i = table_.size() - 1; i >= 0; --i) {
-      if ((table_.get(i)).getInterestFilterId() == interestFilterId) {
-        ++count;
-        table_.remove(i);
-      }
+    Entry entry;
+    lock_.writeLock().lock();
+    try {
+      entry = entriesById_.remove(interestFilterId);
+      if (entry != null)
+        prefixTrie_.remove(entry.getFilter().getPrefix(), entry);
+    } finally {
+      lock_.writeLock().unlock();
     }
 
-    if (count == 0)
+    if (entry == null)
       logger_.log
         (Level.WARNING, "unsetInterestFilter: Didn't find interestFilterId {0}",
          interestFilterId);
   }
 
-  private final ArrayList<Entry> table_ = new ArrayList<Entry>();
+  // The entries are indexed by their interestFilterId and by their filter
+  // prefix so that lookups don't need to scan the whole table.
+  private final HashMap<Long, Entry> entriesById_ = new HashMap<Long, Entry>();
+  private final NameTrie<Entry> prefixTrie_ = new NameTrie<Entry>();
+  private final ReentrantReadWriteLock lock_ = new ReentrantReadWriteLock();
+  private static final Comparator<Entry> idComparator_ =
+    new Comparator<Entry>() {
+      public int compare(Entry entry1, Entry entry2) {
+        return entry1.getInterestFilterId() < entry2.getInterestFilterId() ? -1 :
+          (entry1.getInterestFilterId() > entry2.getInterestFilterId() ? 1 : 0);
+      }
+    };
   private static final Logger logger_ = Logger.getLogger
     (InterestFilterTable.class.getName());
   // This is to force an import of net.named_data.jndn.util.
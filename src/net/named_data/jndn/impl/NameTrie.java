@@ -0,0 +1,204 @@
+/**
+ * Copyright (C) 2019 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.util.Blob;
+
+/**
+ * A NameTrie is an internal class which indexes values by a Name, with one
+ * trie node per name component. This is used by the tables in Node so that
+ * finding the values whose key is a prefix of a given name only touches the
+ * nodes along the path of that name instead of scanning every value. Like
+ * Name.match, the components are compared by their value only. This class is
+ * not synchronized. The owning table is responsible for locking.
+ * @param <T> The type of the stored values.
+ */
+public class NameTrie<T> {
+  /**
+   * Add the value at the node for the first keySize components of name. The
+   * same value may be added more than once.
+   * @param name The name for the key.
+   * @param keySize The number of components of name to use for the key, from
+   * 0 to name.size().
+   * @param value The value to add.
+   */
+  public final void
+  add(Name name, int keySize, T value)
+  {
+    Node<T> node = root_;
+    for (int i = 0; i < keySize; ++i) {
+      Blob component = name.get(i).getValue();
+      Node<T> child = node.children_.get(component);
+      if (child == null) {
+        child = new Node<T>(node, component);
+        node.children_.put(component, child);
+      }
+      node = child;
+    }
+
+    node.values_.add(value);
+    ++size_;
+  }
+
+  /**
+   * Add the value at the node for all the components of name.
+   * @param name The name for the key.
+   * @param value The value to add.
+   */
+  public final void
+  add(Name name, T value) { add(name, name.size(), value); }
+
+  /**
+   * Remove one occurrence of the value (using ==) from the node for the first
+   * keySize components of name. Remove trie nodes which become empty.
+   * @param name The name for the key, which must be the same as given to add.
+   * @param keySize The number of components of name to use for the key.
+   * @param value The value to remove.
+   * @return True if the value was found and removed, false if not.
+   */
+  public final boolean
+  remove(Name name, int keySize, T value)
+  {
+    Node<T> node = findNode(name, keySize);
+    if (node == null)
+      return false;
+
+    for (int i = 0; i < node.values_.size(); ++i) {
+      if (node.values_.get(i) == value) {
+        node.values_.remove(i);
+        --size_;
+        prune(node);
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Remove one occurrence of the value from the node for all the components of
+   * name.
+   * @param name The name for the key, which must be the same as given to add.
+   * @param value The value to remove.
+   * @return True if the value was found and removed, false if not.
+   */
+  public final boolean
+  remove(Name name, T value) { return remove(name, name.size(), value); }
+
+  /**
+   * Add to the result list every value whose key is a prefix of the given name
+   * (including the key equal to name). The values are added in order of
+   * increasing key length.
+   * @param name The name to match.
+   * @param result Add each matching value to this list.
+   */
+  public final void
+  findPrefixMatches(Name name, ArrayList<T> result)
+  {
+    Node<T> node = root_;
+    result.addAll(node.values_);
+    for (int i = 0; i < name.size(); ++i) {
+      node = node.children_.get(name.get(i).getValue());
+      if (node == null)
+        return;
+      result.addAll(node.values_);
+    }
+  }
+
+  /**
+   * Add to the result list every value whose key is exactly the first keySize
+   * components of name.
+   * @param name The name to match.
+   * @param keySize The number of components of name to use for the key.
+   * @param result Add each matching value to this list.
+   */
+  public final void
+  findExactMatches(Name name, int keySize, ArrayList<T> result)
+  {
+    Node<T> node = findNode(name, keySize);
+    if (node != null)
+      result.addAll(node.values_);
+  }
+
+  /**
+   * Get the number of values in the trie.
+   * @return The number of values.
+   */
+  public final int
+  size() { return size_; }
+
+  /**
+   * Remove all values and nodes.
+   */
+  public final void
+  clear()
+  {
+    root_.children_.clear();
+    root_.values_.clear();
+    size_ = 0;
+  }
+
+  /**
+   * Find the node for the first keySize components of name.
+   * @return The node, or null if not found.
+   */
+  private Node<T>
+  findNode(Name name, int keySize)
+  {
+    Node<T> node = root_;
+    for (int i = 0; i < keySize && node != null; ++i)
+      node = node.children_.get(name.get(i).getValue());
+
+    return node;
+  }
+
+  /**
+   * Starting at node, remove each node which has no values and no children
+   * from its parent, going up toward the root.
+   */
+  private void
+  prune(Node<T> node)
+  {
+    while (node.parent_ != null && node.values_.isEmpty() &&
+           node.children_.isEmpty()) {
+      node.parent_.children_.remove(node.component_);
+      node = node.parent_;
+    }
+  }
+
+  private static class Node<T> {
+    public Node(Node<T> parent, Blob component)
+    {
+      parent_ = parent;
+      component_ = component;
+    }
+
+    public final Node<T> parent_;
+    public final Blob component_;
+    public final HashMap<Blob, Node<T>> children_ = new HashMap<Blob, Node<T>>();
+    public final ArrayList<T> values_ = new ArrayList<T>();
+  }
+
+  private final Node<T> root_ = new Node<T>(null, null);
+  private int size_ = 0;
+}
@@ -19,15 +19,22 @@
 
 package net.named_data.jndn.impl;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import net.named_data.jndn.Interest;
 import net.named_data.jndn.Data;
+import net.named_data.jndn.Name;
 import net.named_data.jndn.OnData;
 import net.named_data.jndn.OnNetworkNack;
 import net.named_data.jndn.OnTimeout;
 import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.util.Blob;
 import net.named_data.jndn.util.Common;
 import net.named_data.jndn.util.SignedBlob;
 
@@ -89,7 +96,29 @@ public class PendingInterestTable {
      * Set the isRemoved flag which is returned by getIsRemoved().
      */
     public final void
-    setIsRemoved() { isRemoved_ = true; }
+    setIsRemoved()
+    {
+      isRemoved_ = true;
+      DelayedCallTable.Entry timeoutCall = timeoutCall_;
+      if (timeoutCall != null)
+        // The timeout is no longer needed, so don't wait for it to be called.
+        timeoutCall.cancel();
+    }
+
+    /**
+     * Set the delayed call for the interest timeout so that setIsRemoved()
+     * cancels it. This is only used if the timeout was scheduled on a
+     * DelayedCallTable.
+     * @param timeoutCall The DelayedCallTable.Entry from callLater.
+     */
+    public final void
+    setTimeoutCall(DelayedCallTable.Entry timeoutCall)
+    {
+      timeoutCall_ = timeoutCall;
+      if (isRemoved_)
+        // The entry was removed before we got the timeout call.
+        timeoutCall.cancel();
+    }
 
     /**
      * Check if setIsRemoved() was called.
@@ -119,7 +148,36 @@ public class PendingInterestTable {
     private final OnData onData_;
     private final OnTimeout onTimeout_;
     private final OnNetworkNack onNetworkNack_;
-    private boolean isRemoved_ = false;
+    private volatile boolean isRemoved_ = false;
+    private volatile DelayedCallTable.Entry timeoutCall_ = null;
+    // The stripe of the PendingInterestTable which has this entry.
+    private Stripe stripe_ = null;
+  }
+
+  /**
+   * Create a PendingInterestTable which uses one lock for all entries.
+   */
+  public PendingInterestTable()
+  {
+    this(1);
+  }
+
+  /**
+   * Create a PendingInterestTable where the entries are split into stripes by
+   * the hash of the Interest name, each with its own lock, so that threads
+   * which add and remove entries with different names don't contend.
+   * @param concurrencyLevel The number of stripes. If this is 1, all entries
+   * are in one stripe which is the same as the default constructor.
+   */
+  public PendingInterestTable(int concurrencyLevel)
+  {
+    if (concurrencyLevel < 1)
+      throw new IllegalArgumentException
+        ("PendingInterestTable: concurrencyLevel must be at least 1");
+
+    stripes_ = new Stripe[concurrencyLevel];
+    for (int i = 0; i < concurrencyLevel; ++i)
+      stripes_[i] = new Stripe();
   }
 
   /**
@@ -139,21 +197,31 @@ public class PendingInterestTable {
    * @return The new PendingInterestTable.Entry, or null if
    * removePendingInterest was already called with the pendingInterestId.
    */
-  public synchronized final Entry
+  public final Entry
   add(long pendingInterestId, Interest interestCopy, OnData onData,
        OnTimeout onTimeout, OnNetworkNack onNetworkNack)
   {
-    int removeRequestIndex = removeRequests_.indexOf(pendingInterestId);
-    if (removeRequestIndex >= 0) {
+    if (!removeRequests_.isEmpty() && removeRequests_.remove(pendingInterestId))
       // removePendingInterest was called with the pendingInterestId returned by
       //   expressInterest before we got here, so don't add a PIT entry.
-      removeRequests_.remove(removeRequestIndex);
       return null;
-    }
 
     Entry entry = new Entry
       (pendingInterestId, interestCopy, onData, onTimeout, onNetworkNack);
-    table_.add(entry);
+    int keySize = getTrieKeySize(interestCopy);
+    entry.stripe_ = getStripe(interestCopy.getName(), keySize);
+    synchronized(entry.stripe_) {
+      entriesById_.put(pendingInterestId, entry);
+      entry.stripe_.add(entry, keySize);
+    }
+
+    // Check again in case removePendingInterest was called on another thread
+    // after the check above but before the entry was in entriesById_.
+    if (!removeRequests_.isEmpty() && removeRequests_.remove(pendingInterestId)) {
+      removeEntry(entry);
+      return null;
+    }
+
     return entry;
   }
 
@@ -165,19 +233,34 @@ public class PendingInterestTable {
    * @param entries Add matching PendingInterestTable.Entry from the pending
    * interest table.  The caller should pass in an empty ArrayList.
    */
-  public synchronized final void
+  public final void
   extractEntriesForExpressedInterest(Data data, ArrayList<Entry> entries)
   {
-    // Go backwards through the list so we can remove entries.
-    for (int i = table_.size() - 1; i >= 0; --i) {
-      Entry pendingInterest = table_.get(i);
+    // Only the entries whose Interest name is a prefix of the Data name can
+    // match, so get them from the name trie instead of checking every entry.
+    Name dataName = data.getName();
+    ArrayList<Entry> candidates = new ArrayList<Entry>();
+    if (stripes_.length == 1) {
+      Stripe stripe = stripes_[0];
+      synchronized(stripe) {
+        stripe.nameTrie_.findPrefixMatches(dataName, candidates);
+        extractMatches(stripe, data, candidates, entries);
+      }
+    }
+    else {
+      // Each prefix of the Data name is in the stripe for its hash, so check
+      // each prefix length in its stripe.
+      int hashCode = 0;
+      for (int keySize = 0; keySize <= dataName.size(); ++keySize) {
+        if (keySize > 0)
+          hashCode = nextHashCode(hashCode, dataName, keySize - 1);
+        Stripe stripe = stripes_[getStripeIndex(hashCode)];
 
-      if (pendingInterest.getInterest().matchesData(data)) {
-        entries.add(table_.get(i));
-        // We let the callback from callLater call _processInterestTimeout, but
-        // for efficiency, mark this as removed so that it returns right away.
-        table_.remove(i);
-        pendingInterest.setIsRemoved();
+        synchronized(stripe) {
+          stripe.nameTrie_.findExactMatches(dataName, keySize, candidates);
+          extractMatches(stripe, data, candidates, entries);
+        }
+        candidates.clear();
       }
     }
   }
@@ -194,25 +277,38 @@ public class PendingInterestTable {
    * @param entries Add matching PendingInterestTable.Entry from the pending
    * interest table. The caller should pass in an empty ArrayList.
    */
-  public synchronized final void
+  public final void
   extractEntriesForNackInterest(Interest interest, ArrayList<Entry> entries)
   {
-    SignedBlob encoding = interest.wireEncode();
-
-    // Go backwards through the list so we can remove entries.
-    for (int i = table_.size() - 1; i >= 0; --i) {
-      Entry pendingInterest = table_.get(i);
-      if (pendingInterest.getOnNetworkNack() == null)
-        continue;
-
-      // wireEncode returns the encoding cached when the interest was sent (if
-      // it was the default wire encoding).
-      if (pendingInterest.getInterest().wireEncode().equals(encoding)) {
-        entries.add(table_.get(i));
-        // We let the callback from callLater call _processInterestTimeout, but
-        // for efficiency, mark this as removed so that it returns right away.
-        table_.remove(i);
-        pendingInterest.setIsRemoved();
+    Stripe stripe = getStripe(interest.getName(), getTrieKeySize(interest));
+    synchronized(stripe) {
+      // The encodings can only be the same if the name and nonce are the same,
+      // so only check the entries with that key, plus the few entries whose
+      // nonce is not known until encoding.
+      ArrayList<Entry> candidates = new ArrayList<Entry>();
+      NameAndNonce key = NameAndNonce.fromInterest(interest);
+      if (key != null) {
+        ArrayList<Entry> keyEntries = stripe.nackIndex_.get(key);
+        if (keyEntries != null)
+          candidates.addAll(keyEntries);
+      }
+      candidates.addAll(stripe.unindexedNackEntries_);
+      if (candidates.isEmpty())
+        return;
+
+      SignedBlob encoding = interest.wireEncode();
+      for (int i = 0; i < candidates.size(); ++i) {
+        Entry pendingInterest = candidates.get(i);
+
+        // wireEncode returns the encoding cached when the interest was sent (if
+        // it was the default wire encoding).
+        if (pendingInterest.getInterest().wireEncode().equals(encoding)) {
+          entries.add(pendingInterest);
+          // We let the callback from callLater call _processInterestTimeout, but
+          // for efficiency, mark this as removed so that it returns right away.
+          removeFromIndexes(pendingInterest);
+          pendingInterest.setIsRemoved();
+        }
       }
     }
   }
@@ -225,34 +321,32 @@ public class PendingInterestTable {
    * nothing.
    * @param pendingInterestId The ID returned from expressInterest.
    */
-  public synchronized final void
+  public final void
   removePendingInterest(long pendingInterestId)
   {
-    int count = 0;
-    // Go backwards through the list so we can remove entries.
-    // Remove all entries even though pendingInterestId should be unique.
-    for (int i = table_.size() - 1; i >= 0; --i) {
-      if ((table_.get(i)).getPendingInterestId() == pendingInterestId) {
-        ++count;
-        // For efficiency, mark this as removed so that
-        // processInterestTimeout doesn't look for it.
-        (table_.get(i)).setIsRemoved();
-        table_.remove(i);
-      }
+    Entry pendingInterest = entriesById_.get(pendingInterestId);
+    if (pendingInterest != null) {
+      // For efficiency, mark this as removed so that
+      // processInterestTimeout doesn't look for it.
+      removeEntry(pendingInterest);
+      return;
     }
 
-    if (count == 0)
-      logger_.log
-        (Level.WARNING, "removePendingInterest: Didn't find pendingInterestId {0}",
-         pendingInterestId);
-
-    if (count == 0) {
-      // The pendingInterestId was not found. Perhaps this has been called before
-      //   the callback in expressInterest can add to the PIT. Add this
-      //   removal request which will be checked before adding to the PIT.
-      if (removeRequests_.indexOf(pendingInterestId) < 0)
-        // Not already requested, so add the request.
-        removeRequests_.add(pendingInterestId);
+    logger_.log
+      (Level.WARNING, "removePendingInterest: Didn't find pendingInterestId {0}",
+       pendingInterestId);
+
+    // The pendingInterestId was not found. Perhaps this has been called before
+    //   the callback in expressInterest can add to the PIT. Add this
+    //   removal request which will be checked before adding to the PIT.
+    removeRequests_.add(pendingInterestId);
+
+    // Check again in case add was called on another thread after the check
+    // above but before the removal request was added.
+    pendingInterest = entriesById_.get(pendingInterestId);
+    if (pendingInterest != null) {
+      removeRequests_.remove(pendingInterestId);
+      removeEntry(pendingInterest);
     }
   }
 
@@ -263,25 +357,261 @@ public class PendingInterestTable {
    * @param pendingInterest The Entry from the pending interest table.
    * @return True if the entry was removed, false if not.
    */
-  public synchronized final boolean
+  public final boolean
   removeEntry(Entry pendingInterest)
   {
-    if (pendingInterest.getIsRemoved())
+    if (pendingInterest.getIsRemoved() || pendingInterest.stripe_ == null)
       // extractEntriesForExpressedInterest or removePendingInterest has
       // removed pendingInterest from the table, so we don't need to look for it.
       // Do nothing.
       return false;
 
-    if (table_.remove(pendingInterest)) {
-      pendingInterest.setIsRemoved();
-      return true;
+    synchronized(pendingInterest.stripe_) {
+      if (removeFromIndexes(pendingInterest)) {
+        pendingInterest.setIsRemoved();
+        return true;
+      }
+      else
+        return false;
+    }
+  }
+
+  /**
+   * Append the entries which have not been removed to the list, for example to
+   * send their Interests again after a reconnect.
+   * @param entries Append the entries to this list.
+   */
+  public final void
+  getEntries(ArrayList<Entry> entries)
+  {
+    for (Entry entry : entriesById_.values()) {
+      if (!entry.getIsRemoved())
+        entries.add(entry);
     }
+  }
+
+  /**
+   * Get the number of entries in the pending interest table.
+   * @return The number of entries.
+   */
+  public final int
+  size() { return entriesById_.size(); }
+
+  /**
+   * Get the number of name components of the interest name to use as the key
+   * in the name trie. If the name ends with an implicit SHA-256 digest, it can
+   * only match a Data packet whose name is the name without the digest, so we
+   * index it there. Interest.matchesData still checks the digest.
+   * @param interest The Interest with the name.
+   * @return The number of components for the key.
+   */
+  private static int
+  getTrieKeySize(Interest interest)
+  {
+    Name name = interest.getName();
+    if (name.size() > 0 && name.get(-1).isImplicitSha256Digest())
+      return name.size() - 1;
     else
+      return name.size();
+  }
+
+  /**
+   * Update the hash code of a name prefix to include the component at index i.
+   * @param hashCode The hash code of the first i components.
+   * @param name The name with the components.
+   * @param i The index of the component to add.
+   * @return The hash code of the first i + 1 components.
+   */
+  private static int
+  nextHashCode(int hashCode, Name name, int i)
+  {
+    return 37 * hashCode + name.get(i).getValue().hashCode();
+  }
+
+  private int
+  getStripeIndex(int hashCode)
+  {
+    return (hashCode & 0x7fffffff) % stripes_.length;
+  }
+
+  /**
+   * Get the stripe for the first keySize components of name.
+   */
+  private Stripe
+  getStripe(Name name, int keySize)
+  {
+    if (stripes_.length == 1)
+      return stripes_[0];
+
+    int hashCode = 0;
+    for (int i = 0; i < keySize; ++i)
+      hashCode = nextHashCode(hashCode, name, i);
+    return stripes_[getStripeIndex(hashCode)];
+  }
+
+  /**
+   * For each candidate whose Interest matches data, remove it from the table,
+   * set its isRemoved flag and add it to entries. The lock on stripe must be
+   * held.
+   */
+  private void
+  extractMatches
+    (Stripe stripe, Data data, ArrayList<Entry> candidates,
+     ArrayList<Entry> entries)
+  {
+    for (int i = 0; i < candidates.size(); ++i) {
+      Entry pendingInterest = candidates.get(i);
+
+      if (pendingInterest.getInterest().matchesData(data)) {
+        entries.add(pendingInterest);
+        // We let the callback from callLater call _processInterestTimeout, but
+        // for efficiency, mark this as removed so that it returns right away.
+        removeFromIndexes(pendingInterest);
+        pendingInterest.setIsRemoved();
+      }
+    }
+  }
+
+  /**
+   * Remove the entry from entriesById_ and its stripe. This does not set the
+   * isRemoved flag. The lock on the entry's stripe must be held.
+   * @param pendingInterest The Entry to remove.
+   * @return True if the entry was in the table, false if not.
+   */
+  private boolean
+  removeFromIndexes(Entry pendingInterest)
+  {
+    if (!entriesById_.remove
+        (pendingInterest.getPendingInterestId(), pendingInterest))
       return false;
+
+    pendingInterest.stripe_.remove(pendingInterest);
+    return true;
+  }
+
+  /**
+   * A Stripe holds the name trie and Nack index for the entries whose name
+   * hashes to it. Lock on the Stripe object to access it.
+   */
+  private static class Stripe {
+    /**
+     * Add the entry to the name trie and the Nack index.
+     * @param entry The Entry to add.
+     * @param keySize The getTrieKeySize() of the entry's Interest.
+     */
+    public void
+    add(Entry entry, int keySize)
+    {
+      nameTrie_.add(entry.getInterest().getName(), keySize, entry);
+
+      if (entry.getOnNetworkNack() != null) {
+        // Only entries with an OnNetworkNack callback can be extracted for a
+        // Nack.
+        NameAndNonce key = NameAndNonce.fromInterest(entry.getInterest());
+        if (key != null) {
+          ArrayList<Entry> keyEntries = nackIndex_.get(key);
+          if (keyEntries == null) {
+            keyEntries = new ArrayList<Entry>(1);
+            nackIndex_.put(key, keyEntries);
+          }
+          keyEntries.add(entry);
+        }
+        else
+          unindexedNackEntries_.add(entry);
+      }
+    }
+
+    /**
+     * Remove the entry from the name trie and the Nack index.
+     * @param entry The Entry to remove.
+     */
+    public void
+    remove(Entry entry)
+    {
+      nameTrie_.remove
+        (entry.getInterest().getName(), getTrieKeySize(entry.getInterest()),
+         entry);
+
+      if (entry.getOnNetworkNack() != null) {
+        NameAndNonce key = NameAndNonce.fromInterest(entry.getInterest());
+        if (key != null) {
+          ArrayList<Entry> keyEntries = nackIndex_.get(key);
+          if (keyEntries != null) {
+            keyEntries.remove(entry);
+            if (keyEntries.isEmpty())
+              nackIndex_.remove(key);
+          }
+        }
+        else
+          unindexedNackEntries_.remove(entry);
+      }
+    }
+
+    public final NameTrie<Entry> nameTrie_ = new NameTrie<Entry>();
+    // Index the entries which have an OnNetworkNack callback so that a Nack is
+    // matched without comparing the encoding of every entry.
+    public final HashMap<NameAndNonce, ArrayList<Entry>> nackIndex_ =
+      new HashMap<NameAndNonce, ArrayList<Entry>>();
+    public final ArrayList<Entry> unindexedNackEntries_ = new ArrayList<Entry>();
+  }
+
+  /**
+   * NameAndNonce is the key for nackIndex_. The name is compared like
+   * Name.equals and the nonce is the 4 bytes which are put in the encoding.
+   */
+  private static class NameAndNonce {
+    private NameAndNonce(Name name, Blob nonce)
+    {
+      name_ = name;
+      nonce_ = nonce;
+    }
+
+    /**
+     * Create a NameAndNonce from the interest's name and nonce.
+     * @param interest The Interest with the name and nonce.
+     * @return The new NameAndNonce, or null if the nonce is shorter than 4
+     * bytes so that the encoding pads it with random bytes.
+     */
+    public static NameAndNonce
+    fromInterest(Interest interest)
+    {
+      Blob nonce = interest.getNonce();
+      if (nonce.size() < 4)
+        return null;
+      if (nonce.size() > 4) {
+        // The encoding only uses the first 4 bytes.
+        ByteBuffer buffer = nonce.buf();
+        buffer.limit(buffer.position() + 4);
+        nonce = new Blob(buffer, false);
+      }
+
+      return new NameAndNonce(interest.getName(), nonce);
+    }
+
+    public boolean
+    equals(Object other)
+    {
+      if (!(other instanceof NameAndNonce))
+        return false;
+
+      NameAndNonce otherKey = (NameAndNonce)other;
+      return nonce_.equals(otherKey.nonce_) && name_.equals(otherKey.name_);
+    }
+
+    public int
+    hashCode() { return 37 * name_.hashCode() + nonce_.hashCode(); }
+
+    private final Name name_;
+    private final Blob nonce_;
   }
 
-  private final ArrayList<Entry> table_ = new ArrayList<Entry>();
-  private final ArrayList<Long> removeRequests_ = new ArrayList<Long>();
+  // The entries are indexed by their pendingInterestId and by their Interest
+  // name so that lookups don't need to scan the whole table.
+  private final ConcurrentHashMap<Long, Entry> entriesById_ =
+    new ConcurrentHashMap<Long, Entry>();
+  private final Stripe[] stripes_;
+  private final Set<Long> removeRequests_ =
+    Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
   private static final Logger logger_ = Logger.getLogger
     (PendingInterestTable.class.getName());
   // This is to force an import of net.named_data.jndn.util.
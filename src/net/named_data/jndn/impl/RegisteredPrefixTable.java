@@ -20,6 +20,8 @@
 package net.named_data.jndn.impl;
 
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import net.named_data.jndn.Name;
@@ -48,25 +50,59 @@ public class RegisteredPrefixTable {
    * @param relatedInterestFilterId (optional) The related interestFilterId
    * for the filter set in the same registerPrefix operation. If omitted, set
    * to 0.
+   * @param registerAgain (optional) A Runnable which sends the registration
+   * command to the forwarder again, for example after a reconnect. If omitted,
+   * set to null.
    * @return True if added an entry, false if removeRegisteredPrefix was already
    * called with the registeredPrefixId.
    */
   public synchronized final boolean
-  add(long registeredPrefixId, Name prefix, long relatedInterestFilterId)
+  add
+    (long registeredPrefixId, Name prefix, long relatedInterestFilterId,
+     Runnable registerAgain)
   {
-    int removeRequestIndex = removeRequests_.indexOf(registeredPrefixId);
-    if (removeRequestIndex >= 0) {
+    if (removeRequests_.remove(registeredPrefixId))
       // removeRegisteredPrefix was called with the registeredPrefixId returned
       //   by registerPrefix before we got here, so don't add a registered
       //   prefix table entry.
-      removeRequests_.remove(removeRequestIndex);
       return false;
-    }
 
-    table_.add(new Entry(registeredPrefixId, prefix, relatedInterestFilterId));
+    table_.put
+      (registeredPrefixId,
+       new Entry
+         (registeredPrefixId, prefix, relatedInterestFilterId, registerAgain));
     return true;
   }
 
+  /**
+   * Add a new entry to the table without a registerAgain Runnable. See
+   * add(long, Name, long, Runnable).
+   * @param registeredPrefixId The ID from Node.getNextEntryId().
+   * @param prefix The name prefix.
+   * @param relatedInterestFilterId The related interestFilterId, or 0.
+   * @return True if added an entry, false if removeRegisteredPrefix was already
+   * called with the registeredPrefixId.
+   */
+  public final boolean
+  add(long registeredPrefixId, Name prefix, long relatedInterestFilterId)
+  {
+    return add(registeredPrefixId, prefix, relatedInterestFilterId, null);
+  }
+
+  /**
+   * Append the registerAgain Runnable of each entry to the list, in the order
+   * that the prefixes were registered.
+   * @param registerAgainList Append each non-null registerAgain to this list.
+   */
+  public synchronized final void
+  getRegisterAgainList(ArrayList<Runnable> registerAgainList)
+  {
+    for (Entry entry : table_.values()) {
+      if (entry.getRegisterAgain() != null)
+        registerAgainList.add(entry.getRegisterAgain());
+    }
+  }
+
   /**
    * Remove the registered prefix entry with the registeredPrefixId from the
    * registered prefix table. This does not affect another registered prefix with
@@ -79,38 +115,25 @@ public class RegisteredPrefixTable {
   public synchronized final void
   removeRegisteredPrefix(long registeredPrefixId)
   {
-    int count = 0;
-    // Go backwards through the list so we can remove entries.
-    // Remove all entries even though registeredPrefixId should be unique.
-    for (int i = table_.size() - 1; i >= 0; --i) {
-      Entry entry = table_.get(i);
-
-      if (entry.getRegisteredPrefixId() == registeredPrefixId) {
-        ++count;
-
-        if (entry.getRelatedInterestFilterId() > 0)
-          // Remove the related interest filter.
-          interestFilterTable_.unsetInterestFilter
-            (entry.getRelatedInterestFilterId());
-
-        table_.remove(i);
-      }
+    Entry entry = table_.remove(registeredPrefixId);
+    if (entry != null) {
+      if (entry.getRelatedInterestFilterId() > 0)
+        // Remove the related interest filter.
+        interestFilterTable_.unsetInterestFilter
+          (entry.getRelatedInterestFilterId());
+
+      return;
     }
 
-    if (count == 0)
-      logger_.log
-        (Level.WARNING, "removeRegisteredPrefix: Didn't find registeredPrefixId {0}",
-         registeredPrefixId);
-
-    if (count == 0) {
-      // The registeredPrefixId was not found. Perhaps this has been called before
-      //   the callback in registerPrefix can add to the registered prefix table.
-      //   Add this removal request which will be checked before adding to the
-      //   registered prefix table.
-      if (removeRequests_.indexOf(registeredPrefixId) < 0)
-        // Not already requested, so add the request.
-        removeRequests_.add(registeredPrefixId);
-    }
+    logger_.log
+      (Level.WARNING, "removeRegisteredPrefix: Didn't find registeredPrefixId {0}",
+       registeredPrefixId);
+
+    // The registeredPrefixId was not found. Perhaps this has been called before
+    //   the callback in registerPrefix can add to the registered prefix table.
+    //   Add this removal request which will be checked before adding to the
+    //   registered prefix table.
+    removeRequests_.add(registeredPrefixId);
   }
 
   /**
@@ -127,13 +150,17 @@ public class RegisteredPrefixTable {
      * @param relatedInterestFilterId (optional) The related interestFilterId
      * for the filter set in the same registerPrefix operation. If omitted, set
      * to 0.
+     * @param registerAgain The Runnable to send the registration command
+     * again, or null.
      */
     public Entry
-      (long registeredPrefixId, Name prefix, long relatedInterestFilterId)
+      (long registeredPrefixId, Name prefix, long relatedInterestFilterId,
+       Runnable registerAgain)
     {
       registeredPrefixId_ = registeredPrefixId;
       prefix_ = prefix;
       relatedInterestFilterId_ = relatedInterestFilterId;
+      registerAgain_ = registerAgain;
     }
 
     /**
@@ -157,14 +184,25 @@ public class RegisteredPrefixTable {
     public final long
     getRelatedInterestFilterId() { return relatedInterestFilterId_; }
 
+    /**
+     * Get the registerAgain Runnable given to the constructor.
+     * @return The registerAgain Runnable, or null.
+     */
+    public final Runnable
+    getRegisterAgain() { return registerAgain_; }
+
     private final long registeredPrefixId_; /**< A unique identifier for this entry so it can be deleted */
     private final Name prefix_;
     private final long relatedInterestFilterId_;
+    private final Runnable registerAgain_;
   }
 
-  private final ArrayList<Entry> table_ = new ArrayList<Entry>();
+  // Use a LinkedHashMap to find an entry by registeredPrefixId and keep the
+  // order in which the prefixes were registered.
+  private final LinkedHashMap<Long, Entry> table_ =
+    new LinkedHashMap<Long, Entry>();
   private final InterestFilterTable interestFilterTable_;
-  private final ArrayList<Long> removeRequests_ = new ArrayList<Long>();
+  private final HashSet<Long> removeRequests_ = new HashSet<Long>();
   private static final Logger logger_ = Logger.getLogger
     (RegisteredPrefixTable.class.getName());
   // This is to force an import of net.named_data.jndn.util.
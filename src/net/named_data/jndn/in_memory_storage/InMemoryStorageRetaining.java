@@ -38,7 +38,7 @@ public class InMemoryStorageRetaining {
   /**
    * Insert a Data packet. If a Data packet with the same name, including the
    * implicit digest, already exists, replace it. 
-   * @param data The packet to insert, which is copied.
+   * @param data The packet to insert, which is copied unless it is frozen.
    * @throws EncodingException for error encoding the Data packet to get the
    * implicit digest.
    */
@@ -46,7 +46,8 @@ public class InMemoryStorageRetaining {
   insert(Data data)
     throws EncodingException
   {
-    cache_.put(data.getFullName(), new Data(data));
+    // A frozen Data can't be changed, so share it.
+    cache_.put(data.getFullName(), data.isFrozen() ? data : new Data(data));
   }
 
   /** 
@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) 2019 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.lp;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import net.named_data.jndn.encoding.WireFormat;
+import net.named_data.jndn.encoding.TlvWireFormat;
+import net.named_data.jndn.util.Blob;
+import net.named_data.jndn.util.Common;
+
+/**
+ * An LpFragmenter splits a network layer packet which is larger than the MTU
+ * into NDNLPv2 fragments. Each fragment is an LpPacket with the Sequence,
+ * FragIndex and FragCount fields so that the receiver can reassemble them
+ * with an LpReassembler. This is an internal class which the application
+ * normally would not use.
+ * http://redmine.named-data.net/projects/nfd/wiki/NDNLPv2
+ */
+public class LpFragmenter {
+  /**
+   * Create an LpFragmenter for the given MTU.
+   * @param mtu The maximum size of an encoded fragment. This must be greater
+   * than MAX_FRAGMENT_OVERHEAD.
+   * @throws Error If mtu is not greater than MAX_FRAGMENT_OVERHEAD.
+   */
+  public LpFragmenter(int mtu)
+  {
+    if (mtu <= MAX_FRAGMENT_OVERHEAD)
+      throw new Error("LpFragmenter: The MTU " + mtu + " is too small");
+
+    mtu_ = mtu;
+    // Start with a random sequence number, like NFD.
+    ByteBuffer sequence = ByteBuffer.allocate(8);
+    Common.getRandom().nextBytes(sequence.array());
+    nextSequence_ = sequence.getLong();
+  }
+
+  /**
+   * Get the MTU given to the constructor.
+   * @return The MTU.
+   */
+  public final int
+  getMtu() { return mtu_; }
+
+  /**
+   * Split the packet into fragments which are each at most getMtu() bytes. If
+   * the packet already fits in the MTU, return it as is without an LpPacket.
+   * @param packet The network layer packet to fragment. This reads from
+   * position() to limit(), but does not change the position. The returned
+   * fragments copy from the packet.
+   * @return A new list of the encoded packets to send, in order.
+   */
+  public final ArrayList<Blob>
+  fragment(ByteBuffer packet)
+  {
+    ArrayList<Blob> result = new ArrayList<Blob>();
+    if (packet.remaining() <= mtu_) {
+      result.add(new Blob(packet, false));
+      return result;
+    }
+
+    int maxFragmentSize = mtu_ - MAX_FRAGMENT_OVERHEAD;
+    int fragCount = (packet.remaining() + maxFragmentSize - 1) / maxFragmentSize;
+    if (fragCount > MAX_FRAG_COUNT)
+      throw new Error("LpFragmenter: The packet needs too many fragments");
+
+    WireFormat wireFormat = TlvWireFormat.get();
+    LpPacket lpPacket = new LpPacket();
+    for (int i = 0; i < fragCount; ++i) {
+      ByteBuffer fragment = packet.duplicate();
+      fragment.position(packet.position() + i * maxFragmentSize);
+      fragment.limit
+        (Math.min(packet.limit(), fragment.position() + maxFragmentSize));
+
+      lpPacket.setSequence(nextSequence_++);
+      lpPacket.setFragIndex(i);
+      lpPacket.setFragCount(fragCount);
+      lpPacket.setFragmentWireEncoding(new Blob(fragment, false));
+      result.add(wireFormat.encodeLpPacket(lpPacket));
+    }
+
+    return result;
+  }
+
+  /**
+   * The maximum number of bytes that the LpPacket encoding adds to a fragment:
+   * the LpPacket type and length (4), Sequence (10), FragIndex (4), FragCount
+   * (4), and the Fragment type and length (4).
+   */
+  public static final int MAX_FRAGMENT_OVERHEAD = 26;
+
+  /**
+   * The maximum FragCount, so that FragIndex and FragCount are each encoded in
+   * at most 2 bytes.
+   */
+  public static final int MAX_FRAG_COUNT = 0xffff;
+
+  private final int mtu_;
+  private long nextSequence_;
+}
@@ -54,13 +54,50 @@ public class LpPacket {
   getHeaderField(int index) { return headerFields_.get(index); }
 
   /**
-   * Remove all header fields and set the fragment to an isNull Blob.
+   * Check if the Sequence field is specified.
+   * @return True if the Sequence field is specified.
+   */
+  public boolean
+  hasSequence() { return hasSequence_; }
+
+  /**
+   * Get the Sequence field, which identifies the fragments of a network layer
+   * packet. The Sequence is an unsigned 64-bit value, so the long may be
+   * negative. Consecutive fragments of a packet have consecutive sequence
+   * numbers, with wraparound.
+   * @return The sequence number, which is only meaningful if hasSequence().
+   */
+  public long
+  getSequence() { return sequence_; }
+
+  /**
+   * Get the FragIndex field, which is the zero-based index of the fragment.
+   * @return The fragment index. If not specified, return 0.
+   */
+  public int
+  getFragIndex() { return fragIndex_; }
+
+  /**
+   * Get the FragCount field, which is the number of fragments of the network
+   * layer packet.
+   * @return The number of fragments. If not specified, return 1.
+   */
+  public int
+  getFragCount() { return fragCount_; }
+
+  /**
+   * Remove all header fields, clear the fragmentation fields and set the
+   * fragment to an isNull Blob.
    */
   public void
   clear()
   {
      headerFields_ = new ArrayList();
      fragmentWireEncoding_ = new Blob();
+     hasSequence_ = false;
+     sequence_ = 0;
+     fragIndex_ = 0;
+     fragCount_ = 1;
   }
 
   /**
@@ -75,6 +112,31 @@ public class LpPacket {
       (fragmentWireEncoding == null ? new Blob() : fragmentWireEncoding);
   }
 
+  /**
+   * Set the Sequence field, so that hasSequence() is true.
+   * @param sequence The unsigned 64-bit sequence number.
+   */
+  public void
+  setSequence(long sequence)
+  {
+    sequence_ = sequence;
+    hasSequence_ = true;
+  }
+
+  /**
+   * Set the FragIndex field.
+   * @param fragIndex The zero-based fragment index.
+   */
+  public void
+  setFragIndex(int fragIndex) { fragIndex_ = fragIndex; }
+
+  /**
+   * Set the FragCount field.
+   * @param fragCount The number of fragments.
+   */
+  public void
+  setFragCount(int fragCount) { fragCount_ = fragCount; }
+
   /**
    * Add a header field. To add the fragment, use setFragmentWireEncoding().
    * @param headerField The header field to add.
@@ -84,4 +146,8 @@ public class LpPacket {
 
   private ArrayList headerFields_ = new ArrayList();
   private Blob fragmentWireEncoding_ = new Blob();
+  private boolean hasSequence_ = false;
+  private long sequence_ = 0;
+  private int fragIndex_ = 0;
+  private int fragCount_ = 1;
 }
@@ -0,0 +1,209 @@
+/**
+ * Copyright (C) 2019 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.lp;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import net.named_data.jndn.util.Blob;
+import net.named_data.jndn.util.Common;
+
+/**
+ * An LpReassembler collects the NDNLPv2 fragments from an LpFragmenter and
+ * returns the network layer packet when all its fragments are received. The
+ * table of partially received packets is bounded. A partial packet is dropped
+ * if its fragments are not all received within the reassembly timeout, or if
+ * the table is full when a new packet begins. This is an internal class which
+ * the application normally would not use.
+ * http://redmine.named-data.net/projects/nfd/wiki/NDNLPv2
+ */
+public class LpReassembler {
+  /**
+   * Create an LpReassembler with the given limits.
+   * @param maxPartialPackets The maximum number of partially received packets.
+   * When a new packet begins and the table is full, drop the oldest.
+   * @param reassemblyTimeoutMilliseconds The time after receiving the first
+   * fragment of a packet when it is dropped if not complete.
+   * @param maxPacketSize The maximum size of a reassembled packet. If the
+   * fragments of a packet add up to more, then it is dropped.
+   */
+  public LpReassembler
+    (int maxPartialPackets, double reassemblyTimeoutMilliseconds,
+     int maxPacketSize)
+  {
+    maxPartialPackets_ = maxPartialPackets;
+    reassemblyTimeoutMilliseconds_ = reassemblyTimeoutMilliseconds;
+    maxPacketSize_ = maxPacketSize;
+  }
+
+  /**
+   * Create an LpReassembler which keeps at most 64 partial packets, with a
+   * reassembly timeout of 500 milliseconds, like NFD, and a maximum packet
+   * size of Common.MAX_NDN_PACKET_SIZE.
+   */
+  public LpReassembler()
+  {
+    this(64, 500.0, Common.MAX_NDN_PACKET_SIZE);
+  }
+
+  /**
+   * Process the received LpPacket. If it is not fragmented, return it as is.
+   * Otherwise save the fragment and, if this completes the packet, return an
+   * LpPacket with the reassembled fragment and the header fields of the first
+   * fragment. This copies the fragment, so the buffer of the given lpPacket
+   * may be reused after this returns.
+   * @param lpPacket The received LpPacket.
+   * @return The complete LpPacket, or null if the packet is not complete yet
+   * or the fragment was dropped.
+   */
+  public final LpPacket
+  receive(LpPacket lpPacket)
+  {
+    if (lpPacket.getFragCount() <= 1)
+      return lpPacket;
+
+    double now = Common.getNowMilliseconds();
+    removeExpired(now);
+
+    if (!lpPacket.hasSequence() ||
+        lpPacket.getFragIndex() < 0 ||
+        lpPacket.getFragIndex() >= lpPacket.getFragCount() ||
+        // Each fragment has at least one byte.
+        lpPacket.getFragCount() > maxPacketSize_ ||
+        lpPacket.getFragmentWireEncoding().isNull()) {
+      ++nDroppedFragments_;
+      return null;
+    }
+
+    // The fragments of a packet have consecutive sequence numbers, so the
+    // sequence of fragment 0 identifies the packet.
+    Long key = lpPacket.getSequence() - lpPacket.getFragIndex();
+    PartialPacket partialPacket = partialPackets_.get(key);
+    if (partialPacket == null) {
+      if (partialPackets_.size() >= maxPartialPackets_) {
+        // Drop the oldest partial packet.
+        Iterator<PartialPacket> oldest = partialPackets_.values().iterator();
+        nDroppedFragments_ += oldest.next().nReceived_;
+        oldest.remove();
+      }
+
+      partialPacket = new PartialPacket(lpPacket.getFragCount(), now);
+      partialPackets_.put(key, partialPacket);
+    }
+    else if (partialPacket.fragments_.length != lpPacket.getFragCount()) {
+      // The fragments don't agree, so drop the packet.
+      nDroppedFragments_ += partialPacket.nReceived_ + 1;
+      partialPackets_.remove(key);
+      return null;
+    }
+
+    int fragIndex = lpPacket.getFragIndex();
+    if (partialPacket.fragments_[fragIndex] != null) {
+      // A duplicate.
+      ++nDroppedFragments_;
+      return null;
+    }
+
+    Blob fragment = lpPacket.getFragmentWireEncoding();
+    partialPacket.size_ += fragment.size();
+    if (partialPacket.size_ > maxPacketSize_) {
+      nDroppedFragments_ += partialPacket.nReceived_ + 1;
+      partialPackets_.remove(key);
+      return null;
+    }
+    partialPacket.fragments_[fragIndex] = new Blob(fragment.buf(), true);
+    if (fragIndex == 0)
+      partialPacket.firstFragment_ = lpPacket;
+    ++partialPacket.nReceived_;
+
+    if (partialPacket.nReceived_ < partialPacket.fragments_.length)
+      return null;
+
+    partialPackets_.remove(key);
+    ByteBuffer packet = ByteBuffer.allocate(partialPacket.size_);
+    for (int i = 0; i < partialPacket.fragments_.length; ++i)
+      packet.put(partialPacket.fragments_[i].buf());
+    packet.flip();
+
+    LpPacket result = new LpPacket();
+    for (int i = 0; i < partialPacket.firstFragment_.countHeaderFields(); ++i)
+      result.addHeaderField(partialPacket.firstFragment_.getHeaderField(i));
+    result.setFragmentWireEncoding(new Blob(packet, false));
+    return result;
+  }
+
+  /**
+   * Get the number of partially received packets.
+   * @return The number of partial packets.
+   */
+  public final int
+  getPartialPacketCount() { return partialPackets_.size(); }
+
+  /**
+   * Get the number of fragments which were dropped because they were invalid
+   * or duplicate, or their packet timed out or was evicted.
+   * @return The number of dropped fragments.
+   */
+  public final long
+  getDroppedFragmentCount() { return nDroppedFragments_; }
+
+  /**
+   * Drop the partial packets whose reassembly timeout has passed. Since the
+   * map is in insertion order, stop at the first one which has not expired.
+   * @param now The current time in milliseconds.
+   */
+  private void
+  removeExpired(double now)
+  {
+    Iterator<PartialPacket> iterator = partialPackets_.values().iterator();
+    while (iterator.hasNext()) {
+      PartialPacket partialPacket = iterator.next();
+      if (now - partialPacket.createTime_ < reassemblyTimeoutMilliseconds_)
+        break;
+
+      nDroppedFragments_ += partialPacket.nReceived_;
+      iterator.remove();
+    }
+  }
+
+  /**
+   * A PartialPacket holds the fragments received so far for one packet.
+   */
+  private static class PartialPacket {
+    public PartialPacket(int fragCount, double createTime)
+    {
+      fragments_ = new Blob[fragCount];
+      createTime_ = createTime;
+    }
+
+    public final Blob[] fragments_;
+    public final double createTime_;
+    public LpPacket firstFragment_ = null;
+    public int nReceived_ = 0;
+    public int size_ = 0;
+  }
+
+  private final int maxPartialPackets_;
+  private final double reassemblyTimeoutMilliseconds_;
+  private final int maxPacketSize_;
+  private final LinkedHashMap<Long, PartialPacket> partialPackets_ =
+    new LinkedHashMap<Long, PartialPacket>();
+  private long nDroppedFragments_ = 0;
+}
@@ -34,9 +34,10 @@ import net.named_data.jndn.encoding.WireFormat;
 import net.named_data.jndn.encoding.der.DerDecodingException;
 import net.named_data.jndn.encoding.der.DerEncodingException;
 import net.named_data.jndn.encoding.der.DerNode;
-import net.named_data.jndn.encoding.der.DerNode.DerBoolean;
 import net.named_data.jndn.encoding.der.DerNode.DerGeneralizedTime;
 import net.named_data.jndn.encoding.der.DerNode.DerSequence;
+import net.named_data.jndn.encoding.der.DerNodeType;
+import net.named_data.jndn.encoding.der.DerReader;
 import net.named_data.jndn.security.UnrecognizedKeyFormatException;
 import net.named_data.jndn.util.Blob;
 import net.named_data.jndn.util.Common;
@@ -243,7 +244,9 @@ public class Certificate extends Data {
   private void
   decode() throws DerDecodingException
   {
-    DerNode parsedNode = DerNode.parse(getContent().buf());
+    // Read the fields without making a DerNode tree.
+    DerReader reader = new DerReader(getContent().buf());
+    int endOffset = reader.readSequenceStart();
 
     // We need to ensure that there are:
     //   validity (notBefore, notAfter)
@@ -251,25 +254,27 @@ public class Certificate extends Data {
     //   public key
     //   (optional) extension list
 
-    List rootChildren = parsedNode.getChildren();
     // 1st: validity info
-    List validityChildren = DerNode.getSequence(rootChildren, 0).getChildren();
-    notBefore_ = (Double)((DerGeneralizedTime)validityChildren.get(0)).toVal();
-    notAfter_ = (Double)((DerGeneralizedTime)validityChildren.get(1)).toVal();
+    int validityEndOffset = reader.readSequenceStart();
+    notBefore_ = reader.readGeneralizedTime();
+    notAfter_ = reader.readGeneralizedTime();
+    reader.finishSequence(validityEndOffset);
 
     // 2nd: subjectList
-    List subjectChildren = DerNode.getSequence(rootChildren, 1).getChildren();
-    for (int i = 0; i < subjectChildren.size(); ++i) {
-      DerSequence sd = DerNode.getSequence(subjectChildren, i);
-      List descriptionChildren = sd.getChildren();
-      String oidStr = (String)((DerNode)descriptionChildren.get(0)).toVal();
-      String value = "" + ((Blob)((DerNode)descriptionChildren.get(1)).toVal());
+    int subjectEndOffset = reader.readSequenceStart();
+    while (reader.getOffset() < subjectEndOffset) {
+      int descriptionEndOffset = reader.readSequenceStart();
+      String oidStr = reader.readOid();
+      String value = "" + new Blob
+        (reader.readPayload(DerNodeType.PrintableString), false);
+      reader.finishSequence(descriptionEndOffset);
 
       addSubjectDescription(new CertificateSubjectDescription(oidStr, value));
     }
+    reader.finishSequence(subjectEndOffset);
 
-    // 3rd: public key
-    Blob publicKeyInfo = ((DerNode)rootChildren.get(2)).encode();
+    // 3rd: public key. The Blob shares the content, which is immutable.
+    Blob publicKeyInfo = new Blob(reader.readElement(), false);
     try {
       key_ = new PublicKey(publicKeyInfo);
     }
@@ -277,18 +282,22 @@ public class Certificate extends Data {
       throw new DerDecodingException(ex.getMessage());
     }
 
-    if (rootChildren.size() > 3) {
-      List extensionChildren = DerNode.getSequence(rootChildren, 3).getChildren();
-      for (int i = 0; i < extensionChildren.size(); ++i) {
-        DerSequence extInfo = DerNode.getSequence(extensionChildren, i);
+    if (reader.getOffset() < endOffset) {
+      int extensionEndOffset = reader.readSequenceStart();
+      while (reader.getOffset() < extensionEndOffset) {
+        int extInfoEndOffset = reader.readSequenceStart();
+        String oidStr = reader.readOid();
+        boolean isCritical = reader.readBoolean();
+        Blob value = new Blob
+          (reader.readPayload(DerNodeType.OctetString), false);
+        reader.finishSequence(extInfoEndOffset);
 
-        List children = extInfo.getChildren();
-        String oidStr = (String)((DerNode)children.get(0)).toVal();
-        boolean isCritical = (Boolean)((DerBoolean)children.get(1)).toVal();
-        Blob value = (Blob)((DerNode)children.get(2)).toVal();
         addExtension(new CertificateExtension(oidStr, isCritical, value));
       }
+      reader.finishSequence(extensionEndOffset);
     }
+
+    reader.finishSequence(endOffset);
   }
 
   public String
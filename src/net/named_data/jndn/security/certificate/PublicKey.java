@@ -25,7 +25,6 @@ import java.security.KeyFactory;
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.X509EncodedKeySpec;
-import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.crypto.BadPaddingException;
@@ -34,6 +33,7 @@ import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
 import net.named_data.jndn.encoding.der.DerDecodingException;
 import net.named_data.jndn.encoding.der.DerNode;
+import net.named_data.jndn.encoding.der.DerReader;
 import net.named_data.jndn.encrypt.algo.EncryptAlgorithmType;
 import net.named_data.jndn.security.DigestAlgorithm;
 import net.named_data.jndn.security.KeyType;
@@ -70,11 +70,11 @@ public class PublicKey {
     // Get the public key OID.
     String oidString = null;
     try {
-      DerNode parsedNode = DerNode.parse(keyDer.buf(), 0);
-      List rootChildren = parsedNode.getChildren();
-      List algorithmIdChildren =
-        DerNode.getSequence(rootChildren, 0).getChildren();
-      oidString = "" + ((DerNode)algorithmIdChildren.get(0)).toVal();
+      // Read the OID in the AlgorithmIdentifier without decoding the key.
+      DerReader reader = new DerReader(keyDer.buf());
+      reader.readSequenceStart();
+      reader.readSequenceStart();
+      oidString = reader.readOid();
     }
     catch (DerDecodingException ex) {
       throw new UnrecognizedKeyFormatException
@@ -37,12 +37,11 @@ import java.security.SignatureException;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.util.HashMap;
-import java.util.List;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 import net.named_data.jndn.Name;
 import net.named_data.jndn.encoding.der.DerDecodingException;
-import net.named_data.jndn.encoding.der.DerNode;
+import net.named_data.jndn.encoding.der.DerReader;
 import net.named_data.jndn.security.DigestAlgorithm;
 import net.named_data.jndn.security.EcKeyParams;
 import net.named_data.jndn.security.KeyClass;
@@ -208,10 +207,12 @@ public class FilePrivateKeyStorage extends PrivateKeyStorage {
     // Decode the PKCS #8 DER to find the algorithm OID.
     String oidString = null;
     try {
-      DerNode parsedNode = DerNode.parse(ByteBuffer.wrap(der), 0);
-      List pkcs8Children = parsedNode.getChildren();
-      List algorithmIdChildren = DerNode.getSequence(pkcs8Children, 1).getChildren();
-      oidString = "" + ((DerNode.DerOid)algorithmIdChildren.get(0)).toVal();
+      // Skip the version and read the OID in the AlgorithmIdentifier.
+      DerReader reader = new DerReader(ByteBuffer.wrap(der));
+      reader.readSequenceStart();
+      reader.skip();
+      reader.readSequenceStart();
+      oidString = reader.readOid();
     }
     catch (DerDecodingException ex) {
       throw new SecurityException("Cannot decode the PKCS #8 private key: " + ex);
@@ -40,6 +40,8 @@ import net.named_data.jndn.encoding.der.DerDecodingException;
 import net.named_data.jndn.encoding.der.DerEncodingException;
 import net.named_data.jndn.encoding.der.DerNode;
 import net.named_data.jndn.encoding.der.DerNode.DerSequence;
+import net.named_data.jndn.encoding.der.DerNodeType;
+import net.named_data.jndn.encoding.der.DerReader;
 import net.named_data.jndn.encrypt.algo.EncryptAlgorithmType;
 import net.named_data.jndn.security.DigestAlgorithm;
 import net.named_data.jndn.security.EcKeyParams;
@@ -87,21 +89,23 @@ public class TpmPrivateKey {
     if (keyType == null) {
       // Try to determine the key type.
       try {
-        DerNode parsedNode = DerNode.parse(encoding);
-        List children = parsedNode.getChildren();
-
-        // An RsaPrivateKey has integer version 0 and 8 integers.
-        if (children.size() == 9 &&
-            children.get(0) instanceof DerNode.DerInteger &&
-            ((int)((DerNode.DerInteger)children.get(0)).toVal()) == 0 &&
-            children.get(1) instanceof DerNode.DerInteger &&
-            children.get(2) instanceof DerNode.DerInteger &&
-            children.get(3) instanceof DerNode.DerInteger &&
-            children.get(4) instanceof DerNode.DerInteger &&
-            children.get(5) instanceof DerNode.DerInteger &&
-            children.get(6) instanceof DerNode.DerInteger &&
-            children.get(7) instanceof DerNode.DerInteger &&
-            children.get(8) instanceof DerNode.DerInteger)
+        DerReader reader = new DerReader(encoding);
+        int endOffset = reader.readSequenceStart();
+
+        // An RsaPrivateKey has integer version 0 and 8 integers. Skip the
+        // integers without decoding them.
+        boolean isRsa = false;
+        if (reader.peekType(DerNodeType.Integer, endOffset) &&
+            reader.readInteger() == 0) {
+          int nIntegers = 1;
+          while (reader.peekType(DerNodeType.Integer, endOffset)) {
+            reader.skip();
+            ++nIntegers;
+          }
+          isRsa = (nIntegers == 9 && reader.getOffset() == endOffset);
+        }
+
+        if (isRsa)
           keyType = KeyType.RSA;
         else
           // Assume it is an EC key. Try decoding it below.
@@ -155,11 +159,12 @@ public class TpmPrivateKey {
       // Decode the PKCS #8 DER to find the algorithm OID.
       String oidString = null;
       try {
-        DerNode parsedNode = DerNode.parse(encoding, 0);
-        List pkcs8Children = parsedNode.getChildren();
-        List algorithmIdChildren = DerNode.getSequence
-          (pkcs8Children, 1).getChildren();
-        oidString = "" + ((DerNode.DerOid)algorithmIdChildren.get(0)).toVal();
+        // Skip the version and read the OID in the AlgorithmIdentifier.
+        DerReader reader = new DerReader(encoding);
+        reader.readSequenceStart();
+        reader.skip();
+        reader.readSequenceStart();
+        oidString = reader.readOid();
       }
       catch (DerDecodingException ex) {
         throw new TpmPrivateKey.Error
@@ -387,16 +392,19 @@ public class TpmPrivateKey {
     else if (keyType_ == KeyType.RSA) {
       // Decode the PKCS #1 RSAPrivateKey. (We don't use RSAPrivateCrtKey because
       // the Android library doesn't have an easy way to decode into it.)
-      List rsaPrivateKeyChildren;
+      Blob modulus;
+      Blob publicExponent;
       try {
-        DerNode parsedNode = DerNode.parse(toPkcs1().buf(), 0);
-        rsaPrivateKeyChildren = parsedNode.getChildren();
+        // Skip the version and read the modulus and public exponent.
+        DerReader reader = new DerReader(toPkcs1().buf());
+        reader.readSequenceStart();
+        reader.skip();
+        modulus = new Blob(reader.readPayload(DerNodeType.Integer), false);
+        publicExponent = new Blob(reader.readPayload(DerNodeType.Integer), false);
       } catch (DerDecodingException ex) {
         throw new TpmPrivateKey.Error
           ("Error parsing RSA PKCS #1 key: " + ex);
       }
-      Blob modulus = ((DerNode)rsaPrivateKeyChildren.get(1)).getPayload();
-      Blob publicExponent = ((DerNode)rsaPrivateKeyChildren.get(2)).getPayload();
 
       try {
         java.security.PublicKey publicKey =
@@ -527,12 +535,15 @@ public class TpmPrivateKey {
     if (keyType_ == null)
       throw new TpmPrivateKey.Error("toPkcs1: The private key is not loaded");
 
-    // Decode the PKCS #8 private key.
-    DerNode parsedNode;
+    // Read the privateKey OCTET STRING in the PKCS #8 private key after the
+    // version and AlgorithmIdentifier. toPkcs8() returns a new encoding, so
+    // return a slice of it without copying.
     try {
-      parsedNode = DerNode.parse(toPkcs8().buf(), 0);
-      List pkcs8Children = parsedNode.getChildren();
-      return ((DerNode)pkcs8Children.get(2)).getPayload();
+      DerReader reader = new DerReader(toPkcs8().buf());
+      reader.readSequenceStart();
+      reader.skip();
+      reader.skip();
+      return new Blob(reader.readPayload(DerNodeType.OctetString), false);
     } catch (DerDecodingException ex) {
       throw new TpmPrivateKey.Error("Error decoding PKCS #8 private key: " + ex);
     }
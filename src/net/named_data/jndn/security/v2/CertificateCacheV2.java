@@ -59,7 +59,8 @@ public class CertificateCacheV2 {
    * Insert the certificate into the cache. The inserted certificate will be
    * removed no later than its NotAfter time, or maxLifetimeMilliseconds given
    * to the constructor.
-   * @param certificate The certificate object, which is copied.
+   * @param certificate The certificate object, which is copied unless it is
+   * frozen. A frozen certificate is shared since it can't be changed.
    */
   public final void
   insert(CertificateV2 certificate) throws CertificateV2.Error
@@ -83,7 +84,8 @@ public class CertificateCacheV2 {
     double removalHours = (removalTime - now) / (3600 * 1000.0);
     logger_.log(Level.FINE, "Adding {0}, will remove in {1} hours",
       new Object[] {certificate.getName().toUri(), removalHours});
-    CertificateV2 certificateCopy = new CertificateV2(certificate);
+    CertificateV2 certificateCopy = certificate.isFrozen() ?
+      certificate : new CertificateV2(certificate);
     certificatesByName_.put
       (certificateCopy.getName(), new Entry(certificateCopy, removalTime));
   }
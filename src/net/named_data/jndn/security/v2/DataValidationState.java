@@ -35,7 +35,8 @@ public class DataValidationState extends ValidationState {
    * The caller must ensure that the state instance is valid until the validation
    * finishes (i.e., until validateCertificateChain() and
    * validateOriginalPacket() have been called).
-   * @param data The Data packet being validated, which is copied.
+   * @param data The Data packet being validated, which is copied unless it is
+   * frozen.
    * @param successCallback This calls successCallback.successCallback(data) to
    * report a successful Data validation.
    * @param failureCallback This calls failureCallback.failureCallback(data, error)
@@ -45,8 +46,8 @@ public class DataValidationState extends ValidationState {
     (Data data, DataValidationSuccessCallback successCallback,
      DataValidationFailureCallback failureCallback)
   {
-    // Make a copy.
-    data_ = new Data(data);
+    // Make a copy. A frozen Data can't be changed, so share it.
+    data_ = data.isFrozen() ? data : new Data(data);
     successCallback_ = successCallback;
     failureCallback_ = failureCallback;
 
@@ -36,7 +36,8 @@ public class InterestValidationState extends ValidationState {
    * The caller must ensure that the state instance is valid until the validation
    * finishes (i.e., until validateCertificateChain() and
    * validateOriginalPacket() have been called).
-   * @param interest The Interest packet being validated, which is copied.
+   * @param interest The Interest packet being validated, which is copied unless
+   * it is frozen.
    * @param successCallback This calls successCallback.successCallback(interest)
    * to report a successful Interest validation.
    * @param failureCallback This calls
@@ -47,8 +48,8 @@ public class InterestValidationState extends ValidationState {
     (Interest interest, InterestValidationSuccessCallback successCallback,
      InterestValidationFailureCallback failureCallback)
   {
-    // Make a copy.
-    interest_ = new Interest(interest);
+    // Make a copy. A frozen Interest can't be changed, so share it.
+    interest_ = interest.isFrozen() ? interest : new Interest(interest);
     successCallbacks_.add(successCallback);
     failureCallback_ = failureCallback;
 
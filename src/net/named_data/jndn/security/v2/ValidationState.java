@@ -108,12 +108,14 @@ public abstract class ValidationState {
    * signer of the original packet. If the certificate chain is not empty, then
    * the certificate should be the signer of the front of the certificate chain.
    * @note This function does not verify the signature bits.
-   * @param certificate The certificate to add, which is copied.
+   * @param certificate The certificate to add, which is copied unless it is
+   * frozen.
    */
   public final void
   addCertificate(CertificateV2 certificate) throws CertificateV2.Error
   {
-    certificateChain_.add(0, new CertificateV2(certificate));
+    certificateChain_.add
+      (0, certificate.isFrozen() ? certificate : new CertificateV2(certificate));
   }
 
   /**
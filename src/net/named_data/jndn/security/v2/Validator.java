@@ -134,7 +134,7 @@ public class Validator extends CertificateStorage {
   {
     DataValidationState state =
       new DataValidationState(data, successCallback, failureCallback);
-    logger_.log(Level.FINE, "Start validating data {0}", data.getName().toUri());
+    logger_.log(Level.FINE, "Start validating data {0}", data.getName());
 
     policy_.checkPolicy
       (data, state, new ValidationPolicy.ValidationContinuation() {
@@ -89,7 +89,7 @@ public class ConfigRule {
   match(boolean isForInterest, Name packetName)
     throws ValidatorConfigError
   {
-    logger_.log(Level.FINE, "Trying to match {0}", packetName.toUri());
+    logger_.log(Level.FINE, "Trying to match {0}", packetName);
 
     if (isForInterest != isForInterest_)
       throw new ValidatorConfigError
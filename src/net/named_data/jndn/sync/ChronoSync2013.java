@@ -140,7 +140,7 @@ public class ChronoSync2013 implements OnInterestCallback, OnData, OnTimeout {
     interest.setInterestLifetimeMilliseconds(1000);
     face.expressInterest(interest, this, this.new InitialTimeout());
     logger_.log(Level.FINE, "initial sync expressed");
-    logger_.log(Level.FINE, interest.getName().toUri());
+    logger_.log(Level.FINE, "{0}", interest.getName());
   }
 
   /**
@@ -463,7 +463,7 @@ public class ChronoSync2013 implements OnInterestCallback, OnData, OnTimeout {
 
     // Search if the digest already exists in the digest log.
     logger_.log(Level.FINE, "Sync Interest received in callback.");
-    logger_.log(Level.FINE, interest.getName().toUri());
+    logger_.log(Level.FINE, "{0}", interest.getName());
 
     String syncDigest = interest.getName().get
       (applicationBroadcastPrefix_.size()).toEscapedString();
@@ -519,7 +519,7 @@ public class ChronoSync2013 implements OnInterestCallback, OnData, OnTimeout {
       return;
 
     logger_.log(Level.FINE, "Sync ContentObject received in callback");
-    logger_.log(Level.FINE, "name: {0}", data.getName().toUri());
+    logger_.log(Level.FINE, "name: {0}", data.getName());
     SyncStateProto.SyncStateMsg tempContent;
     try {
       tempContent = SyncStateProto.SyncStateMsg.parseFrom(data.getContent().getImmutableArray());
@@ -586,7 +586,7 @@ public class ChronoSync2013 implements OnInterestCallback, OnData, OnTimeout {
       return;
     }
     logger_.log(Level.FINE, "Syncinterest expressed:");
-    logger_.log(Level.FINE, name.toUri());
+    logger_.log(Level.FINE, "{0}", name);
   }
 
   // Initial sync interest timeout, which means there are no other publishers yet.
@@ -634,7 +634,7 @@ public class ChronoSync2013 implements OnInterestCallback, OnData, OnTimeout {
         return;
       }
       logger_.log(Level.FINE, "Syncinterest expressed:");
-      logger_.log(Level.FINE, name.toUri());
+      logger_.log(Level.FINE, "{0}", name);
     }
   }
 
@@ -675,7 +675,7 @@ public class ChronoSync2013 implements OnInterestCallback, OnData, OnTimeout {
           return;
         }
         logger_.log(Level.FINE, "send recovery data back");
-        logger_.log(Level.FINE, interest.getName().toUri());
+        logger_.log(Level.FINE, "{0}", interest.getName());
       }
     }
   }
@@ -750,7 +750,7 @@ public class ChronoSync2013 implements OnInterestCallback, OnData, OnTimeout {
 
       sent = true;
       logger_.log(Level.FINE, "Sync Data send");
-      logger_.log(Level.FINE, name.toUri());
+      logger_.log(Level.FINE, "{0}", name);
     }
 
     return sent;
@@ -767,7 +767,7 @@ public class ChronoSync2013 implements OnInterestCallback, OnData, OnTimeout {
     interest.setInterestLifetimeMilliseconds(syncLifetime_);
     face_.expressInterest(interest, this, this);
     logger_.log(Level.FINE, "Recovery Syncinterest expressed:");
-    logger_.log(Level.FINE, name.toUri());
+    logger_.log(Level.FINE, "{0}", name);
   }
 
   // This is called by onInterest after a timeout to check if a recovery is needed.
@@ -823,7 +823,7 @@ public class ChronoSync2013 implements OnInterestCallback, OnData, OnTimeout {
       return;
 
     logger_.log(Level.FINE, "Sync Interest time out.");
-    logger_.log(Level.FINE, "Sync Interest name: {0}", interest.getName().toUri());
+    logger_.log(Level.FINE, "Sync Interest name: {0}", interest.getName());
     String component = interest.getName().get
       (applicationBroadcastPrefix_.size()).toEscapedString();
     if (component.equals(digestTree_.getRoot())) {
@@ -837,7 +837,7 @@ public class ChronoSync2013 implements OnInterestCallback, OnData, OnTimeout {
         return;
       }
       logger_.log(Level.FINE, "Syncinterest expressed:");
-      logger_.log(Level.FINE, name.toUri());
+      logger_.log(Level.FINE, "{0}", name);
     }
   }
 
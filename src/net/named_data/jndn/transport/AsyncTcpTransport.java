@@ -28,9 +28,12 @@ import java.nio.ByteBuffer;
 import java.nio.channels.AsynchronousChannelGroup;
 import java.nio.channels.AsynchronousSocketChannel;
 import java.nio.channels.CompletionHandler;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import net.named_data.jndn.encoding.ElementListener;
@@ -66,9 +69,30 @@ import net.named_data.jndn.util.Common;
  * to express interests
  * 6. start nfd again
  * 7. client will be able to express interests again normally
+ *
+ * Sending does not block. send() adds the data to a lock-free queue, and the
+ * write CompletionHandler drains the queue with gathering writes so that only
+ * one write is in flight. If the queued bytes reach the high-water mark, the
+ * OnBackPressure callback is called so that the application can stop sending
+ * until it is called again when the queue drains to half the high-water mark.
  */
 public class AsyncTcpTransport extends Transport
 {
+  /**
+   * An OnBackPressure callback is called when the send queue reaches or drains
+   * below the high-water mark.
+   */
+  public interface OnBackPressure {
+    /**
+     * This is called on the thread of send() or the thread pool when the
+     * back-pressure state changes.
+     * @param isBackPressured True if the queued bytes reached the high-water
+     * mark and the application should stop sending, or false if the queue
+     * drained to half the high-water mark and the application can resume.
+     */
+    void onBackPressure(boolean isBackPressured);
+  }
+
   public AsyncTcpTransport(ScheduledExecutorService threadPool) {
     threadPool_ = threadPool;
 
@@ -90,6 +114,9 @@ public class AsyncTcpTransport extends Transport
       }
 
       public void failed(Throwable ex, Void attachment) {
+        if (isClosed_)
+          // close() closed the channel, so the read is expected to fail.
+          return;
         logger_.log(Level.SEVERE, "Failed to read from transport", ex);
         if(connectionInfo_.shouldAttemptReconnection() && acquireReconnectLock()) {
           scheduleReconnect();
@@ -97,25 +124,53 @@ public class AsyncTcpTransport extends Transport
       }
     };
 
-    // This is the CompletionHandler for send().
-    writeCompletionHandler_ = new CompletionHandler<Integer, ByteBuffer>() {
-      public void completed(Integer bytesRead, ByteBuffer data) {
+    // This is the CompletionHandler for the gathering writes of startWrite().
+    writeCompletionHandler_ = new CompletionHandler<Long, ByteBuffer[]>() {
+      public void completed(Long bytesWritten, ByteBuffer[] buffers) {
         // Need to catch and log exceptions at this async entry point.
         try {
-          if (data.hasRemaining()) {
-            channel_.write(data, data, writeCompletionHandler_);
-          } else {
-            writeLock_.release();
+          onBytesSent(bytesWritten);
+
+          int offset = 0;
+          while (offset < buffers.length && !buffers[offset].hasRemaining())
+            ++offset;
+          if (offset < buffers.length) {
+            // Write the rest of this batch.
+            channel_.write
+              (buffers, offset, buffers.length - offset, 0,
+               TimeUnit.MILLISECONDS, buffers, writeCompletionHandler_);
+            return;
           }
+
+          writing_.set(false);
+          // Write the data queued while this batch was in flight.
+          startWrite();
         } catch (Throwable ex) {
-          logger_.log(Level.SEVERE, null, ex);
+          failed(ex, buffers);
         }
       }
 
-      public void failed(Throwable ex, ByteBuffer data) {
-        logger_.log(Level.SEVERE, "Failed to write to transport", ex);
-        writeLock_.release();
-        if(connectionInfo_.shouldAttemptReconnection() && acquireReconnectLock()) {
+      public void failed(Throwable ex, ByteBuffer[] buffers) {
+        if (!isClosed_)
+          logger_.log(Level.SEVERE, "Failed to write to transport", ex);
+        // Drop the unsent data since the connection is broken. Only subtract
+        // the bytes actually removed, since send() may be adding to the queue
+        // at the same time.
+        long nDroppedBytes = 0;
+        if (buffers != null) {
+          for (int i = 0; i < buffers.length; ++i)
+            nDroppedBytes += buffers[i].remaining();
+        }
+        while (true) {
+          ByteBuffer buffer = sendQueue_.poll();
+          if (buffer == null)
+            break;
+          nDroppedBytes += buffer.remaining();
+        }
+        onBytesSent(nDroppedBytes);
+        writing_.set(false);
+        if(!isClosed_ && connectionInfo_.shouldAttemptReconnection() &&
+           acquireReconnectLock()) {
           scheduleReconnect();
         }
       }
@@ -244,6 +299,7 @@ public class AsyncTcpTransport extends Transport
 
     channelGroup_ = AsynchronousChannelGroup.withThreadPool(threadPool_);
     channel_ = AsynchronousSocketChannel.open(channelGroup_);
+    isClosed_ = false;
 
     //store other info for reconnect
     this.connectionInfo_ = (ConnectionInfo) connectionInfo;
@@ -382,30 +438,123 @@ public class AsyncTcpTransport extends Transport
     // the buffer during send, so that we can avoid a costly copy operation.
     data = data.duplicate();
 
-    // The completion handler will call write again if needed, or will notify
-    // to release the wait when finished writing.
-    try {
-      sendDataSequentially(data);
-    } catch (InterruptedException e) {
-      throw new IOException(e);
+    long queuedSendBytes = queuedSendBytes_.addAndGet(data.remaining());
+    sendQueue_.add(data);
+    if (queuedSendBytes >= highWaterMark_ && isBackPressured_.compareAndSet(false, true)) {
+      OnBackPressure onBackPressure = onBackPressure_;
+      if (onBackPressure != null)
+        onBackPressure.onBackPressure(true);
     }
+
+    startWrite();
   }
 
   /**
-   * Send data buffers one-by-one; this is necessary because async IO writes
-   * cannot overlap without a WritePendingException (see
+   * If no write is in flight, drain the send queue and start a gathering
+   * write. Async IO writes cannot overlap without a WritePendingException (see
    * https://docs.oracle.com/javase/7/docs/api/java/nio/channels/AsynchronousSocketChannel.html#write(java.nio.ByteBuffer))
-   * @param data the buffer to send
-   * @throws InterruptedException if an external agent interrupts the thread; usually this means that someone is trying
-   * to close the
-   * @throws IOException if the channel write fails
+   * so the writing_ flag allows only one writer, and the write completion
+   * handler calls this again to send the data queued in the meantime.
    */
-  private void sendDataSequentially(ByteBuffer data) throws InterruptedException, IOException {
-    if (!writeLock_.tryAcquire(DEFAULT_LOCK_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
-      throw new IOException("Failed to acquire lock on channel to write buffer");
+  private void startWrite() {
+    if (sendQueue_.isEmpty() || !writing_.compareAndSet(false, true))
+      return;
+
+    ByteBuffer[] buffers = new ByteBuffer[MAX_GATHERED_BUFFERS];
+    int nBuffers = 0;
+    while (nBuffers < buffers.length) {
+      ByteBuffer buffer = sendQueue_.poll();
+      if (buffer == null)
+        break;
+      buffers[nBuffers++] = buffer;
+    }
+    if (nBuffers == 0) {
+      // The previous writer already drained the queue. Another thread may have
+      // added data and failed the compareAndSet before we release writing_,
+      // so check again to not strand its data.
+      writing_.set(false);
+      if (!sendQueue_.isEmpty())
+        startWrite();
+      return;
+    }
+    if (nBuffers < buffers.length) {
+      ByteBuffer[] trimmed = new ByteBuffer[nBuffers];
+      System.arraycopy(buffers, 0, trimmed, 0, nBuffers);
+      buffers = trimmed;
+    }
+
+    try {
+      channel_.write
+        (buffers, 0, buffers.length, 0, TimeUnit.MILLISECONDS, buffers,
+         writeCompletionHandler_);
+    } catch (RuntimeException ex) {
+      writeCompletionHandler_.failed(ex, buffers);
     }
+  }
+
+  /**
+   * Update the queued byte count after bytes are sent or dropped, and call
+   * the OnBackPressure callback if the queue drained to half the high-water
+   * mark.
+   * @param nBytes The number of bytes which are no longer queued.
+   */
+  private void onBytesSent(long nBytes) {
+    long queuedSendBytes = queuedSendBytes_.addAndGet(-nBytes);
+    if (queuedSendBytes <= highWaterMark_ / 2 && isBackPressured_.compareAndSet(true, false)) {
+      OnBackPressure onBackPressure = onBackPressure_;
+      if (onBackPressure != null)
+        onBackPressure.onBackPressure(false);
+    }
+  }
 
-    channel_.write(data, data, writeCompletionHandler_);
+  /**
+   * Set the callback which is called when the queued bytes reach the
+   * high-water mark and when they drain to half of it.
+   * @param onBackPressure The OnBackPressure callback, or null for none.
+   */
+  public final void
+  setOnBackPressure(OnBackPressure onBackPressure) {
+    onBackPressure_ = onBackPressure;
+  }
+
+  /**
+   * Get the number of queued bytes at which the transport signals
+   * back-pressure.
+   * @return The high-water mark in bytes.
+   */
+  public final long
+  getHighWaterMark() {
+    return highWaterMark_;
+  }
+
+  /**
+   * Set the number of queued bytes at which the transport signals
+   * back-pressure. send() still queues data above the high-water mark, so the
+   * application must stop sending when it gets the OnBackPressure callback.
+   * @param highWaterMark The high-water mark in bytes.
+   */
+  public final void
+  setHighWaterMark(long highWaterMark) {
+    highWaterMark_ = highWaterMark;
+  }
+
+  /**
+   * Get the number of bytes which are queued or being written.
+   * @return The number of queued bytes.
+   */
+  public final long
+  getQueuedSendBytes() {
+    return queuedSendBytes_.get();
+  }
+
+  /**
+   * Check if the queued bytes reached the high-water mark and have not yet
+   * drained to half of it.
+   * @return True if the application should stop sending.
+   */
+  public final boolean
+  getIsBackPressured() {
+    return isBackPressured_.get();
   }
 
   /**
@@ -415,6 +564,19 @@ public class AsyncTcpTransport extends Transport
   processEvents() throws IOException, EncodingException {
   }
 
+  /**
+   * Close the connection. Call this before shutting down the thread pool so
+   * that the pending read completes with the channel closed. This does not
+   * attempt to reconnect.
+   * @throws IOException For I/O error.
+   */
+  public void
+  close() throws IOException {
+    isClosed_ = true;
+    if (channel_ != null)
+      channel_.close();
+  }
+
   /**
    * Check if the transport is connected.
    * @return True if connected.
@@ -426,20 +588,34 @@ public class AsyncTcpTransport extends Transport
 
   private AsynchronousSocketChannel channel_;
   private final CompletionHandler<Integer, Void> readCompletionHandler_;
-  private final CompletionHandler<Integer, ByteBuffer> writeCompletionHandler_;
+  private final CompletionHandler<Long, ByteBuffer[]> writeCompletionHandler_;
   private final ScheduledExecutorService threadPool_;
   private ByteBuffer inputBuffer_ = ByteBuffer.allocate(Common.MAX_NDN_PACKET_SIZE);
   private ElementReader elementReader_;
   private ConnectionInfo connectionInfo_;
   private boolean isLocal_;
   private final Object isLocalLock_ = new Object();
-  private final Semaphore writeLock_ = new Semaphore(1);
+  private final ConcurrentLinkedQueue<ByteBuffer> sendQueue_ =
+    new ConcurrentLinkedQueue<ByteBuffer>();
+  // True while a write is in flight, so that only one thread drains sendQueue_.
+  private final AtomicBoolean writing_ = new AtomicBoolean(false);
+  private final AtomicLong queuedSendBytes_ = new AtomicLong(0);
+  private final AtomicBoolean isBackPressured_ = new AtomicBoolean(false);
+  private volatile long highWaterMark_ = DEFAULT_HIGH_WATER_MARK;
+  private volatile OnBackPressure onBackPressure_ = null;
+  private static final int MAX_GATHERED_BUFFERS = 64;
   private static final Logger logger_ = Logger.getLogger
       (AsyncTcpTransport.class.getName());
+  /**
+   * @deprecated send() no longer waits for a lock. This is not used.
+   */
   public static final int DEFAULT_LOCK_TIMEOUT_MS = 10000;
+  public static final long DEFAULT_HIGH_WATER_MARK = 1024 * 1024;
   public static final int DEFAULT_RECONNECT_TRY_DELAY_MS = 5000;
   private AsynchronousChannelGroup channelGroup_;
   private ElementListener elementListener_;
   private Runnable onConnected_;
   private final Semaphore reconnectLock_ = new Semaphore(1);
+  // Set true by close() so that the failed read is not logged as an error.
+  private volatile boolean isClosed_ = false;
 }
\ No newline at end of file
@@ -0,0 +1,335 @@
+/**
+ * Copyright (C) 2019 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.transport;
+
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.MembershipKey;
+import java.nio.channels.SelectableChannel;
+import java.util.Enumeration;
+import net.named_data.jndn.encoding.ElementListener;
+import net.named_data.jndn.encoding.ElementReader;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.lp.LpReassembler;
+import net.named_data.jndn.util.Common;
+
+/**
+ * MulticastUdpTransport extends the Transport interface to communicate with
+ * the other members of a UDP multicast group on one network interface, without
+ * a forwarder. Like NFD, this uses one channel which joins the group to
+ * receive, and a separate channel with its own port to send. A datagram which
+ * this transport sent and which is looped back by the host is recognized by
+ * its source address and dropped, so that the Face does not receive its own
+ * packets, but other members on the same host still receive them. Like
+ * UdpTransport, received NDNLPv2 fragments are always reassembled before
+ * passing the packet to the ElementListener, since a forwarder on the group
+ * fragments a packet which is larger than the interface MTU.
+ * The Face joins the group when it first sends a packet, for example with
+ * expressInterest, or when the application calls setInterestFilter so that a
+ * producer receives Interests without sending first.
+ */
+public class MulticastUdpTransport extends Transport {
+  /**
+   * A MulticastUdpTransport.ConnectionInfo extends Transport.ConnectionInfo to
+   * hold the multicast group, port and network interface.
+   */
+  public static class ConnectionInfo extends Transport.ConnectionInfo {
+    /**
+     * Create a ConnectionInfo with the given group, port and interface.
+     * @param group The multicast group address, such as "224.0.23.170".
+     * @param port The port number of the group.
+     * @param networkInterface The network interface on which to join the
+     * group and send.
+     */
+    public
+    ConnectionInfo(String group, int port, NetworkInterface networkInterface)
+    {
+      group_ = group;
+      port_ = port;
+      networkInterface_ = networkInterface;
+    }
+
+    /**
+     * Create a ConnectionInfo with the NDN multicast group 224.0.23.170 and
+     * port 56363, like NFD.
+     * @param networkInterface The network interface on which to join the
+     * group and send.
+     */
+    public
+    ConnectionInfo(NetworkInterface networkInterface)
+    {
+      this("224.0.23.170", 56363, networkInterface);
+    }
+
+    /**
+     * Get the group given to the constructor.
+     * @return The multicast group address.
+     */
+    public final String
+    getGroup() { return group_; }
+
+    /**
+     * Get the port given to the constructor.
+     * @return The port number.
+     */
+    public final int
+    getPort() { return port_; }
+
+    /**
+     * Get the network interface given to the constructor.
+     * @return The network interface.
+     */
+    public final NetworkInterface
+    getNetworkInterface() { return networkInterface_; }
+
+    private final String group_;
+    private final int port_;
+    private final NetworkInterface networkInterface_;
+  }
+
+  /**
+   * Determine whether this transport connecting according to connectionInfo is
+   * to a node on the current machine. Like UdpTransport, a multicast group is
+   * always non-local.
+   * @param connectionInfo This is ignored.
+   * @return False because the group members are non-local.
+   */
+  public boolean
+  isLocal(Transport.ConnectionInfo connectionInfo) { return false; }
+
+  /**
+   * Override to return false since connect does not need to use the onConnected
+   * callback.
+   * @return False.
+   */
+  public boolean
+  isAsync() { return false; }
+
+  /**
+   * Override to return true since there is no forwarder, so the Face must join
+   * the group to receive Interests for an interest filter.
+   * @return True.
+   */
+  public boolean
+  getConnectsOnInterestFilter() { return true; }
+
+  /**
+   * Join the multicast group according to the info in ConnectionInfo, and use
+   * elementListener.
+   * @param connectionInfo A MulticastUdpTransport.ConnectionInfo.
+   * @param elementListener The ElementListener must remain valid during the
+   * life of this object.
+   * @param onConnected If not null, this calls onConnected.run() when the
+   * group is joined.
+   * @throws IOException For I/O error, or if the network interface doesn't
+   * have an address for the group's protocol family.
+   */
+  public void
+  connect
+    (Transport.ConnectionInfo connectionInfo, ElementListener elementListener,
+     Runnable onConnected)
+    throws IOException
+  {
+    close();
+
+    ConnectionInfo info = (ConnectionInfo)connectionInfo;
+    InetAddress group = InetAddress.getByName(info.getGroup());
+    NetworkInterface networkInterface = info.getNetworkInterface();
+    ProtocolFamily family = (group instanceof Inet4Address ?
+      StandardProtocolFamily.INET : StandardProtocolFamily.INET6);
+    InetAddress interfaceAddress = getInterfaceAddress(networkInterface, group);
+
+    try {
+      // Other members on this host may also bind the group port.
+      receiveChannel_ = DatagramChannel.open(family);
+      receiveChannel_.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+      receiveChannel_.bind(new InetSocketAddress(info.getPort()));
+      membershipKey_ = receiveChannel_.join(group, networkInterface);
+      receiveChannel_.configureBlocking(false);
+
+      // Send from a separate port so that the looped back datagrams from this
+      // transport can be recognized.
+      sendChannel_ = DatagramChannel.open(family);
+      sendChannel_.setOption
+        (StandardSocketOptions.IP_MULTICAST_IF, networkInterface);
+      sendChannel_.setOption(StandardSocketOptions.IP_MULTICAST_LOOP, true);
+      sendChannel_.bind(new InetSocketAddress(interfaceAddress, 0));
+      sendAddress_ = sendChannel_.getLocalAddress();
+    } catch (IOException ex) {
+      close();
+      throw ex;
+    }
+
+    groupAddress_ = new InetSocketAddress(group, info.getPort());
+    elementReader_ = new ElementReader
+      (new ReassemblingListener(elementListener, new LpReassembler()));
+
+    if (onConnected != null)
+      onConnected.run();
+  }
+
+  /**
+   * Send data to the multicast group.
+   * @param data The buffer of data to send.  This reads from position() to
+   * limit(), but does not change the position.
+   * @throws IOException For I/O error.
+   */
+  public void
+  send(ByteBuffer data) throws IOException
+  {
+    if (sendChannel_ == null)
+      throw new IOException
+        ("Cannot send because the socket is not open.  Use connect.");
+
+    // Use a duplicate so that sending doesn't change the caller's position.
+    sendChannel_.send(data.duplicate(), groupAddress_);
+  }
+
+  /**
+   * Process any data to receive from the group.  For each element received,
+   * call elementListener.onReceivedElement. Drop the datagrams which this
+   * transport sent.
+   * This is non-blocking and will return immediately if there is no data to
+   * receive. You should normally not call this directly since it is called by
+   * Face.processEvents.
+   * @throws IOException For I/O error.
+   * @throws EncodingException For invalid encoding.
+   */
+  public void
+  processEvents() throws IOException, EncodingException
+  {
+    if (!getIsConnected())
+      return;
+
+    while (true) {
+      inputBuffer_.clear();
+      SocketAddress sender = receiveChannel_.receive(inputBuffer_);
+      if (sender == null)
+        return;
+
+      if (sender.equals(sendAddress_)) {
+        // This is our own datagram looped back by the host.
+        ++nDroppedSelfDatagrams_;
+        continue;
+      }
+
+      inputBuffer_.flip();
+      elementReader_.onReceivedData(inputBuffer_);
+    }
+  }
+
+  /**
+   * Get the number of datagrams which were sent by this transport, looped back
+   * and dropped by processEvents.
+   * @return The number of dropped datagrams.
+   */
+  public final long
+  getDroppedSelfDatagramCount() { return nDroppedSelfDatagrams_; }
+
+  /**
+   * Check if the transport has joined the group.
+   * @return True if connected.
+   */
+  public boolean
+  getIsConnected()
+  {
+    return receiveChannel_ != null && receiveChannel_.isOpen();
+  }
+
+  /**
+   * Get the receive channel so that an event loop can wait until it is
+   * readable.
+   * @return The channel, or null if not connected.
+   */
+  public SelectableChannel
+  getSelectableChannel() { return receiveChannel_; }
+
+  /**
+   * Leave the group and close the channels.  If not connected, this does
+   * nothing.
+   * @throws IOException For I/O error.
+   */
+  public void
+  close() throws IOException
+  {
+    try {
+      if (membershipKey_ != null)
+        membershipKey_.drop();
+      if (receiveChannel_ != null)
+        receiveChannel_.close();
+    }
+    finally {
+      membershipKey_ = null;
+      receiveChannel_ = null;
+      try {
+        if (sendChannel_ != null)
+          sendChannel_.close();
+      }
+      finally {
+        sendChannel_ = null;
+      }
+    }
+  }
+
+  /**
+   * Get the first address of the network interface in the same protocol
+   * family as the group.
+   * @param networkInterface The network interface.
+   * @param group The multicast group address.
+   * @return The interface address.
+   * @throws IOException If the interface doesn't have an address in the
+   * family.
+   */
+  private static InetAddress
+  getInterfaceAddress(NetworkInterface networkInterface, InetAddress group)
+    throws IOException
+  {
+    boolean isIpv4 = group instanceof Inet4Address;
+    Enumeration<InetAddress> addresses = networkInterface.getInetAddresses();
+    while (addresses.hasMoreElements()) {
+      InetAddress address = addresses.nextElement();
+      if ((address instanceof Inet4Address) == isIpv4)
+        return address;
+    }
+
+    throw new IOException
+      ("MulticastUdpTransport: The network interface " +
+       networkInterface.getName() + " has no address for the group " + group);
+  }
+
+  private DatagramChannel receiveChannel_ = null;
+  private DatagramChannel sendChannel_ = null;
+  private MembershipKey membershipKey_ = null;
+  private SocketAddress sendAddress_ = null;
+  private InetSocketAddress groupAddress_ = null;
+  private long nDroppedSelfDatagrams_ = 0;
+  private final ByteBuffer inputBuffer_ =
+    ByteBuffer.allocate(Common.MAX_NDN_PACKET_SIZE);
+  private ElementReader elementReader_;
+}
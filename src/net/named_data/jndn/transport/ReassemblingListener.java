@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2019 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.transport;
+
+import java.nio.ByteBuffer;
+import net.named_data.jndn.encoding.ElementListener;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.encoding.TlvWireFormat;
+import net.named_data.jndn.encoding.tlv.Tlv;
+import net.named_data.jndn.lp.LpPacket;
+import net.named_data.jndn.lp.LpReassembler;
+
+/**
+ * A ReassemblingListener passes a received element to the wrapped
+ * ElementListener, except that it collects the NDNLPv2 fragments in the
+ * LpReassembler and passes the reassembled packet. This is used by the UDP
+ * transports, since a forwarder sends NDNLPv2 fragments for a packet which is
+ * larger than the MTU.
+ */
+class ReassemblingListener implements ElementListener {
+  public ReassemblingListener
+    (ElementListener elementListener, LpReassembler reassembler)
+  {
+    elementListener_ = elementListener;
+    reassembler_ = reassembler;
+  }
+
+  public void
+  onReceivedElement(ByteBuffer element) throws EncodingException
+  {
+    if (element.get(element.position()) != Tlv.LpPacket_LpPacket) {
+      elementListener_.onReceivedElement(element);
+      return;
+    }
+
+    // Decode without copying since the reassembler copies a fragment.
+    LpPacket lpPacket = new LpPacket();
+    TlvWireFormat.get().decodeLpPacket(lpPacket, element, false);
+    if (lpPacket.getFragCount() <= 1) {
+      // Not fragmented, so let the ElementListener decode it.
+      elementListener_.onReceivedElement(element);
+      return;
+    }
+
+    LpPacket reassembled = reassembler_.receive(lpPacket);
+    if (reassembled == null)
+      return;
+
+    if (reassembled.countHeaderFields() == 0)
+      elementListener_.onReceivedElement
+        (reassembled.getFragmentWireEncoding().buf());
+    else
+      // Keep the header fields such as a Nack.
+      elementListener_.onReceivedElement
+        (TlvWireFormat.get().encodeLpPacket(reassembled).buf());
+  }
+
+  private final ElementListener elementListener_;
+  private final LpReassembler reassembler_;
+}
@@ -24,10 +24,14 @@ import java.net.InetSocketAddress;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.nio.ByteBuffer;
+import java.nio.channels.SelectableChannel;
+import java.util.ArrayList;
 import net.named_data.jndn.encoding.ElementListener;
 import net.named_data.jndn.encoding.ElementReader;
 import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.util.BufferPool;
 import net.named_data.jndn.util.Common;
+import net.named_data.jndn.util.PooledBuffer;
 
 /**
  * TcpTransport extends the Transport interface to implement communication over
@@ -129,9 +133,29 @@ public class TcpTransport extends Transport {
   {
     close();
 
-    channel_ = SocketChannel.open
-      (new InetSocketAddress(((ConnectionInfo)connectionInfo).getHost(),
-       ((ConnectionInfo)connectionInfo).getPort()));
+    connectChannel
+      (SocketChannel.open
+       (new InetSocketAddress(((ConnectionInfo)connectionInfo).getHost(),
+        ((ConnectionInfo)connectionInfo).getPort())),
+       elementListener, onConnected);
+  }
+
+  /**
+   * Use the connected channel for this transport. This is also used by
+   * UnixTransport, which connects its channel differently.
+   * @param channel The connected SocketChannel. This sets it to non-blocking.
+   * @param elementListener The ElementListener must remain valid during the
+   * life of this object.
+   * @param onConnected If not null, this calls onConnected.run().
+   * @throws IOException For I/O error.
+   */
+  final void
+  connectChannel
+    (SocketChannel channel, ElementListener elementListener,
+     Runnable onConnected)
+    throws IOException
+  {
+    channel_ = channel;
     channel_.configureBlocking(false);
 
     elementReader_ = new ElementReader(elementListener);
@@ -153,14 +177,99 @@ public class TcpTransport extends Transport {
       throw new IOException
         ("Cannot send because the socket is not open.  Use connect.");
 
-    // Save and restore the position.
-    int savePosition = data.position();
-    try {
-      while(data.hasRemaining())
-        channel_.write(data);
+    synchronized (sendQueue_) {
+      // Send the queued data first to keep the order.
+      flushQueue();
+
+      // Save and restore the position.
+      int savePosition = data.position();
+      try {
+        while(data.hasRemaining())
+          channel_.write(data);
+      }
+      finally {
+        data.position(savePosition);
+      }
     }
-    finally {
-      data.position(savePosition);
+  }
+
+  /**
+   * Queue the data to be sent with other queued data by one gathering write.
+   * If the queued bytes reach getMaxQueuedSendBytes(), then send the queue
+   * now.
+   * @param data The buffer of data to send. This reads from position() to
+   * limit(), but does not change the position. This keeps the buffer until it
+   * is sent, so you must not change its contents.
+   * @throws IOException For I/O error.
+   */
+  public void
+  queueSend(ByteBuffer data) throws IOException
+  {
+    if (channel_ == null)
+      throw new IOException
+        ("Cannot send because the socket is not open.  Use connect.");
+
+    synchronized (sendQueue_) {
+      // Use a duplicate so that writing doesn't change the caller's position.
+      sendQueue_.add(data.duplicate());
+      queuedSendBytes_ += data.remaining();
+      if (queuedSendBytes_ >= maxQueuedSendBytes_ ||
+          sendQueue_.size() >= MAX_QUEUED_BUFFERS)
+        flushQueue();
+    }
+  }
+
+  /**
+   * Send all data which was queued by queueSend.
+   * @throws IOException For I/O error.
+   */
+  public void
+  flush() throws IOException
+  {
+    synchronized (sendQueue_) {
+      flushQueue();
+    }
+  }
+
+  /**
+   * Get the number of queued bytes at which queueSend sends the queue.
+   * @return The maximum number of queued bytes.
+   */
+  public final int
+  getMaxQueuedSendBytes() { return maxQueuedSendBytes_; }
+
+  /**
+   * Set the number of queued bytes at which queueSend sends the queue.
+   * @param maxQueuedSendBytes The maximum number of queued bytes.
+   */
+  public final void
+  setMaxQueuedSendBytes(int maxQueuedSendBytes)
+  {
+    maxQueuedSendBytes_ = maxQueuedSendBytes;
+  }
+
+  /**
+   * Write all the buffers in sendQueue_ using gathering writes and clear it.
+   * You must synchronize on sendQueue_ before calling this.
+   */
+  private void
+  flushQueue() throws IOException
+  {
+    if (sendQueue_.isEmpty())
+      return;
+
+    ByteBuffer[] buffers = sendQueue_.toArray(new ByteBuffer[sendQueue_.size()]);
+    sendQueue_.clear();
+    queuedSendBytes_ = 0;
+    if (channel_ == null)
+      throw new IOException
+        ("Cannot send because the socket is not open.  Use connect.");
+
+    int offset = 0;
+    while (offset < buffers.length) {
+      channel_.write(buffers, offset, buffers.length - offset);
+      while (offset < buffers.length && !buffers[offset].hasRemaining())
+        ++offset;
     }
   }
 
@@ -181,11 +290,20 @@ public class TcpTransport extends Transport {
     if (!getIsConnected())
       return;
 
+    if (receiveBufferPool_ != null) {
+      processEventsWithPool(receiveBufferPool_);
+      return;
+    }
+
     while (true) {
       inputBuffer_.limit(inputBuffer_.capacity());
       inputBuffer_.position(0);
       int bytesRead = channel_.read(inputBuffer_);
-      if (bytesRead <= 0)
+      if (bytesRead < 0) {
+        onEndOfStream();
+        return;
+      }
+      if (bytesRead == 0)
         return;
 
       inputBuffer_.flip();
@@ -193,6 +311,69 @@ public class TcpTransport extends Transport {
     }
   }
 
+  /**
+   * Set the BufferPool so that processEvents reads into a new buffer from the
+   * pool for each read, and the elements in it can be decoded without copying.
+   * @param receiveBufferPool The BufferPool, or null to use one input buffer.
+   */
+  public void
+  setReceiveBufferPool(BufferPool receiveBufferPool)
+  {
+    receiveBufferPool_ = receiveBufferPool;
+  }
+
+  /**
+   * Get the PooledBuffer which processEvents is currently passing to the
+   * ElementListener.
+   * @return The PooledBuffer, or null if not receiving into a pooled buffer.
+   */
+  public PooledBuffer
+  getReceiveBuffer() { return receiveBuffer_; }
+
+  /**
+   * Do the work of processEvents by reading into a buffer from the pool.
+   * @param pool The BufferPool.
+   */
+  private void
+  processEventsWithPool(BufferPool pool) throws IOException, EncodingException
+  {
+    while (true) {
+      PooledBuffer buffer = pool.acquire();
+      try {
+        int bytesRead = channel_.read(buffer.getBuffer());
+        if (bytesRead < 0) {
+          onEndOfStream();
+          return;
+        }
+        if (bytesRead == 0)
+          return;
+
+        buffer.getBuffer().flip();
+        receiveBuffer_ = buffer;
+        elementReader_.onReceivedData(buffer.getBuffer());
+      }
+      finally {
+        receiveBuffer_ = null;
+        // The ElementListener retained the buffer if it still needs it.
+        buffer.release();
+      }
+    }
+  }
+
+  /**
+   * The forwarder closed the connection, so drop the queued data and close the
+   * channel so that getIsConnected() is false and the Node can reconnect.
+   */
+  private void
+  onEndOfStream() throws IOException
+  {
+    synchronized (sendQueue_) {
+      sendQueue_.clear();
+      queuedSendBytes_ = 0;
+    }
+    close();
+  }
+
   /**
    * Check if the transport is connected.
    * @return True if connected.
@@ -207,16 +388,36 @@ public class TcpTransport extends Transport {
   }
 
   /**
-   * Close the connection.  If not connected, this does nothing.
+   * Get the socket channel so that an event loop can wait until it is
+   * readable.
+   * @return The channel, or null if not connected.
+   */
+  public SelectableChannel
+  getSelectableChannel() { return channel_; }
+
+  /**
+   * Close the connection after sending any data queued by queueSend.  If not
+   * connected, this does nothing.
    * @throws IOException For I/O error.
    */
   public void
   close() throws IOException
   {
     if (channel_ != null) {
-      if (channel_.isConnected())
-        channel_.close();
-      channel_ = null;
+      try {
+        if (channel_.isConnected())
+          // Send any data queued by queueSend.
+          flush();
+      }
+      finally {
+        synchronized (sendQueue_) {
+          sendQueue_.clear();
+          queuedSendBytes_ = 0;
+        }
+        if (channel_.isConnected())
+          channel_.close();
+        channel_ = null;
+      }
     }
   }
 
@@ -240,7 +441,14 @@ public class TcpTransport extends Transport {
   }
 
   SocketChannel channel_;
+  private final ArrayList<ByteBuffer> sendQueue_ = new ArrayList<ByteBuffer>();
+  private int queuedSendBytes_ = 0;
+  private int maxQueuedSendBytes_ = 65536;
+  // Stay under the usual IOV_MAX for one gathering write.
+  private static final int MAX_QUEUED_BUFFERS = 1024;
   ByteBuffer inputBuffer_ = ByteBuffer.allocate(Common.MAX_NDN_PACKET_SIZE);
+  private BufferPool receiveBufferPool_ = null;
+  private PooledBuffer receiveBuffer_ = null;
   // TODO: This belongs in the socket listener.
   private ElementReader elementReader_;
   private ConnectionInfo connectionInfo_;
@@ -21,9 +21,12 @@ package net.named_data.jndn.transport;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.SelectableChannel;
 import net.named_data.jndn.encoding.ElementListener;
 import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.util.BufferPool;
 import net.named_data.jndn.util.Common;
+import net.named_data.jndn.util.PooledBuffer;
 
 /**
  * A Transport object is used by Face to send packets and to listen for incoming
@@ -57,6 +60,17 @@ public abstract class Transport {
    */
   public abstract boolean isAsync();
 
+  /**
+   * Check if the Face should connect this transport when the application sets
+   * an interest filter, so that it can receive Interests before it sends any
+   * packet. This is needed for a transport which communicates with other
+   * applications without a forwarder. The transport must not be async.
+   * @return True to connect when an interest filter is set. This base class
+   * returns false.
+   */
+  public boolean
+  getConnectsOnInterestFilter() { return false; }
+
   /**
    * Connect according to the info in ConnectionInfo, and use elementListener.
    * @param connectionInfo An object of a subclass of ConnectionInfo.
@@ -87,6 +101,32 @@ public abstract class Transport {
     throw new UnsupportedOperationException("send is not implemented");
   }
 
+  /**
+   * Queue the data to send to the host with other queued data in fewer system
+   * calls. The queued data is sent by flush(), by send(), or when the
+   * transport decides that enough is queued. This base class implementation
+   * calls send(data) immediately, but your derived class can override.
+   * @param data The buffer of data to send. This reads from position() to
+   * limit(), but does not change the position. A derived class may keep the
+   * buffer until it is sent, so you must not change its contents.
+   * @throws IOException For I/O error.
+   */
+  public void
+  queueSend(ByteBuffer data) throws IOException
+  {
+    send(data);
+  }
+
+  /**
+   * Send all data which was queued by queueSend. This base class
+   * implementation does nothing, but your derived class can override.
+   * @throws IOException For I/O error.
+   */
+  public void
+  flush() throws IOException
+  {
+  }
+
   /**
    * Process any data to receive.  For each element received, call
    * elementListener.onReceivedElement.
@@ -114,6 +154,41 @@ public abstract class Transport {
       ("getIsConnected is not implemented");
   }
 
+  /**
+   * Set the BufferPool so that processEvents reads into a buffer from the pool
+   * instead of reusing one input buffer. While an element is passed to
+   * elementListener.onReceivedElement, getReceiveBuffer() returns the
+   * PooledBuffer which has it, so that the listener can decode the element
+   * without copying and retain the buffer if needed. This base class
+   * implementation does nothing, which means the transport does not support
+   * pooled receive, but your derived class can override.
+   * @param receiveBufferPool The BufferPool, or null to not use a pool. The
+   * buffer size should be Common.MAX_NDN_PACKET_SIZE.
+   */
+  public void
+  setReceiveBufferPool(BufferPool receiveBufferPool) {}
+
+  /**
+   * Get the PooledBuffer which processEvents is currently passing to
+   * elementListener.onReceivedElement. An element is in the buffer only if
+   * getReceiveBuffer().contains(element) since an element split over two reads
+   * is copied. This base class implementation returns null.
+   * @return The PooledBuffer, or null if not receiving into a pooled buffer.
+   */
+  public PooledBuffer
+  getReceiveBuffer() { return null; }
+
+  /**
+   * Get the channel which an event loop can register with a Selector to wait
+   * until processEvents has data to read. The channel must be in non-blocking
+   * mode. This base class implementation returns null, which means that the
+   * transport cannot be waited on with a Selector and processEvents must be
+   * polled, but your derived class can override.
+   * @return The SelectableChannel, or null if not available or not connected.
+   */
+  public SelectableChannel
+  getSelectableChannel() { return null; }
+
   /**
    * Close the connection.  This base class implementation does nothing, but
    * your derived class can override.
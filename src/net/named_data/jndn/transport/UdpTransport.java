@@ -22,15 +22,28 @@ package net.named_data.jndn.transport;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.channels.SelectableChannel;
 import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
 import net.named_data.jndn.encoding.ElementListener;
 import net.named_data.jndn.encoding.ElementReader;
 import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.lp.LpFragmenter;
+import net.named_data.jndn.lp.LpReassembler;
+import net.named_data.jndn.util.Blob;
+import net.named_data.jndn.util.BufferPool;
 import net.named_data.jndn.util.Common;
+import net.named_data.jndn.util.PooledBuffer;
 
 /**
  * UdpTransport extends the Transport interface to implement communication over
- * UDP.
+ * UDP. If setMtu is called, a packet which is larger than the MTU is sent as
+ * NDNLPv2 fragments. Received NDNLPv2 fragments are always reassembled before
+ * passing the packet to the ElementListener.
+ * For high throughput, call setReceiveBurstSize so that processEvents drains
+ * the socket in bursts of datagrams before dispatching them, and use
+ * queueSend and flush (see Face.setSendBatchingEnabled) so that outgoing
+ * datagrams are written together.
  */
 public class UdpTransport extends Transport {
   /**
@@ -122,7 +135,8 @@ public class UdpTransport extends Transport {
        ((ConnectionInfo)connectionInfo).getPort()));
     channel_.configureBlocking(false);
 
-    elementReader_ = new ElementReader(elementListener);
+    elementReader_ = new ElementReader
+      (new ReassemblingListener(elementListener, new LpReassembler()));
 
     if (onConnected != null)
       onConnected.run();
@@ -141,17 +155,143 @@ public class UdpTransport extends Transport {
       throw new IOException
         ("Cannot send because the socket is not open.  Use connect.");
 
-    // Save and restore the position.
-    int savePosition = data.position();
+    synchronized (sendQueue_) {
+      // Send the queued datagrams first to keep the order.
+      flushQueue();
+
+      LpFragmenter fragmenter = fragmenter_;
+      if (fragmenter != null && data.remaining() > fragmenter.getMtu()) {
+        // Send each fragment as a datagram.
+        ArrayList<Blob> fragments = fragmenter.fragment(data);
+        for (int i = 0; i < fragments.size(); ++i)
+          channel_.write(fragments.get(i).buf());
+        return;
+      }
+
+      // Save and restore the position.
+      int savePosition = data.position();
+      try {
+        while(data.hasRemaining())
+          channel_.write(data);
+      }
+      finally {
+        data.position(savePosition);
+      }
+    }
+  }
+
+  /**
+   * Queue the data to be sent as a datagram with other queued datagrams in one
+   * burst of writes. Each queued buffer is still sent as its own datagram (or
+   * as NDNLPv2 fragments if larger than the MTU). If the number of queued
+   * datagrams reaches getMaxQueuedDatagrams(), then send the queue now.
+   * @param data The buffer of data to send. This reads from position() to
+   * limit(), but does not change the position. This keeps the buffer until it
+   * is sent, so you must not change its contents.
+   * @throws IOException For I/O error.
+   */
+  public void
+  queueSend(ByteBuffer data) throws IOException
+  {
+    if (channel_ == null)
+      throw new IOException
+        ("Cannot send because the socket is not open.  Use connect.");
+
+    synchronized (sendQueue_) {
+      LpFragmenter fragmenter = fragmenter_;
+      if (fragmenter != null && data.remaining() > fragmenter.getMtu()) {
+        ArrayList<Blob> fragments = fragmenter.fragment(data);
+        for (int i = 0; i < fragments.size(); ++i)
+          sendQueue_.add(fragments.get(i).buf());
+      }
+      else
+        // Use a duplicate so that writing doesn't change the caller's position.
+        sendQueue_.add(data.duplicate());
+
+      if (sendQueue_.size() >= maxQueuedDatagrams_)
+        flushQueue();
+    }
+  }
+
+  /**
+   * Send all datagrams which were queued by queueSend.
+   * @throws IOException For I/O error.
+   */
+  public void
+  flush() throws IOException
+  {
+    synchronized (sendQueue_) {
+      flushQueue();
+    }
+  }
+
+  /**
+   * Get the number of queued datagrams at which queueSend sends the queue.
+   * @return The maximum number of queued datagrams.
+   */
+  public final int
+  getMaxQueuedDatagrams() { return maxQueuedDatagrams_; }
+
+  /**
+   * Set the number of queued datagrams at which queueSend sends the queue.
+   * @param maxQueuedDatagrams The maximum number of queued datagrams.
+   */
+  public final void
+  setMaxQueuedDatagrams(int maxQueuedDatagrams)
+  {
+    maxQueuedDatagrams_ = maxQueuedDatagrams;
+  }
+
+  /**
+   * Write each buffer in sendQueue_ as a datagram and clear the queue. If the
+   * socket send buffer is full, the remaining datagrams are dropped like any
+   * other UDP loss. You must synchronize on sendQueue_ before calling this.
+   */
+  private void
+  flushQueue() throws IOException
+  {
+    if (sendQueue_.isEmpty())
+      return;
+
     try {
-      while(data.hasRemaining())
-        channel_.write(data);
+      if (channel_ == null)
+        throw new IOException
+          ("Cannot send because the socket is not open.  Use connect.");
+
+      for (int i = 0; i < sendQueue_.size(); ++i)
+        channel_.write(sendQueue_.get(i));
     }
     finally {
-      data.position(savePosition);
+      sendQueue_.clear();
     }
   }
 
+  /**
+   * Set the MTU so that send splits a packet which is larger than the MTU into
+   * NDNLPv2 fragments, each sent as one datagram. This avoids IP fragmentation,
+   * where the loss of one IP fragment loses the whole datagram. If the MTU is
+   * not set, each packet is sent as one datagram.
+   * @param mtu The maximum datagram size, which must be greater than
+   * LpFragmenter.MAX_FRAGMENT_OVERHEAD, for example 1400 for an Ethernet path.
+   * If 0, don't fragment.
+   */
+  public final void
+  setMtu(int mtu)
+  {
+    fragmenter_ = (mtu == 0 ? null : new LpFragmenter(mtu));
+  }
+
+  /**
+   * Get the MTU set by setMtu.
+   * @return The MTU, or 0 if not fragmenting.
+   */
+  public final int
+  getMtu()
+  {
+    LpFragmenter fragmenter = fragmenter_;
+    return fragmenter == null ? 0 : fragmenter.getMtu();
+  }
+
   /**
    * Process any data to receive.  For each element received, call
    * elementListener.onReceivedElement.
@@ -169,6 +309,15 @@ public class UdpTransport extends Transport {
     if (!getIsConnected())
       return;
 
+    if (receiveBurstSize_ > 1) {
+      processEventsInBursts();
+      return;
+    }
+    if (receiveBufferPool_ != null) {
+      processEventsWithPool(receiveBufferPool_);
+      return;
+    }
+
     while (true) {
       inputBuffer_.limit(inputBuffer_.capacity());
       inputBuffer_.position(0);
@@ -181,6 +330,149 @@ public class UdpTransport extends Transport {
     }
   }
 
+  /**
+   * Set the BufferPool so that processEvents reads into a new buffer from the
+   * pool for each read, and the elements in it can be decoded without copying.
+   * @param receiveBufferPool The BufferPool, or null to use one input buffer.
+   */
+  public void
+  setReceiveBufferPool(BufferPool receiveBufferPool)
+  {
+    receiveBufferPool_ = receiveBufferPool;
+  }
+
+  /**
+   * Set the number of datagrams that processEvents reads from the socket
+   * before dispatching them to the ElementListener. If greater than 1, then
+   * processEvents reads each datagram of a burst into its own buffer in a ring
+   * of pooled buffers, so that the socket is drained without interleaving the
+   * processing of each packet. The buffers are from the pool given to
+   * setReceiveBufferPool, if any, so that zero-copy receive still works.
+   * @param receiveBurstSize The maximum number of datagrams to read in a
+   * burst. If 1, read and dispatch one datagram at a time, which is the
+   * default.
+   */
+  public final void
+  setReceiveBurstSize(int receiveBurstSize)
+  {
+    if (receiveBurstSize < 1)
+      receiveBurstSize = 1;
+    receiveBurstSize_ = receiveBurstSize;
+  }
+
+  /**
+   * Get the receive burst size given to setReceiveBurstSize.
+   * @return The maximum number of datagrams to read in a burst.
+   */
+  public final int
+  getReceiveBurstSize() { return receiveBurstSize_; }
+
+  /**
+   * Get the PooledBuffer which processEvents is currently passing to the
+   * ElementListener.
+   * @return The PooledBuffer, or null if not receiving into a pooled buffer.
+   */
+  public PooledBuffer
+  getReceiveBuffer() { return receiveBuffer_; }
+
+  /**
+   * Do the work of processEvents by reading into a buffer from the pool.
+   * @param pool The BufferPool.
+   */
+  private void
+  processEventsWithPool(BufferPool pool) throws IOException, EncodingException
+  {
+    while (true) {
+      PooledBuffer buffer = pool.acquire();
+      try {
+        int bytesRead = channel_.read(buffer.getBuffer());
+        if (bytesRead <= 0)
+          return;
+
+        buffer.getBuffer().flip();
+        receiveBuffer_ = buffer;
+        elementReader_.onReceivedData(buffer.getBuffer());
+      }
+      finally {
+        receiveBuffer_ = null;
+        // The ElementListener retained the buffer if it still needs it.
+        buffer.release();
+      }
+    }
+  }
+
+  /**
+   * Do the work of processEvents by reading bursts of datagrams into a ring of
+   * pooled buffers, then dispatching the burst.
+   */
+  private void
+  processEventsInBursts() throws IOException, EncodingException
+  {
+    BufferPool pool = receiveBufferPool_;
+    if (pool == null) {
+      if (burstBufferPool_ == null)
+        burstBufferPool_ = new BufferPool
+          (Common.MAX_NDN_PACKET_SIZE, MAX_BURST_POOLED_BUFFERS);
+      pool = burstBufferPool_;
+    }
+    int burstSize = receiveBurstSize_;
+    if (receiveRing_ == null || receiveRing_.length != burstSize)
+      receiveRing_ = new PooledBuffer[burstSize];
+
+    while (true) {
+      // Drain the socket into the ring.
+      int nReceived = 0;
+      while (nReceived < burstSize) {
+        PooledBuffer buffer = pool.acquire();
+        int bytesRead;
+        try {
+          bytesRead = channel_.read(buffer.getBuffer());
+        } catch (IOException ex) {
+          buffer.release();
+          releaseRing(nReceived);
+          throw ex;
+        }
+        if (bytesRead <= 0) {
+          buffer.release();
+          break;
+        }
+
+        buffer.getBuffer().flip();
+        receiveRing_[nReceived++] = buffer;
+      }
+
+      // Dispatch the burst.
+      try {
+        for (int i = 0; i < nReceived; ++i) {
+          receiveBuffer_ = receiveRing_[i];
+          elementReader_.onReceivedData(receiveRing_[i].getBuffer());
+        }
+      }
+      finally {
+        receiveBuffer_ = null;
+        // The ElementListener retained a buffer if it still needs it.
+        releaseRing(nReceived);
+      }
+
+      if (nReceived < burstSize)
+        // The socket is drained.
+        return;
+    }
+  }
+
+  /**
+   * Release the first count buffers in receiveRing_ and clear them.
+   * @param count The number of buffers to release.
+   */
+  private void
+  releaseRing(int count)
+  {
+    for (int i = 0; i < count; ++i) {
+      receiveRing_[i].release();
+      receiveRing_[i] = null;
+    }
+  }
+
   /**
    * Check if the transport is connected.
    * @return True if connected.
@@ -194,6 +486,14 @@ public class UdpTransport extends Transport {
     return channel_.isConnected();
   }
 
+  /**
+   * Get the socket channel so that an event loop can wait until it is
+   * readable.
+   * @return The channel, or null if not connected.
+   */
+  public SelectableChannel
+  getSelectableChannel() { return channel_; }
+
   /**
    * Close the connection.  If not connected, this does nothing.
    * @throws IOException For I/O error.
@@ -201,6 +501,17 @@ public class UdpTransport extends Transport {
   public void
   close() throws IOException
   {
+    synchronized (sendQueue_) {
+      try {
+        // Send any datagrams queued by queueSend.
+        if (channel_ != null && channel_.isConnected())
+          flushQueue();
+      }
+      finally {
+        sendQueue_.clear();
+      }
+    }
+
     if (channel_ != null) {
       if (channel_.isConnected())
         channel_.close();
@@ -210,6 +521,15 @@ public class UdpTransport extends Transport {
 
   DatagramChannel channel_;
   ByteBuffer inputBuffer_ = ByteBuffer.allocate(Common.MAX_NDN_PACKET_SIZE);
+  private BufferPool receiveBufferPool_ = null;
+  private volatile LpFragmenter fragmenter_ = null;
+  private final ArrayList<ByteBuffer> sendQueue_ = new ArrayList<ByteBuffer>();
+  private int maxQueuedDatagrams_ = 64;
+  private volatile int receiveBurstSize_ = 1;
+  private BufferPool burstBufferPool_ = null;
+  private PooledBuffer[] receiveRing_ = null;
+  private static final int MAX_BURST_POOLED_BUFFERS = 256;
+  private PooledBuffer receiveBuffer_ = null;
   // TODO: This belongs in the socket listener.
   private ElementReader elementReader_;
 }
@@ -0,0 +1,210 @@
+/**
+ * Copyright (C) 2019 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.transport;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.SocketChannel;
+import net.named_data.jndn.encoding.ElementListener;
+import net.named_data.jndn.util.Common;
+
+/**
+ * UnixTransport extends TcpTransport to communicate with a local forwarder
+ * over a Unix domain socket, which avoids the cost of the TCP stack on the
+ * loopback interface. The packets are framed by the same ElementReader, and
+ * send batching and processEvents are the same as TcpTransport.
+ * Unix domain socket channels were added in Java 16. Since this library is
+ * compiled for older Java versions, the Java 16 API is used through
+ * reflection. Use getIsAvailable() to check if the running JVM supports it.
+ */
+public class UnixTransport extends TcpTransport {
+  /**
+   * A UnixTransport.ConnectionInfo extends Transport.ConnectionInfo to hold
+   * the socket file path for the Unix domain socket connection.
+   */
+  public static class ConnectionInfo extends Transport.ConnectionInfo {
+    /**
+     * Create a ConnectionInfo with the given socket file path.
+     * @param filePath The file path of the Unix domain socket, such as
+     * "/run/nfd.sock".
+     */
+    public
+    ConnectionInfo(String filePath)
+    {
+      filePath_ = filePath;
+    }
+
+    /**
+     * Get the filePath given to the constructor.
+     * @return The file path.
+     */
+    public final String
+    getFilePath() { return filePath_; }
+
+    private final String filePath_;
+  }
+
+  /**
+   * Check if the running JVM supports Unix domain socket channels, which were
+   * added in Java 16.
+   * @return True if UnixTransport can connect.
+   */
+  public static boolean
+  getIsAvailable() { return openMethod_ != null; }
+
+  /**
+   * Get the file path of the socket of the local forwarder by checking if
+   * "/run/nfd.sock" or "/var/run/nfd.sock" exists.
+   * @return The file path, or "" if UnixTransport is not available or the
+   * socket file does not exist.
+   */
+  public static String
+  getDefaultSocketFilePath()
+  {
+    if (!getIsAvailable())
+      return "";
+
+    for (int i = 0; i < defaultSocketFilePaths_.length; ++i) {
+      if (new File(defaultSocketFilePaths_[i]).exists())
+        return defaultSocketFilePaths_[i];
+    }
+
+    return "";
+  }
+
+  /**
+   * Determine whether this transport connecting according to connectionInfo is
+   * to a node on the current machine. A Unix domain socket is always local.
+   * @param connectionInfo This is ignored.
+   * @return True.
+   */
+  public boolean
+  isLocal(Transport.ConnectionInfo connectionInfo) { return true; }
+
+  /**
+   * Connect according to the info in ConnectionInfo, and use elementListener.
+   * @param connectionInfo A UnixTransport.ConnectionInfo.
+   * @param elementListener The ElementListener must remain valid during the
+   * life of this object.
+   * @param onConnected If not null, this calls onConnected.run() when the
+   * connection is established.
+   * @throws IOException For I/O error, or if getIsAvailable() is false.
+   */
+  public void
+  connect
+    (Transport.ConnectionInfo connectionInfo, ElementListener elementListener,
+     Runnable onConnected)
+    throws IOException
+  {
+    close();
+
+    SocketChannel channel = openChannel();
+    try {
+      channel.connect
+        (getSocketAddress(((ConnectionInfo)connectionInfo).getFilePath()));
+    } catch (IOException ex) {
+      channel.close();
+      throw ex;
+    }
+
+    connectChannel(channel, elementListener, onConnected);
+  }
+
+  /**
+   * Open a SocketChannel for the UNIX protocol family, using
+   * SocketChannel.open(StandardProtocolFamily.UNIX).
+   * @return The new unconnected SocketChannel.
+   * @throws IOException For I/O error, or if getIsAvailable() is false.
+   */
+  static SocketChannel
+  openChannel() throws IOException
+  {
+    if (!getIsAvailable())
+      throw new IOException
+        ("UnixTransport: Unix domain sockets require Java 16 or later");
+
+    return (SocketChannel)invoke(openMethod_, unixProtocolFamily_);
+  }
+
+  /**
+   * Get the SocketAddress for the Unix domain socket file, using
+   * UnixDomainSocketAddress.of(filePath).
+   * @param filePath The file path of the socket.
+   * @return The new SocketAddress.
+   * @throws IOException If getIsAvailable() is false.
+   */
+  static SocketAddress
+  getSocketAddress(String filePath) throws IOException
+  {
+    if (!getIsAvailable())
+      throw new IOException
+        ("UnixTransport: Unix domain sockets require Java 16 or later");
+
+    return (SocketAddress)invoke(addressOfMethod_, filePath);
+  }
+
+  /**
+   * Call the static method with the argument, converting an exception from
+   * the method to IOException.
+   */
+  private static Object
+  invoke(Method method, Object argument) throws IOException
+  {
+    try {
+      return method.invoke(null, argument);
+    } catch (InvocationTargetException ex) {
+      if (ex.getCause() instanceof IOException)
+        throw (IOException)ex.getCause();
+      throw new IOException("UnixTransport: " + ex.getCause());
+    } catch (IllegalAccessException ex) {
+      throw new IOException("UnixTransport: " + ex);
+    }
+  }
+
+  private static final String[] defaultSocketFilePaths_ =
+    { "/run/nfd.sock", "/var/run/nfd.sock" };
+  private static ProtocolFamily unixProtocolFamily_ = null;
+  private static Method openMethod_ = null;
+  private static Method addressOfMethod_ = null;
+  // This is to force an import of net.named_data.jndn.util.
+  private static Common dummyCommon_ = new Common();
+
+  static {
+    try {
+      ProtocolFamily unixProtocolFamily = StandardProtocolFamily.valueOf("UNIX");
+      Method addressOfMethod = Class.forName("java.net.UnixDomainSocketAddress")
+        .getMethod("of", String.class);
+      Method openMethod = SocketChannel.class.getMethod
+        ("open", ProtocolFamily.class);
+
+      unixProtocolFamily_ = unixProtocolFamily;
+      addressOfMethod_ = addressOfMethod;
+      // Set openMethod_ last since it is checked by getIsAvailable.
+      openMethod_ = openMethod;
+    } catch (Exception ex) {
+      // Before Java 16, leave openMethod_ null.
+    }
+  }
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2019 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.util;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A BufferPool keeps released buffers of a fixed size so that they can be
+ * reused instead of allocating a new buffer for each use. A buffer from
+ * acquire() is reference-counted by PooledBuffer and goes back to the pool when
+ * the last reference is released. This is thread safe.
+ */
+public class BufferPool {
+  /**
+   * Create a new BufferPool.
+   * @param bufferSize The capacity of each buffer.
+   * @param maxPooledBuffers The maximum number of released buffers to keep for
+   * reuse. If more buffers are released, they are left for the garbage
+   * collector.
+   */
+  public BufferPool(int bufferSize, int maxPooledBuffers)
+  {
+    this(bufferSize, maxPooledBuffers, false);
+  }
+
+  /**
+   * Create a new BufferPool, optionally with direct buffers. A direct buffer
+   * is best for encoding a packet (for example with Data.wireEncodeInto) which
+   * is sent to a channel, since the JDK copies a heap buffer to a temporary
+   * direct buffer for each channel write. However, a direct buffer has no
+   * backing array, so don't use direct buffers for receiving with zero-copy
+   * decoding.
+   * @param bufferSize The capacity of each buffer.
+   * @param maxPooledBuffers The maximum number of released buffers to keep for
+   * reuse. If more buffers are released, they are left for the garbage
+   * collector.
+   * @param useDirectBuffers If true, allocate direct buffers with
+   * ByteBuffer.allocateDirect, otherwise allocate heap buffers.
+   */
+  public BufferPool(int bufferSize, int maxPooledBuffers, boolean useDirectBuffers)
+  {
+    bufferSize_ = bufferSize;
+    maxPooledBuffers_ = maxPooledBuffers;
+    useDirectBuffers_ = useDirectBuffers;
+  }
+
+  /**
+   * Get a buffer from the pool, or allocate a new one if the pool is empty.
+   * The ByteBuffer of the returned PooledBuffer has position 0 and limit equal
+   * to the capacity. When finished, call release().
+   * @return The PooledBuffer with a reference count of 1.
+   */
+  public final PooledBuffer
+  acquire()
+  {
+    PooledBuffer buffer = pool_.poll();
+    if (buffer == null)
+      return new PooledBuffer
+        (this, useDirectBuffers_ ?
+         ByteBuffer.allocateDirect(bufferSize_) : ByteBuffer.allocate(bufferSize_));
+
+    nPooledBuffers_.decrementAndGet();
+    buffer.reset();
+    return buffer;
+  }
+
+  /**
+   * Get the capacity of each buffer.
+   * @return The buffer size.
+   */
+  public final int
+  getBufferSize() { return bufferSize_; }
+
+  /**
+   * Get the number of released buffers which are kept for reuse.
+   * @return The number of pooled buffers.
+   */
+  public final int
+  getPooledBufferCount() { return nPooledBuffers_.get(); }
+
+  /**
+   * This is called by PooledBuffer when its reference count becomes zero.
+   * @param buffer The released buffer.
+   */
+  final void
+  returnBuffer(PooledBuffer buffer)
+  {
+    if (nPooledBuffers_.incrementAndGet() > maxPooledBuffers_) {
+      // Drop the buffer.
+      nPooledBuffers_.decrementAndGet();
+      return;
+    }
+
+    pool_.add(buffer);
+  }
+
+  private final int bufferSize_;
+  private final int maxPooledBuffers_;
+  private final boolean useDirectBuffers_;
+  private final ConcurrentLinkedQueue<PooledBuffer> pool_ =
+    new ConcurrentLinkedQueue<PooledBuffer>();
+  // Use a separate count since ConcurrentLinkedQueue.size() is O(n).
+  private final AtomicInteger nPooledBuffers_ = new AtomicInteger();
+}
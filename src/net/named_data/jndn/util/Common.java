@@ -82,15 +82,7 @@ public class Common {
   public static byte[]
   digestSha256(ByteBuffer data)
   {
-    MessageDigest sha256;
-    try {
-      sha256 = MessageDigest.getInstance("SHA-256");
-    }
-    catch (NoSuchAlgorithmException exception) {
-      // Don't expect this to happen.
-      throw new Error
-        ("MessageDigest: SHA-256 is not supported: " + exception.getMessage());
-    }
+    MessageDigest sha256 = threadLocalSha256_.get();
     int savePosition = data.position();
     sha256.update(data);
     data.position(savePosition);
@@ -105,15 +97,7 @@ public class Common {
   public static byte[]
   digestSha256(byte[] data)
   {
-    MessageDigest sha256;
-    try {
-      sha256 = MessageDigest.getInstance("SHA-256");
-    }
-    catch (NoSuchAlgorithmException exception) {
-      // Don't expect this to happen.
-      throw new Error
-        ("MessageDigest: SHA-256 is not supported: " + exception.getMessage());
-    }
+    MessageDigest sha256 = threadLocalSha256_.get();
     sha256.update(data);
     return sha256.digest();
   }
@@ -426,4 +410,20 @@ public class Common {
   private static Base64ConverterType base64ConverterType_ = Base64ConverterType.UNINITIALIZED;
   private static Class base64Converter_ = null;
   private static Random randomNumberGenerator_;
+  // Reuse a MessageDigest for each thread since getInstance is costly compared
+  // to the digest of a small packet. digest() resets it for the next use.
+  private static final ThreadLocal<MessageDigest> threadLocalSha256_ =
+    new ThreadLocal<MessageDigest>() {
+      protected MessageDigest initialValue()
+      {
+        try {
+          return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException exception) {
+          // Don't expect this to happen.
+          throw new Error
+            ("MessageDigest: SHA-256 is not supported: " + exception.getMessage());
+        }
+      }
+    };
 }
@@ -36,6 +36,21 @@ public class DynamicByteBuffer {
     buffer_ = ByteBuffer.allocate(initialCapacity);
   }
 
+  /**
+   * Create a new DynamicByteBuffer which initially uses the given buffer, for
+   * example a slice of a larger buffer or a direct buffer. If more capacity is
+   * needed, this allocates a new buffer as usual and stops using the given
+   * buffer.
+   * @param buffer The initial buffer(), from 0 to its capacity. This sets its
+   * limit to the capacity.
+   */
+  public
+  DynamicByteBuffer(ByteBuffer buffer)
+  {
+    buffer_ = buffer;
+    buffer_.limit(buffer_.capacity());
+  }
+
   /**
    * Ensure that buffer().capacity() is greater than or equal to capacity.  If
    * it is, just set the limit to the capacity.
@@ -24,6 +24,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import net.named_data.jndn.CompactName;
 import net.named_data.jndn.Data;
 import net.named_data.jndn.Face;
 import net.named_data.jndn.RegistrationOptions;
@@ -133,7 +134,7 @@ public class MemoryContentCache implements OnInterestCallback {
      throws IOException, SecurityException
   {
     if (onDataNotFound != null)
-      onDataNotFoundForPrefix_.put(prefix.toUri(), onDataNotFound);
+      onDataNotFoundForPrefix_.put(new CompactName(prefix), onDataNotFound);
     long registeredPrefixId = face_.registerPrefix
       (prefix, this, onRegisterFailed, onRegisterSuccess, registrationOptions,
        wireFormat);
@@ -437,7 +438,8 @@ public class MemoryContentCache implements OnInterestCallback {
   setInterestFilter(InterestFilter filter, OnInterestCallback onDataNotFound)
   {
     if (onDataNotFound != null)
-      onDataNotFoundForPrefix_.put(filter.getPrefix().toUri(), onDataNotFound);
+      onDataNotFoundForPrefix_.put
+        (new CompactName(filter.getPrefix()), onDataNotFound);
     long interestFilterId = face_.setInterestFilter(filter, this);
     interestFilterIdList_.add(interestFilterId);
   }
@@ -480,7 +482,7 @@ public class MemoryContentCache implements OnInterestCallback {
   setInterestFilter(Name prefix, OnInterestCallback onDataNotFound)
   {
     if (onDataNotFound != null)
-      onDataNotFoundForPrefix_.put(prefix.toUri(), onDataNotFound);
+      onDataNotFoundForPrefix_.put(new CompactName(prefix), onDataNotFound);
     long interestFilterId = face_.setInterestFilter(prefix, this);
     interestFilterIdList_.add(interestFilterId);
   }
@@ -651,6 +653,18 @@ public class MemoryContentCache implements OnInterestCallback {
     double nowMilliseconds = Common.getNowMilliseconds();
     doCleanup(nowMilliseconds);
 
+    // Check the name of each content with a byte-wise prefix match, and only
+    // make a Name for the full check if the prefix matches.
+    CompactName interestName = new CompactName(interest.getName());
+    // If the Interest name is a full name which ends in the implicit digest,
+    // check for an exact match of the digest of the content.
+    Name.Component interestDigest = null;
+    CompactName interestDataName = null;
+    if (interest.getName().size() > 0 &&
+        interest.getName().get(-1).isImplicitSha256Digest()) {
+      interestDigest = interest.getName().get(-1);
+      interestDataName = interestName.getPrefix(-1);
+    }
     Name.Component selectedComponent = null;
     Blob selectedEncoding = null;
     // We need to iterate over both arrays.
@@ -667,8 +681,24 @@ public class MemoryContentCache implements OnInterestCallback {
         // We have iterated over the first array. Get from the second.
         content = noStaleTimeCache_.get(i - staleTimeCache_.size());
 
-      if (interest.matchesName(content.getName()) &&
-          !(interest.getMustBeFresh() && !isFresh)) {
+      if (interestDigest != null &&
+          !(interest.getMustBeFresh() && !isFresh) &&
+          interestDataName.equals(content.getName()) &&
+          interestDigest.getValue().equals(content.getImplicitSha256Digest())) {
+        // The full name matches, so there is no other match to select.
+        logger_.log(Level.INFO, "MemoryContentCache:         Reply Data {0}",
+          content.getName());
+        try {
+          face.send(content.getDataEncoding());
+        } catch (IOException ex) {
+          logger_.log(Level.SEVERE, null, ex);
+        }
+        return;
+      }
+
+      if (!(interest.getMustBeFresh() && !isFresh) &&
+          interestName.match(content.getName()) &&
+          interest.matchesName(content.getName().toName())) {
         if (interest.getChildSelector() < 0) {
           // No child selector, so send the first match that we have found.
           logger_.log(Level.INFO, "MemoryContentCache:         Reply Data {0}",
@@ -727,7 +757,8 @@ public class MemoryContentCache implements OnInterestCallback {
       logger_.log(Level.INFO, "MemoryContentCache: onDataNotFound for {0}",
         interest.toUri());
       // Call the onDataNotFound callback (if defined).
-      Object onDataNotFound = onDataNotFoundForPrefix_.get(prefix.toUri());
+      Object onDataNotFound = onDataNotFoundForPrefix_.get
+        (new CompactName(prefix));
       if (onDataNotFound != null) {
         try {
           ((OnInterestCallback)onDataNotFound).onInterest
@@ -746,24 +777,44 @@ public class MemoryContentCache implements OnInterestCallback {
    */
   private class Content {
     /**
-     * Create a new Content entry to hold data's name and wire encoding.
+     * Create a new Content entry to hold data's name and wire encoding. The
+     * name is kept as a CompactName so that a large cache doesn't keep a
+     * Name.Component and Blob for each component of each name.
      * @param data The Data packet whose name and wire encoding are copied.
      */
     public Content(Data data)
     {
       // wireEncode returns the cached encoding if available.
-      name_ = data.getName();
+      name_ = new CompactName(data.getName());
       dataEncoding_ = data.wireEncode();
+      // Use the digest if the Data saved it with this encoding.
+      implicitDigest_ = data.getSavedImplicitSha256Digest();
     }
 
-    public final Name
+    public final CompactName
     getName() { return name_; }
 
     public final Blob
     getDataEncoding() { return dataEncoding_; }
 
-    private final Name name_;
+    /**
+     * Get the implicit SHA-256 digest of the Data encoding. If the Data did
+     * not have a saved digest, this is computed the first time it is needed to
+     * match an Interest for a full name.
+     * @return The digest.
+     */
+    public final Blob
+    getImplicitSha256Digest()
+    {
+      if (implicitDigest_ == null)
+        implicitDigest_ = new Blob
+          (Common.digestSha256(dataEncoding_.buf()), false);
+      return implicitDigest_;
+    }
+
+    private final CompactName name_;
     private final Blob dataEncoding_;
+    private Blob implicitDigest_ = null;
   }
 
   /**
@@ -916,7 +967,7 @@ public class MemoryContentCache implements OnInterestCallback {
   private double nextCleanupTime_;
   // Use HashMap without generics so it works with older Java compilers.
   private final HashMap onDataNotFoundForPrefix_ =
-    new HashMap(); /**< The map key is the prefix.toUri().
+    new HashMap(); /**< The map key is the prefix CompactName.
                     * The value is the OnInterest callback. */
   // Use ArrayList without generics so it works with older Java compilers.
   private final ArrayList<Long> interestFilterIdList_ = new ArrayList<Long>();
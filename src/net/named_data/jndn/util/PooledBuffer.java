@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) 2019 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.util;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A PooledBuffer is a reference-counted ByteBuffer from a BufferPool. Each
+ * holder of a reference must call release() once when finished, and the
+ * buffer goes back to the pool when the reference count becomes zero. A Blob
+ * which is a slice of the buffer (for example, the content of a Data which
+ * was decoded without copying) is only valid while a reference is held.
+ */
+public class PooledBuffer {
+  /**
+   * Create a PooledBuffer with a reference count of 1. This is called by
+   * BufferPool.acquire().
+   * @param pool The BufferPool which gets this buffer when it is released.
+   * @param buffer The ByteBuffer.
+   */
+  PooledBuffer(BufferPool pool, ByteBuffer buffer)
+  {
+    pool_ = pool;
+    buffer_ = buffer;
+  }
+
+  /**
+   * Get the ByteBuffer. This is only valid while a reference is held.
+   * @return The ByteBuffer.
+   */
+  public final ByteBuffer
+  getBuffer() { return buffer_; }
+
+  /**
+   * Check if the given buffer shares the same backing array as this buffer,
+   * for example if it is a slice of getBuffer().
+   * @param buffer The ByteBuffer to check.
+   * @return True if buffer is in this buffer.
+   */
+  public final boolean
+  contains(ByteBuffer buffer)
+  {
+    return buffer.hasArray() && buffer_.hasArray() &&
+      buffer.array() == buffer_.array();
+  }
+
+  /**
+   * Add a reference so that the buffer is not reused until release() is called
+   * again.
+   * @return This PooledBuffer so that you can chain calls.
+   * @throws Error If the buffer was already released to the pool.
+   */
+  public final PooledBuffer
+  retain()
+  {
+    while (true) {
+      int count = referenceCount_.get();
+      if (count <= 0)
+        throw new Error("PooledBuffer.retain: The buffer is already released");
+      if (referenceCount_.compareAndSet(count, count + 1))
+        return this;
+    }
+  }
+
+  /**
+   * Remove a reference. When the reference count becomes zero, return the
+   * buffer to the pool.
+   * @throws Error If the buffer was already released to the pool.
+   */
+  public final void
+  release()
+  {
+    int count = referenceCount_.decrementAndGet();
+    if (count == 0)
+      pool_.returnBuffer(this);
+    else if (count < 0)
+      throw new Error("PooledBuffer.release: The buffer is already released");
+  }
+
+  /**
+   * Get the current reference count.
+   * @return The reference count.
+   */
+  public final int
+  getReferenceCount() { return referenceCount_.get(); }
+
+  /**
+   * This is called by BufferPool.acquire() to reuse this buffer.
+   */
+  final void
+  reset()
+  {
+    buffer_.clear();
+    referenceCount_.set(1);
+  }
+
+  private final BufferPool pool_;
+  private final ByteBuffer buffer_;
+  private final AtomicInteger referenceCount_ = new AtomicInteger(1);
+}
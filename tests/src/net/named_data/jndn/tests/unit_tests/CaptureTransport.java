@@ -0,0 +1,67 @@
+/**
+ * Copyright (C) 2019 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.tests.unit_tests;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import net.named_data.jndn.encoding.ElementListener;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.transport.Transport;
+import net.named_data.jndn.util.Blob;
+
+/**
+ * A CaptureTransport saves each sent packet and lets the test deliver packets
+ * to the ElementListener as if they were received.
+ */
+class CaptureTransport extends Transport {
+  public boolean
+  isLocal(Transport.ConnectionInfo connectionInfo) { return true; }
+
+  public boolean
+  isAsync() { return false; }
+
+  public void
+  connect
+    (Transport.ConnectionInfo connectionInfo, ElementListener elementListener,
+     Runnable onConnected)
+  {
+    elementListener_ = elementListener;
+    if (onConnected != null)
+      onConnected.run();
+  }
+
+  public void
+  send(ByteBuffer data)
+  {
+    sentPackets_.add(new Blob(data, true));
+  }
+
+  public void
+  processEvents() {}
+
+  public void
+  receive(Blob element) throws EncodingException
+  {
+    elementListener_.onReceivedElement(element.buf());
+  }
+
+  public ElementListener elementListener_;
+  public final ArrayList<Blob> sentPackets_ = new ArrayList<Blob>();
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright (C) 2019 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.tests.unit_tests;
+
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.NetworkNack;
+import net.named_data.jndn.OnData;
+import net.named_data.jndn.OnNetworkNack;
+
+/**
+ * A NackCounter counts the calls to onData and onNetworkNack, and saves the
+ * reason of the last network Nack.
+ */
+class NackCounter implements OnData, OnNetworkNack {
+  public void
+  onData(Interest interest, Data data) { ++onDataCallCount_; }
+
+  public void
+  onNetworkNack(Interest interest, NetworkNack networkNack)
+  {
+    ++onNetworkNackCallCount_;
+    lastReason_ = networkNack.getReason();
+  }
+
+  public int onDataCallCount_ = 0;
+  public int onNetworkNackCallCount_ = 0;
+  public NetworkNack.Reason lastReason_ = null;
+}
@@ -0,0 +1,186 @@
+/**
+ * Copyright (C) 2019 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.tests.unit_tests;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.encoding.ElementListener;
+import net.named_data.jndn.encoding.ElementReader;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.transport.AsyncTcpTransport;
+import net.named_data.jndn.util.Blob;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestAsyncTcpSendQueue {
+  ScheduledExecutorService threadPool_;
+  ServerSocketChannel server_;
+  SocketChannel peer_;
+  AsyncTcpTransport transport_;
+
+  @Before
+  public void
+  setUp() throws IOException, InterruptedException
+  {
+    threadPool_ = Executors.newScheduledThreadPool(4);
+    server_ = ServerSocketChannel.open();
+    server_.bind(new InetSocketAddress("127.0.0.1", 0));
+
+    transport_ = new AsyncTcpTransport(threadPool_);
+    final CountDownLatch connected = new CountDownLatch(1);
+    transport_.connect
+      (new AsyncTcpTransport.ConnectionInfo
+       ("127.0.0.1", ((InetSocketAddress)server_.getLocalAddress()).getPort()),
+       new ElementListener() {
+         public void onReceivedElement(ByteBuffer element) {}
+       },
+       new Runnable() {
+         public void run() { connected.countDown(); }
+       });
+    peer_ = server_.accept();
+    assertTrue(connected.await(5, TimeUnit.SECONDS));
+  }
+
+  @After
+  public void
+  tearDown() throws IOException
+  {
+    // Close the transport first so that the pending read doesn't fail when
+    // the thread pool shuts down.
+    transport_.close();
+    threadPool_.shutdown();
+    if (peer_ != null)
+      peer_.close();
+    server_.close();
+  }
+
+  /**
+   * Read from the peer until nPackets elements are received.
+   * @return The number of bytes read.
+   */
+  long
+  readPackets(int nPackets) throws IOException, EncodingException
+  {
+    final int[] nReceived = new int[1];
+    ElementReader reader = new ElementReader(new ElementListener() {
+      public void onReceivedElement(ByteBuffer element) { ++nReceived[0]; }
+    });
+    ByteBuffer buffer = ByteBuffer.allocate(65536);
+    long nBytes = 0;
+    while (nReceived[0] < nPackets) {
+      buffer.clear();
+      int bytesRead = peer_.read(buffer);
+      if (bytesRead < 0)
+        break;
+      nBytes += bytesRead;
+      buffer.flip();
+      reader.onReceivedData(buffer);
+    }
+
+    assertEquals(nPackets, nReceived[0]);
+    return nBytes;
+  }
+
+  @Test
+  public void
+  testConcurrentSend()
+    throws IOException, EncodingException, InterruptedException
+  {
+    final ByteBuffer encoding =
+      new Data(new Name("/test/async-tcp")).wireEncode().buf();
+    final int nThreads = 4;
+    final int nPacketsPerThread = 2000;
+
+    Thread[] threads = new Thread[nThreads];
+    final AtomicInteger nErrors = new AtomicInteger();
+    for (int t = 0; t < nThreads; ++t) {
+      threads[t] = new Thread() {
+        public void run() {
+          try {
+            for (int i = 0; i < nPacketsPerThread; ++i)
+              transport_.send(encoding);
+          } catch (IOException ex) {
+            nErrors.incrementAndGet();
+          }
+        }
+      };
+      threads[t].start();
+    }
+
+    // Each packet must arrive whole without interleaving.
+    long nBytes = readPackets(nThreads * nPacketsPerThread);
+    for (int t = 0; t < nThreads; ++t)
+      threads[t].join();
+    assertEquals(0, nErrors.get());
+    assertEquals((long)nThreads * nPacketsPerThread * encoding.remaining(),
+                 nBytes);
+  }
+
+  @Test
+  public void
+  testBackPressure()
+    throws IOException, EncodingException, InterruptedException
+  {
+    final CountDownLatch backPressured = new CountDownLatch(1);
+    final CountDownLatch resumed = new CountDownLatch(1);
+    transport_.setHighWaterMark(100000);
+    transport_.setOnBackPressure(new AsyncTcpTransport.OnBackPressure() {
+      public void onBackPressure(boolean isBackPressured) {
+        if (isBackPressured)
+          backPressured.countDown();
+        else
+          resumed.countDown();
+      }
+    });
+
+    Data data = new Data(new Name("/test/async-tcp"));
+    data.setContent(new Blob(new byte[8000]));
+    ByteBuffer encoding = data.wireEncode().buf();
+
+    // The peer doesn't read, so the socket buffers fill and the queue grows.
+    // Send without blocking until back-pressure is signaled.
+    int nPackets = 0;
+    while (!transport_.getIsBackPressured()) {
+      transport_.send(encoding);
+      ++nPackets;
+      assertTrue("Expected back-pressure", nPackets < 100000);
+    }
+    assertTrue(backPressured.await(5, TimeUnit.SECONDS));
+    assertTrue(transport_.getQueuedSendBytes() >= 100000);
+
+    // Reading drains the queue, which signals to resume.
+    readPackets(nPackets);
+    assertTrue(resumed.await(5, TimeUnit.SECONDS));
+    assertTrue(!transport_.getIsBackPressured());
+  }
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright (C) 2019 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.tests.unit_tests;
+
+import java.util.Arrays;
+import net.named_data.jndn.CompactName;
+import net.named_data.jndn.ComponentType;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.util.Blob;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class TestCompactName {
+  @Test
+  public void
+  testComponents() throws EncodingException
+  {
+    Name name = new Name("/local/ndn/prefix")
+      .append(new Blob(new byte[300]), ComponentType.OTHER_CODE, 0x1000)
+      .appendImplicitSha256Digest(new byte[32]);
+    CompactName compactName = new CompactName(name);
+
+    assertEquals(name.size(), compactName.size());
+    for (int i = 0; i < name.size(); ++i)
+      assertTrue(compactName.get(i).equals(name.get(i)));
+    assertTrue(compactName.get(-1).equals(name.get(-1)));
+    assertTrue(compactName.toName().equals(name));
+    assertEquals(name.toUri(), compactName.toUri());
+
+    try {
+      compactName.get(name.size());
+      fail("Expected an exception for an index out of bounds");
+    } catch (IndexOutOfBoundsException ex) {}
+  }
+
+  @Test
+  public void
+  testPrefixViews()
+  {
+    CompactName name = new CompactName(new Name("/a/b/c/d"));
+    assertEquals("/a/b", name.getPrefix(2).toUri());
+    assertEquals("/a/b/c", name.getPrefix(-1).toUri());
+    assertEquals("/b/c", name.getSubName(1, 2).toUri());
+    assertEquals("/c/d", name.getSubName(-2).toUri());
+    assertEquals("/c/d", name.getSubName(2, 10).toUri());
+    assertEquals(0, name.getPrefix(0).size());
+    assertSame(name, name.getPrefix(4));
+
+    // A view equals and hashes the same as a new CompactName.
+    CompactName subName = name.getSubName(1, 2);
+    CompactName expected = new CompactName(new Name("/b/c"));
+    assertTrue(subName.equals(expected));
+    assertEquals(expected.hashCode(), subName.hashCode());
+    assertEquals("/c", subName.getSubName(1).toUri());
+
+    assertTrue(name.getPrefix(2).isPrefixOf(name));
+    assertTrue(name.getPrefix(0).isPrefixOf(name));
+    assertTrue(name.isPrefixOf(name));
+    assertFalse(name.isPrefixOf(name.getPrefix(2)));
+    assertFalse(new CompactName(new Name("/a/bb")).isPrefixOf(name));
+    // The byte-wise match doesn't match part of a component.
+    assertFalse(new CompactName(new Name("/a/b/c/d")).isPrefixOf
+      (new CompactName(new Name("/a/b/c/dd"))));
+  }
+
+  @Test
+  public void
+  testEquals()
+  {
+    CompactName name = new CompactName(new Name("/a/b"));
+    assertTrue(name.equals(new CompactName(new Name("/a/b"))));
+    assertFalse(name.equals(new CompactName(new Name("/a/bb"))));
+    assertFalse(name.equals(new CompactName(new Name("/a"))));
+    // Unlike Name.equals, the component type is compared.
+    assertFalse(name.equals(new CompactName
+      (new Name("/a").append("b", ComponentType.OTHER_CODE, 0x20))));
+    assertFalse(name.equals((Object)new Name("/a/b")));
+  }
+
+  @Test
+  public void
+  testCompare() throws EncodingException
+  {
+    // These are the tests for Name.compare in TestNameMethods.
+    String[][] ordered = new String[][] {
+      { "/A", "/B" }, { "/A", "/AA" }, { "/A", "/A/C" }, { "/B", "/AA" },
+      { "/a/b/d", "/a/b/cc" }, { "/c/a", "/bb" }, { "", "/A" }
+    };
+    for (int i = 0; i < ordered.length; ++i) {
+      CompactName name1 = new CompactName(new Name(ordered[i][0]));
+      CompactName name2 = new CompactName(new Name(ordered[i][1]));
+      assertTrue(name1.compare(name2) < 0);
+      assertTrue(name2.compare(name1) > 0);
+      assertEquals(0, name1.compare(new CompactName(new Name(ordered[i][0]))));
+    }
+
+    // Compare with Name.compare, including components with the different
+    // encodings of the type and length.
+    Name[] names = new Name[] {
+      new Name("/a/b"),
+      new Name("/a").append(new Blob(new byte[252])),
+      new Name("/a").append(new Blob(new byte[253])),
+      new Name("/a").append(new Blob(new byte[70000])),
+      new Name("/a").append(new Blob(new byte[1]), ComponentType.OTHER_CODE, 0x7),
+      new Name("/a").append(new Blob(new byte[1]), ComponentType.OTHER_CODE, 0x300),
+      new Name("/a").appendImplicitSha256Digest(new byte[32]),
+      new Name("/a/b/c").getPrefix(2)
+    };
+    for (int i = 0; i < names.length; ++i) {
+      for (int j = 0; j < names.length; ++j) {
+        int expected = Integer.signum(names[i].compare(names[j]));
+        int actual = Integer.signum
+          (new CompactName(names[i]).compare(new CompactName(names[j])));
+        assertEquals(expected, actual);
+      }
+    }
+
+    CompactName[] compactNames = new CompactName[] {
+      new CompactName(new Name("/c")), new CompactName(new Name("/a/b/cc")),
+      new CompactName(new Name("/c/a")).getPrefix(1).getSubName(0),
+      new CompactName(new Name("/a/b/d"))
+    };
+    Arrays.sort(compactNames);
+    assertEquals("/a/b/d", compactNames[0].toUri());
+    assertEquals("/a/b/cc", compactNames[1].toUri());
+    assertEquals("/c", compactNames[2].toUri());
+    assertEquals("/c", compactNames[3].toUri());
+  }
+}
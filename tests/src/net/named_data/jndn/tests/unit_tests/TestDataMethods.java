@@ -28,6 +28,7 @@ import java.util.logging.Logger;
 import net.named_data.jndn.ContentType;
 import net.named_data.jndn.Data;
 import net.named_data.jndn.GenericSignature;
+import net.named_data.jndn.Interest;
 import net.named_data.jndn.KeyLocatorType;
 import net.named_data.jndn.Name;
 import net.named_data.jndn.Sha256WithRsaSignature;
@@ -49,6 +50,8 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
 import org.junit.Before;
 import org.junit.Test;
@@ -539,6 +542,79 @@ public class TestDataMethods {
                  initialDump.toArray(), dumpData(reDecodedData).toArray());
   }
 
+  @Test
+  public void
+  testWireEncodeInto() throws EncodingException
+  {
+    Data data = new Data();
+    data.wireDecode(codedData);
+    // Set the content again to clear the cached encoding so we encode again.
+    data.setContent(data.getContent());
+
+    Blob expected = TlvWireFormat.get().encodeData(data);
+
+    // Encode into a direct buffer, such as from a BufferPool for sending.
+    ByteBuffer output = ByteBuffer.allocateDirect(Common.MAX_NDN_PACKET_SIZE);
+    int length = data.wireEncodeInto(output);
+    assertEquals(expected.size(), length);
+    assertEquals(length, output.position());
+    // This doesn't set the cached encoding.
+    assertTrue(data.getDefaultWireEncoding().isNull());
+
+    output.flip();
+    assertTrue(new Blob(output, true).equals(expected));
+
+    // With a cached encoding, copy it after the existing output.
+    data.wireEncode();
+    output.limit(output.capacity());
+    output.position(length);
+    assertEquals(length, data.wireEncodeInto(output));
+    assertEquals(2 * length, output.position());
+  }
+
+  @Test
+  public void
+  testFreeze() throws EncodingException
+  {
+    Blob encoding = new Blob(codedData, false);
+    Data data = new Data();
+    data.lazyWireDecode(encoding);
+    assertFalse(data.isFrozen());
+    assertSame(data, data.freeze());
+    assertTrue(data.isFrozen());
+    assertTrue(data.getName().isFrozen());
+    assertTrue(data.getMetaInfo().isFrozen());
+    // The lazy fields were decoded and the encoding is kept.
+    assertTrue(data.wireEncode().equals(encoding));
+    long changeCount = data.getChangeCount();
+
+    try {
+      data.setContent(new Blob("changed"));
+      fail("Expected an exception for setContent on a frozen Data");
+    } catch (UnsupportedOperationException ex) {}
+    try {
+      data.getName().append("changed");
+      fail("Expected an exception for changing the Name of a frozen Data");
+    } catch (UnsupportedOperationException ex) {}
+    try {
+      data.getMetaInfo().setFreshnessPeriod(1000);
+      fail("Expected an exception for changing the MetaInfo of a frozen Data");
+    } catch (UnsupportedOperationException ex) {}
+    try {
+      data.wireDecode(encoding);
+      fail("Expected an exception for wireDecode on a frozen Data");
+    } catch (UnsupportedOperationException ex) {}
+    assertEquals(changeCount, data.getChangeCount());
+    assertTrue(data.wireEncode().equals(encoding));
+
+    // A copy is not frozen.
+    Data copy = new Data(data);
+    assertFalse(copy.isFrozen());
+    assertFalse(copy.getName().isFrozen());
+    copy.getName().append("changed");
+    assertEquals(data.getName().size() + 1, copy.getName().size());
+  }
+
   @Test
   public void
   testEmptySignature()
@@ -710,6 +786,40 @@ public class TestDataMethods {
     assertFalse(data.getFullName().get(-1).equals(saveFullName.get(-1)));
   }
 
+  @Test
+  public void
+  testImplicitDigest() throws EncodingException
+  {
+    Data data = new Data();
+    data.wireDecode(new Blob(codedData, false));
+    assertNull(data.getSavedImplicitSha256Digest());
+
+    Blob digest = data.getImplicitSha256Digest();
+    assertSame(digest, data.getSavedImplicitSha256Digest());
+    assertTrue(new Blob(Common.digestSha256(codedData)).equals(digest));
+    // The digest and full name are saved with the encoding.
+    assertSame(digest, data.getImplicitSha256Digest());
+    assertSame(data.getFullName(), data.getFullName());
+    assertTrue(data.getFullName().isFrozen());
+
+    // A copy keeps the saved digest.
+    Data copy = new Data(data);
+    assertSame(digest, copy.getImplicitSha256Digest());
+    assertSame(data.getFullName(), copy.getFullName());
+
+    // Changing and encoding again must not return the previous full name.
+    copy.setContent(new Blob("changed"));
+    assertNull(copy.getSavedImplicitSha256Digest());
+    copy.wireEncode();
+    assertFalse(copy.getImplicitSha256Digest().equals(digest));
+    assertTrue(new Blob(Common.digestSha256(copy.wireEncode().buf())).equals
+      (copy.getFullName().get(-1).getValue()));
+
+    // An Interest for the full name matches.
+    assertTrue(new Interest(data.getFullName()).matchesData(data));
+    assertFalse(new Interest(data.getFullName()).matchesData(copy));
+  }
+
   @Test
   public void
   testCongestionMark() throws EncodingException
@@ -0,0 +1,140 @@
+/**
+ * Copyright (C) 2019 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.tests.unit_tests;
+
+import java.util.ArrayList;
+import net.named_data.jndn.impl.DelayedCallTable;
+import static org.junit.Assert.assertEquals;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestDelayedCallTable {
+  DelayedCallTable table_;
+  ArrayList<Integer> calls_;
+
+  @Before
+  public void
+  setUp()
+  {
+    table_ = new DelayedCallTable();
+    calls_ = new ArrayList<Integer>();
+  }
+
+  private DelayedCallTable.Entry
+  callLater(double delayMilliseconds, final int id)
+  {
+    return table_.callLater(delayMilliseconds, new Runnable() {
+      public void run() { calls_.add(id); }
+    });
+  }
+
+  @Test
+  public void
+  testOrder()
+  {
+    callLater(3000, 3);
+    callLater(1000, 1);
+    callLater(2000, 2);
+    // Entries with the same call time are called in the order they were added.
+    callLater(2000, 22);
+
+    table_.callTimedOut();
+    assertEquals(0, calls_.size());
+
+    table_.setNowOffsetMilliseconds_(2500);
+    table_.callTimedOut();
+    assertEquals(3, calls_.size());
+    assertEquals(1, (int)calls_.get(0));
+    assertEquals(2, (int)calls_.get(1));
+    assertEquals(22, (int)calls_.get(2));
+    assertEquals(1, table_.size());
+
+    table_.setNowOffsetMilliseconds_(3500);
+    table_.callTimedOut();
+    assertEquals(4, calls_.size());
+    assertEquals(3, (int)calls_.get(3));
+    assertEquals(0, table_.size());
+  }
+
+  @Test
+  public void
+  testCancel()
+  {
+    DelayedCallTable.Entry entry1 = callLater(1000, 1);
+    callLater(2000, 2);
+    entry1.cancel();
+    // Cancelling twice does nothing.
+    entry1.cancel();
+    assertEquals(1, table_.size());
+
+    table_.setNowOffsetMilliseconds_(3000);
+    table_.callTimedOut();
+    assertEquals(1, calls_.size());
+    assertEquals(2, (int)calls_.get(0));
+  }
+
+  @Test
+  public void
+  testCancelMany()
+  {
+    ArrayList<DelayedCallTable.Entry> entries =
+      new ArrayList<DelayedCallTable.Entry>();
+    for (int i = 0; i < 1000; ++i)
+      entries.add(callLater(1000 + i, i));
+
+    // Cancel all but the odd entries, which purges the cancelled entries.
+    for (int i = 0; i < entries.size(); i += 2)
+      entries.get(i).cancel();
+    assertEquals(500, table_.size());
+
+    table_.setNowOffsetMilliseconds_(5000);
+    table_.callTimedOut();
+    assertEquals(500, calls_.size());
+    for (int i = 0; i < calls_.size(); ++i)
+      assertEquals(2 * i + 1, (int)calls_.get(i));
+
+    // Cancelling an entry which was already called does nothing.
+    entries.get(1).cancel();
+    assertEquals(0, table_.size());
+  }
+
+  @Test
+  public void
+  testNextCallTime()
+  {
+    assertEquals(-1, table_.getNextCallTime(), 0);
+
+    final int[] nWakeups = new int[] { 0 };
+    table_.setWakeup(new Runnable() {
+      public void run() { ++nWakeups[0]; }
+    });
+    DelayedCallTable.Entry entry1 = callLater(1000, 1);
+    assertEquals(1, nWakeups[0]);
+    // A later entry doesn't change the next call time, so no wakeup.
+    DelayedCallTable.Entry entry2 = callLater(2000, 2);
+    assertEquals(1, nWakeups[0]);
+    assertEquals(entry1.getCallTime(), table_.getNextCallTime(), 0);
+
+    entry1.cancel();
+    assertEquals(entry2.getCallTime(), table_.getNextCallTime(), 0);
+    entry2.cancel();
+    assertEquals(-1, table_.getNextCallTime(), 0);
+  }
+}
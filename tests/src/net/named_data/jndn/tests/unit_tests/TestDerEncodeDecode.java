@@ -32,6 +32,8 @@ import net.named_data.jndn.encoding.der.DerNode.DerOid;
 import net.named_data.jndn.encoding.der.DerNode.DerSequence;
 import net.named_data.jndn.encoding.der.DerNode.DerOctetString;
 import net.named_data.jndn.encoding.der.DerNode.DerInteger;
+import net.named_data.jndn.encoding.der.DerNodeType;
+import net.named_data.jndn.encoding.der.DerReader;
 import net.named_data.jndn.security.UnrecognizedKeyFormatException;
 import net.named_data.jndn.security.certificate.Certificate;
 import net.named_data.jndn.security.certificate.CertificateExtension;
@@ -45,6 +47,10 @@ import net.named_data.jndn.security.identity.MemoryIdentityStorage;
 import net.named_data.jndn.security.identity.MemoryPrivateKeyStorage;
 import net.named_data.jndn.util.Blob;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -274,6 +280,48 @@ public class TestDerEncodeDecode {
                  oidString, derOid.toVal());
   }
 
+  @Test
+  public void
+  testDerReader() throws DerDecodingException
+  {
+    DerReader reader = new DerReader(PUBLIC_KEY);
+    int endOffset = reader.readSequenceStart();
+
+    // Read the AlgorithmIdentifier as an element, then read into it.
+    int algorithmIdOffset = reader.getOffset();
+    ByteBuffer algorithmId = reader.readElement();
+    assertEquals("Incorrect AlgorithmIdentifier element",
+                 "300d06092a864886f70d0101010500",
+                 new Blob(algorithmId, false).toHex());
+    reader.seek(algorithmIdOffset);
+    int algorithmIdEndOffset = reader.readSequenceStart();
+    assertEquals("Incorrect algorithm OID",
+                 "1.2.840.113549.1.1.1", reader.readOid());
+    reader.finishSequence(algorithmIdEndOffset);
+
+    // The key bits are a slice of the input, not a copy.
+    assertTrue(reader.peekType(DerNodeType.BitString, endOffset));
+    ByteBuffer keyBits = reader.readPayload(DerNodeType.BitString);
+    assertSame(PUBLIC_KEY.array(), keyBits.array());
+    assertEquals("Incorrect key bits length", 0x8b, keyBits.remaining());
+    assertEquals(endOffset, reader.getOffset());
+    assertFalse(reader.peekType(DerNodeType.BitString, endOffset));
+    // The position of the input is not changed.
+    assertEquals(0, PUBLIC_KEY.position());
+
+    try {
+      new DerReader(PUBLIC_KEY).readPayload(DerNodeType.Integer);
+      fail("Expected an exception for the wrong DER type");
+    } catch (DerDecodingException ex) {}
+
+    ByteBuffer truncated = PUBLIC_KEY.duplicate();
+    truncated.limit(20);
+    try {
+      new DerReader(truncated).readSequenceStart();
+      fail("Expected an exception for the length exceeding the input");
+    } catch (DerDecodingException ex) {}
+  }
+
   @Test
   public void
   testPrepareUnsignedCertificate() throws SecurityException, DerDecodingException
@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2019 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+
+package net.named_data.jndn.tests.unit_tests;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.encoding.ElementListener;
+import net.named_data.jndn.encoding.ElementReader;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.encoding.tlv.TlvStructureDecoder;
+import net.named_data.jndn.util.Blob;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class TestElementReader implements ElementListener {
+  ArrayList<Blob> received_ = new ArrayList<Blob>();
+
+  public void
+  onReceivedElement(ByteBuffer element)
+  {
+    received_.add(new Blob(element, true));
+  }
+
+  @Test
+  public void
+  testSplitStream() throws EncodingException
+  {
+    // Use elements with a 1-byte length, a 3-byte length and a 0-length value.
+    Blob[] elements = new Blob[] {
+      new Interest(new Name("/test/a")).wireEncode(),
+      new Data(new Name("/test/b")).setContent(new Blob(new byte[1000]))
+        .wireEncode(),
+      new Blob(new byte[] { 0x64, 0x00 })
+    };
+    int totalLength = 0;
+    for (int i = 0; i < elements.length; ++i)
+      totalLength += elements[i].size();
+    ByteBuffer stream = ByteBuffer.allocate(totalLength);
+    for (int i = 0; i < elements.length; ++i)
+      stream.put(elements[i].buf());
+    stream.flip();
+
+    // Split the stream at every position, so that the headers are split
+    // between reads.
+    ElementReader reader = new ElementReader(this);
+    for (int split = 0; split <= totalLength; ++split) {
+      received_.clear();
+      ByteBuffer first = stream.duplicate();
+      first.limit(split);
+      ByteBuffer second = stream.duplicate();
+      second.position(split);
+      reader.onReceivedData(first);
+      reader.onReceivedData(second);
+
+      assertEquals("Split at " + split, elements.length, received_.size());
+      for (int i = 0; i < elements.length; ++i)
+        assertTrue("Split at " + split, received_.get(i).equals(elements[i]));
+    }
+  }
+
+  @Test
+  public void
+  testFindElementEnd() throws EncodingException
+  {
+    TlvStructureDecoder decoder = new TlvStructureDecoder();
+
+    // A 3-byte type and a 5-byte length with a 2-byte value.
+    ByteBuffer input = ByteBuffer.wrap(new byte[]
+      { (byte)253, 0x01, 0x00, (byte)254, 0x00, 0x00, 0x00, 0x02, 0x01, 0x02,
+        0x05 });
+    assertTrue(decoder.findElementEnd(input));
+    assertEquals(10, decoder.getOffset());
+
+    // Reuse the decoder at the offset of the next element, which is incomplete.
+    decoder.reset();
+    decoder.seek(10);
+    assertFalse(decoder.findElementEnd(input));
+    assertEquals(11, decoder.getOffset());
+
+    // A length which doesn't fit in a Java int.
+    decoder.reset();
+    decoder.seek(0);
+    try {
+      decoder.findElementEnd(ByteBuffer.wrap(new byte[]
+        { 0x05, (byte)254, (byte)0x80, 0x00, 0x00, 0x00 }));
+      fail("Expected an EncodingException for a 32-bit negative length");
+    } catch (EncodingException ex) {}
+
+    decoder.reset();
+    try {
+      decoder.findElementEnd(ByteBuffer.wrap(new byte[]
+        { 0x05, (byte)255, 0, 0, 0, 0, 0, 0, 0, 1 }));
+      fail("Expected an EncodingException for a 64-bit length");
+    } catch (EncodingException ex) {}
+  }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright (C) 2019 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.tests.unit_tests;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Face;
+import net.named_data.jndn.FaceEventLoop;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.transport.UdpTransport;
+import net.named_data.jndn.util.Blob;
+import net.named_data.jndn.util.Common;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestFaceEventLoop {
+  FaceEventLoop loop_;
+  DatagramChannel peer_;
+  Face face_;
+
+  @Before
+  public void
+  setUp() throws IOException
+  {
+    loop_ = new FaceEventLoop();
+    // The peer stands in for the forwarder.
+    peer_ = DatagramChannel.open();
+    peer_.bind(new InetSocketAddress("127.0.0.1", 0));
+    face_ = new Face
+      (new UdpTransport(), new UdpTransport.ConnectionInfo
+       ("127.0.0.1", ((InetSocketAddress)peer_.getLocalAddress()).getPort()));
+    loop_.addFace(face_);
+  }
+
+  @After
+  public void
+  tearDown() throws IOException
+  {
+    face_.shutdown();
+    loop_.close();
+    peer_.close();
+  }
+
+  @Test
+  public void
+  testWaitForCallLater() throws IOException, EncodingException
+  {
+    final int[] callCount = new int[] { 0 };
+    face_.callLater(50, new Runnable() {
+      public void run() { ++callCount[0]; }
+    });
+
+    double startTime = Common.getNowMilliseconds();
+    int nIterations = 0;
+    while (callCount[0] == 0 && nIterations < 100) {
+      loop_.processEvents(5000);
+      ++nIterations;
+    }
+    double elapsed = Common.getNowMilliseconds() - startTime;
+
+    assertEquals(1, callCount[0]);
+    assertTrue(elapsed >= 40 && elapsed < 2000);
+    // The loop should block until the call time, not spin.
+    assertTrue(nIterations <= 3);
+  }
+
+  @Test
+  public void
+  testWaitForData() throws IOException, EncodingException
+  {
+    NackCounter counter = new NackCounter();
+    Name name = new Name("/test/event-loop");
+    face_.expressInterest(name, counter, null, counter);
+
+    // Receive the Interest at the peer and reply with Data.
+    ByteBuffer buffer = ByteBuffer.allocate(Common.MAX_NDN_PACKET_SIZE);
+    SocketAddress faceAddress = peer_.receive(buffer);
+    buffer.flip();
+    Interest interest = new Interest();
+    interest.wireDecode(new Blob(buffer, true));
+    assertTrue(interest.getName().equals(name));
+    peer_.send(new Data(name).wireEncode().buf(), faceAddress);
+
+    // The Interest lifetime is much longer than the wait.
+    double startTime = Common.getNowMilliseconds();
+    while (counter.onDataCallCount_ == 0 &&
+           Common.getNowMilliseconds() - startTime < 2000)
+      loop_.processEvents(2000);
+
+    assertEquals(1, counter.onDataCallCount_);
+  }
+
+  @Test
+  public void
+  testStop() throws IOException, EncodingException
+  {
+    face_.callLater(10, new Runnable() {
+      public void run() { loop_.stop(); }
+    });
+
+    // run() returns when the callback calls stop().
+    loop_.run();
+  }
+}
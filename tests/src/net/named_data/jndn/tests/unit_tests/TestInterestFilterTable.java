@@ -0,0 +1,97 @@
+/**
+ * Copyright (C) 2019 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.tests.unit_tests;
+
+import java.util.ArrayList;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.InterestFilter;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.impl.InterestFilterTable;
+import static org.junit.Assert.assertEquals;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestInterestFilterTable {
+  InterestFilterTable table_;
+
+  @Before
+  public void
+  setUp()
+  {
+    table_ = new InterestFilterTable();
+    table_.setInterestFilter(1, new InterestFilter("/a/b"), null, null);
+    table_.setInterestFilter(2, new InterestFilter("/"), null, null);
+    table_.setInterestFilter(3, new InterestFilter("/a/b/c"), null, null);
+    table_.setInterestFilter(4, new InterestFilter("/a", "<b><>*"), null, null);
+    table_.setInterestFilter(5, new InterestFilter("/a", "<x>"), null, null);
+    table_.setInterestFilter(6, new InterestFilter("/z"), null, null);
+  }
+
+  private ArrayList<Long>
+  getMatchedIds(String uri)
+  {
+    ArrayList matchedFilters = new ArrayList();
+    table_.getMatchedFilters(new Interest(new Name(uri)), matchedFilters);
+
+    ArrayList<Long> result = new ArrayList<Long>();
+    for (int i = 0; i < matchedFilters.size(); ++i)
+      result.add
+        (((InterestFilterTable.Entry)matchedFilters.get(i)).getInterestFilterId());
+    return result;
+  }
+
+  @Test
+  public void
+  testMatch()
+  {
+    ArrayList<Long> ids = getMatchedIds("/a/b/c/d");
+    // The matches are in the order the filters were set.
+    assertEquals(4, ids.size());
+    assertEquals(1, (long)ids.get(0));
+    assertEquals(2, (long)ids.get(1));
+    assertEquals(3, (long)ids.get(2));
+    assertEquals(4, (long)ids.get(3));
+
+    ids = getMatchedIds("/a/x");
+    assertEquals(2, ids.size());
+    assertEquals(2, (long)ids.get(0));
+    assertEquals(5, (long)ids.get(1));
+
+    ids = getMatchedIds("/q");
+    assertEquals(1, ids.size());
+    assertEquals(2, (long)ids.get(0));
+  }
+
+  @Test
+  public void
+  testUnset()
+  {
+    table_.unsetInterestFilter(2);
+    table_.unsetInterestFilter(3);
+    // Unsetting again does nothing.
+    table_.unsetInterestFilter(3);
+
+    ArrayList<Long> ids = getMatchedIds("/a/b/c/d");
+    assertEquals(2, ids.size());
+    assertEquals(1, (long)ids.get(0));
+    assertEquals(4, (long)ids.get(1));
+    assertEquals(0, getMatchedIds("/q").size());
+  }
+}
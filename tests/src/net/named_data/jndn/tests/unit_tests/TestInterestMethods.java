@@ -310,6 +310,55 @@ public class TestInterestMethods {
                       initialDump.toArray(), redecodedDump.toArray());
   }
 
+  @Test
+  public void
+  testWireEncodeInto() throws EncodingException
+  {
+    Interest interest = new Interest(referenceInterest);
+    // Change the nonce to clear the cached encoding so we encode again.
+    interest.setNonce(new Blob(new byte[] { 1, 2, 3, 4 }, false));
+    Blob expected = interest.wireEncode();
+    interest.setNonce(new Blob(new byte[] { 1, 2, 3, 4 }, false));
+
+    ByteBuffer output = ByteBuffer.allocateDirect(expected.size());
+    assertEquals(expected.size(), interest.wireEncodeInto(output));
+    assertFalse(output.hasRemaining());
+    output.flip();
+    assertTrue(new Blob(output, true).equals(expected));
+  }
+
+  @Test
+  public void
+  testFreeze()
+  {
+    Interest interest = new Interest(referenceInterest);
+    Blob encoding = interest.wireEncode();
+    interest.freeze();
+    assertTrue(interest.isFrozen());
+    assertTrue(interest.getName().isFrozen());
+    assertTrue(interest.wireEncode().equals(encoding));
+
+    try {
+      interest.setMustBeFresh(false);
+      fail("Expected an exception for setMustBeFresh on a frozen Interest");
+    } catch (UnsupportedOperationException ex) {}
+    try {
+      interest.refreshNonce();
+      fail("Expected an exception for refreshNonce on a frozen Interest");
+    } catch (UnsupportedOperationException ex) {}
+    try {
+      interest.getName().append("changed");
+      fail("Expected an exception for changing the Name of a frozen Interest");
+    } catch (UnsupportedOperationException ex) {}
+    assertTrue(interest.wireEncode().equals(encoding));
+
+    // A copy is not frozen.
+    Interest copy = new Interest(interest);
+    assertFalse(copy.isFrozen());
+    copy.refreshNonce();
+    assertFalse(copy.getNonce().equals(interest.getNonce()));
+  }
+
   @Test
   public void
   testRedecodeImplicitDigestExclude()
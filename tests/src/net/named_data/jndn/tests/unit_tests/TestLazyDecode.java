@@ -0,0 +1,164 @@
+/**
+ * Copyright (C) 2019 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.tests.unit_tests;
+
+import java.io.IOException;
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Face;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.OnData;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.util.Blob;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class TestLazyDecode {
+  static Data
+  createData()
+  {
+    Data data = new Data(new Name("/test/lazy/data"));
+    data.getMetaInfo().setFreshnessPeriod(5000);
+    data.setContent(new Blob("lazy content"));
+    return data;
+  }
+
+  @Test
+  public void
+  testData() throws EncodingException
+  {
+    Blob encoding = createData().wireEncode();
+    Data fullData = new Data();
+    fullData.wireDecode(encoding);
+
+    Data lazyData = new Data();
+    lazyData.lazyWireDecode(encoding);
+    assertTrue(lazyData.getName().equals(fullData.getName()));
+    // The full name and encoding use the input without decoding other fields.
+    assertTrue(lazyData.getFullName().equals(fullData.getFullName()));
+    assertFalse(lazyData.getDefaultWireEncoding().isNull());
+    assertTrue(lazyData.wireEncode().equals(encoding));
+
+    assertEquals(fullData.getContent().toString(),
+                 lazyData.getContent().toString());
+    assertEquals(5000, lazyData.getMetaInfo().getFreshnessPeriod(), 0);
+    // Decoding the other fields doesn't invalidate the encoding.
+    assertFalse(lazyData.getDefaultWireEncoding().isNull());
+  }
+
+  @Test
+  public void
+  testSetDataFields() throws EncodingException
+  {
+    Blob encoding = createData().wireEncode();
+
+    Data data = new Data();
+    data.lazyWireDecode(encoding);
+    // Setting a field before it is accessed must not be replaced by decoding.
+    data.setContent(new Blob("new content"));
+    assertEquals("new content", data.getContent().toString());
+    assertEquals(5000, data.getMetaInfo().getFreshnessPeriod(), 0);
+
+    data = new Data();
+    data.lazyWireDecode(encoding);
+    data.setName(new Name("/new/name"));
+    assertTrue(data.getName().equals(new Name("/new/name")));
+    assertEquals("lazy content", data.getContent().toString());
+
+    // Decoding again clears the lazy fields.
+    Data other = createData().setContent(new Blob("other"));
+    data = new Data();
+    data.lazyWireDecode(encoding);
+    data.wireDecode(other.wireEncode());
+    assertEquals("other", data.getContent().toString());
+  }
+
+  @Test
+  public void
+  testInterest() throws EncodingException
+  {
+    Interest interest = new Interest(new Name("/test/lazy/interest"));
+    interest.setCanBePrefix(true);
+    interest.setMustBeFresh(true);
+    interest.setInterestLifetimeMilliseconds(3000);
+    interest.setApplicationParameters(new Blob("parameters"));
+    interest.appendParametersDigestToName();
+    Blob encoding = interest.wireEncode();
+    Interest fullInterest = new Interest();
+    fullInterest.wireDecode(encoding);
+
+    Interest lazyInterest = new Interest();
+    lazyInterest.lazyWireDecode(encoding);
+    assertTrue(lazyInterest.getName().equals(fullInterest.getName()));
+    assertTrue(lazyInterest.getNonce().equals(fullInterest.getNonce()));
+    assertTrue(lazyInterest.getCanBePrefix());
+    assertTrue(lazyInterest.getMustBeFresh());
+    assertEquals(3000, lazyInterest.getInterestLifetimeMilliseconds(), 0);
+    assertEquals("parameters",
+                 lazyInterest.getApplicationParameters().toString());
+    assertFalse(lazyInterest.getDefaultWireEncoding().isNull());
+    assertTrue(lazyInterest.wireEncode().equals(encoding));
+  }
+
+  @Test
+  public void
+  testSetInterestName() throws EncodingException
+  {
+    Interest interest = new Interest(new Name("/test/lazy/interest"));
+    interest.setMustBeFresh(true);
+    Blob encoding = interest.wireEncode();
+
+    Interest lazyInterest = new Interest();
+    lazyInterest.lazyWireDecode(encoding);
+    lazyInterest.setName(new Name("/new/name"));
+    assertTrue(lazyInterest.getName().equals(new Name("/new/name")));
+    assertTrue(lazyInterest.getMustBeFresh());
+    // Changing the name before decoding makes a new nonce, like setName.
+    assertFalse(lazyInterest.wireEncode().equals(encoding));
+  }
+
+  @Test
+  public void
+  testFaceReceive() throws IOException, EncodingException
+  {
+    CaptureTransport transport = new CaptureTransport();
+    Face face = new Face(transport, null);
+    face.setLazyDecodingEnabled(true);
+
+    NackCounter counter = new NackCounter();
+    final Data[] receivedData = new Data[1];
+    Name name = new Name("/test/lazy/data");
+    face.expressInterest(name, new OnData() {
+      public void onData(Interest interest, Data data) {
+        receivedData[0] = data;
+      }
+    });
+    // Data which doesn't match is dropped.
+    face.expressInterest(new Name("/other"), counter);
+    transport.receive(new Data(new Name("/unknown")).wireEncode());
+    assertEquals(0, counter.onDataCallCount_);
+
+    transport.receive(createData().wireEncode());
+    assertTrue(receivedData[0] != null);
+    assertEquals("lazy content", receivedData[0].getContent().toString());
+  }
+}
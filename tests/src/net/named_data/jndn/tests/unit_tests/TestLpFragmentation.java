@@ -0,0 +1,223 @@
+/**
+ * Copyright (C) 2019 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.tests.unit_tests;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Face;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.encoding.TlvWireFormat;
+import net.named_data.jndn.lp.CongestionMark;
+import net.named_data.jndn.lp.LpFragmenter;
+import net.named_data.jndn.lp.LpPacket;
+import net.named_data.jndn.lp.LpReassembler;
+import net.named_data.jndn.transport.UdpTransport;
+import net.named_data.jndn.util.Blob;
+import net.named_data.jndn.util.Common;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class TestLpFragmentation {
+  static Blob
+  createPacket(int contentSize)
+  {
+    ByteBuffer content = ByteBuffer.allocate(contentSize);
+    for (int i = 0; i < contentSize; ++i)
+      content.put((byte)i);
+    content.flip();
+
+    Data data = new Data(new Name("/test/fragmentation"));
+    data.setContent(new Blob(content, false));
+    return data.wireEncode();
+  }
+
+  static LpPacket
+  decodeLpPacket(Blob encoding) throws EncodingException
+  {
+    LpPacket lpPacket = new LpPacket();
+    TlvWireFormat.get().decodeLpPacket(lpPacket, encoding.buf());
+    return lpPacket;
+  }
+
+  @Test
+  public void
+  testEncodeDecode() throws EncodingException
+  {
+    LpPacket lpPacket = new LpPacket();
+    // The Sequence is unsigned, so test a value with the high bit set.
+    lpPacket.setSequence(0xfedcba9876543210L);
+    lpPacket.setFragIndex(2);
+    lpPacket.setFragCount(300);
+    CongestionMark congestionMark = new CongestionMark();
+    congestionMark.setCongestionMark(1);
+    lpPacket.addHeaderField(congestionMark);
+    lpPacket.setFragmentWireEncoding(new Blob(new int[] { 1, 2, 3 }));
+
+    LpPacket decoded = decodeLpPacket
+      (TlvWireFormat.get().encodeLpPacket(lpPacket));
+    assertTrue(decoded.hasSequence());
+    assertEquals(0xfedcba9876543210L, decoded.getSequence());
+    assertEquals(2, decoded.getFragIndex());
+    assertEquals(300, decoded.getFragCount());
+    assertEquals(1, CongestionMark.getFirstHeader(decoded).getCongestionMark());
+    assertTrue(decoded.getFragmentWireEncoding().equals
+      (new Blob(new int[] { 1, 2, 3 })));
+
+    // An LpPacket without fragmentation fields has the defaults.
+    decoded = decodeLpPacket
+      (new Blob(new int[] { 0x64, 0x05, 0x50, 0x03, 1, 2, 3 }));
+    assertTrue(!decoded.hasSequence());
+    assertEquals(0, decoded.getFragIndex());
+    assertEquals(1, decoded.getFragCount());
+  }
+
+  @Test
+  public void
+  testFragmentAndReassemble() throws EncodingException
+  {
+    Blob packet = createPacket(5000);
+    LpFragmenter fragmenter = new LpFragmenter(1400);
+    ArrayList<Blob> fragments = fragmenter.fragment(packet.buf());
+    assertEquals(4, fragments.size());
+    for (int i = 0; i < fragments.size(); ++i)
+      assertTrue(fragments.get(i).size() <= 1400);
+
+    // Reassemble out of order with a duplicate.
+    LpReassembler reassembler = new LpReassembler();
+    assertNull(reassembler.receive(decodeLpPacket(fragments.get(2))));
+    assertNull(reassembler.receive(decodeLpPacket(fragments.get(0))));
+    assertNull(reassembler.receive(decodeLpPacket(fragments.get(0))));
+    assertNull(reassembler.receive(decodeLpPacket(fragments.get(3))));
+    assertEquals(1, reassembler.getPartialPacketCount());
+    LpPacket result = reassembler.receive(decodeLpPacket(fragments.get(1)));
+    assertNotNull(result);
+    assertTrue(result.getFragmentWireEncoding().equals(packet));
+    assertEquals(0, reassembler.getPartialPacketCount());
+    assertEquals(1, reassembler.getDroppedFragmentCount());
+
+    // A packet which fits in the MTU is not fragmented.
+    Blob smallPacket = createPacket(100);
+    fragments = fragmenter.fragment(smallPacket.buf());
+    assertEquals(1, fragments.size());
+    assertTrue(fragments.get(0).equals(smallPacket));
+  }
+
+  @Test
+  public void
+  testReassemblyLimits() throws EncodingException
+  {
+    LpFragmenter fragmenter = new LpFragmenter(1400);
+    ArrayList<Blob> fragments1 = fragmenter.fragment(createPacket(3000).buf());
+    ArrayList<Blob> fragments2 = fragmenter.fragment(createPacket(3000).buf());
+
+    // Keep only one partial packet.
+    LpReassembler reassembler = new LpReassembler
+      (1, 10000, Common.MAX_NDN_PACKET_SIZE);
+    assertNull(reassembler.receive(decodeLpPacket(fragments1.get(0))));
+    // This evicts the first packet.
+    assertNull(reassembler.receive(decodeLpPacket(fragments2.get(0))));
+    assertEquals(1, reassembler.getPartialPacketCount());
+    assertEquals(1, reassembler.getDroppedFragmentCount());
+    // The first packet can't complete without its first fragment.
+    assertNull(reassembler.receive(decodeLpPacket(fragments1.get(1))));
+    assertNull(reassembler.receive(decodeLpPacket(fragments1.get(2))));
+    assertEquals(2, reassembler.getDroppedFragmentCount());
+
+    // With a timeout of 0, a partial packet expires on the next receive.
+    reassembler = new LpReassembler(64, 0, Common.MAX_NDN_PACKET_SIZE);
+    assertNull(reassembler.receive(decodeLpPacket(fragments1.get(0))));
+    assertNull(reassembler.receive(decodeLpPacket(fragments2.get(0))));
+    assertEquals(1, reassembler.getPartialPacketCount());
+    assertEquals(1, reassembler.getDroppedFragmentCount());
+
+    // A packet larger than the maximum size is dropped.
+    reassembler = new LpReassembler(64, 10000, 2000);
+    assertNull(reassembler.receive(decodeLpPacket(fragments1.get(0))));
+    assertNull(reassembler.receive(decodeLpPacket(fragments1.get(1))));
+    assertEquals(0, reassembler.getPartialPacketCount());
+    assertEquals(2, reassembler.getDroppedFragmentCount());
+  }
+
+  @Test
+  public void
+  testUdp() throws IOException, EncodingException
+  {
+    DatagramChannel peer = DatagramChannel.open();
+    peer.bind(new InetSocketAddress("127.0.0.1", 0));
+    UdpTransport transport = new UdpTransport();
+    transport.setMtu(1400);
+    Face face = new Face
+      (transport, new UdpTransport.ConnectionInfo
+       ("127.0.0.1", ((InetSocketAddress)peer.getLocalAddress()).getPort()));
+    try {
+      // Express an Interest which must be fragmented.
+      Interest interest = new Interest(new Name("/test/fragmentation"));
+      interest.setApplicationParameters(createPacket(3000));
+      interest.appendParametersDigestToName();
+      NackCounter counter = new NackCounter();
+      face.expressInterest(interest, counter, null, counter);
+
+      // Receive and reassemble the fragments.
+      LpReassembler reassembler = new LpReassembler();
+      ByteBuffer buffer = ByteBuffer.allocate(Common.MAX_NDN_PACKET_SIZE);
+      SocketAddress faceAddress = null;
+      LpPacket reassembled = null;
+      while (reassembled == null) {
+        buffer.clear();
+        faceAddress = peer.receive(buffer);
+        assertTrue(buffer.position() <= 1400);
+        buffer.flip();
+        reassembled = reassembler.receive
+          (decodeLpPacket(new Blob(buffer, true)));
+      }
+      Interest receivedInterest = new Interest();
+      receivedInterest.wireDecode(reassembled.getFragmentWireEncoding());
+      assertTrue(receivedInterest.getName().equals(interest.getName()));
+
+      // Reply with a fragmented Data.
+      Data data = new Data(interest.getName());
+      data.setContent(createPacket(6000));
+      ArrayList<Blob> fragments = new LpFragmenter(1400).fragment
+        (data.wireEncode().buf());
+      for (int i = 0; i < fragments.size(); ++i)
+        peer.send(fragments.get(i).buf(), faceAddress);
+
+      double startTime = Common.getNowMilliseconds();
+      while (counter.onDataCallCount_ == 0 &&
+             Common.getNowMilliseconds() - startTime < 2000)
+        face.processEvents();
+      assertEquals(1, counter.onDataCallCount_);
+    }
+    finally {
+      face.shutdown();
+      peer.close();
+    }
+  }
+}
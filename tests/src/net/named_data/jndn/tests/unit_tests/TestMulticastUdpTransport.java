@@ -0,0 +1,223 @@
+/**
+ * Copyright (C) 2019 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.tests.unit_tests;
+
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Face;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.InterestFilter;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.OnData;
+import net.named_data.jndn.OnInterestCallback;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.lp.LpFragmenter;
+import net.named_data.jndn.transport.MulticastUdpTransport;
+import net.named_data.jndn.util.Blob;
+import net.named_data.jndn.util.Common;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestMulticastUdpTransport {
+  MulticastUdpTransport.ConnectionInfo connectionInfo_;
+  MulticastUdpTransport transport1_;
+  MulticastUdpTransport transport2_;
+  Face face1_;
+  Face face2_;
+
+  @Before
+  public void
+  setUp() throws IOException
+  {
+    NetworkInterface networkInterface = findMulticastInterface();
+    Assume.assumeNotNull(networkInterface);
+
+    // Use a free port.
+    DatagramChannel channel = DatagramChannel.open();
+    channel.bind(new InetSocketAddress(0));
+    int port = ((InetSocketAddress)channel.getLocalAddress()).getPort();
+    channel.close();
+    connectionInfo_ = new MulticastUdpTransport.ConnectionInfo
+      ("224.0.23.170", port, networkInterface);
+
+    transport1_ = new MulticastUdpTransport();
+    transport2_ = new MulticastUdpTransport();
+    face1_ = new Face(transport1_, connectionInfo_);
+    face2_ = new Face(transport2_, connectionInfo_);
+  }
+
+  /**
+   * Find the network interface for the test, preferring the loopback interface
+   * if it supports multicast.
+   * @return The network interface, or null if none supports IPv4 multicast.
+   */
+  static NetworkInterface
+  findMulticastInterface() throws IOException
+  {
+    NetworkInterface result = null;
+    Enumeration<NetworkInterface> interfaces =
+      NetworkInterface.getNetworkInterfaces();
+    while (interfaces.hasMoreElements()) {
+      NetworkInterface networkInterface = interfaces.nextElement();
+      if (!networkInterface.isUp() || !networkInterface.supportsMulticast())
+        continue;
+
+      boolean hasIpv4 = false;
+      Enumeration<InetAddress> addresses = networkInterface.getInetAddresses();
+      while (addresses.hasMoreElements()) {
+        if (addresses.nextElement() instanceof Inet4Address)
+          hasIpv4 = true;
+      }
+      if (!hasIpv4)
+        continue;
+
+      if (networkInterface.isLoopback())
+        return networkInterface;
+      if (result == null)
+        result = networkInterface;
+    }
+
+    return result;
+  }
+
+  @After
+  public void
+  tearDown()
+  {
+    if (face1_ != null)
+      face1_.shutdown();
+    if (face2_ != null)
+      face2_.shutdown();
+  }
+
+  /**
+   * Call processEvents on both faces until isDone[0] is true or timeout.
+   */
+  void
+  processEvents(boolean[] isDone) throws IOException, EncodingException
+  {
+    double startTime = Common.getNowMilliseconds();
+    while (!isDone[0] && Common.getNowMilliseconds() - startTime < 2000) {
+      face1_.processEvents();
+      face2_.processEvents();
+    }
+  }
+
+  @Test
+  public void
+  testInterestAndData() throws IOException, EncodingException
+  {
+    final boolean[] gotInterest = new boolean[1];
+    face1_.setInterestFilter
+      (new InterestFilter("/test/multicast"), new OnInterestCallback() {
+        public void onInterest
+          (Name prefix, Interest interest, Face face, long interestFilterId,
+           InterestFilter filter) {
+          gotInterest[0] = true;
+          try {
+            face.putData(new Data(interest.getName()));
+          } catch (IOException ex) {}
+        }
+      });
+    // setInterestFilter joins the group. It logs an error if the host doesn't
+    // route multicast on the loopback interface.
+    Assume.assumeTrue(transport1_.getIsConnected());
+
+    NackCounter counter = new NackCounter();
+    try {
+      face2_.expressInterest(new Name("/test/multicast/1"), counter);
+    } catch (IOException ex) {
+      // The host doesn't route multicast on the loopback interface.
+      Assume.assumeNoException(ex);
+    }
+
+    processEvents(gotInterest);
+    // Some sandboxed hosts don't loop back multicast.
+    Assume.assumeTrue(gotInterest[0]);
+
+    double startTime = Common.getNowMilliseconds();
+    while (counter.onDataCallCount_ == 0 &&
+           Common.getNowMilliseconds() - startTime < 2000) {
+      face1_.processEvents();
+      face2_.processEvents();
+    }
+    assertEquals(1, counter.onDataCallCount_);
+
+    // Each transport dropped its own looped back packet.
+    assertTrue(transport1_.getDroppedSelfDatagramCount() >= 1);
+    assertTrue(transport2_.getDroppedSelfDatagramCount() >= 1);
+  }
+
+  @Test
+  public void
+  testReceiveFragmentedData() throws IOException, EncodingException
+  {
+    final Blob content = new Blob(new byte[3000]);
+    final LpFragmenter fragmenter = new LpFragmenter(1000);
+    face1_.setInterestFilter
+      (new InterestFilter("/test/multicast"), new OnInterestCallback() {
+        public void onInterest
+          (Name prefix, Interest interest, Face face, long interestFilterId,
+           InterestFilter filter) {
+          Data data = new Data(interest.getName());
+          data.setContent(content);
+          // Send the fragments, like a forwarder for a packet over the MTU.
+          ArrayList<Blob> fragments =
+            fragmenter.fragment(data.wireEncode().buf());
+          try {
+            for (int i = 0; i < fragments.size(); ++i)
+              transport1_.send(fragments.get(i).buf());
+          } catch (IOException ex) {}
+        }
+      });
+    // setInterestFilter joins the group. It logs an error if the host doesn't
+    // route multicast on the loopback interface.
+    Assume.assumeTrue(transport1_.getIsConnected());
+
+    final Data[] receivedData = new Data[1];
+    final boolean[] gotData = new boolean[1];
+    try {
+      face2_.expressInterest(new Name("/test/multicast/2"), new OnData() {
+        public void onData(Interest interest, Data data) {
+          receivedData[0] = data;
+          gotData[0] = true;
+        }
+      });
+    } catch (IOException ex) {
+      Assume.assumeNoException(ex);
+    }
+
+    processEvents(gotData);
+    // Some sandboxed hosts don't loop back multicast.
+    Assume.assumeTrue(gotData[0]);
+    assertTrue(receivedData[0].getContent().equals(content));
+  }
+}
@@ -532,4 +532,32 @@ public class TestNameMethods {
     assertEquals("value", decodedName.get(1).getValue().toString());
     assertEquals(otherTypeCode, decodedName.get(1).getOtherTypeCode());
   }
+
+  @Test
+  public void
+  testCachedUri()
+  {
+    Name name = new Name("/hello/%00%01/.../sha256digest=" +
+      "28bad4b5275bd392dbb670c75cf0b66f13f7942b21e80f55c0e86b374753a548");
+    String uri = name.toUri();
+    // The URI string is cached.
+    assertTrue(uri == name.toUri());
+    assertTrue(name.get(0).toEscapedString() ==
+               name.get(0).toEscapedString());
+    assertEquals("ndn:" + uri, name.toUri(true));
+
+    // Changing the name updates the URI.
+    name.append("more");
+    assertEquals(uri + "/more", name.toUri());
+    name.clear();
+    assertEquals("/", name.toUri());
+
+    // appendUri is the same as toUri, with or without a cached URI.
+    Name name2 = new Name("/a/b%20c");
+    StringBuilder result = new StringBuilder("uri=");
+    name2.appendUri(result);
+    assertEquals("uri=/a/b%20c", result.toString());
+    assertEquals("/a/b%20c", name2.toUri());
+    assertEquals("/", new Name().appendUri(new StringBuilder()).toString());
+  }
 }
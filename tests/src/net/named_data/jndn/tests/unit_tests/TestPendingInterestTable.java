@@ -0,0 +1,260 @@
+/**
+ * Copyright (C) 2019 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.tests.unit_tests;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Face;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.NetworkNack;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.impl.PendingInterestTable;
+import net.named_data.jndn.transport.Transport;
+import net.named_data.jndn.util.Blob;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestPendingInterestTable {
+  PendingInterestTable table_;
+
+  @Before
+  public void
+  setUp()
+  {
+    table_ = new PendingInterestTable();
+  }
+
+  private PendingInterestTable.Entry
+  add(long pendingInterestId, String uri)
+  {
+    Interest interest = new Interest(new Name(uri));
+    interest.setCanBePrefix(true);
+    return table_.add(pendingInterestId, interest, null, null, null);
+  }
+
+  @Test
+  public void
+  testExtractPrefixMatches()
+  {
+    PendingInterestTable.Entry a = add(1, "/a");
+    PendingInterestTable.Entry ab = add(2, "/a/b");
+    PendingInterestTable.Entry abc = add(3, "/a/b/c");
+    PendingInterestTable.Entry ax = add(4, "/a/x");
+    PendingInterestTable.Entry root = add(5, "/");
+    assertEquals(5, table_.size());
+
+    ArrayList<PendingInterestTable.Entry> entries =
+      new ArrayList<PendingInterestTable.Entry>();
+    table_.extractEntriesForExpressedInterest(new Data(new Name("/a/b")), entries);
+
+    assertEquals(3, entries.size());
+    assertTrue(entries.contains(root));
+    assertTrue(entries.contains(a));
+    assertTrue(entries.contains(ab));
+    assertTrue(root.getIsRemoved());
+    assertFalse(abc.getIsRemoved());
+    assertFalse(ax.getIsRemoved());
+    assertEquals(2, table_.size());
+
+    // The extracted entries are no longer matched.
+    entries.clear();
+    table_.extractEntriesForExpressedInterest
+      (new Data(new Name("/a/b/c/d")), entries);
+    assertEquals(1, entries.size());
+    assertSame(abc, entries.get(0));
+    assertEquals(1, table_.size());
+  }
+
+  @Test
+  public void
+  testStripedExtractPrefixMatches()
+  {
+    table_ = new PendingInterestTable(8);
+    testExtractPrefixMatches();
+  }
+
+  @Test
+  public void
+  testStripedConcurrentAddExtract() throws InterruptedException
+  {
+    table_ = new PendingInterestTable(4);
+    final int nThreads = 4;
+    final int nEntries = 2000;
+    final int[] nExtracted = new int[nThreads];
+    Thread[] threads = new Thread[nThreads];
+    for (int t = 0; t < nThreads; ++t) {
+      final int threadIndex = t;
+      threads[t] = new Thread() {
+        public void run() {
+          ArrayList<PendingInterestTable.Entry> entries =
+            new ArrayList<PendingInterestTable.Entry>();
+          for (int i = 0; i < nEntries; ++i) {
+            long id = threadIndex * nEntries + i + 1;
+            String uri = "/test/" + threadIndex + "/" + i;
+            add(id, uri);
+            table_.extractEntriesForExpressedInterest
+              (new Data(new Name(uri)), entries);
+          }
+          nExtracted[threadIndex] = entries.size();
+        }
+      };
+      threads[t].start();
+    }
+    for (int t = 0; t < nThreads; ++t)
+      threads[t].join();
+
+    for (int t = 0; t < nThreads; ++t)
+      assertEquals(nEntries, nExtracted[t]);
+    assertEquals(0, table_.size());
+  }
+
+  @Test
+  public void
+  testExtractImplicitDigest() throws EncodingException
+  {
+    Data data = new Data(new Name("/a/b"));
+    PendingInterestTable.Entry exact = table_.add
+      (1, new Interest(data.getFullName()), null, null, null);
+    Name otherDigestName = new Name("/a/b").appendImplicitSha256Digest
+      (new byte[32]);
+    PendingInterestTable.Entry other = table_.add
+      (2, new Interest(otherDigestName), null, null, null);
+
+    ArrayList<PendingInterestTable.Entry> entries =
+      new ArrayList<PendingInterestTable.Entry>();
+    table_.extractEntriesForExpressedInterest(data, entries);
+    assertEquals(1, entries.size());
+    assertSame(exact, entries.get(0));
+    assertFalse(other.getIsRemoved());
+  }
+
+  @Test
+  public void
+  testRemove()
+  {
+    PendingInterestTable.Entry ab1 = add(1, "/a/b");
+    PendingInterestTable.Entry ab2 = add(2, "/a/b");
+
+    table_.removePendingInterest(1);
+    assertTrue(ab1.getIsRemoved());
+    assertFalse(table_.removeEntry(ab1));
+    assertTrue(table_.removeEntry(ab2));
+    assertEquals(0, table_.size());
+
+    ArrayList<PendingInterestTable.Entry> entries =
+      new ArrayList<PendingInterestTable.Entry>();
+    table_.extractEntriesForExpressedInterest(new Data(new Name("/a/b")), entries);
+    assertEquals(0, entries.size());
+
+    // Removing before adding should prevent the add.
+    table_.removePendingInterest(3);
+    assertNull(add(3, "/a/b"));
+    assertEquals(0, table_.size());
+  }
+
+  @Test
+  public void
+  testExtractNackInterest() throws EncodingException
+  {
+    Interest interest1 = new Interest(new Name("/a/b"));
+    interest1.setNonce(new Blob(new byte[] { 1, 2, 3, 4 }));
+    Interest interest2 = new Interest(new Name("/a/b"));
+    interest2.setNonce(new Blob(new byte[] { 5, 6, 7, 8 }));
+    NackCounter counter = new NackCounter();
+    PendingInterestTable.Entry entry1 = table_.add
+      (1, interest1, counter, null, counter);
+    PendingInterestTable.Entry entry2 = table_.add
+      (2, interest2, counter, null, counter);
+    // An entry without OnNetworkNack is not extracted.
+    table_.add(3, new Interest(interest1), counter, null, null);
+
+    // Decode the Nack Interest as it would be received.
+    Interest nackInterest = new Interest();
+    nackInterest.wireDecode(new Interest(interest2).wireEncode());
+    ArrayList<PendingInterestTable.Entry> entries =
+      new ArrayList<PendingInterestTable.Entry>();
+    table_.extractEntriesForNackInterest(nackInterest, entries);
+    assertEquals(1, entries.size());
+    assertSame(entry2, entries.get(0));
+    assertFalse(entry1.getIsRemoved());
+
+    // A different nonce with the same name does not match.
+    Interest otherNonce = new Interest(interest1);
+    otherNonce.setNonce(new Blob(new byte[] { 9, 9, 9, 9 }));
+    entries.clear();
+    table_.extractEntriesForNackInterest(otherNonce, entries);
+    assertEquals(0, entries.size());
+
+    table_.extractEntriesForNackInterest(interest1, entries);
+    assertEquals(1, entries.size());
+    assertSame(entry1, entries.get(0));
+    assertEquals(1, table_.size());
+  }
+
+  private static void
+  checkFaceNack(NetworkNack.Reason reason) throws IOException, EncodingException
+  {
+    CaptureTransport transport = new CaptureTransport();
+    Face face = new Face(transport, new Transport.ConnectionInfo());
+    NackCounter counter = new NackCounter();
+    Name name = new Name("/test/nack");
+    face.expressInterest(name, counter, null, counter);
+    face.expressInterest(name, counter, null, counter);
+    assertEquals(2, transport.sentPackets_.size());
+
+    // Put a Nack for the first sent Interest, and loop it back.
+    Interest sentInterest = new Interest();
+    sentInterest.wireDecode(transport.sentPackets_.get(0));
+    face.putNack(sentInterest, new NetworkNack().setReason(reason));
+    transport.receive(transport.sentPackets_.get(2));
+
+    assertEquals(1, counter.onNetworkNackCallCount_);
+    assertEquals(reason, counter.lastReason_);
+
+    // A second identical Nack finds no more entries.
+    transport.receive(transport.sentPackets_.get(2));
+    assertEquals(1, counter.onNetworkNackCallCount_);
+
+    // The other pending Interest with the same name is still satisfied by Data.
+    transport.receive(new Data(name).wireEncode());
+    assertEquals(1, counter.onDataCallCount_);
+  }
+
+  @Test
+  public void
+  testFaceNackCongestion() throws IOException, EncodingException
+  {
+    checkFaceNack(NetworkNack.Reason.CONGESTION);
+  }
+
+  @Test
+  public void
+  testFaceNackDuplicate() throws IOException, EncodingException
+  {
+    checkFaceNack(NetworkNack.Reason.DUPLICATE);
+  }
+}
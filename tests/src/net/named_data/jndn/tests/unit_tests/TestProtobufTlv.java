@@ -0,0 +1,186 @@
+/**
+ * Copyright (C) 2019 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+
+package net.named_data.jndn.tests.unit_tests;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.DescriptorProtos.DescriptorProto;
+import com.google.protobuf.DescriptorProtos.FieldDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FieldOptions;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.DescriptorValidationException;
+import com.google.protobuf.Descriptors.FileDescriptor;
+import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.UnknownFieldSet;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.encoding.ProtobufTlv;
+import net.named_data.jndn.util.Blob;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestProtobufTlv {
+  private static FieldDescriptorProto
+  makeField
+    (String name, int number, FieldDescriptorProto.Type type,
+     FieldDescriptorProto.Label label)
+  {
+    return FieldDescriptorProto.newBuilder()
+      .setName(name).setNumber(number).setType(type).setLabel(label).build();
+  }
+
+  Descriptor outerType_;
+  Descriptor innerType_;
+
+  @Before
+  public void
+  setUp() throws DescriptorValidationException
+  {
+    // This is the same as compiling:
+    // message Inner {
+    //   required uint32 a = 105;
+    //   optional bytes b = 106;
+    // }
+    // message Outer {
+    //   optional uint64 value = 132;
+    //   repeated string names = 8;
+    //   optional Inner inner = 130;
+    //   optional bool flag = 131;
+    //   repeated uint32 packed = 133 [packed=true];
+    // }
+    // The fields of Outer are not declared in the order of the field number,
+    // to check that the TLV order is the order of declaration.
+    DescriptorProto inner = DescriptorProto.newBuilder()
+      .setName("Inner")
+      .addField(makeField("a", 105, FieldDescriptorProto.Type.TYPE_UINT32,
+                          FieldDescriptorProto.Label.LABEL_REQUIRED))
+      .addField(makeField("b", 106, FieldDescriptorProto.Type.TYPE_BYTES,
+                          FieldDescriptorProto.Label.LABEL_OPTIONAL))
+      .build();
+    DescriptorProto outer = DescriptorProto.newBuilder()
+      .setName("Outer")
+      .addField(makeField("value", 132, FieldDescriptorProto.Type.TYPE_UINT64,
+                          FieldDescriptorProto.Label.LABEL_OPTIONAL))
+      .addField(makeField("names", 8, FieldDescriptorProto.Type.TYPE_STRING,
+                          FieldDescriptorProto.Label.LABEL_REPEATED))
+      .addField(makeField("inner", 130, FieldDescriptorProto.Type.TYPE_MESSAGE,
+                          FieldDescriptorProto.Label.LABEL_OPTIONAL)
+                .toBuilder().setTypeName("Inner").build())
+      .addField(makeField("flag", 131, FieldDescriptorProto.Type.TYPE_BOOL,
+                          FieldDescriptorProto.Label.LABEL_OPTIONAL))
+      .addField(makeField("packed", 133, FieldDescriptorProto.Type.TYPE_UINT32,
+                          FieldDescriptorProto.Label.LABEL_REPEATED)
+                .toBuilder().setOptions(FieldOptions.newBuilder().setPacked(true))
+                .build())
+      .build();
+    FileDescriptor file = FileDescriptor.buildFrom
+      (FileDescriptorProto.newBuilder()
+       .setName("test-protobuf-tlv.proto")
+       .addMessageType(inner).addMessageType(outer).build(),
+       new FileDescriptor[0]);
+
+    innerType_ = file.findMessageTypeByName("Inner");
+    outerType_ = file.findMessageTypeByName("Outer");
+  }
+
+  private DynamicMessage
+  makeOuter(ByteString innerB)
+  {
+    DynamicMessage inner = DynamicMessage.newBuilder(innerType_)
+      .setField(innerType_.findFieldByName("a"), 1)
+      .setField(innerType_.findFieldByName("b"), innerB)
+      .build();
+
+    return DynamicMessage.newBuilder(outerType_)
+      .setField(outerType_.findFieldByName("value"), 300L)
+      .addRepeatedField(outerType_.findFieldByName("names"), "a")
+      .addRepeatedField(outerType_.findFieldByName("names"), "bc")
+      .setField(outerType_.findFieldByName("inner"), inner)
+      .setField(outerType_.findFieldByName("flag"), true)
+      .addRepeatedField(outerType_.findFieldByName("packed"), 1)
+      .addRepeatedField(outerType_.findFieldByName("packed"), 2)
+      .build();
+  }
+
+  @Test
+  public void
+  testEncode()
+  {
+    DynamicMessage message = makeOuter(ByteString.copyFromUtf8("x"));
+    String expectedHex =
+      "8402012c" + "080161" + "08026263" + "8206" + "690101" + "6a0178" +
+      "8300" + "850101" + "850102";
+    assertEquals(expectedHex, ProtobufTlv.encode(message).toHex());
+
+    // An unknown field is not encoded.
+    DynamicMessage withUnknownField = message.toBuilder()
+      .setUnknownFields(UnknownFieldSet.newBuilder()
+        .addField(999, UnknownFieldSet.Field.newBuilder().addVarint(7).build())
+        .build())
+      .build();
+    assertEquals(expectedHex, ProtobufTlv.encode(withUnknownField).toHex());
+
+    // A false bool is omitted.
+    DynamicMessage withFalseFlag = message.toBuilder()
+      .setField(outerType_.findFieldByName("flag"), false).build();
+    assertFalse(ProtobufTlv.encode(withFalseFlag).toHex().contains("8300"));
+  }
+
+  @Test
+  public void
+  testDecode() throws EncodingException
+  {
+    // Use a long value so that the nested message length needs more than one
+    // byte.
+    byte[] longValue = new byte[1000];
+    for (int i = 0; i < longValue.length; ++i)
+      longValue[i] = (byte)i;
+    DynamicMessage[] messages = new DynamicMessage[] {
+      makeOuter(ByteString.copyFromUtf8("x")),
+      makeOuter(ByteString.copyFrom(longValue)) };
+
+    for (DynamicMessage message : messages) {
+      Blob encoding = ProtobufTlv.encode(message);
+
+      DynamicMessage.Builder decoded = DynamicMessage.newBuilder(outerType_);
+      ProtobufTlv.decode(decoded, encoding);
+      assertEquals(message, decoded.build());
+      // Check that the decoded message encodes the same.
+      assertEquals(encoding, ProtobufTlv.encode(decoded.build()));
+    }
+  }
+
+  @Test
+  public void
+  testDecodeMissingRequired()
+  {
+    // The Inner message has no required field "a" (type 105).
+    Blob encoding = new Blob(new int[] { 0x82, 0x03, 0x6a, 0x01, 0x78 });
+
+    DynamicMessage.Builder decoded = DynamicMessage.newBuilder(outerType_);
+    try {
+      ProtobufTlv.decode(decoded, encoding);
+      fail("Expected an EncodingException for the missing required field");
+    } catch (EncodingException ex) {}
+  }
+}
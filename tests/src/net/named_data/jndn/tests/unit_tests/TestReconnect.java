@@ -0,0 +1,250 @@
+/**
+ * Copyright (C) 2019 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+
+package net.named_data.jndn.tests.unit_tests;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Face;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.encoding.ElementListener;
+import net.named_data.jndn.encoding.ElementReader;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.impl.InterestFilterTable;
+import net.named_data.jndn.impl.RegisteredPrefixTable;
+import net.named_data.jndn.transport.TcpTransport;
+import net.named_data.jndn.util.Blob;
+import net.named_data.jndn.util.Common;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestReconnect {
+  ServerSocketChannel server_;
+
+  @Before
+  public void
+  setUp() throws IOException
+  {
+    server_ = ServerSocketChannel.open();
+    server_.bind(new InetSocketAddress("127.0.0.1", 0));
+    server_.configureBlocking(false);
+  }
+
+  @After
+  public void
+  tearDown() throws IOException
+  {
+    server_.close();
+  }
+
+  /**
+   * Call face.processEvents until the server accepts a connection.
+   * @return The accepted connection, or null if timed out.
+   */
+  private SocketChannel
+  accept(Face face) throws IOException, EncodingException
+  {
+    double startTime = Common.getNowMilliseconds();
+    while (Common.getNowMilliseconds() - startTime < 5000) {
+      SocketChannel peer = server_.accept();
+      if (peer != null)
+        return peer;
+      face.processEvents();
+    }
+
+    return null;
+  }
+
+  /**
+   * Read one Interest from the peer. The Interest is small enough to arrive in
+   * one read.
+   */
+  private static Interest
+  readInterest(SocketChannel peer) throws IOException, EncodingException
+  {
+    ByteBuffer buffer = ByteBuffer.allocate(Common.MAX_NDN_PACKET_SIZE);
+    peer.read(buffer);
+    buffer.flip();
+    Interest interest = new Interest();
+    interest.wireDecode(new Blob(buffer, true));
+    return interest;
+  }
+
+  @Test
+  public void
+  testResendPendingInterest() throws IOException, EncodingException
+  {
+    Face face = new Face
+      (new TcpTransport(), new TcpTransport.ConnectionInfo
+       ("127.0.0.1", ((InetSocketAddress)server_.getLocalAddress()).getPort()));
+    face.setReconnectEnabled(true, true);
+
+    NackCounter counter = new NackCounter();
+    Name name = new Name("/test/reconnect");
+    Interest interest = new Interest(name, 10000);
+    face.expressInterest(interest, counter, null, counter);
+    SocketChannel peer1 = accept(face);
+    SocketChannel peer2 = null;
+    try {
+      assertNotNull(peer1);
+      peer1.configureBlocking(true);
+      Interest sentInterest = readInterest(peer1);
+      assertTrue(sentInterest.getName().equals(name));
+
+      // Simulate a forwarder restart.
+      peer1.close();
+      peer2 = accept(face);
+      assertNotNull("The face did not reconnect", peer2);
+      peer2.configureBlocking(true);
+
+      // The pending Interest is sent again with the same nonce.
+      Interest resentInterest = readInterest(peer2);
+      assertTrue(resentInterest.getName().equals(name));
+      assertTrue(resentInterest.getNonce().equals(sentInterest.getNonce()));
+
+      peer2.write(new Data(name).wireEncode().buf());
+      double startTime = Common.getNowMilliseconds();
+      while (counter.onDataCallCount_ == 0 &&
+             Common.getNowMilliseconds() - startTime < 2000)
+        face.processEvents();
+      assertEquals(1, counter.onDataCallCount_);
+    }
+    finally {
+      face.shutdown();
+      if (peer1 != null)
+        peer1.close();
+      if (peer2 != null)
+        peer2.close();
+    }
+  }
+
+  /**
+   * Read the Interests which are available from the non-blocking peer.
+   */
+  private static ArrayList<Interest>
+  readAvailableInterests(SocketChannel peer)
+    throws IOException, EncodingException
+  {
+    final ArrayList<Interest> interests = new ArrayList<Interest>();
+    ElementReader elementReader = new ElementReader(new ElementListener() {
+      public void onReceivedElement(ByteBuffer element)
+        throws EncodingException {
+        Interest interest = new Interest();
+        interest.wireDecode(element);
+        interests.add(interest);
+      }
+    });
+
+    ByteBuffer buffer = ByteBuffer.allocate(Common.MAX_NDN_PACKET_SIZE);
+    while (peer.read(buffer) > 0) {
+      buffer.flip();
+      elementReader.onReceivedData(buffer);
+      buffer.clear();
+    }
+
+    return interests;
+  }
+
+  @Test
+  public void
+  testExpressInterestBeforeReconnect() throws IOException, EncodingException
+  {
+    TcpTransport transport = new TcpTransport();
+    Face face = new Face
+      (transport, new TcpTransport.ConnectionInfo
+       ("127.0.0.1", ((InetSocketAddress)server_.getLocalAddress()).getPort()));
+    face.setReconnectEnabled(true, true);
+
+    NackCounter counter = new NackCounter();
+    Name name1 = new Name("/test/reconnect/1");
+    Name name2 = new Name("/test/reconnect/2");
+    face.expressInterest(new Interest(name1, 10000), counter, null, counter);
+    SocketChannel peer1 = accept(face);
+    SocketChannel peer2 = null;
+    try {
+      assertNotNull(peer1);
+      peer1.configureBlocking(true);
+      readInterest(peer1);
+      peer1.close();
+      double startTime = Common.getNowMilliseconds();
+      while (transport.getIsConnected() &&
+             Common.getNowMilliseconds() - startTime < 2000)
+        face.processEvents();
+      assertTrue(!transport.getIsConnected());
+
+      // Connect and send before the scheduled reconnect.
+      face.expressInterest(new Interest(name2, 10000), counter, null, counter);
+      peer2 = accept(face);
+      assertNotNull(peer2);
+      peer2.configureBlocking(false);
+
+      // Let the scheduled reconnect run.
+      startTime = Common.getNowMilliseconds();
+      while (Common.getNowMilliseconds() - startTime < 1000)
+        face.processEvents();
+
+      // Only the Interest pending at the disconnect is sent again.
+      ArrayList<Interest> interests = readAvailableInterests(peer2);
+      assertEquals(2, interests.size());
+      assertTrue(interests.get(0).getName().equals(name2));
+      assertTrue(interests.get(1).getName().equals(name1));
+    }
+    finally {
+      face.shutdown();
+      peer1.close();
+      if (peer2 != null)
+        peer2.close();
+    }
+  }
+
+  @Test
+  public void
+  testRegisterAgainList()
+  {
+    RegisteredPrefixTable table = new RegisteredPrefixTable
+      (new InterestFilterTable());
+    Runnable registerAgain = new Runnable() {
+      public void run() {}
+    };
+    assertTrue(table.add(1, new Name("/a"), 0, registerAgain));
+    // An entry without a Runnable is not sent again.
+    assertTrue(table.add(2, new Name("/b"), 0));
+
+    ArrayList<Runnable> registerAgainList = new ArrayList<Runnable>();
+    table.getRegisterAgainList(registerAgainList);
+    assertEquals(1, registerAgainList.size());
+    assertTrue(registerAgainList.get(0) == registerAgain);
+
+    table.removeRegisteredPrefix(1);
+    registerAgainList.clear();
+    table.getRegisterAgainList(registerAgainList);
+    assertEquals(0, registerAgainList.size());
+  }
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright (C) 2019 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.tests.unit_tests;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import net.named_data.jndn.Face;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.encoding.ElementListener;
+import net.named_data.jndn.encoding.ElementReader;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.transport.TcpTransport;
+import net.named_data.jndn.util.Blob;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestSendBatching implements ElementListener {
+  ServerSocketChannel server_;
+  SocketChannel peer_;
+  TcpTransport transport_;
+  Face face_;
+  ArrayList<Blob> received_;
+  ElementReader reader_;
+
+  @Before
+  public void
+  setUp() throws IOException
+  {
+    // The server stands in for the forwarder.
+    server_ = ServerSocketChannel.open();
+    server_.bind(new InetSocketAddress("127.0.0.1", 0));
+    transport_ = new TcpTransport();
+    face_ = new Face
+      (transport_, new TcpTransport.ConnectionInfo
+       ("127.0.0.1", ((InetSocketAddress)server_.getLocalAddress()).getPort()));
+    received_ = new ArrayList<Blob>();
+    reader_ = new ElementReader(this);
+  }
+
+  @After
+  public void
+  tearDown() throws IOException
+  {
+    face_.shutdown();
+    if (peer_ != null)
+      peer_.close();
+    server_.close();
+  }
+
+  public void
+  onReceivedElement(ByteBuffer element)
+  {
+    received_.add(new Blob(element, true));
+  }
+
+  /**
+   * Read from the peer until nPackets are received or there is no more data.
+   */
+  private void
+  receive(int nPackets) throws IOException, EncodingException
+  {
+    ByteBuffer buffer = ByteBuffer.allocate(8800);
+    while (received_.size() < nPackets) {
+      buffer.clear();
+      if (peer_.read(buffer) <= 0)
+        return;
+      buffer.flip();
+      reader_.onReceivedData(buffer);
+    }
+  }
+
+  @Test
+  public void
+  testQueueUntilFlush() throws IOException, EncodingException
+  {
+    face_.setSendBatchingEnabled(true);
+    int nInterests = 10;
+    for (int i = 0; i < nInterests; ++i)
+      face_.expressInterest(new Name("/test/batch").appendSegment(i), null);
+    peer_ = server_.accept();
+
+    // Nothing is sent before the flush.
+    peer_.configureBlocking(false);
+    receive(nInterests);
+    assertEquals(0, received_.size());
+
+    face_.flush();
+    peer_.configureBlocking(true);
+    receive(nInterests);
+    assertEquals(nInterests, received_.size());
+    // The packets are sent in order.
+    for (int i = 0; i < nInterests; ++i) {
+      Interest interest = new Interest();
+      interest.wireDecode(received_.get(i));
+      assertTrue(interest.getName().equals
+        (new Name("/test/batch").appendSegment(i)));
+    }
+  }
+
+  @Test
+  public void
+  testFlushWhenFull() throws IOException, EncodingException
+  {
+    face_.setSendBatchingEnabled(true);
+    face_.expressInterest(new Name("/test/full"), null);
+    peer_ = server_.accept();
+    // Flush when the queue has more than one Interest.
+    transport_.setMaxQueuedSendBytes(30);
+    face_.expressInterest(new Name("/test/full"), null);
+
+    peer_.configureBlocking(true);
+    receive(2);
+    assertEquals(2, received_.size());
+  }
+
+  @Test
+  public void
+  testFlushWhenDisabled() throws IOException, EncodingException
+  {
+    face_.setSendBatchingEnabled(true);
+    face_.expressInterest(new Name("/test/disable"), null);
+    peer_ = server_.accept();
+
+    face_.setSendBatchingEnabled(false);
+    peer_.configureBlocking(true);
+    receive(1);
+    assertEquals(1, received_.size());
+
+    // An unbatched send goes out immediately.
+    face_.expressInterest(new Name("/test/disable"), null);
+    receive(2);
+    assertEquals(2, received_.size());
+  }
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2019 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+
+package net.named_data.jndn.tests.unit_tests;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.encoding.Tlv0_2WireFormat;
+import net.named_data.jndn.encoding.tlv.TlvEncoder;
+import net.named_data.jndn.util.Blob;
+import net.named_data.jndn.util.Common;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class TestTlvEncoder {
+  @Test
+  public void
+  testThreadLocal()
+  {
+    TlvEncoder encoder = TlvEncoder.acquireThreadLocal();
+    encoder.writeBlobTlv(8, ByteBuffer.wrap(new byte[] { 1, 2 }));
+    // A nested encoding gets a different encoder.
+    TlvEncoder nestedEncoder = TlvEncoder.acquireThreadLocal();
+    assertNotSame(encoder, nestedEncoder);
+    nestedEncoder.release();
+    encoder.release();
+
+    // The released encoder is reused and reset.
+    TlvEncoder encoder2 = TlvEncoder.acquireThreadLocal();
+    assertSame(encoder, encoder2);
+    assertEquals(0, encoder2.getLength());
+
+    // An encoder which grew is not kept.
+    encoder2.writeBuffer(ByteBuffer.allocate(Common.MAX_NDN_PACKET_SIZE + 1));
+    encoder2.release();
+    TlvEncoder encoder3 = TlvEncoder.acquireThreadLocal();
+    assertNotSame(encoder2, encoder3);
+    encoder3.release();
+  }
+
+  @Test
+  public void
+  testReusedEncodings() throws EncodingException
+  {
+    // Each encoding is a copy, so it is not changed by the next encoding.
+    Data data1 = new Data(new Name("/test/1")).setContent(new Blob("one"));
+    Data data2 = new Data(new Name("/test/2")).setContent(new Blob("two"));
+    Blob encoding1 = data1.wireEncode();
+    Blob encoding2 = data2.wireEncode();
+
+    Data decoded1 = new Data();
+    Data decoded2 = new Data();
+    decoded1.wireDecode(encoding1);
+    decoded2.wireDecode(encoding2);
+    assertTrue(decoded1.getName().equals(new Name("/test/1")));
+    assertEquals("two", decoded2.getContent().toString());
+  }
+
+  @Test
+  public void
+  testExactSizeEncoding()
+  {
+    Tlv0_2WireFormat wireFormat = Tlv0_2WireFormat.get();
+    Data data = new Data(new Name("/test/exact")).setContent(new Blob("abc"));
+    data.getMetaInfo().setFreshnessPeriod(1000);
+    Blob expected = wireFormat.encodeData(data);
+    assertEquals(expected.size(), wireFormat.getDataEncodingLength(data));
+
+    // Encode into a direct buffer after some existing bytes.
+    ByteBuffer output = ByteBuffer.allocateDirect(expected.size() + 10);
+    output.position(3);
+    int[] signedPortionBeginOffset = new int[1];
+    int[] signedPortionEndOffset = new int[1];
+    wireFormat.encodeData
+      (data, output, signedPortionBeginOffset, signedPortionEndOffset);
+    assertEquals(3 + expected.size(), output.position());
+    output.flip();
+    output.position(3);
+    assertTrue(new Blob(output, true).equals(expected));
+
+    int[] expectedBeginOffset = new int[1];
+    int[] expectedEndOffset = new int[1];
+    wireFormat.encodeData(data, expectedBeginOffset, expectedEndOffset);
+    assertEquals(expectedBeginOffset[0], signedPortionBeginOffset[0]);
+    assertEquals(expectedEndOffset[0], signedPortionEndOffset[0]);
+
+    // A buffer which is too small is not changed.
+    ByteBuffer small = ByteBuffer.allocate(expected.size() - 1);
+    try {
+      wireFormat.encodeData(data, small, new int[1], new int[1]);
+      fail("Expected BufferOverflowException");
+    } catch (BufferOverflowException ex) {}
+    assertEquals(0, small.position());
+
+    Interest interest = new Interest(new Name("/test/exact"));
+    interest.setCanBePrefix(true);
+    interest.setNonce(new Blob(new byte[] { 1, 2, 3, 4 }, false));
+    Blob expectedInterest = wireFormat.encodeInterest(interest);
+    ByteBuffer interestOutput = ByteBuffer.allocate
+      (wireFormat.getInterestEncodingLength(interest));
+    wireFormat.encodeInterest
+      (interest, interestOutput, new int[1], new int[1]);
+    interestOutput.flip();
+    assertTrue(new Blob(interestOutput, false).equals(expectedInterest));
+  }
+
+  @Test
+  public void
+  testLargeData() throws EncodingException
+  {
+    // This is encoded in two passes since it doesn't fit the thread's encoder.
+    Data data = new Data(new Name("/test/large"));
+    byte[] content = new byte[3 * Common.MAX_NDN_PACKET_SIZE];
+    content[content.length - 1] = 7;
+    data.setContent(new Blob(content, false));
+    Blob encoding = Tlv0_2WireFormat.get().encodeData(data);
+
+    Data decoded = new Data();
+    decoded.wireDecode(encoding, Tlv0_2WireFormat.get());
+    assertTrue(decoded.getContent().equals(data.getContent()));
+  }
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2019 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.tests.unit_tests;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.encoding.ElementListener;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.transport.UdpTransport;
+import net.named_data.jndn.util.Blob;
+import net.named_data.jndn.util.Common;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestUdpBatching {
+  DatagramChannel peer_;
+  UdpTransport transport_;
+  final ArrayList<Blob> received_ = new ArrayList<Blob>();
+
+  @Before
+  public void
+  setUp() throws IOException
+  {
+    peer_ = DatagramChannel.open();
+    peer_.bind(new InetSocketAddress("127.0.0.1", 0));
+    transport_ = new UdpTransport();
+    transport_.connect
+      (new UdpTransport.ConnectionInfo
+       ("127.0.0.1", ((InetSocketAddress)peer_.getLocalAddress()).getPort()),
+       new ElementListener() {
+         public void onReceivedElement(ByteBuffer element) {
+           received_.add(new Blob(element, true));
+         }
+       },
+       null);
+  }
+
+  @After
+  public void
+  tearDown() throws IOException
+  {
+    transport_.close();
+    peer_.close();
+  }
+
+  static Blob
+  createPacket(int i)
+  {
+    return new Data(new Name("/test/udp-batching").appendSegment(i)).wireEncode();
+  }
+
+  @Test
+  public void
+  testBurstReceive() throws IOException, EncodingException
+  {
+    // Find the transport's address.
+    transport_.send(createPacket(0).buf());
+    ByteBuffer buffer = ByteBuffer.allocate(Common.MAX_NDN_PACKET_SIZE);
+    SocketAddress transportAddress = peer_.receive(buffer);
+
+    transport_.setReceiveBurstSize(8);
+    int nPackets = 20;
+    for (int i = 0; i < nPackets; ++i)
+      peer_.send(createPacket(i).buf(), transportAddress);
+
+    double startTime = Common.getNowMilliseconds();
+    while (received_.size() < nPackets &&
+           Common.getNowMilliseconds() - startTime < 2000)
+      transport_.processEvents();
+
+    assertEquals(nPackets, received_.size());
+    // The packets are dispatched in order.
+    for (int i = 0; i < nPackets; ++i)
+      assertTrue(received_.get(i).equals(createPacket(i)));
+  }
+
+  @Test
+  public void
+  testQueueSend() throws IOException
+  {
+    peer_.configureBlocking(false);
+    ByteBuffer buffer = ByteBuffer.allocate(Common.MAX_NDN_PACKET_SIZE);
+
+    for (int i = 0; i < 5; ++i)
+      transport_.queueSend(createPacket(i).buf());
+    // Nothing is sent until the flush.
+    assertNull(peer_.receive(buffer));
+
+    transport_.flush();
+    peer_.configureBlocking(true);
+    for (int i = 0; i < 5; ++i) {
+      // Each queued packet is its own datagram.
+      buffer.clear();
+      peer_.receive(buffer);
+      buffer.flip();
+      assertTrue(new Blob(buffer, true).equals(createPacket(i)));
+    }
+
+    // Reaching the maximum number of queued datagrams sends the queue.
+    transport_.setMaxQueuedDatagrams(2);
+    transport_.queueSend(createPacket(5).buf());
+    transport_.queueSend(createPacket(6).buf());
+    buffer.clear();
+    peer_.receive(buffer);
+    buffer.flip();
+    assertTrue(new Blob(buffer, true).equals(createPacket(5)));
+  }
+}
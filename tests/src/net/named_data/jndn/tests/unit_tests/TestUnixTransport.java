@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2019 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.tests.unit_tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Face;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.transport.UnixTransport;
+import net.named_data.jndn.util.Blob;
+import net.named_data.jndn.util.Common;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestUnixTransport {
+  File socketFile_;
+  ServerSocketChannel server_;
+
+  @Before
+  public void
+  setUp() throws Exception
+  {
+    // Unix domain socket channels need Java 16 or later.
+    Assume.assumeTrue(UnixTransport.getIsAvailable());
+
+    socketFile_ = File.createTempFile("test-unix-transport", ".sock");
+    socketFile_.delete();
+
+    // Use reflection for the Java 16 API, like UnixTransport.
+    SocketAddress address = (SocketAddress)Class.forName
+      ("java.net.UnixDomainSocketAddress").getMethod("of", String.class)
+      .invoke(null, socketFile_.getPath());
+    server_ = (ServerSocketChannel)ServerSocketChannel.class.getMethod
+      ("open", ProtocolFamily.class).invoke
+      (null, StandardProtocolFamily.valueOf("UNIX"));
+    server_.bind(address);
+  }
+
+  @After
+  public void
+  tearDown() throws IOException
+  {
+    if (server_ != null)
+      server_.close();
+    if (socketFile_ != null)
+      socketFile_.delete();
+  }
+
+  @Test
+  public void
+  testExpressInterest() throws IOException, EncodingException
+  {
+    UnixTransport transport = new UnixTransport();
+    Face face = new Face
+      (transport, new UnixTransport.ConnectionInfo(socketFile_.getPath()));
+    assertTrue(face.isLocal());
+
+    NackCounter counter = new NackCounter();
+    Name name = new Name("/test/unix");
+    face.expressInterest(name, counter, null, counter);
+    SocketChannel peer = server_.accept();
+    try {
+      // The Interest is small enough to arrive in one read.
+      ByteBuffer buffer = ByteBuffer.allocate(Common.MAX_NDN_PACKET_SIZE);
+      peer.read(buffer);
+      buffer.flip();
+      Interest interest = new Interest();
+      interest.wireDecode(new Blob(buffer, true));
+      assertTrue(interest.getName().equals(name));
+
+      peer.write(new Data(name).wireEncode().buf());
+      double startTime = Common.getNowMilliseconds();
+      while (counter.onDataCallCount_ == 0 &&
+             Common.getNowMilliseconds() - startTime < 2000)
+        face.processEvents();
+      assertEquals(1, counter.onDataCallCount_);
+    }
+    finally {
+      face.shutdown();
+      peer.close();
+    }
+  }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright (C) 2019 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.tests.unit_tests;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Face;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.OnData;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.transport.UdpTransport;
+import net.named_data.jndn.util.Blob;
+import net.named_data.jndn.util.BufferPool;
+import net.named_data.jndn.util.Common;
+import net.named_data.jndn.util.PooledBuffer;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class TestZeroCopyReceive {
+  @Test
+  public void
+  testBufferPool()
+  {
+    BufferPool pool = new BufferPool(100, 1);
+    PooledBuffer buffer1 = pool.acquire();
+    PooledBuffer buffer2 = pool.acquire();
+    assertNotSame(buffer1, buffer2);
+    assertEquals(100, buffer1.getBuffer().capacity());
+
+    buffer1.retain();
+    buffer1.release();
+    assertEquals(0, pool.getPooledBufferCount());
+    buffer1.release();
+    assertEquals(1, pool.getPooledBufferCount());
+    // The pool keeps at most one buffer.
+    buffer2.release();
+    assertEquals(1, pool.getPooledBufferCount());
+
+    // The released buffer is reused and reset.
+    buffer1.getBuffer().position(10);
+    PooledBuffer buffer3 = pool.acquire();
+    assertSame(buffer1, buffer3);
+    assertEquals(0, buffer3.getBuffer().position());
+    assertEquals(1, buffer3.getReferenceCount());
+    assertTrue(buffer3.contains(buffer3.getBuffer().slice()));
+
+    buffer3.release();
+    try {
+      buffer3.release();
+      fail("Expected an error for releasing twice");
+    } catch (Error ex) {}
+  }
+
+  @Test
+  public void
+  testReceive() throws IOException, EncodingException
+  {
+    DatagramChannel peer = DatagramChannel.open();
+    peer.bind(new InetSocketAddress("127.0.0.1", 0));
+    final Face face = new Face
+      (new UdpTransport(), new UdpTransport.ConnectionInfo
+       ("127.0.0.1", ((InetSocketAddress)peer.getLocalAddress()).getPort()));
+    try {
+      face.setZeroCopyReceiveEnabled(true);
+
+      final Data[] receivedData = new Data[1];
+      final PooledBuffer[] retainedBuffer = new PooledBuffer[1];
+      Name name = new Name("/test/zero-copy");
+      face.expressInterest(name, new OnData() {
+        public void onData(Interest interest, Data data) {
+          receivedData[0] = data;
+          retainedBuffer[0] = face.retainReceiveBuffer();
+        }
+      });
+
+      ByteBuffer buffer = ByteBuffer.allocate(Common.MAX_NDN_PACKET_SIZE);
+      SocketAddress faceAddress = peer.receive(buffer);
+      Data data = new Data(name);
+      data.setContent(new Blob("zero-copy content"));
+      peer.send(data.wireEncode().buf(), faceAddress);
+
+      double startTime = Common.getNowMilliseconds();
+      while (receivedData[0] == null &&
+             Common.getNowMilliseconds() - startTime < 2000)
+        face.processEvents();
+
+      assertNotNull(receivedData[0]);
+      // The Data was received into a pooled buffer, which the callback retained.
+      assertNotNull(retainedBuffer[0]);
+      assertEquals(1, retainedBuffer[0].getReferenceCount());
+
+      // More reads don't reuse the retained buffer.
+      face.processEvents();
+      assertEquals("zero-copy content", receivedData[0].getContent().toString());
+      assertTrue(receivedData[0].getName().equals(name));
+      retainedBuffer[0].release();
+    }
+    finally {
+      face.shutdown();
+      peer.close();
+    }
+  }
+}